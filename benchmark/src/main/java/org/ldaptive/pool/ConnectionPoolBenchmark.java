@@ -0,0 +1,154 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.transport.Transport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark comparing check out and check in for {@link BlockingConnectionPool} and {@link ConcurrentConnectionPool}.
+ * Connections are created by a transport that performs no I/O, so the results measure pool overhead only.
+ *
+ * @author  Middleware Services
+ */
+// CheckStyle:MagicNumber OFF
+@Fork(1)
+@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+// CheckStyle:MagicNumber ON
+public class ConnectionPoolBenchmark
+{
+
+  /** Type of pool to benchmark. */
+  @Param({"blocking", "concurrent"})
+  private String poolType;
+
+  /** Minimum and maximum size of the pool. */
+  @Param({"8", "64"})
+  private int poolSize;
+
+  /** Pool under test. */
+  private AbstractConnectionPool pool;
+
+
+  /** Creates and initializes the pool. */
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    final DefaultConnectionFactory factory = new DefaultConnectionFactory(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build(),
+      new NoOpTransport());
+    if ("blocking".equals(poolType)) {
+      pool = new BlockingConnectionPool(factory);
+    } else if ("concurrent".equals(poolType)) {
+      pool = new ConcurrentConnectionPool(factory);
+    } else {
+      throw new IllegalStateException("Unknown pool type: " + poolType);
+    }
+    pool.setMinPoolSize(poolSize);
+    pool.setMaxPoolSize(poolSize);
+    pool.initialize();
+  }
+
+
+  /** Closes the pool. */
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    pool.close();
+  }
+
+
+  /**
+   * Benchmark a single thread checking out and checking in a connection.
+   *
+   * @param  blackhole  to consume objects
+   *
+   * @throws  Exception  if the pool throws
+   */
+  @Benchmark
+  @Threads(1)
+  public void checkOutCheckIn(final Blackhole blackhole)
+    throws Exception
+  {
+    final Connection conn = pool.getConnection();
+    blackhole.consume(conn);
+    conn.close();
+  }
+
+
+  /**
+   * Benchmark many threads checking out and checking in connections.
+   *
+   * @param  blackhole  to consume objects
+   *
+   * @throws  Exception  if the pool throws
+   */
+  @Benchmark
+  @Threads(64)
+  public void checkOutCheckInContended(final Blackhole blackhole)
+    throws Exception
+  {
+    final Connection conn = pool.getConnection();
+    blackhole.consume(conn);
+    conn.close();
+  }
+
+
+  /** Transport that creates connections which are always open and perform no I/O. */
+  private static class NoOpTransport implements Transport
+  {
+
+
+    @Override
+    public Connection create(final ConnectionConfig cc)
+    {
+      return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class[] {Connection.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+          case "isOpen":
+            return true;
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          case "toString":
+            return "NoOpConnection@" + System.identityHashCode(proxy);
+          default:
+            return null;
+          }
+        });
+    }
+
+
+    @Override
+    public void close() {}
+
+
+    @Override
+    public void shutdown() {}
+  }
+}
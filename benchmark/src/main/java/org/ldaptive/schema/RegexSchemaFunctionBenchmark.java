@@ -0,0 +1,141 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.schema;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for {@link SchemaParser.RegexSchemaFunction}.
+ *
+ * @author  Middleware Services
+ */
+// CheckStyle:MagicNumber OFF
+@Fork(1)
+@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+// CheckStyle:MagicNumber ON
+public class RegexSchemaFunctionBenchmark
+{
+
+  /** Attribute type to parse. */
+  private static final String ATTRIBUTE_TYPE =
+    "( 1.2.840.113556.1.4.221 NAME 'sAMAccountName' SYNTAX '1.3.6.1.4.1.1466.115.121.1.15' SINGLE-VALUE )";
+
+  /** Attribute type with extensions to parse. */
+  private static final String ATTRIBUTE_TYPE_EXTENSIONS =
+    "( 2.5.4.3 NAME ( 'cn' 'commonName' ) DESC 'RFC4519: common name(s) for which the entity is known by' " +
+      "SUP name EQUALITY caseIgnoreMatch SUBSTR caseIgnoreSubstringsMatch " +
+      "X-ORIGIN ( 'RFC4519' 'user' ) X-SCHEMA-FILE '00-core.ldif' )";
+
+  /** Object class to parse. */
+  private static final String OBJECT_CLASS =
+    "( 1.2.840.113556.1.5.9 NAME 'user' SUP organizationalPerson STRUCTURAL " +
+      "MAY ( userCertificate $ networkAddress $ userAccountControl $ badPwdCount $ codePage $ homeDirectory $ " +
+      "homeDrive $ badPasswordTime $ lastLogoff $ lastLogon $ dBCSPwd $ localeID $ scriptPath $ logonHours $ " +
+      "logonWorkstation $ maxStorage $ userWorkstations $ unicodePwd $ otherLoginWorkstations $ ntPwdHistory $ " +
+      "pwdLastSet $ preferredOU $ primaryGroupID $ userParameters $ profilePath $ operatorCount $ adminCount $ " +
+      "accountExpires $ lmPwdHistory $ groupMembershipSAM $ logonCount $ controlAccessRights $ " +
+      "defaultClassStore $ groupsToIgnore $ groupPriority $ desktopProfile $ dynamicLDAPServer $ " +
+      "userPrincipalName $ lockoutTime $ userSharedFolder $ userSharedFolderOther $ servicePrincipalName $ " +
+      "aCSPolicyName $ terminalServer $ mSMQSignCertificates $ mSMQDigests $ mSMQDigestsMig $ " +
+      "mSMQSignCertificatesMig $ msNPAllowDialin $ msNPCallingStationID $ msNPSavedCallingStationID $ " +
+      "msRADIUSCallbackNumber $ msRADIUSFramedIPAddress $ msRADIUSFramedRoute $ msRADIUSServiceType $ " +
+      "msRASSavedCallbackNumber $ msRASSavedFramedIPAddress $ msRASSavedFramedRoute $ mS-DS-CreatorSID ) )";
+
+  /** Matching rule to parse. */
+  private static final String MATCHING_RULE =
+    "( 2.5.13.2 NAME 'caseIgnoreMatch' SYNTAX 1.3.6.1.4.1.1466.115.121.1.15 )";
+
+  /** Schema function to benchmark. */
+  private SchemaFunction schemaFunction;
+
+
+  /**
+   * Prepare objects for benchmark.
+   */
+  @Setup
+  public void setup()
+  {
+    schemaFunction = new SchemaParser.RegexSchemaFunction();
+  }
+
+
+  /**
+   * Benchmark parsing an attribute type.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseAttributeType(final Blackhole blackhole)
+  {
+    blackhole.consume(parse(AttributeType.class, ATTRIBUTE_TYPE));
+  }
+
+
+  /**
+   * Benchmark parsing an attribute type with extensions.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseAttributeTypeExtensions(final Blackhole blackhole)
+  {
+    blackhole.consume(parse(AttributeType.class, ATTRIBUTE_TYPE_EXTENSIONS));
+  }
+
+
+  /**
+   * Benchmark parsing an object class.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseObjectClass(final Blackhole blackhole)
+  {
+    blackhole.consume(parse(ObjectClass.class, OBJECT_CLASS));
+  }
+
+
+  /**
+   * Benchmark parsing a matching rule.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseMatchingRule(final Blackhole blackhole)
+  {
+    blackhole.consume(parse(MatchingRule.class, MATCHING_RULE));
+  }
+
+
+  /**
+   * Parses the supplied definition with the schema function.
+   *
+   * @param  <T>  type of schema element
+   * @param  type  of schema element
+   * @param  definition  to parse
+   *
+   * @return  schema element
+   */
+  private <T extends SchemaElement<?>> T parse(final Class<T> type, final String definition)
+  {
+    try {
+      return schemaFunction.parse(type, definition);
+    } catch (SchemaParseException e) {
+      throw new IllegalStateException("Could not parse definition: " + definition, e);
+    }
+  }
+}
@@ -4,7 +4,10 @@ package org.ldaptive.transport;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.ldaptive.Message;
+import org.ldaptive.asn1.CompiledDERPaths;
 import org.ldaptive.asn1.DERBuffer;
+import org.ldaptive.asn1.DERParser;
+import org.ldaptive.asn1.DERPath;
 import org.ldaptive.asn1.DefaultDERBuffer;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -56,6 +59,18 @@ public class ResponseParserBenchmark
     0x61, 0x6c, 0x41, 0x64, 0x64, 0x72, 0x65, 0x73, 0x73, 0x04, 0x0a, 0x6c, 0x6f, 0x63, 0x61, 0x6c, 0x50, 0x68,
     0x6f, 0x6e, 0x65};
 
+  /** Paths registered by the entry parse benchmarks, which mirror those used to decode a search result entry. */
+  private static final DERPath[] ENTRY_PATHS = {
+    new DERPath("/SEQ/INT[0]"),
+    new DERPath("/SEQ/APP(4)/OCTSTR[0]"),
+    new DERPath("/SEQ/APP(4)/SEQ/SEQ/OCTSTR"),
+    new DERPath("/SEQ/APP(4)/SEQ/SEQ/SET/OCTSTR"),
+    new DERPath("/SEQ/CTX(0)/SEQ"),
+  };
+
+  /** Compiled entry paths. */
+  private static final CompiledDERPaths COMPILED_ENTRY_PATHS = CompiledDERPaths.compile(ENTRY_PATHS);
+
 
   /**
    * Benchmark {@link ResponseParser#parse(DERBuffer)}.
@@ -69,4 +84,43 @@ public class ResponseParserBenchmark
     final Optional<Message> message = parser.parse(new DefaultDERBuffer(SEARCH_RESULT));
     blackhole.consume(message.get());
   }
+
+
+  /**
+   * Benchmark {@link DERParser} matching entry paths with path permutations.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseEntryPermutations(final Blackhole blackhole)
+  {
+    parseEntry(new DERParser(), blackhole);
+  }
+
+
+  /**
+   * Benchmark {@link DERParser} matching entry paths with {@link CompiledDERPaths}.
+   *
+   * @param  blackhole  to consume objects
+   */
+  @Benchmark
+  public void parseEntryCompiled(final Blackhole blackhole)
+  {
+    parseEntry(new DERParser(COMPILED_ENTRY_PATHS), blackhole);
+  }
+
+
+  /**
+   * Registers handlers for {@link #ENTRY_PATHS} that consume each matching element and parses {@link #SEARCH_RESULT}.
+   *
+   * @param  parser  to register handlers with
+   * @param  blackhole  to consume objects
+   */
+  private static void parseEntry(final DERParser parser, final Blackhole blackhole)
+  {
+    for (DERPath path : ENTRY_PATHS) {
+      parser.registerHandler(path, (p, e) -> blackhole.consume(e.remaining()));
+    }
+    parser.parse(new DefaultDERBuffer(SEARCH_RESULT));
+  }
 }
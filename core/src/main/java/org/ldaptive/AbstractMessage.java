@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Optional;
 import org.ldaptive.asn1.AbstractParseHandler;
 import org.ldaptive.asn1.BooleanType;
+import org.ldaptive.asn1.CompiledDERPaths;
 import org.ldaptive.asn1.DERBuffer;
 import org.ldaptive.asn1.DERParser;
 import org.ldaptive.asn1.DERPath;
@@ -223,8 +224,15 @@ public abstract class AbstractMessage implements Message
     /** DER path to alternate value. */
     private static final DERPath ALT_VALUE_PATH = new DERPath("/OCTSTR[2]");
 
+    /** Compiled DER paths for decoding. */
+    private static final CompiledDERPaths PATHS = CompiledDERPaths.compile(
+      CRITICAL_PATH,
+      OID_PATH,
+      VALUE_PATH,
+      ALT_VALUE_PATH);
+
     /** Parser for decoding LDAP controls. */
-    private final DERParser parser = new DERParser();
+    private final DERParser parser = new DERParser(PATHS);
 
     /** Control criticality. */
     private Boolean critical;
@@ -91,6 +91,13 @@ public abstract class AbstractRequestMessage implements Request
 
   @Override
   public byte[] encode(final int id)
+  {
+    return getEncoder(id).encode();
+  }
+
+
+  @Override
+  public DEREncoder getEncoder(final int id)
   {
     final DEREncoder[] requestEncoders = getRequestEncoders(id);
     final DEREncoder controlEncoder = getControlEncoder();
@@ -100,8 +107,7 @@ public abstract class AbstractRequestMessage implements Request
     } else {
       encoders = requestEncoders;
     }
-    final ConstructedDEREncoder se = new ConstructedDEREncoder(UniversalDERTag.SEQ, encoders);
-    return se.encode();
+    return new ConstructedDEREncoder(UniversalDERTag.SEQ, encoders);
   }
 
 
@@ -0,0 +1,402 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Registry of attribute descriptors keyed by attribute name, alias and OID. Names are lower cased once when the
+ * registry is created and the lower case instances are shared by every entry that uses them, so attributes received
+ * from a directory are named and classified as binary with a hash lookup rather than by lower casing their names and
+ * scanning a list of binary attribute names.
+ *
+ * <p>The default registry contains attribute names known to use binary syntax and any names configured with the
+ * <code>org.ldaptive.attribute.binary</code> system property. A registry that also reflects the syntaxes and matching
+ * rules of a directory can be created with {@link org.ldaptive.schema.Schema#createAttributeRegistry()} and installed
+ * with {@link #setDefault(AttributeRegistry)}.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class AttributeRegistry
+{
+
+  /** List of attribute names known to use binary syntax. */
+  private static final String[] DEFAULT_BINARY_ATTRIBUTES = {
+    "photo",
+    "personalSignature",
+    "audio",
+    "jpegPhoto",
+    "javaSerializedData",
+    "thumbnailPhoto",
+    "thumbnailLogo",
+    "userCertificate",
+    "cACertificate",
+    "authorityRevocationList",
+    "certificateRevocationList",
+    "crossCertificatePair",
+    "x500UniqueIdentifier",
+  };
+
+  /** Custom binary attribute names property. */
+  private static final String BINARY_ATTRIBUTES_PROPERTY = "org.ldaptive.attribute.binary";
+
+  /** Registry containing the default and custom binary attribute names. */
+  private static final AttributeRegistry BINARY_REGISTRY;
+
+  /** Registry used by {@link LdapAttribute} and {@link LdapEntry}. */
+  private static volatile AttributeRegistry defaultRegistry;
+
+  /** Interned lower case names keyed by the names as declared and by lower case name. */
+  private final Map<String, String> lowerNames = new HashMap<>();
+
+  /** Descriptors keyed by lower case name. */
+  private final Map<String, Descriptor> descriptors = new LinkedHashMap<>();
+
+  static {
+    final String[] custom = Stream.of(System.getProperty(BINARY_ATTRIBUTES_PROPERTY, "").split(","))
+      .map(String::trim)
+      .filter(s -> !s.isEmpty())
+      .toArray(String[]::new);
+    BINARY_REGISTRY = new AttributeRegistry(
+      Stream.of(LdapUtils.concatArrays(DEFAULT_BINARY_ATTRIBUTES, custom))
+        .map(s -> new Descriptor(null, new String[] {s}, null, null, true))
+        .toArray(Descriptor[]::new));
+    defaultRegistry = BINARY_REGISTRY;
+  }
+
+
+  /**
+   * Creates a new attribute registry. If more than one descriptor declares the same name, the last one is used.
+   *
+   * @param  descs  attribute descriptors
+   */
+  public AttributeRegistry(final Descriptor... descs)
+  {
+    this(descs != null ? Arrays.asList(descs) : null);
+  }
+
+
+  /**
+   * Creates a new attribute registry. If more than one descriptor declares the same name, the last one is used.
+   *
+   * @param  descs  attribute descriptors
+   */
+  public AttributeRegistry(final Collection<Descriptor> descs)
+  {
+    LdapUtils.assertNotContainsNullArgOr(descs, Objects::isNull, "Descriptors cannot be null or contain null");
+    for (Descriptor d : descs) {
+      for (String name : d.getKeys()) {
+        final String lowerName = lowerNames.computeIfAbsent(LdapUtils.toLowerCase(name, false), k -> k);
+        lowerNames.putIfAbsent(name, lowerName);
+        descriptors.put(lowerName, d);
+      }
+    }
+  }
+
+
+  /**
+   * Returns the registry used by {@link LdapAttribute} to determine whether an attribute is binary and by {@link
+   * LdapEntry} to key its attributes.
+   *
+   * @return  default attribute registry
+   */
+  public static AttributeRegistry getDefault()
+  {
+    return defaultRegistry;
+  }
+
+
+  /**
+   * Sets the registry used by {@link LdapAttribute} and {@link LdapEntry}. Attributes created before this method is
+   * invoked are not affected.
+   *
+   * @param  registry  default attribute registry or null to restore the registry containing only the binary attribute
+   *                   names known to ldaptive
+   */
+  public static void setDefault(final AttributeRegistry registry)
+  {
+    defaultRegistry = registry != null ? registry : BINARY_REGISTRY;
+  }
+
+
+  /**
+   * Returns the registry containing the attribute names known to use binary syntax and any names configured with the
+   * <code>org.ldaptive.attribute.binary</code> system property.
+   *
+   * @return  binary attribute registry
+   */
+  public static AttributeRegistry getBinaryRegistry()
+  {
+    return BINARY_REGISTRY;
+  }
+
+
+  /**
+   * Returns the descriptors in this registry.
+   *
+   * @return  unmodifiable set of descriptors
+   */
+  public Set<Descriptor> getDescriptors()
+  {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(descriptors.values()));
+  }
+
+
+  /**
+   * Returns the descriptor for the supplied attribute description. Any options on the description are ignored.
+   *
+   * @param  description  attribute description
+   *
+   * @return  attribute descriptor or null if the attribute is not registered
+   */
+  public Descriptor lookup(final String description)
+  {
+    if (description == null) {
+      return null;
+    }
+    final String lowerName = lowerNames.get(description);
+    if (lowerName != null) {
+      return descriptors.get(lowerName);
+    }
+    final int optionIndex = description.indexOf(';');
+    final String name = optionIndex > 0 ? description.substring(0, optionIndex) : description;
+    return descriptors.get(getLowerName(name));
+  }
+
+
+  /**
+   * Returns whether the supplied attribute description represents binary data. That is the case if the description
+   * has an option of 'binary' or the attribute is registered as binary.
+   *
+   * @param  description  attribute description
+   *
+   * @return  whether the attribute is binary
+   */
+  public boolean isBinary(final String description)
+  {
+    if (description == null) {
+      return false;
+    }
+    final String lowerName = lowerNames.get(description);
+    if (lowerName != null) {
+      return descriptors.get(lowerName).isBinary();
+    }
+    final int optionIndex = description.indexOf(';');
+    if (optionIndex > 0 && hasBinaryOption(description, optionIndex)) {
+      return true;
+    }
+    final Descriptor d = lookup(description);
+    return d != null && d.isBinary();
+  }
+
+
+  /**
+   * Returns the lower case form of the supplied attribute description. Registered names return a shared instance,
+   * other descriptions are lower cased with {@link LdapUtils#toLowerCase(String, boolean)}.
+   *
+   * @param  description  attribute description
+   *
+   * @return  lower case attribute description
+   *
+   * @throws  IllegalArgumentException  if description is null
+   */
+  public String getLowerName(final String description)
+  {
+    final String lowerName = description != null ? lowerNames.get(description) : null;
+    return lowerName != null ? lowerName : LdapUtils.toLowerCase(description, false);
+  }
+
+
+  /**
+   * Returns whether the options of the supplied attribute description include 'binary'.
+   *
+   * @param  description  attribute description
+   * @param  optionIndex  index of the first option separator
+   *
+   * @return  whether the description has a binary option
+   */
+  private static boolean hasBinaryOption(final String description, final int optionIndex)
+  {
+    int start = optionIndex + 1;
+    while (start < description.length()) {
+      int end = description.indexOf(';', start);
+      if (end < 0) {
+        end = description.length();
+      }
+      if (end - start == "binary".length() && description.startsWith("binary", start)) {
+        return true;
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "descriptors=" + descriptors.size() + "]";
+  }
+
+
+  /** Attribute type information used when attributes are decoded. Descriptors are immutable. */
+  public static final class Descriptor
+  {
+
+    /** hash code seed. */
+    private static final int HASH_CODE_SEED = 10247;
+
+    /** Attribute type OID. */
+    private final String oid;
+
+    /** Attribute type names. */
+    private final String[] names;
+
+    /** Syntax OID. */
+    private final String syntaxOID;
+
+    /** Equality matching rule. */
+    private final String equalityMatchingRule;
+
+    /** Whether values of this attribute are binary. */
+    private final boolean binary;
+
+
+    /**
+     * Creates a new attribute descriptor.
+     *
+     * @param  o  attribute type OID, may be null
+     * @param  n  attribute type names
+     * @param  syntax  syntax OID, may be null
+     * @param  equality  equality matching rule, may be null
+     * @param  b  whether values of this attribute are binary
+     */
+    public Descriptor(final String o, final String[] n, final String syntax, final String equality, final boolean b)
+    {
+      LdapUtils.assertNotContainsNullArgOr(
+        n, a -> a == null || Stream.of(a).anyMatch(String::isEmpty), "Names cannot be null or contain empty names");
+      if (o == null && n.length == 0) {
+        throw new IllegalArgumentException("Descriptor must have an OID or a name");
+      }
+      oid = o;
+      names = n.clone();
+      syntaxOID = syntax;
+      equalityMatchingRule = equality;
+      binary = b;
+    }
+
+
+    /**
+     * Returns the attribute type OID.
+     *
+     * @return  OID or null
+     */
+    public String getOID()
+    {
+      return oid;
+    }
+
+
+    /**
+     * Returns the attribute type names.
+     *
+     * @return  names
+     */
+    public String[] getNames()
+    {
+      return names.clone();
+    }
+
+
+    /**
+     * Returns the syntax OID.
+     *
+     * @return  syntax OID or null
+     */
+    public String getSyntaxOID()
+    {
+      return syntaxOID;
+    }
+
+
+    /**
+     * Returns the equality matching rule.
+     *
+     * @return  equality matching rule or null
+     */
+    public String getEqualityMatchingRule()
+    {
+      return equalityMatchingRule;
+    }
+
+
+    /**
+     * Returns whether values of this attribute are binary.
+     *
+     * @return  whether values of this attribute are binary
+     */
+    public boolean isBinary()
+    {
+      return binary;
+    }
+
+
+    /**
+     * Returns the names and OID that this descriptor is registered under.
+     *
+     * @return  registry keys
+     */
+    private String[] getKeys()
+    {
+      return oid != null ? LdapUtils.concatArrays(names, new String[] {oid}) : names;
+    }
+
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof Descriptor) {
+        final Descriptor v = (Descriptor) o;
+        return LdapUtils.areEqual(oid, v.oid) &&
+          LdapUtils.areEqual(names, v.names) &&
+          LdapUtils.areEqual(syntaxOID, v.syntaxOID) &&
+          LdapUtils.areEqual(equalityMatchingRule, v.equalityMatchingRule) &&
+          binary == v.binary;
+      }
+      return false;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+      return LdapUtils.computeHashCode(HASH_CODE_SEED, oid, names, syntaxOID, equalityMatchingRule, binary);
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return "[" +
+        getClass().getName() + "@" + hashCode() + "::" +
+        "oid=" + oid + ", " +
+        "names=" + Arrays.toString(names) + ", " +
+        "syntaxOID=" + syntaxOID + ", " +
+        "equalityMatchingRule=" + equalityMatchingRule + ", " +
+        "binary=" + binary + "]";
+    }
+  }
+}
@@ -1,6 +1,9 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Executes an ldap bind operation.
  *
@@ -97,6 +100,34 @@ public class BindOperation extends AbstractOperation<BindRequest, BindResponse>
   }
 
 
+  /**
+   * Sends a bind request and returns a completion stage for the result. The connection is opened by the calling thread
+   * and closed when the stage completes. See {@link OperationHandle#toCompletionStage()}.
+   *
+   * @param  request  bind request
+   *
+   * @return  completion stage for the bind result
+   */
+  @Override
+  public CompletionStage<BindResponse> executeAsync(final BindRequest request)
+  {
+    final Connection conn;
+    try {
+      conn = getConnectionFactory().getConnection();
+    } catch (LdapException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    try {
+      conn.open();
+      return configureHandle(conn.operation(configureRequest(request))).toCompletionStage()
+        .whenComplete((r, e) -> conn.close());
+    } catch (Exception e) {
+      conn.close();
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+
   /**
    * Executes a bind request. See {@link OperationHandle#execute()}.
    *
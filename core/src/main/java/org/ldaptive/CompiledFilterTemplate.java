@@ -0,0 +1,816 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.filter.Filter;
+import org.ldaptive.filter.FilterParseException;
+import org.ldaptive.filter.FilterParser;
+
+/**
+ * Filter template that is parsed and DER encoded once. Parameters are substituted directly into the encoded filter, so
+ * producing a filter for a set of parameters requires no string formatting, escaping or parsing. Substitution follows
+ * the rules of {@link FilterTemplate#format()}: parameter values are used as literal assertion values, byte arrays as
+ * is and any other object as the UTF-8 bytes of its string form.
+ *
+ * <p>Parameters are only supported inside assertion values, for example <code>(uid={user})</code> or <code>
+ * (mail={0}*)</code>. {@link #compile(String)} throws if a parameter appears in an attribute description or matching
+ * rule. Filters produced by {@link #apply(Map)} are meant to be sent, they are not instances of the filter types in
+ * {@link org.ldaptive.filter} and do not equal the parsed form of the same filter.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class CompiledFilterTemplate
+{
+
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 313;
+
+  /** Pattern that matches parameters in a filter template. */
+  private static final Pattern PARAMETER_PATTERN = Pattern.compile("\\{([\\w.\\-]+)\\}");
+
+  /** Marks the start of a parameter slot in the encoded skeleton. */
+  private static final char SLOT_START = '\uE000';
+
+  /** Marks the end of a parameter slot in the encoded skeleton. */
+  private static final char SLOT_END = '\uE001';
+
+  /** UTF-8 encoding of {@link #SLOT_START}. */
+  private static final byte[] SLOT_START_BYTES = String.valueOf(SLOT_START).getBytes(StandardCharsets.UTF_8);
+
+  /** UTF-8 encoding of {@link #SLOT_END}. */
+  private static final byte[] SLOT_END_BYTES = String.valueOf(SLOT_END).getBytes(StandardCharsets.UTF_8);
+
+  /** Length of a short form header, see {@link org.ldaptive.asn1.AbstractDERType}. */
+  private static final int SHORT_FORM_HEADER_LENGTH = 2;
+
+  /** Length of a long form header, see {@link org.ldaptive.asn1.AbstractDERType}. */
+  private static final int LONG_FORM_HEADER_LENGTH = 6;
+
+  /** Largest length encoded in short form. */
+  private static final int SHORT_FORM_MAX_LENGTH = 127;
+
+  /** Filter template. */
+  private final String searchFilter;
+
+  /** Parameter names in order of first appearance. */
+  private final List<String> parameterNames;
+
+  /** Encoded filter with parameter slots. */
+  private final Segment skeleton;
+
+
+  /**
+   * Creates a new compiled filter template.
+   *
+   * @param  filter  template
+   * @param  names  parameter names
+   * @param  segment  encoded skeleton
+   */
+  private CompiledFilterTemplate(final String filter, final List<String> names, final Segment segment)
+  {
+    searchFilter = filter;
+    parameterNames = names;
+    skeleton = segment;
+  }
+
+
+  /**
+   * Parses and encodes the supplied filter template.
+   *
+   * @param  filter  template to compile
+   *
+   * @return  compiled filter template
+   *
+   * @throws  IllegalArgumentException  if the filter cannot be parsed or a parameter is not inside an assertion value
+   */
+  public static CompiledFilterTemplate compile(final String filter)
+  {
+    LdapUtils.assertNotNullArg(filter, "Filter cannot be null");
+    if (filter.indexOf(SLOT_START) >= 0 || filter.indexOf(SLOT_END) >= 0) {
+      throw new IllegalArgumentException("Filter contains reserved characters: " + filter);
+    }
+    final List<String> names = new ArrayList<>();
+    final StringBuilder sb = new StringBuilder(filter.length());
+    final Matcher matcher = PARAMETER_PATTERN.matcher(filter);
+    while (matcher.find()) {
+      int index = names.indexOf(matcher.group(1));
+      if (index < 0) {
+        index = names.size();
+        names.add(matcher.group(1));
+      }
+      matcher.appendReplacement(sb, "");
+      sb.append(SLOT_START).append(index).append(SLOT_END);
+    }
+    matcher.appendTail(sb);
+    final Filter parsed;
+    try {
+      parsed = FilterParser.parse(sb.toString());
+    } catch (FilterParseException e) {
+      throw new IllegalArgumentException("Invalid filter template: " + filter, e);
+    }
+    final byte[] encoded = parsed.getEncoder().encode();
+    final Segment skeleton = readSegment(encoded, 0, encoded.length, (byte) 0, 0, filter);
+    if (!names.isEmpty() && skeleton instanceof Literal) {
+      throw new IllegalArgumentException("Parameters must be inside assertion values: " + filter);
+    }
+    return new CompiledFilterTemplate(filter, Collections.unmodifiableList(names), skeleton);
+  }
+
+
+  /**
+   * Returns the filter template.
+   *
+   * @return  filter template
+   */
+  public String getFilter()
+  {
+    return searchFilter;
+  }
+
+
+  /**
+   * Returns the names of the parameters in the filter template, in order of first appearance.
+   *
+   * @return  unmodifiable list of parameter names
+   */
+  public List<String> getParameterNames()
+  {
+    return parameterNames;
+  }
+
+
+  /**
+   * Returns a filter with the supplied positional parameters substituted. See {@link
+   * FilterTemplate#setParameters(Object[])}.
+   *
+   * @param  values  positional parameters
+   *
+   * @return  filter
+   */
+  public Filter apply(final Object... values)
+  {
+    final Object[] params = new Object[parameterNames.size()];
+    for (int i = 0; i < params.length; i++) {
+      final String name = parameterNames.get(i);
+      final int position = positionOf(name);
+      if (position >= 0 && position < values.length) {
+        params[i] = values[position];
+      }
+    }
+    return create(params);
+  }
+
+
+  /**
+   * Returns a filter with the supplied named parameters substituted. Positional parameters use their position as the
+   * name, see {@link FilterTemplate#getParameters()}.
+   *
+   * @param  values  parameters keyed by name
+   *
+   * @return  filter
+   */
+  public Filter apply(final Map<String, Object> values)
+  {
+    final Object[] params = new Object[parameterNames.size()];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = values.get(parameterNames.get(i));
+    }
+    return create(params);
+  }
+
+
+  /**
+   * Returns a filter with the parameters of the supplied template substituted.
+   *
+   * @param  template  whose filter must equal the filter of this compiled template
+   *
+   * @return  filter
+   *
+   * @throws  IllegalArgumentException  if the template has a different filter
+   */
+  public Filter apply(final FilterTemplate template)
+  {
+    if (!searchFilter.equals(template.getFilter())) {
+      throw new IllegalArgumentException(
+        "Template filter " + template.getFilter() + " does not match compiled filter " + searchFilter);
+    }
+    return apply(template.getParameters());
+  }
+
+
+  /**
+   * Creates a filter from the supplied parameter values. Falls back to formatting and parsing the template when a value
+   * is null or empty, since those change the shape of the filter. A null parameter is left in the filter as is, and an
+   * empty value can turn a substring assertion into a presence filter.
+   *
+   * @param  params  in the order of {@link #parameterNames}
+   *
+   * @return  filter
+   */
+  private Filter create(final Object[] params)
+  {
+    final byte[][] values = new byte[params.length][];
+    for (int i = 0; i < params.length; i++) {
+      values[i] = toBytes(params[i]);
+      if (values[i] == null || values[i].length == 0) {
+        return parse(params);
+      }
+    }
+    return new CompiledFilter(params, values);
+  }
+
+
+  /**
+   * Formats the template with the supplied parameters and parses the result.
+   *
+   * @param  params  in the order of {@link #parameterNames}
+   *
+   * @return  parsed filter
+   */
+  private Filter parse(final Object[] params)
+  {
+    try {
+      return FilterParser.parse(format(params));
+    } catch (FilterParseException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+
+  /**
+   * Formats the template with the supplied parameters. See {@link FilterTemplate#format()}.
+   *
+   * @param  params  in the order of {@link #parameterNames}
+   *
+   * @return  formatted filter
+   */
+  private String format(final Object[] params)
+  {
+    final FilterTemplate template = new FilterTemplate(searchFilter);
+    for (int i = 0; i < params.length; i++) {
+      template.setParameter(parameterNames.get(i), params[i]);
+    }
+    return template.format();
+  }
+
+
+  /**
+   * Returns the position encoded in the supplied parameter name.
+   *
+   * @param  name  of a positional parameter
+   *
+   * @return  position or -1 if the name is not a position
+   */
+  private static int positionOf(final String name)
+  {
+    // CheckStyle:MagicNumber OFF
+    if (name.isEmpty() || name.length() > 9) {
+      return -1;
+    }
+    // CheckStyle:MagicNumber ON
+    int position = 0;
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      position = position * 10 + (c - '0');
+    }
+    return position;
+  }
+
+
+  /**
+   * Returns the bytes to substitute for the supplied parameter value.
+   *
+   * @param  value  parameter value
+   *
+   * @return  value bytes or null if value is null
+   */
+  private static byte[] toBytes(final Object value)
+  {
+    if (value == null) {
+      return null;
+    } else if (value instanceof byte[]) {
+      return LdapUtils.copyArray((byte[]) value);
+    } else if (value instanceof String) {
+      return LdapUtils.utf8Encode((String) value, false);
+    }
+    return LdapUtils.utf8Encode(value.toString(), false);
+  }
+
+
+  /**
+   * Reads the encoded element at the supplied position and returns a literal segment if it contains no parameter
+   * slots.
+   *
+   * @param  encoded  filter
+   * @param  start  of the element
+   * @param  end  of the enclosing element
+   * @param  parentTag  tag of the enclosing element
+   * @param  position  of the element in the contents of the enclosing element
+   * @param  filter  template for error messages
+   *
+   * @return  segment
+   */
+  private static Segment readSegment(
+    final byte[] encoded,
+    final int start,
+    final int end,
+    final byte parentTag,
+    final int position,
+    final String filter)
+  {
+    // CheckStyle:MagicNumber OFF
+    final byte tag = encoded[start];
+    int pos = start + 1;
+    int length = encoded[pos++] & 0xFF;
+    if (length > SHORT_FORM_MAX_LENGTH) {
+      final int lengthBytes = length & 0x7F;
+      length = 0;
+      for (int i = 0; i < lengthBytes; i++) {
+        length = (length << 8) | (encoded[pos++] & 0xFF);
+      }
+    }
+    final int contentEnd = pos + length;
+    if ((tag & 0x1F) == 0x1F || contentEnd > end) {
+      throw new IllegalArgumentException("Unsupported filter encoding: " + filter);
+    }
+    if ((tag & 0x20) != 0) {
+      final List<Segment> children = new ArrayList<>();
+      boolean slots = false;
+      int childStart = pos;
+      while (childStart < contentEnd) {
+        final Segment child = readSegment(encoded, childStart, contentEnd, tag, children.size(), filter);
+        slots |= !(child instanceof Literal);
+        children.add(child);
+        childStart = child.end;
+      }
+      if (slots) {
+        final Segment[] segments = new Segment[children.size()];
+        for (int i = 0; i < segments.length; i++) {
+          final Segment child = children.get(i);
+          segments[i] = child instanceof Literal ? ((Literal) child).trim() : child;
+        }
+        return new ConstructedSegment(tag, segments, contentEnd);
+      }
+      return new Literal(encoded, start, contentEnd);
+    }
+    // CheckStyle:MagicNumber ON
+    final List<Object> parts = new ArrayList<>();
+    int literalStart = pos;
+    int i = pos;
+    while (i < contentEnd) {
+      if (regionMatches(encoded, i, contentEnd, SLOT_START_BYTES)) {
+        int index = 0;
+        int j = i + SLOT_START_BYTES.length;
+        while (j < contentEnd && encoded[j] >= '0' && encoded[j] <= '9') {
+          index = index * 10 + (encoded[j++] - '0');
+        }
+        if (!regionMatches(encoded, j, contentEnd, SLOT_END_BYTES)) {
+          throw new IllegalArgumentException("Parameters must be inside assertion values: " + filter);
+        }
+        if (i > literalStart) {
+          parts.add(Arrays.copyOfRange(encoded, literalStart, i));
+        }
+        parts.add(index);
+        i = j + SLOT_END_BYTES.length;
+        literalStart = i;
+      } else {
+        i++;
+      }
+    }
+    if (parts.isEmpty()) {
+      return new Literal(encoded, start, contentEnd);
+    }
+    if (!isAssertionValue(parentTag, position, tag)) {
+      throw new IllegalArgumentException("Parameters must be inside assertion values: " + filter);
+    }
+    if (literalStart < contentEnd) {
+      parts.add(Arrays.copyOfRange(encoded, literalStart, contentEnd));
+    }
+    return new PrimitiveSegment(tag, parts.toArray(), contentEnd);
+  }
+
+
+  /**
+   * Returns whether an element with the supplied tag holds an assertion value. See RFC 4511 section 4.5.1.
+   *
+   * @param  parentTag  tag of the enclosing element
+   * @param  position  of the element in the contents of the enclosing element
+   * @param  tag  of the element
+   *
+   * @return  whether the element is an assertion value
+   */
+  private static boolean isAssertionValue(final byte parentTag, final int position, final byte tag)
+  {
+    // CheckStyle:MagicNumber OFF
+    switch (parentTag) {
+    // equality, greater or equal, less or equal and approximate match
+    case (byte) 0xA3:
+    case (byte) 0xA5:
+    case (byte) 0xA6:
+    case (byte) 0xA8:
+      return tag == 0x04 && position == 1;
+    // substring initial, any and final
+    case 0x30:
+      return tag == (byte) 0x80 || tag == (byte) 0x81 || tag == (byte) 0x82;
+    // extensible match value
+    case (byte) 0xA9:
+      return tag == (byte) 0x83;
+    default:
+      return false;
+    }
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /**
+   * Returns whether the supplied bytes occur in the encoded filter at the supplied position.
+   *
+   * @param  encoded  filter
+   * @param  pos  to compare at
+   * @param  end  of the region that may be compared
+   * @param  bytes  to compare
+   *
+   * @return  whether the bytes match
+   */
+  private static boolean regionMatches(final byte[] encoded, final int pos, final int end, final byte[] bytes)
+  {
+    if (pos + bytes.length > end) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (encoded[pos + i] != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Returns the length of an element whose contents have the supplied length, including the tag and length bytes.
+   *
+   * @param  contentLength  length of the contents
+   *
+   * @return  element length
+   */
+  private static int elementLength(final int contentLength)
+  {
+    if (contentLength <= SHORT_FORM_MAX_LENGTH) {
+      return contentLength + SHORT_FORM_HEADER_LENGTH;
+    }
+    return contentLength + LONG_FORM_HEADER_LENGTH;
+  }
+
+
+  /**
+   * Writes a tag and length in the same form as {@link org.ldaptive.asn1.AbstractDERType}.
+   *
+   * @param  target  to write to
+   * @param  tag  of the element
+   * @param  contentLength  length of the contents
+   */
+  private static void writeHeader(final ByteBuffer target, final byte tag, final int contentLength)
+  {
+    target.put(tag);
+    if (contentLength <= SHORT_FORM_MAX_LENGTH) {
+      target.put((byte) contentLength);
+    } else {
+      // CheckStyle:MagicNumber OFF
+      target.put((byte) 0x84);
+      target.put((byte) (contentLength >>> 24));
+      target.put((byte) (contentLength >>> 16));
+      target.put((byte) (contentLength >>> 8));
+      target.put((byte) contentLength);
+      // CheckStyle:MagicNumber ON
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "filter=" + searchFilter + ", " +
+      "parameterNames=" + parameterNames + "]";
+  }
+
+
+  /** Part of the encoded filter skeleton. */
+  private abstract static class Segment
+  {
+
+    /** Position after this segment in the encoded filter it was read from. */
+    protected final int end;
+
+
+    /**
+     * Creates a new segment.
+     *
+     * @param  e  position after this segment
+     */
+    Segment(final int e)
+    {
+      end = e;
+    }
+
+
+    /**
+     * Returns the encoded length of this segment.
+     *
+     * @param  values  parameter values
+     *
+     * @return  encoded length
+     */
+    abstract int length(byte[][] values);
+
+
+    /**
+     * Writes this segment.
+     *
+     * @param  target  to write to
+     * @param  values  parameter values
+     */
+    abstract void write(ByteBuffer target, byte[][] values);
+  }
+
+
+  /** Encoded element without parameters. */
+  private static final class Literal extends Segment
+  {
+
+    /** Encoded filter the element was read from. */
+    private final byte[] encoded;
+
+    /** Start of the element. */
+    private final int start;
+
+
+    /**
+     * Creates a new literal.
+     *
+     * @param  bytes  encoded filter
+     * @param  s  start of the element
+     * @param  e  end of the element
+     */
+    Literal(final byte[] bytes, final int s, final int e)
+    {
+      super(e);
+      encoded = bytes;
+      start = s;
+    }
+
+
+    /**
+     * Returns a literal that holds only the bytes of this element.
+     *
+     * @return  literal
+     */
+    Literal trim()
+    {
+      return new Literal(Arrays.copyOfRange(encoded, start, end), 0, end - start);
+    }
+
+
+    @Override
+    int length(final byte[][] values)
+    {
+      return end - start;
+    }
+
+
+    @Override
+    void write(final ByteBuffer target, final byte[][] values)
+    {
+      target.put(encoded, start, end - start);
+    }
+  }
+
+
+  /** Constructed element that contains parameters. */
+  private static final class ConstructedSegment extends Segment
+  {
+
+    /** Element tag. */
+    private final byte tag;
+
+    /** Elements in the contents. */
+    private final Segment[] children;
+
+
+    /**
+     * Creates a new constructed segment.
+     *
+     * @param  t  element tag
+     * @param  c  elements in the contents
+     * @param  e  position after this element
+     */
+    ConstructedSegment(final byte t, final Segment[] c, final int e)
+    {
+      super(e);
+      tag = t;
+      children = c;
+    }
+
+
+    /**
+     * Returns the length of the contents of this element.
+     *
+     * @param  values  parameter values
+     *
+     * @return  content length
+     */
+    private int contentLength(final byte[][] values)
+    {
+      int length = 0;
+      for (Segment child : children) {
+        length += child.length(values);
+      }
+      return length;
+    }
+
+
+    @Override
+    int length(final byte[][] values)
+    {
+      return elementLength(contentLength(values));
+    }
+
+
+    @Override
+    void write(final ByteBuffer target, final byte[][] values)
+    {
+      writeHeader(target, tag, contentLength(values));
+      for (Segment child : children) {
+        child.write(target, values);
+      }
+    }
+  }
+
+
+  /** Primitive element whose contents contain parameters. */
+  private static final class PrimitiveSegment extends Segment
+  {
+
+    /** Element tag. */
+    private final byte tag;
+
+    /** Literal byte arrays and parameter indexes. */
+    private final Object[] parts;
+
+
+    /**
+     * Creates a new primitive segment.
+     *
+     * @param  t  element tag
+     * @param  p  literal byte arrays and parameter indexes
+     * @param  e  position after this element
+     */
+    PrimitiveSegment(final byte t, final Object[] p, final int e)
+    {
+      super(e);
+      tag = t;
+      parts = p;
+    }
+
+
+    /**
+     * Returns the length of the contents of this element.
+     *
+     * @param  values  parameter values
+     *
+     * @return  content length
+     */
+    private int contentLength(final byte[][] values)
+    {
+      int length = 0;
+      for (Object part : parts) {
+        length += part instanceof Integer ? values[(Integer) part].length : ((byte[]) part).length;
+      }
+      return length;
+    }
+
+
+    @Override
+    int length(final byte[][] values)
+    {
+      return elementLength(contentLength(values));
+    }
+
+
+    @Override
+    void write(final ByteBuffer target, final byte[][] values)
+    {
+      writeHeader(target, tag, contentLength(values));
+      for (Object part : parts) {
+        target.put(part instanceof Integer ? values[(Integer) part] : (byte[]) part);
+      }
+    }
+  }
+
+
+  /** Filter produced from this template for a set of parameter values. */
+  private final class CompiledFilter implements Filter, DEREncoder
+  {
+
+    /** Parameters in the order of {@link #parameterNames}. */
+    private final Object[] params;
+
+    /** Parameter values in the order of {@link #parameterNames}. */
+    private final byte[][] values;
+
+
+    /**
+     * Creates a new compiled filter.
+     *
+     * @param  p  parameters
+     * @param  v  parameter values
+     */
+    CompiledFilter(final Object[] p, final byte[][] v)
+    {
+      params = p;
+      values = v;
+    }
+
+
+    @Override
+    public DEREncoder getEncoder()
+    {
+      return this;
+    }
+
+
+    @Override
+    public byte[] encode()
+    {
+      final ByteBuffer buffer = ByteBuffer.allocate(encodedLength());
+      encode(buffer);
+      return buffer.array();
+    }
+
+
+    @Override
+    public int encodedLength()
+    {
+      return skeleton.length(values);
+    }
+
+
+    @Override
+    public void encode(final ByteBuffer target)
+    {
+      skeleton.write(target, values);
+    }
+
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof CompiledFilter) {
+        final CompiledFilter v = (CompiledFilter) o;
+        return searchFilter.equals(v.template().searchFilter) && Arrays.deepEquals(values, v.values);
+      }
+      return false;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+      return LdapUtils.computeHashCode(HASH_CODE_SEED, searchFilter, values);
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return format(params);
+    }
+
+
+    /**
+     * Returns the template that produced this filter.
+     *
+     * @return  compiled filter template
+     */
+    private CompiledFilterTemplate template()
+    {
+      return CompiledFilterTemplate.this;
+    }
+  }
+}
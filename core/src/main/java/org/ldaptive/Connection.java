@@ -1,6 +1,9 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.ldaptive.control.RequestControl;
 import org.ldaptive.extended.ExtendedOperationHandle;
 import org.ldaptive.extended.ExtendedRequest;
@@ -130,6 +133,71 @@ public interface Connection extends AutoCloseable
   BindResponse operation(DefaultSaslClientRequest request) throws LdapException;
 
 
+  /**
+   * Sends each of the supplied requests and returns a handle for each of them, in the same order. Implementations may
+   * write the requests as a group, so that many requests can be sent with a single flush of the underlying socket.
+   * Handles are returned once their requests have been submitted; results should be retrieved with {@link
+   * OperationHandle#await()} or {@link OperationHandle#toCompletionStage()}. Supported request types are add, compare,
+   * delete, modify, modify DN and search. Bind and extended requests change the identity or TLS state of the connection
+   * and are rejected, they must be sent with {@link #operation(BindRequest)} and {@link #operation(ExtendedRequest)}.
+   * The default implementation creates a handle for every request with the typed operation methods, so that every
+   * request is validated before any of them are sent, and then sends each handle in turn.
+   *
+   * @param  requests  to send
+   *
+   * @return  operation handles for the requests
+   *
+   * @throws  IllegalArgumentException  if a request is a bind or extended request, or its type is not supported
+   */
+  default List<OperationHandle<?, ?>> operations(final List<? extends Request> requests)
+  {
+    LdapUtils.assertNotNullArg(requests, "Requests cannot be null");
+    final List<OperationHandle<?, ?>> handles = new ArrayList<>(requests.size());
+    for (Request request : requests) {
+      handles.add(createHandle(request));
+    }
+    for (OperationHandle<?, ?> handle : handles) {
+      handle.send();
+    }
+    return Collections.unmodifiableList(handles);
+  }
+
+
+  /**
+   * Returns a new handle for the supplied request using the typed operation method for its type. The handle is not
+   * sent.
+   *
+   * @param  request  to create a handle for
+   *
+   * @return  operation handle
+   *
+   * @throws  IllegalArgumentException  if the request is a bind or extended request, or its type is not supported
+   */
+  private OperationHandle<?, ?> createHandle(final Request request)
+  {
+    final OperationHandle<?, ?> handle;
+    // binds and extended operations such as StartTLS change the state of the connection and must not be pipelined
+    if (request instanceof BindRequest || request instanceof ExtendedRequest) {
+      throw new IllegalArgumentException("Bind and extended requests cannot be sent as a batch: " + request);
+    } else if (request instanceof AddRequest) {
+      handle = operation((AddRequest) request);
+    } else if (request instanceof CompareRequest) {
+      handle = operation((CompareRequest) request);
+    } else if (request instanceof DeleteRequest) {
+      handle = operation((DeleteRequest) request);
+    } else if (request instanceof ModifyRequest) {
+      handle = operation((ModifyRequest) request);
+    } else if (request instanceof ModifyDnRequest) {
+      handle = operation((ModifyDnRequest) request);
+    } else if (request instanceof SearchRequest) {
+      handle = operation((SearchRequest) request);
+    } else {
+      throw new IllegalArgumentException("Unsupported request type for batch operations: " + request);
+    }
+    return handle;
+  }
+
+
   /**
    * Returns the URL that was selected for this connection. The existence of this value does not indicate a current
    * established connection.
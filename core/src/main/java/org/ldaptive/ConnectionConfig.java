@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Predicate;
+import org.ldaptive.metrics.MetricsListener;
 import org.ldaptive.ssl.SslConfig;
 
 /**
@@ -123,6 +124,24 @@ public final class ConnectionConfig extends AbstractConfig
    */
   private boolean autoRead = true;
 
+  /**
+   * Whether search result entries keep their encoded attributes and decode each attribute on first access. See {@link
+   * LdapEntry#decodeLazily(org.ldaptive.asn1.DERBuffer)}. Default is false.
+   */
+  private boolean lazyEntries;
+
+  /**
+   * Number of requests that are written to the socket before it is flushed. Requests are queued and flushed as a group
+   * from the event loop when this value is greater than one. Default is 1.
+   */
+  private int writeBatchSize = 1;
+
+  /**
+   * Maximum amount of time a queued request waits to be flushed when {@link #writeBatchSize} is greater than one. Zero
+   * flushes queued requests on the next pass of the event loop. Default is zero.
+   */
+  private Duration writeBatchDelay = Duration.ZERO;
+
   /** Configuration for SSL and startTLS connections. */
   private SslConfig sslConfig;
 
@@ -138,6 +157,9 @@ public final class ConnectionConfig extends AbstractConfig
   /** Connection validator. */
   private ConnectionValidator connectionValidator;
 
+  /** Listener to notify of operation, connection and pool measurements. */
+  private MetricsListener metricsListener;
+
   /** Transport options. */
   private final Map<String, Object> transportOptions = new HashMap<>();
 
@@ -389,6 +411,86 @@ public final class ConnectionConfig extends AbstractConfig
   }
 
 
+  /**
+   * Returns whether search result entries keep their encoded attributes and decode each attribute on first access.
+   *
+   * @return  whether to decode entries lazily
+   */
+  public boolean getLazyEntries()
+  {
+    return lazyEntries;
+  }
+
+
+  /**
+   * Sets whether search result entries keep their encoded attributes and decode each attribute on first access. Entries
+   * that are not fully decoded should be released with {@link LdapEntry#release()}.
+   *
+   * @param  b  whether to decode entries lazily
+   */
+  public void setLazyEntries(final boolean b)
+  {
+    assertMutable();
+    logger.trace("setting lazyEntries: {}", b);
+    lazyEntries = b;
+  }
+
+
+  /**
+   * Returns the number of requests that are written to the socket before it is flushed.
+   *
+   * @return  write batch size
+   */
+  public int getWriteBatchSize()
+  {
+    return writeBatchSize;
+  }
+
+
+  /**
+   * Sets the number of requests that are written to the socket before it is flushed. A value greater than one queues
+   * requests and flushes them as a group, which reduces system calls when many requests are written on the same
+   * connection, at the cost of up to {@link #getWriteBatchDelay()} latency per request.
+   *
+   * @param  size  write batch size
+   */
+  public void setWriteBatchSize(final int size)
+  {
+    assertMutable();
+    if (size < 1) {
+      throw new IllegalArgumentException("Write batch size must be greater than zero");
+    }
+    logger.trace("setting writeBatchSize: {}", size);
+    writeBatchSize = size;
+  }
+
+
+  /**
+   * Returns the maximum amount of time a queued request waits to be flushed.
+   *
+   * @return  write batch delay
+   */
+  public Duration getWriteBatchDelay()
+  {
+    return writeBatchDelay;
+  }
+
+
+  /**
+   * Sets the maximum amount of time a queued request waits to be flushed. Only used when {@link #getWriteBatchSize()}
+   * is greater than one.
+   *
+   * @param  time  write batch delay
+   */
+  public void setWriteBatchDelay(final Duration time)
+  {
+    assertMutable();
+    LdapUtils.assertNotNullArgOr(time, Duration::isNegative, "Write batch delay cannot be null or negative");
+    logger.trace("setting writeBatchDelay: {}", time);
+    writeBatchDelay = time;
+  }
+
+
   /**
    * Returns the ssl config.
    *
@@ -510,6 +612,31 @@ public final class ConnectionConfig extends AbstractConfig
   }
 
 
+  /**
+   * Returns the metrics listener.
+   *
+   * @return  metrics listener
+   */
+  public MetricsListener getMetricsListener()
+  {
+    return metricsListener;
+  }
+
+
+  /**
+   * Sets the metrics listener. The listener is notified of measurements from connections created with this config, the
+   * operations performed on them and any pool that uses this config to create connections.
+   *
+   * @param  listener  to notify of measurements
+   */
+  public void setMetricsListener(final MetricsListener listener)
+  {
+    assertMutable();
+    logger.trace("setting metricsListener: {}", listener);
+    metricsListener = listener;
+  }
+
+
   /**
    * Returns transport options.
    *
@@ -580,12 +707,16 @@ public final class ConnectionConfig extends AbstractConfig
     copy.setAutoReconnectCondition(config.autoReconnectCondition);
     copy.setAutoReplay(config.autoReplay);
     copy.setAutoRead(config.autoRead);
+    copy.setLazyEntries(config.lazyEntries);
+    copy.setWriteBatchSize(config.writeBatchSize);
+    copy.setWriteBatchDelay(config.writeBatchDelay);
     copy.setSslConfig(config.sslConfig != null ? SslConfig.copy(config.sslConfig) : null);
     copy.setUseStartTLS(config.useStartTLS);
     copy.setConnectionInitializers(
       config.connectionInitializers != null ? config.connectionInitializers : null);
     copy.setConnectionStrategy(config.connectionStrategy != null ? config.connectionStrategy.newInstance() : null);
     copy.setConnectionValidator(config.connectionValidator);
+    copy.setMetricsListener(config.metricsListener);
     copy.setTransportOptions(config.transportOptions);
     return copy;
   }
@@ -605,11 +736,15 @@ public final class ConnectionConfig extends AbstractConfig
       "autoReconnectCondition=" + autoReconnectCondition + ", " +
       "autoReplay=" + autoReplay + ", " +
       "autoRead=" + autoRead + ", " +
+      "lazyEntries=" + lazyEntries + ", " +
+      "writeBatchSize=" + writeBatchSize + ", " +
+      "writeBatchDelay=" + writeBatchDelay + ", " +
       "sslConfig=" + sslConfig + ", " +
       "useStartTLS=" + useStartTLS + ", " +
       "connectionInitializers=" + Arrays.toString(connectionInitializers) + ", " +
       "connectionStrategy=" + connectionStrategy + ", " +
       "connectionValidator=" + connectionValidator + ", " +
+      "metricsListener=" + metricsListener + ", " +
       "transportOptions=" + transportOptions + "]";
   }
 
@@ -698,6 +833,27 @@ public final class ConnectionConfig extends AbstractConfig
     }
 
 
+    public Builder lazyEntries(final boolean b)
+    {
+      object.setLazyEntries(b);
+      return this;
+    }
+
+
+    public Builder writeBatchSize(final int size)
+    {
+      object.setWriteBatchSize(size);
+      return this;
+    }
+
+
+    public Builder writeBatchDelay(final Duration time)
+    {
+      object.setWriteBatchDelay(time);
+      return this;
+    }
+
+
     public Builder sslConfig(final SslConfig config)
     {
       object.setSslConfig(config);
@@ -733,6 +889,13 @@ public final class ConnectionConfig extends AbstractConfig
     }
 
 
+    public Builder metricsListener(final MetricsListener listener)
+    {
+      object.setMetricsListener(listener);
+      return this;
+    }
+
+
     public Builder transportOption(final String id, final Object value)
     {
       object.setTransportOption(id, value);
@@ -213,6 +213,12 @@ public class DefaultConnectionFactory extends AbstractFreezable implements Conne
     }
 
 
+    protected Builder(final DefaultConnectionFactory factory)
+    {
+      object = factory;
+    }
+
+
     public Builder freeze()
     {
       object.freeze();
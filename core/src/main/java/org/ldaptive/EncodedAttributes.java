@@ -0,0 +1,273 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import org.ldaptive.asn1.DERBuffer;
+import org.ldaptive.asn1.DERParser;
+import org.ldaptive.asn1.DERTag;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.UniversalDERTag;
+
+/**
+ * Encoded partial attribute list of a search result entry that is decoded on demand. The first access scans the list
+ * for attribute names and records the position of each attribute's values; values are only copied out of the buffer
+ * when the attribute is decoded. See {@link LdapEntry#decodeLazily(DERBuffer)}. Reads move the position of the shared
+ * buffer, so every method that touches the buffer holds a lock. The lock is not a monitor so that a virtual
+ * thread decoding an entry is not pinned to its carrier.
+ *
+ * <pre>
+   PartialAttributeList ::= SEQUENCE OF
+     partialAttribute PartialAttribute
+
+   PartialAttribute ::= SEQUENCE {
+     type       AttributeDescription,
+     vals       SET OF value AttributeValue }
+ * </pre>
+ *
+ * @author  Middleware Services
+ */
+final class EncodedAttributes
+{
+
+  /** Parser used to read tags and lengths, which does not use any parser state. */
+  private static final DERParser PARSER = new DERParser();
+
+  /** Buffer containing the contents of the partial attribute list. */
+  private final DERBuffer buffer;
+
+  /** Guards the buffer position and the index. */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Value positions keyed by lower case attribute name, in the order received. Guarded by lock. */
+  private Map<String, ValuePosition> index;
+
+
+  /**
+   * Creates new encoded attributes.
+   *
+   * @param  buf  containing the contents of the partial attribute list
+   */
+  EncodedAttributes(final DERBuffer buf)
+  {
+    buffer = buf;
+  }
+
+
+  /**
+   * Returns whether the supplied attribute exists.
+   *
+   * @param  lowerName  lower case attribute name
+   *
+   * @return  whether the attribute exists
+   */
+  boolean contains(final String lowerName)
+  {
+    return index().containsKey(lowerName);
+  }
+
+
+  /**
+   * Returns the lower case names of the attributes, in the order received.
+   *
+   * @return  lower case attribute names
+   */
+  Set<String> lowerNames()
+  {
+    return index().keySet();
+  }
+
+
+  /**
+   * Returns the names of the attributes, in the order received.
+   *
+   * @return  attribute names
+   */
+  String[] names()
+  {
+    return index().values().stream().map(p -> p.name).toArray(String[]::new);
+  }
+
+
+  /**
+   * Returns the number of attributes.
+   *
+   * @return  number of attributes
+   */
+  int size()
+  {
+    return index().size();
+  }
+
+
+  /**
+   * Decodes the attribute with the supplied name.
+   *
+   * @param  lowerName  lower case attribute name
+   *
+   * @return  ldap attribute or null if the attribute does not exist
+   */
+  LdapAttribute decode(final String lowerName)
+  {
+    final ValuePosition pos;
+    final List<byte[]> values = new ArrayList<>();
+    lock.lock();
+    try {
+      pos = index().get(lowerName);
+      if (pos == null) {
+        return null;
+      }
+      buffer.positionAndLimit(pos.start, pos.end);
+      while (buffer.hasRemaining()) {
+        final int end = readElement(UniversalDERTag.OCTSTR);
+        final byte[] value = new byte[end - buffer.position()];
+        buffer.get(value);
+        values.add(value);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (values.isEmpty()) {
+      return LdapAttribute.builder().name(pos.name).build();
+    }
+    return LdapAttribute.builder().name(pos.name).binaryValuesInternal(values).build();
+  }
+
+
+  /** Releases the underlying buffer. Attributes cannot be decoded after this method is invoked. */
+  void release()
+  {
+    lock.lock();
+    try {
+      buffer.release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /**
+   * Returns the attribute index, scanning the buffer if it has not been created.
+   *
+   * @return  value positions keyed by lower case attribute name
+   */
+  private Map<String, ValuePosition> index()
+  {
+    lock.lock();
+    try {
+      if (index == null) {
+        final Map<String, ValuePosition> m = new LinkedHashMap<>();
+        final AttributeRegistry registry = AttributeRegistry.getDefault();
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+          final int attrEnd = readElement(UniversalDERTag.SEQ);
+          final int nameEnd = readElement(UniversalDERTag.OCTSTR);
+          final int limit = buffer.limit();
+          buffer.limit(nameEnd);
+          final String name = OctetStringType.decode(buffer);
+          buffer.limit(limit);
+          final int valuesEnd = readElement(UniversalDERTag.SET);
+          if (name.isEmpty()) {
+            throw new IllegalArgumentException("Could not parse attribute");
+          }
+          m.put(registry.getLowerName(name), new ValuePosition(name, buffer.position(), valuesEnd));
+          buffer.positionAndLimit(attrEnd, buffer.capacity());
+        }
+        index = m;
+      }
+      return index;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /**
+   * Reads the tag and length of the element at the current position, leaving the buffer positioned at the start of the
+   * element contents.
+   *
+   * @param  expected  tag of the element
+   *
+   * @return  end position of the element
+   */
+  private int readElement(final DERTag expected)
+  {
+    return readElement(PARSER, buffer, expected);
+  }
+
+
+  /**
+   * Reads the tag and length of the element at the current position of the supplied buffer, leaving the buffer
+   * positioned at the start of the element contents.
+   *
+   * @param  parser  to read the tag and length with
+   * @param  buffer  to read
+   * @param  expected  tag of the element
+   *
+   * @return  end position of the element
+   *
+   * @throws  IllegalArgumentException  if the element does not have the expected tag or exceeds the buffer limit
+   */
+  static int readElement(final DERParser parser, final DERBuffer buffer, final DERTag expected)
+  {
+    final DERTag tag = parser.readTag(buffer);
+    if (tag == null || tag.getTagByte() != expected.getTagByte()) {
+      throw new IllegalArgumentException(
+        "Expected tag " + expected + " at position " + (buffer.position() - 1) + ", found " + tag);
+    }
+    final int end = parser.readLength(buffer) + buffer.position();
+    if (end > buffer.limit()) {
+      throw new IllegalArgumentException("Tag " + tag + " at position " + buffer.position() + " exceeds limit");
+    }
+    return end;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    lock.lock();
+    try {
+      return "[" +
+        getClass().getName() + "@" + hashCode() + "::" +
+        "buffer=" + buffer + ", " +
+        "names=" + (index != null ? index.keySet() : null) + "]";
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /** Name and position of the values of an encoded attribute. */
+  private static final class ValuePosition
+  {
+
+    /** Attribute name. */
+    private final String name;
+
+    /** Start of the value set contents. */
+    private final int start;
+
+    /** End of the value set contents. */
+    private final int end;
+
+
+    /**
+     * Creates a new value position.
+     *
+     * @param  n  attribute name
+     * @param  s  start position
+     * @param  e  end position
+     */
+    ValuePosition(final String n, final int s, final int e)
+    {
+      name = n;
+      start = s;
+      end = e;
+    }
+  }
+}
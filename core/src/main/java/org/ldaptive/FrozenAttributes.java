@@ -0,0 +1,229 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable attributes of a frozen entry keyed by lower case attribute name. Names and attributes are kept in parallel
+ * arrays in the order they were added, with an open addressing table of array positions for lookups. Lookups by name
+ * are case insensitive and do not allocate when the name is ASCII. The hash code is computed once, which makes frozen
+ * entries cheap to use as keys in hash based collections. See {@link LdapEntry#freeze()}.
+ *
+ * @author  Middleware Services
+ */
+final class FrozenAttributes extends AbstractMap<String, LdapAttribute>
+{
+
+  /** Lower case attribute names. */
+  private final String[] names;
+
+  /** Attributes in the same order as {@link #names}. */
+  private final LdapAttribute[] attributes;
+
+  /** Hash table of array positions plus one, zero marks an empty slot. */
+  private final int[] table;
+
+  /** Unmodifiable view of the attributes. */
+  private final Collection<LdapAttribute> values;
+
+  /** Unmodifiable view of the name to attribute mappings. */
+  private final Set<Map.Entry<String, LdapAttribute>> entries = new EntrySet();
+
+  /** Hash code of this map, zero if it has not been computed. */
+  private int hashCode;
+
+
+  /**
+   * Creates new frozen attributes.
+   *
+   * @param  map  attributes keyed by lower case attribute name
+   */
+  FrozenAttributes(final Map<String, LdapAttribute> map)
+  {
+    names = new String[map.size()];
+    attributes = new LdapAttribute[map.size()];
+    int capacity = 2;
+    while (capacity < names.length * 2) {
+      capacity <<= 1;
+    }
+    table = new int[capacity];
+    int i = 0;
+    for (Map.Entry<String, LdapAttribute> e : map.entrySet()) {
+      names[i] = e.getKey();
+      attributes[i] = e.getValue();
+      int slot = hash(names[i]) & (table.length - 1);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = ++i;
+    }
+    values = Collections.unmodifiableList(Arrays.asList(attributes));
+  }
+
+
+  /**
+   * Returns the attribute with the supplied name, ignoring case.
+   *
+   * @param  name  of the attribute
+   *
+   * @return  ldap attribute or null if the attribute does not exist
+   */
+  LdapAttribute getIgnoreCase(final String name)
+  {
+    // CheckStyle:MagicNumber OFF
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) > 0x7F) {
+        return get(LdapUtils.toLowerCase(name));
+      }
+    }
+    // CheckStyle:MagicNumber ON
+    final int mask = table.length - 1;
+    for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      final int i = table[slot] - 1;
+      if (names[i].length() == name.length() && names[i].regionMatches(true, 0, name, 0, name.length())) {
+        return attributes[i];
+      }
+    }
+    return null;
+  }
+
+
+  @Override
+  public LdapAttribute get(final Object key)
+  {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    final String name = (String) key;
+    final int mask = table.length - 1;
+    for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      final int i = table[slot] - 1;
+      if (names[i].equals(name)) {
+        return attributes[i];
+      }
+    }
+    return null;
+  }
+
+
+  @Override
+  public boolean containsKey(final Object key)
+  {
+    return get(key) != null;
+  }
+
+
+  @Override
+  public int size()
+  {
+    return names.length;
+  }
+
+
+  @Override
+  public Collection<LdapAttribute> values()
+  {
+    return values;
+  }
+
+
+  @Override
+  public Set<Map.Entry<String, LdapAttribute>> entrySet()
+  {
+    return entries;
+  }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (o instanceof FrozenAttributes) {
+      final FrozenAttributes v = (FrozenAttributes) o;
+      if (hashCode != 0 && v.hashCode != 0 && hashCode != v.hashCode) {
+        return false;
+      }
+    }
+    return super.equals(o);
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    if (hashCode == 0) {
+      hashCode = super.hashCode();
+    }
+    return hashCode;
+  }
+
+
+  /**
+   * Returns the hash code of the supplied name with ASCII upper case characters converted to lower case.
+   *
+   * @param  name  to hash
+   *
+   * @return  hash code
+   */
+  private static int hash(final String name)
+  {
+    // CheckStyle:MagicNumber OFF
+    int h = 0;
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      h = 31 * h + (c >= 'A' && c <= 'Z' ? c + 32 : c);
+    }
+    return h ^ (h >>> 16);
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /** Unmodifiable set of the name to attribute mappings, in the order they were added. */
+  private final class EntrySet extends AbstractSet<Map.Entry<String, LdapAttribute>>
+  {
+
+
+    @Override
+    public int size()
+    {
+      return names.length;
+    }
+
+
+    @Override
+    public Iterator<Map.Entry<String, LdapAttribute>> iterator()
+    {
+      return new Iterator<>()
+      {
+        /** Position of the next mapping. */
+        private int next;
+
+
+        @Override
+        public boolean hasNext()
+        {
+          return next < names.length;
+        }
+
+
+        @Override
+        public Map.Entry<String, LdapAttribute> next()
+        {
+          if (next >= names.length) {
+            throw new NoSuchElementException();
+          }
+          final Map.Entry<String, LdapAttribute> e = new SimpleImmutableEntry<>(names[next], attributes[next]);
+          next++;
+          return e;
+        }
+      };
+    }
+  }
+}
@@ -2,15 +2,24 @@
 package org.ldaptive;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -22,6 +31,12 @@ import java.util.stream.Stream;
      vals (SIZE(1..MAX))})
  * </pre>
  *
+ * <p>Values are kept in a hash set until the number of values exceeds {@link #COMPACT_THRESHOLD}, or {@link
+ * #FREEZE_COMPACT_THRESHOLD} when the attribute is frozen. At that point the values are moved into a single byte array
+ * with an offset index, which avoids an object and a hash node per value for large multi-valued attributes such as
+ * group membership. Attributes with few values are left as they are, compact storage would only add work to every
+ * read.</p>
+ *
  * @author  Middleware Services
  */
 public class LdapAttribute extends AbstractFreezable
@@ -30,28 +45,18 @@ public class LdapAttribute extends AbstractFreezable
   /** hash code seed. */
   private static final int HASH_CODE_SEED = 10223;
 
-  /** List of attribute names known to use binary syntax. */
-  private static final String[] DEFAULT_BINARY_ATTRIBUTES = {
-    "photo",
-    "personalSignature",
-    "audio",
-    "jpegPhoto",
-    "javaSerializedData",
-    "thumbnailPhoto",
-    "thumbnailLogo",
-    "userCertificate",
-    "cACertificate",
-    "authorityRevocationList",
-    "certificateRevocationList",
-    "crossCertificatePair",
-    "x500UniqueIdentifier",
-  };
-
-  /** List of custom binary attribute names. */
-  private static final String[] BINARY_ATTRIBUTES;
+  /** Compact threshold property. */
+  private static final String COMPACT_THRESHOLD_PROPERTY = "org.ldaptive.attribute.compactThreshold";
+
+  /** Number of values above which values are stored compactly. */
+  private static final int COMPACT_THRESHOLD = (int) LdapUtils.parseLong(
+    System.getProperty(COMPACT_THRESHOLD_PROPERTY, "1000"), l -> l > 0 && l <= Integer.MAX_VALUE, 1000);
+
+  /** Number of values above which values are stored compactly when the attribute is frozen. */
+  private static final int FREEZE_COMPACT_THRESHOLD = 16;
 
   /** Attribute values. */
-  private final Collection<AttributeValue> attributeValues = new LinkedHashSet<>();
+  private Collection<AttributeValue> attributeValues = new LinkedHashSet<>();
 
   /** Attribute name. */
   private String attributeName;
@@ -59,12 +64,6 @@ public class LdapAttribute extends AbstractFreezable
   /** Whether this attribute is binary and string representations should be base64 encoded. */
   private boolean binary;
 
-  static {
-    // Configure custom binary attribute names
-    final String[] split = System.getProperty("org.ldaptive.attribute.binary", "").split(",");
-    BINARY_ATTRIBUTES = LdapUtils.concatArrays(DEFAULT_BINARY_ATTRIBUTES, split);
-  }
-
 
   /** Default constructor. */
   public LdapAttribute() {}
@@ -109,7 +108,7 @@ public class LdapAttribute extends AbstractFreezable
 
   /**
    * Sets the name. This method has the side effect of setting this attribute as binary if the name has an option of
-   * 'binary' or the name matches one of {@link #BINARY_ATTRIBUTES}.
+   * 'binary' or the default {@link AttributeRegistry} describes the attribute as binary.
    *
    * @param  type  attribute name
    */
@@ -118,7 +117,7 @@ public class LdapAttribute extends AbstractFreezable
     assertMutable();
     LdapUtils.assertNotNullArg(type, "Attribute type cannot be null");
     attributeName = type;
-    if (getOptions().contains("binary") || Stream.of(BINARY_ATTRIBUTES).anyMatch(attributeName::equalsIgnoreCase)) {
+    if (AttributeRegistry.getDefault().isBinary(attributeName)) {
       setBinary(true);
     }
   }
@@ -250,6 +249,9 @@ public class LdapAttribute extends AbstractFreezable
     if (attributeValues.isEmpty()) {
       return null;
     }
+    if (attributeValues instanceof CompactAttributeValues) {
+      return ((CompactAttributeValues) attributeValues).stringValues(binary).findFirst().orElse(null);
+    }
     return attributeValues.iterator().next().getStringValue(binary);
   }
 
@@ -265,6 +267,10 @@ public class LdapAttribute extends AbstractFreezable
     if (attributeValues.isEmpty()) {
       return Collections.emptyList();
     }
+    if (attributeValues instanceof CompactAttributeValues) {
+      return ((CompactAttributeValues) attributeValues).stringValues(binary)
+        .collect(Collectors.toUnmodifiableList());
+    }
     return attributeValues.stream().map(v -> v.getStringValue(binary)).collect(Collectors.toUnmodifiableList());
   }
 
@@ -309,7 +315,7 @@ public class LdapAttribute extends AbstractFreezable
       value,
       v -> Stream.of(v).anyMatch(Objects::isNull),
       "Attribute values cannot be null or contain null");
-    Stream.of(value).map(b -> new AttributeValue(b, true)).forEach(attributeValues::add);
+    Stream.of(value).map(b -> new AttributeValue(b, true)).forEach(this::addValue);
   }
 
 
@@ -325,7 +331,7 @@ public class LdapAttribute extends AbstractFreezable
       values,
       v -> v.stream().anyMatch(Objects::isNull),
       "Attribute values cannot be null or contain null");
-    values.stream().map(b -> new AttributeValue(b, true)).forEach(attributeValues::add);
+    values.stream().map(b -> new AttributeValue(b, true)).forEach(this::addValue);
   }
 
 
@@ -338,7 +344,7 @@ public class LdapAttribute extends AbstractFreezable
   void addBinaryValuesInternal(final Collection<byte[]> values)
   {
     assertMutable();
-    values.stream().map(b -> new AttributeValue(b, false)).forEach(attributeValues::add);
+    values.stream().map(b -> new AttributeValue(b, false)).forEach(this::addValue);
   }
 
 
@@ -354,7 +360,7 @@ public class LdapAttribute extends AbstractFreezable
       value,
       v -> Stream.of(v).anyMatch(Objects::isNull),
       "Attribute values cannot be null or contain null");
-    Stream.of(value).map(s -> AttributeValue.fromString(s, binary)).forEach(attributeValues::add);
+    Stream.of(value).map(s -> AttributeValue.fromString(s, binary)).forEach(this::addValue);
   }
 
 
@@ -370,7 +376,7 @@ public class LdapAttribute extends AbstractFreezable
       values,
       v -> v.stream().anyMatch(Objects::isNull),
       "Attribute values cannot be null or contain null");
-    values.stream().map(s -> AttributeValue.fromString(s, binary)).forEach(attributeValues::add);
+    values.stream().map(s -> AttributeValue.fromString(s, binary)).forEach(this::addValue);
   }
 
 
@@ -393,7 +399,7 @@ public class LdapAttribute extends AbstractFreezable
       .map(func)
       .filter(Objects::nonNull)
       .map(b -> new AttributeValue(b, true))
-      .forEach(attributeValues::add);
+      .forEach(this::addValue);
   }
 
 
@@ -416,7 +422,7 @@ public class LdapAttribute extends AbstractFreezable
       .map(func)
       .filter(Objects::nonNull)
       .map(b -> new AttributeValue(b, true))
-      .forEach(attributeValues::add);
+      .forEach(this::addValue);
   }
 
 
@@ -428,7 +434,24 @@ public class LdapAttribute extends AbstractFreezable
   public void merge(final LdapAttribute attr)
   {
     assertMutable();
-    attr.attributeValues.stream().map(AttributeValue::copy).forEach(attributeValues::add);
+    attr.attributeValues.stream().map(AttributeValue::copy).forEach(this::addValue);
+  }
+
+
+  /**
+   * Adds the supplied value to this attribute. Values are moved to compact storage once their number exceeds {@link
+   * #COMPACT_THRESHOLD}.
+   *
+   * @param  value  to add
+   */
+  private void addValue(final AttributeValue value)
+  {
+    if (attributeValues.add(value) &&
+        attributeValues.size() > COMPACT_THRESHOLD &&
+        !(attributeValues instanceof CompactAttributeValues))
+    {
+      attributeValues = new CompactAttributeValues(attributeValues);
+    }
   }
 
 
@@ -551,7 +574,7 @@ public class LdapAttribute extends AbstractFreezable
    */
   public boolean hasValue(final byte[] value)
   {
-    return attributeValues.stream().anyMatch(av -> av.equalsValue(value));
+    return value != null && attributeValues.contains(new AttributeValue(value, false));
   }
 
 
@@ -564,7 +587,8 @@ public class LdapAttribute extends AbstractFreezable
    */
   public boolean hasValue(final String value)
   {
-    return attributeValues.stream().anyMatch(av -> av.equalsValue(value, binary));
+    final byte[] bytes = binary ? AttributeValue.base64Decode(value, false) : LdapUtils.utf8Encode(value, false);
+    return hasValue(bytes);
   }
 
 
@@ -579,7 +603,47 @@ public class LdapAttribute extends AbstractFreezable
    */
   public <T> boolean hasValue(final Function<T, byte[]> func, final T value)
   {
-    return attributeValues.stream().anyMatch(av -> av.equalsValue(func.apply(value)));
+    return hasValue(func.apply(value));
+  }
+
+
+  /**
+   * Returns whether any value in this attribute matches the supplied predicate. Values in compact storage are copied
+   * before they are tested, use {@link #anyValueMatch(ValuePredicate)} to test them in place. Other values are passed
+   * to the predicate without being copied, so the predicate must not modify them.
+   *
+   * @param  predicate  to test each value with
+   *
+   * @return  whether any value matches
+   */
+  public boolean anyValueMatch(final Predicate<byte[]> predicate)
+  {
+    return anyValueMatch(
+      (value, offset, length) -> predicate.test(
+        offset == 0 && length == value.length ? value : Arrays.copyOfRange(value, offset, offset + length)));
+  }
+
+
+  /**
+   * Returns whether any value in this attribute matches the supplied predicate. No value is copied, values in compact
+   * storage are passed as a range of the array that holds them. The predicate must not modify the array.
+   *
+   * @param  predicate  to test each value with
+   *
+   * @return  whether any value matches
+   */
+  public boolean anyValueMatch(final ValuePredicate predicate)
+  {
+    if (attributeValues instanceof CompactAttributeValues) {
+      return ((CompactAttributeValues) attributeValues).anyValueMatch(predicate);
+    }
+    for (AttributeValue av : attributeValues) {
+      final byte[] value = av.getValue(false);
+      if (predicate.test(value, 0, value.length)) {
+        return true;
+      }
+    }
+    return false;
   }
 
 
@@ -598,7 +662,24 @@ public class LdapAttribute extends AbstractFreezable
   public final void clear()
   {
     assertMutable();
-    attributeValues.clear();
+    attributeValues = new LinkedHashSet<>();
+  }
+
+
+  /**
+   * Freezes this attribute and moves its values to compact storage if there are more than {@link
+   * #FREEZE_COMPACT_THRESHOLD}.
+   */
+  @Override
+  public void freeze()
+  {
+    if (!isFrozen() &&
+        attributeValues.size() > FREEZE_COMPACT_THRESHOLD &&
+        !(attributeValues instanceof CompactAttributeValues))
+    {
+      attributeValues = new CompactAttributeValues(attributeValues);
+    }
+    super.freeze();
   }
 
 
@@ -620,11 +701,12 @@ public class LdapAttribute extends AbstractFreezable
   @Override
   public int hashCode()
   {
+    // the set hash code is the sum of its value hash codes, compact sets cache it
     return
       LdapUtils.computeHashCode(
         HASH_CODE_SEED,
         LdapUtils.toLowerCase(attributeName),
-        attributeValues);
+        Objects.hashCode(attributeValues));
   }
 
 
@@ -668,7 +750,7 @@ public class LdapAttribute extends AbstractFreezable
     final LdapAttribute ldapAttribute = new LdapAttribute();
     ldapAttribute.attributeName = attr.attributeName;
     for (AttributeValue av : attr.attributeValues) {
-      ldapAttribute.attributeValues.add(AttributeValue.copy(av));
+      ldapAttribute.addValue(AttributeValue.copy(av));
     }
     ldapAttribute.binary = attr.binary;
     return ldapAttribute;
@@ -710,6 +792,25 @@ public class LdapAttribute extends AbstractFreezable
   }
 
 
+  /** Tests an attribute value that occupies a range of a byte array. See {@link #anyValueMatch(ValuePredicate)}. */
+  @FunctionalInterface
+  public interface ValuePredicate
+  {
+
+
+    /**
+     * Returns whether the supplied value matches.
+     *
+     * @param  value  array holding the value
+     * @param  offset  of the value in the array
+     * @param  length  of the value
+     *
+     * @return  whether the value matches
+     */
+    boolean test(byte[] value, int offset, int length);
+  }
+
+
   /**
    * Container for an attribute value. Supports helpers methods related to byte arrays and the notion of `binary`
    * attribute values which are base64 encoded.
@@ -786,34 +887,6 @@ public class LdapAttribute extends AbstractFreezable
     }
 
 
-    /**
-     * Returns whether the supplied byte array equals this attribute value.
-     *
-     * @param bytes to compare
-     *
-     * @return whether the supplied byte array equals this attribute value
-     */
-    boolean equalsValue(final byte[] bytes)
-    {
-      return Arrays.equals(value, bytes);
-    }
-
-
-    /**
-     * Returns whether the supplied string equals this attribute value.
-     *
-     * @param string to compare
-     * @param base64 whether the string is base64 encoded
-     *
-     * @return whether the supplied string equals this attribute value
-     */
-    boolean equalsValue(final String string, final boolean base64)
-    {
-      final byte[] bytes = base64 ? base64Decode(string, false) : LdapUtils.utf8Encode(string, false);
-      return Arrays.equals(value, bytes);
-    }
-
-
     /**
      * Creates a new attribute value from the supplied string.
      *
@@ -866,6 +939,420 @@ public class LdapAttribute extends AbstractFreezable
   }
 
 
+  /**
+   * Set of attribute values stored in a single byte array. Value i occupies the range offsets[i] to offsets[i + 1] of
+   * the slab. Lookups use an open addressing table of value positions that is built on first use. Removed values are
+   * marked rather than moved, the slab is rewritten once more than half of its values have been removed. Attribute
+   * value instances are created on iteration and do not share the slab, so reads that only need the bytes or a string
+   * go through {@link #anyValueMatch(ValuePredicate)} and {@link #stringValues(boolean)} instead. The hash code is
+   * cached until the next modification, so frozen attributes only compute it once.
+   *
+   * @author  Middleware Services
+   */
+  private static final class CompactAttributeValues extends AbstractSet<AttributeValue>
+  {
+
+    /** Value bytes. */
+    private byte[] slab;
+
+    /** Number of bytes used in the slab. */
+    private int slabLength;
+
+    /** Start offset of each value in the slab, followed by the end offset of the last value. */
+    private int[] offsets;
+
+    /** Number of values in the slab, including removed values. */
+    private int count;
+
+    /** Number of values that have not been removed. */
+    private int size;
+
+    /** Positions of removed values, null if no value has been removed. */
+    private BitSet removed;
+
+    /** Hash table of value positions plus one, zero marks an empty slot. Null until the first lookup. */
+    private volatile int[] index;
+
+    /** Hash code of this set, zero if it has not been computed since the last modification. */
+    private int hashCode;
+
+
+    /**
+     * Creates a new compact attribute values containing the supplied values.
+     *
+     * @param  values  to copy, must not contain duplicates
+     */
+    CompactAttributeValues(final Collection<AttributeValue> values)
+    {
+      int length = 0;
+      for (AttributeValue av : values) {
+        length += av.value.length;
+      }
+      slab = new byte[length];
+      offsets = new int[values.size() + 1];
+      for (AttributeValue av : values) {
+        System.arraycopy(av.value, 0, slab, slabLength, av.value.length);
+        slabLength += av.value.length;
+        offsets[++count] = slabLength;
+      }
+      size = count;
+    }
+
+
+    @Override
+    public int size()
+    {
+      return size;
+    }
+
+
+    @Override
+    public boolean contains(final Object o)
+    {
+      return o instanceof AttributeValue && indexOf(((AttributeValue) o).value) >= 0;
+    }
+
+
+    @Override
+    public boolean add(final AttributeValue av)
+    {
+      if (indexOf(av.value) >= 0) {
+        return false;
+      }
+      if (slabLength + av.value.length > slab.length) {
+        slab = Arrays.copyOf(slab, Math.max(slabLength + av.value.length, slab.length * 2));
+      }
+      if (count + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      System.arraycopy(av.value, 0, slab, slabLength, av.value.length);
+      slabLength += av.value.length;
+      offsets[++count] = slabLength;
+      size++;
+      hashCode = 0;
+      final int[] table = index;
+      if (table != null) {
+        if (count * 2 > table.length) {
+          index = null;
+        } else {
+          insert(table, count - 1);
+        }
+      }
+      return true;
+    }
+
+
+    @Override
+    public boolean remove(final Object o)
+    {
+      if (!(o instanceof AttributeValue)) {
+        return false;
+      }
+      final int i = indexOf(((AttributeValue) o).value);
+      if (i < 0) {
+        return false;
+      }
+      removeAt(i);
+      return true;
+    }
+
+
+    @Override
+    public void clear()
+    {
+      slab = new byte[0];
+      slabLength = 0;
+      offsets = new int[1];
+      count = 0;
+      size = 0;
+      removed = null;
+      index = null;
+      hashCode = 0;
+    }
+
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (o instanceof CompactAttributeValues) {
+        final CompactAttributeValues v = (CompactAttributeValues) o;
+        if (hashCode != 0 && v.hashCode != 0 && hashCode != v.hashCode) {
+          return false;
+        }
+      }
+      return super.equals(o);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+      if (hashCode == 0) {
+        hashCode = super.hashCode();
+      }
+      return hashCode;
+    }
+
+
+    @Override
+    public Iterator<AttributeValue> iterator()
+    {
+      return new Iterator<>()
+      {
+        /** Position of the next value. */
+        private int next = advance(0);
+
+        /** Position of the last value returned. */
+        private int last = -1;
+
+
+        @Override
+        public boolean hasNext()
+        {
+          return next < count;
+        }
+
+
+        @Override
+        public AttributeValue next()
+        {
+          if (next >= count) {
+            throw new NoSuchElementException();
+          }
+          last = next;
+          next = advance(next + 1);
+          return new AttributeValue(Arrays.copyOfRange(slab, offsets[last], offsets[last + 1]), false);
+        }
+
+
+        @Override
+        public void remove()
+        {
+          if (last < 0) {
+            throw new IllegalStateException("Next has not been called");
+          }
+          final int rank = removed == null ? last : last - removed.get(0, last).cardinality();
+          if (removeAt(last)) {
+            next = rank;
+          }
+          last = -1;
+        }
+
+
+        /**
+         * Returns the position of the first value at or after the supplied position that has not been removed.
+         *
+         * @param  i  position to start at
+         *
+         * @return  value position or count if there are no more values
+         */
+        private int advance(final int i)
+        {
+          if (removed == null) {
+            return i;
+          }
+          final int j = removed.nextClearBit(i);
+          return Math.min(j, count);
+        }
+      };
+    }
+
+
+    /**
+     * Returns whether any value matches the supplied predicate. Each value is tested in place in the slab, no copy or
+     * attribute value is created for it.
+     *
+     * @param  predicate  to test each value with
+     *
+     * @return  whether any value matches
+     */
+    boolean anyValueMatch(final ValuePredicate predicate)
+    {
+      return positions().anyMatch(i -> predicate.test(slab, offsets[i], offsets[i + 1] - offsets[i]));
+    }
+
+
+    /**
+     * Returns the values as strings, decoded directly from the slab.
+     *
+     * @param  base64  whether values should be base64 encoded
+     *
+     * @return  string values in insertion order
+     */
+    Stream<String> stringValues(final boolean base64)
+    {
+      return positions().mapToObj(
+        i -> {
+          final int length = offsets[i + 1] - offsets[i];
+          if (base64) {
+            final ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(slab, offsets[i], length));
+            return new String(encoded.array(), 0, encoded.limit(), StandardCharsets.UTF_8);
+          }
+          return new String(slab, offsets[i], length, StandardCharsets.UTF_8);
+        });
+    }
+
+
+    /**
+     * Returns the positions of the values that have not been removed.
+     *
+     * @return  value positions in insertion order
+     */
+    private IntStream positions()
+    {
+      final IntStream positions = IntStream.range(0, count);
+      return removed == null ? positions : positions.filter(i -> !removed.get(i));
+    }
+
+
+    /**
+     * Returns the position of the supplied value.
+     *
+     * @param  value  to find
+     *
+     * @return  value position or -1 if the value does not exist
+     */
+    private int indexOf(final byte[] value)
+    {
+      int[] table = index;
+      if (table == null) {
+        table = buildIndex();
+        index = table;
+      }
+      final int mask = table.length - 1;
+      for (int slot = spread(hash(value, 0, value.length)) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+        final int i = table[slot] - 1;
+        if ((removed == null || !removed.get(i)) &&
+            Arrays.equals(slab, offsets[i], offsets[i + 1], value, 0, value.length))
+        {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+
+    /**
+     * Marks the value at the supplied position removed. Rewrites the slab if more than half of its values are removed.
+     *
+     * @param  i  value position
+     *
+     * @return  whether the slab was rewritten
+     */
+    private boolean removeAt(final int i)
+    {
+      if (removed == null) {
+        removed = new BitSet(count);
+      }
+      removed.set(i);
+      size--;
+      hashCode = 0;
+      if (size * 2 < count) {
+        compact();
+        return true;
+      }
+      return false;
+    }
+
+
+    /** Rewrites the slab without removed values. */
+    private void compact()
+    {
+      final int[] newOffsets = new int[size + 1];
+      int newLength = 0;
+      int n = 0;
+      for (int i = 0; i < count; i++) {
+        if (!removed.get(i)) {
+          final int length = offsets[i + 1] - offsets[i];
+          System.arraycopy(slab, offsets[i], slab, newLength, length);
+          newLength += length;
+          newOffsets[++n] = newLength;
+        }
+      }
+      slab = Arrays.copyOf(slab, newLength);
+      slabLength = newLength;
+      offsets = newOffsets;
+      count = n;
+      removed = null;
+      index = null;
+    }
+
+
+    /**
+     * Creates a hash table of the values in the slab, sized to at most half full.
+     *
+     * @return  hash table
+     */
+    private int[] buildIndex()
+    {
+      int capacity = 16;
+      while (capacity < count * 2) {
+        capacity <<= 1;
+      }
+      final int[] table = new int[capacity];
+      for (int i = 0; i < count; i++) {
+        if (removed == null || !removed.get(i)) {
+          insert(table, i);
+        }
+      }
+      return table;
+    }
+
+
+    /**
+     * Inserts the value at the supplied position into the supplied hash table.
+     *
+     * @param  table  hash table
+     * @param  i  value position
+     */
+    private void insert(final int[] table, final int i)
+    {
+      final int mask = table.length - 1;
+      int slot = spread(hash(slab, offsets[i], offsets[i + 1])) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i + 1;
+    }
+
+
+    /**
+     * Computes the hash of the supplied byte range. See {@link Arrays#hashCode(byte[])}.
+     *
+     * @param  bytes  to hash
+     * @param  from  start of the range, inclusive
+     * @param  to  end of the range, exclusive
+     *
+     * @return  hash code
+     */
+    private static int hash(final byte[] bytes, final int from, final int to)
+    {
+      // CheckStyle:MagicNumber OFF
+      int h = 1;
+      for (int i = from; i < to; i++) {
+        h = 31 * h + bytes[i];
+      }
+      return h;
+      // CheckStyle:MagicNumber ON
+    }
+
+
+    /**
+     * Spreads the high bits of the supplied hash into the low bits.
+     *
+     * @param  h  hash code
+     *
+     * @return  spread hash code
+     */
+    private static int spread(final int h)
+    {
+      // CheckStyle:MagicNumber OFF
+      return h ^ (h >>> 16);
+      // CheckStyle:MagicNumber ON
+    }
+  }
+
+
   /**
    * Comparator for byte arrays. See {@link Arrays#compare(byte[], byte[])}.
    */
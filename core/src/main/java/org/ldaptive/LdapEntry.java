@@ -15,11 +15,17 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.ldaptive.asn1.AbstractParseHandler;
+import org.ldaptive.asn1.ApplicationDERTag;
+import org.ldaptive.asn1.CompiledDERPaths;
+import org.ldaptive.asn1.ContextDERTag;
 import org.ldaptive.asn1.DERBuffer;
 import org.ldaptive.asn1.DERParser;
 import org.ldaptive.asn1.DERPath;
+import org.ldaptive.asn1.IntegerType;
 import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.UniversalDERTag;
 import org.ldaptive.dn.Dn;
+import org.ldaptive.dn.DnCache;
 
 /**
  * LDAP search result entry defined as:
@@ -54,8 +60,15 @@ public class LdapEntry extends AbstractMessage implements Freezable
   /** DER path to attributes. */
   private static final DERPath ATTRIBUTES_PATH = new DERPath("/SEQ/APP(4)/SEQ/SEQ");
 
-  /** LDAP attributes on the entry. */
-  private final Map<String, LdapAttribute> attributes = new LinkedHashMap<>();
+  /** Compiled DER paths for decoding. */
+  private static final CompiledDERPaths PATHS = CompiledDERPaths.compile(
+    MessageIDHandler.PATH,
+    LDAP_DN_PATH,
+    ATTRIBUTES_PATH,
+    ControlsHandler.PATH);
+
+  /** LDAP attributes on the entry, replaced with {@link FrozenAttributes} when this entry is frozen. */
+  private Map<String, LdapAttribute> attributes = new LinkedHashMap<>();
 
   /** LDAP DN of the entry. */
   private String ldapDn;
@@ -66,6 +79,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   /** Normalized LDAP DN. */
   private String normalizedDn;
 
+  /** Attributes that have not been decoded, see {@link #decodeLazily(DERBuffer)}. */
+  private EncodedAttributes encodedAttributes;
+
+
   /** Whether this object has been marked immutable. */
   private volatile boolean immutable;
 
@@ -83,7 +100,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public LdapEntry(final DERBuffer buffer)
   {
-    final DERParser parser = new DERParser();
+    final DERParser parser = new DERParser(PATHS);
     parser.registerHandler(MessageIDHandler.PATH, new MessageIDHandler(this));
     parser.registerHandler(LDAP_DN_PATH, new LdapDnHandler(this));
     parser.registerHandler(ATTRIBUTES_PATH, new AttributesHandler(this));
@@ -96,14 +113,145 @@ public class LdapEntry extends AbstractMessage implements Freezable
   }
 
 
+  /**
+   * Creates a new search result entry whose attributes are decoded on first access. The message ID, DN and controls
+   * are decoded immediately. The attribute list is kept as a retained slice of the supplied buffer; accessing a single
+   * attribute by name decodes only that attribute, while any operation on the entire attribute set, such as {@link
+   * #getAttributes()}, {@link #freeze()} or {@link #equals(Object)}, decodes the remaining attributes and releases the
+   * slice. Invoke {@link #decodeAttributes()} or {@link #release()} once the attributes of interest have been read if
+   * the entry may not be fully decoded. A slice that is never released is not reclaimed by the garbage collector, it
+   * leaks the pooled buffer it was taken from. Search operation handles decode entries before adding them to the search
+   * response and release the entries that are discarded, so only entries delivered to a streaming consumer remain
+   * lazy. An entry is not thread safe until it has been fully decoded, since accessing an attribute by name adds it to
+   * this entry; it must be confined to one thread, or handed off through a thread safe queue, until {@link
+   * #decodeAttributes()} or {@link #release()} is invoked.
+   *
+   * @param  buffer  to decode
+   *
+   * @return  ldap entry
+   */
+  public static LdapEntry decodeLazily(final DERBuffer buffer)
+  {
+    final LdapEntry entry = new LdapEntry();
+    final DERParser parser = new DERParser();
+    try {
+      buffer.limit(EncodedAttributes.readElement(parser, buffer, UniversalDERTag.SEQ));
+      final int idEnd = EncodedAttributes.readElement(parser, buffer, UniversalDERTag.INT);
+      final int messageEnd = buffer.limit();
+      buffer.limit(idEnd);
+      entry.setMessageID(IntegerType.decodeUnsignedPrimitive(buffer));
+      buffer.limit(messageEnd);
+      final int opEnd = EncodedAttributes.readElement(parser, buffer, new ApplicationDERTag(PROTOCOL_OP, true));
+      final int dnEnd = EncodedAttributes.readElement(parser, buffer, UniversalDERTag.OCTSTR);
+      buffer.limit(dnEnd);
+      entry.setDn(OctetStringType.decode(buffer));
+      buffer.limit(messageEnd);
+      final int attrsEnd = EncodedAttributes.readElement(parser, buffer, UniversalDERTag.SEQ);
+      if (attrsEnd > buffer.position()) {
+        buffer.limit(attrsEnd);
+        entry.encodedAttributes = new EncodedAttributes(buffer.retainedSlice());
+      }
+      buffer.positionAndLimit(opEnd, messageEnd);
+      if (buffer.hasRemaining()) {
+        final int controlsEnd = EncodedAttributes.readElement(parser, buffer, new ContextDERTag(0, true));
+        buffer.limit(controlsEnd);
+        final ControlsHandler handler = new ControlsHandler(entry);
+        while (buffer.hasRemaining()) {
+          final int controlEnd = EncodedAttributes.readElement(parser, buffer, UniversalDERTag.SEQ);
+          buffer.limit(controlEnd);
+          handler.handle(parser, buffer);
+          buffer.positionAndLimit(controlEnd, controlsEnd);
+        }
+      }
+    } catch (Exception e) {
+      entry.release();
+      throw new IllegalArgumentException("Error parsing response", e);
+    }
+    return entry;
+  }
+
+
+  /**
+   * Decodes the attribute with the supplied name if this entry was created with {@link #decodeLazily(DERBuffer)} and
+   * the attribute has not been decoded.
+   *
+   * @param  lowerName  lower case attribute name
+   *
+   * @return  ldap attribute or null if the attribute does not exist
+   */
+  private LdapAttribute decodeAttribute(final String lowerName)
+  {
+    LdapAttribute attr = attributes.get(lowerName);
+    if (attr == null && encodedAttributes != null) {
+      attr = encodedAttributes.decode(lowerName);
+      if (attr != null) {
+        attributes.put(lowerName, attr);
+      }
+    }
+    return attr;
+  }
+
+
+  /**
+   * Decodes any attributes that have not been decoded if this entry was created with {@link
+   * #decodeLazily(DERBuffer)}. Attributes are ordered as they were received and the encoded attribute list is released.
+   * This method does nothing if the entry was not decoded lazily or all attributes have already been decoded.
+   */
+  public void decodeAttributes()
+  {
+    if (encodedAttributes != null) {
+      final Map<String, LdapAttribute> decoded = new LinkedHashMap<>();
+      for (String lowerName : encodedAttributes.lowerNames()) {
+        decoded.put(lowerName, decodeAttribute(lowerName));
+      }
+      attributes.clear();
+      attributes.putAll(decoded);
+      encodedAttributes.release();
+      encodedAttributes = null;
+    }
+  }
+
+
+  /**
+   * Releases the encoded attribute list of an entry created with {@link #decodeLazily(DERBuffer)}. Attributes that
+   * have not been decoded are discarded, so this entry only contains the attributes that were accessed by name before
+   * this method was invoked. This method does nothing if the entry was not decoded lazily or all attributes have
+   * already been decoded.
+   */
+  public void release()
+  {
+    if (encodedAttributes != null) {
+      final Map<String, LdapAttribute> decoded = new LinkedHashMap<>();
+      for (String lowerName : encodedAttributes.lowerNames()) {
+        final LdapAttribute attr = attributes.get(lowerName);
+        if (attr != null) {
+          decoded.put(lowerName, attr);
+        }
+      }
+      attributes.clear();
+      attributes.putAll(decoded);
+      encodedAttributes.release();
+      encodedAttributes = null;
+    }
+  }
+
+
+  /**
+   * Freezes this entry and its attributes. Attributes are moved into an immutable array backed map that supports case
+   * insensitive lookups without allocation, and the hash code is cached once computed.
+   */
   @Override
   public void freeze()
   {
-    immutable = true;
+    decodeAttributes();
     if (parsedDn != null) {
       parsedDn.freeze();
     }
     attributes.values().forEach(Freezable::freeze);
+    if (!(attributes instanceof FrozenAttributes)) {
+      attributes = new FrozenAttributes(attributes);
+    }
+    immutable = true;
   }
 
 
@@ -135,7 +283,8 @@ public class LdapEntry extends AbstractMessage implements Freezable
 
 
   /**
-   * Returns the parsed ldap DN. Parsing is performed using {@link org.ldaptive.dn.DefaultDnParser}.
+   * Returns the parsed ldap DN. Parsing is performed using {@link org.ldaptive.dn.DefaultDnParser}. If the default
+   * {@link DnCache} is configured the parsed DN is shared with other entries and is frozen.
    *
    * @return  parsed ldap DN or null if {@link #ldapDn} is null or could not be parsed
    */
@@ -165,13 +314,14 @@ public class LdapEntry extends AbstractMessage implements Freezable
   {
     assertMutable();
     ldapDn = LdapUtils.assertNotNullArg(dn, "DN cannot be null");
+    final DnCache cache = DnCache.getDefault();
     try {
-      parsedDn = new Dn(ldapDn);
+      parsedDn = cache != null ? cache.get(ldapDn) : new Dn(ldapDn);
     } catch (Exception e) {
       parsedDn = null;
     }
     if (parsedDn != null) {
-      normalizedDn = parsedDn.format();
+      normalizedDn = cache != null ? cache.normalize(ldapDn) : parsedDn.format();
     }
   }
 
@@ -185,8 +335,13 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public boolean hasAttribute(final String name)
   {
+    if (attributes instanceof FrozenAttributes) {
+      return name != null && ((FrozenAttributes) attributes).getIgnoreCase(name) != null;
+    }
     if (name != null) {
-      return attributes.containsKey(LdapUtils.toLowerCase(name));
+      final String lowerName = AttributeRegistry.getDefault().getLowerName(name);
+      return attributes.containsKey(lowerName) ||
+        encodedAttributes != null && encodedAttributes.contains(lowerName);
     }
     return false;
   }
@@ -235,6 +390,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public Collection<LdapAttribute> getAttributes()
   {
+    decodeAttributes();
+    if (attributes instanceof FrozenAttributes) {
+      return attributes.values();
+    }
     return immutable ? Collections.unmodifiableCollection(attributes.values()) : attributes.values();
   }
 
@@ -247,6 +406,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public LdapAttribute getAttribute()
   {
+    decodeAttributes();
     if (attributes.isEmpty()) {
       return null;
     }
@@ -264,7 +424,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public LdapAttribute getAttribute(final String name)
   {
     if (name != null) {
-      return attributes.get(LdapUtils.toLowerCase(name));
+      if (attributes instanceof FrozenAttributes) {
+        return ((FrozenAttributes) attributes).getIgnoreCase(name);
+      }
+      return decodeAttribute(AttributeRegistry.getDefault().getLowerName(name));
     }
     return null;
   }
@@ -439,6 +602,9 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public String[] getAttributeNames()
   {
+    if (encodedAttributes != null) {
+      return encodedAttributes.names();
+    }
     return attributes.values().stream().map(LdapAttribute::getName).toArray(String[]::new);
   }
 
@@ -451,9 +617,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void addAttributes(final LdapAttribute... attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
     for (LdapAttribute a : attrs) {
-      attributes.put(LdapUtils.toLowerCase(a.getName(), false), a);
+      attributes.put(AttributeRegistry.getDefault().getLowerName(a.getName()), a);
     }
   }
 
@@ -466,8 +633,9 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void addAttributes(final Collection<LdapAttribute> attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
-    attrs.forEach(a -> attributes.put(LdapUtils.toLowerCase(a.getName(), false), a));
+    attrs.forEach(a -> attributes.put(AttributeRegistry.getDefault().getLowerName(a.getName()), a));
   }
 
 
@@ -481,9 +649,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void mergeAttributes(final LdapAttribute... attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
     for (LdapAttribute a : attrs) {
-      final String lowerName = LdapUtils.toLowerCase(a.getName(), false);
+      final String lowerName = AttributeRegistry.getDefault().getLowerName(a.getName());
       if (!attributes.containsKey(lowerName)) {
         attributes.put(lowerName, LdapAttribute.copy(a));
       } else {
@@ -503,9 +672,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void mergeAttributes(final Collection<LdapAttribute> attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
     attrs.forEach(a -> {
-      final String lowerName = LdapUtils.toLowerCase(a.getName(), false);
+      final String lowerName = AttributeRegistry.getDefault().getLowerName(a.getName());
       if (!attributes.containsKey(lowerName)) {
         attributes.put(lowerName, LdapAttribute.copy(a));
       } else {
@@ -523,8 +693,9 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void removeAttribute(final String name)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotNullArg(name, "Attribute name cannot be null");
-    attributes.remove(LdapUtils.toLowerCase(name, false));
+    attributes.remove(AttributeRegistry.getDefault().getLowerName(name));
   }
 
 
@@ -536,9 +707,10 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void removeAttributes(final LdapAttribute... attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
     for (LdapAttribute a : attrs) {
-      attributes.remove(LdapUtils.toLowerCase(a.getName(), false));
+      attributes.remove(AttributeRegistry.getDefault().getLowerName(a.getName()));
     }
   }
 
@@ -551,8 +723,9 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public void removeAttributes(final Collection<LdapAttribute> attrs)
   {
     assertMutable();
+    decodeAttributes();
     LdapUtils.assertNotContainsNullArgOr(attrs, Objects::isNull, "Attributes cannot be null or contain null");
-    attrs.forEach(a -> attributes.remove(LdapUtils.toLowerCase(a.getName(), false)));
+    attrs.forEach(a -> attributes.remove(AttributeRegistry.getDefault().getLowerName(a.getName())));
   }
 
 
@@ -563,6 +736,9 @@ public class LdapEntry extends AbstractMessage implements Freezable
    */
   public final int size()
   {
+    if (encodedAttributes != null) {
+      return encodedAttributes.size();
+    }
     return attributes.size();
   }
 
@@ -571,6 +747,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public final void clear()
   {
     assertMutable();
+    decodeAttributes();
     attributes.clear();
   }
 
@@ -583,6 +760,8 @@ public class LdapEntry extends AbstractMessage implements Freezable
     }
     if (o instanceof LdapEntry && super.equals(o)) {
       final LdapEntry v = (LdapEntry) o;
+      decodeAttributes();
+      v.decodeAttributes();
       // compare normalizedDn if not null, else compare Dn
       return LdapUtils.areEqual(
         normalizedDn != null ? normalizedDn : ldapDn,
@@ -596,6 +775,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
   @Override
   public int hashCode()
   {
+    decodeAttributes();
     return
       LdapUtils.computeHashCode(
         HASH_CODE_SEED,
@@ -609,6 +789,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
   @Override
   public String toString()
   {
+    decodeAttributes();
     return super.toString() + ", " +
       "dn=" + ldapDn + ", " +
       "attributes=" + (attributes != null ? attributes.values() : null);
@@ -625,6 +806,7 @@ public class LdapEntry extends AbstractMessage implements Freezable
   public static LdapEntry copy(final LdapEntry entry)
   {
     LdapUtils.assertNotNullArg(entry, "Entry cannot be null");
+    entry.decodeAttributes();
     final LdapEntry copy = new LdapEntry();
     copy.copyValues(entry);
     copy.ldapDn = entry.ldapDn;
@@ -807,8 +989,11 @@ public class LdapEntry extends AbstractMessage implements Freezable
     /** DER path to values. */
     private static final DERPath VALUES_PATH = new DERPath("/SET/OCTSTR");
 
+    /** Compiled DER paths for decoding. */
+    private static final CompiledDERPaths PATHS = CompiledDERPaths.compile(NAME_PATH, VALUES_PATH);
+
     /** Parser for decoding LDAP attributes. */
-    private final DERParser parser = new DERParser();
+    private final DERParser parser = new DERParser(PATHS);
 
     /** Attribute values. */
     private final List<byte[]> values = new ArrayList<>();
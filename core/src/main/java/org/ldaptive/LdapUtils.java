@@ -643,7 +643,7 @@ public final class LdapUtils
    * @param  value  to lower case
    * @param  allowNull  whether to throw {@link IllegalArgumentException} if value is null
    *
-   * @return  new lower case string
+   * @return  lower case string, the same instance if value is already lower case
    *
    * @throws  IllegalArgumentException  if allowNull is false and value is null
    */
@@ -655,13 +655,20 @@ public final class LdapUtils
     if (value == null || value.isEmpty()) {
       return value;
     }
+    boolean lowerCase = true;
     // CheckStyle:MagicNumber OFF
-    // if string contains non-ascii, use locale specific lowercase
-    if (value.chars().anyMatch(c -> c > 0x7F)) {
-      return value.toLowerCase(Locale.ROOT);
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c > 0x7F) {
+        // if string contains non-ascii, use locale specific lowercase
+        return value.toLowerCase(Locale.ROOT);
+      } else if (c >= 'A' && c <= 'Z') {
+        lowerCase = false;
+      }
     }
     // CheckStyle:MagicNumber ON
-    return toLowerCaseAscii(value);
+    // avoid allocating a new string if the value is already lower case
+    return lowerCase ? value : toLowerCaseAscii(value);
   }
 
 
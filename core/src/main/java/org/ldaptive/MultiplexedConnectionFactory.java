@@ -0,0 +1,513 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.ldaptive.transport.ThreadPoolConfig;
+import org.ldaptive.transport.Transport;
+import org.ldaptive.transport.TransportConnection;
+import org.ldaptive.transport.TransportFactory;
+
+/**
+ * Creates a fixed number of long-lived connections which are shared by concurrent operations. Unlike a connection pool,
+ * a connection is never checked out exclusively; each call to {@link #getConnection()} returns a proxy to the open
+ * connection with the fewest pending operations, and many operations may be in flight on the same connection at once.
+ * Because every caller shares the same connections, only read-only operations that do not change the connection state
+ * are supported. Any authentication should be performed by a {@link ConnectionInitializer} so that all connections are
+ * bound identically when they are opened.
+ *
+ * @author  Middleware Services
+ */
+public final class MultiplexedConnectionFactory extends DefaultConnectionFactory
+{
+
+  /** Default number of connections, value is {@value}. */
+  public static final int DEFAULT_CONNECTION_COUNT = 4;
+
+  /** Number of connections to open. */
+  private int connectionCount = DEFAULT_CONNECTION_COUNT;
+
+  /** Whether {@link #initialize()} should throw if any connection cannot be opened. */
+  private boolean failFastInitialize = true;
+
+  /** Guards initialize and close. */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Connections used by this factory. */
+  private volatile Connection[] connections;
+
+  /** Lock for each connection, held while a proxy reopens it. */
+  private volatile ReentrantLock[] reopenLocks;
+
+  /** Used to select a starting connection when comparing pending operations. */
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  /** Whether {@link #initialize()} has been successfully invoked. */
+  private volatile boolean initialized;
+
+
+  /** Default constructor. */
+  public MultiplexedConnectionFactory()
+  {
+    super(
+      TransportFactory.getTransport(
+        ThreadPoolConfig.defaultIoThreads("multiplexed", ThreadPoolConfig.ShutdownStrategy.CONNECTION_FACTORY_CLOSE)));
+  }
+
+
+  /**
+   * Creates a new multiplexed connection factory.
+   *
+   * @param  t  transport
+   */
+  public MultiplexedConnectionFactory(final Transport t)
+  {
+    super(t);
+  }
+
+
+  /**
+   * Creates a new multiplexed connection factory.
+   *
+   * @param  ldapUrl  to connect to
+   */
+  public MultiplexedConnectionFactory(final String ldapUrl)
+  {
+    super(
+      ldapUrl,
+      TransportFactory.getTransport(
+        ThreadPoolConfig.defaultIoThreads("multiplexed", ThreadPoolConfig.ShutdownStrategy.CONNECTION_FACTORY_CLOSE)));
+  }
+
+
+  /**
+   * Creates a new multiplexed connection factory.
+   *
+   * @param  cc  connection configuration
+   */
+  public MultiplexedConnectionFactory(final ConnectionConfig cc)
+  {
+    super(
+      cc,
+      TransportFactory.getTransport(
+        ThreadPoolConfig.defaultIoThreads("multiplexed", ThreadPoolConfig.ShutdownStrategy.CONNECTION_FACTORY_CLOSE)));
+  }
+
+
+  /**
+   * Creates a new multiplexed connection factory.
+   *
+   * @param  cc  connection configuration
+   * @param  t  transport
+   */
+  public MultiplexedConnectionFactory(final ConnectionConfig cc, final Transport t)
+  {
+    super(cc, t);
+  }
+
+
+  /**
+   * Returns the number of connections opened by this factory.
+   *
+   * @return  number of connections
+   */
+  public int getConnectionCount()
+  {
+    return connectionCount;
+  }
+
+
+  /**
+   * Sets the number of connections opened by this factory.
+   *
+   * @param  count  number of connections
+   */
+  public void setConnectionCount(final int count)
+  {
+    assertMutable();
+    if (count < 1) {
+      throw new IllegalArgumentException("Connection count must be greater than zero");
+    }
+    connectionCount = count;
+  }
+
+
+  /**
+   * Returns whether {@link #initialize()} should throw if any connection cannot be opened.
+   *
+   * @return  whether {@link #initialize()} should throw
+   */
+  public boolean getFailFastInitialize()
+  {
+    return failFastInitialize;
+  }
+
+
+  /**
+   * Sets whether {@link #initialize()} should throw if any connection cannot be opened.
+   *
+   * @param  b  whether {@link #initialize()} should throw
+   */
+  public void setFailFastInitialize(final boolean b)
+  {
+    assertMutable();
+    failFastInitialize = b;
+  }
+
+
+  /**
+   * Returns whether this factory has been initialized.
+   *
+   * @return  whether this factory has been initialized
+   */
+  public boolean isInitialized()
+  {
+    return initialized;
+  }
+
+
+  /**
+   * Opens the connections used by this factory.
+   *
+   * @throws  LdapException  if a connection cannot be opened and {@link #failFastInitialize} is true
+   */
+  public void initialize()
+    throws LdapException
+  {
+    lock.lock();
+    try {
+      if (initialized) {
+        throw new IllegalStateException("Connection factory is already initialized for " + this);
+      }
+      final Connection[] conns = new Connection[connectionCount];
+      final ReentrantLock[] locks = new ReentrantLock[connectionCount];
+      for (int i = 0; i < conns.length; i++) {
+        locks[i] = new ReentrantLock();
+        conns[i] = super.getConnection();
+        try {
+          conns[i].open();
+        } catch (LdapException e) {
+          logger.warn("Could not open connection {} for {}", i, this, e);
+          if (failFastInitialize) {
+            for (int j = 0; j <= i; j++) {
+              conns[j].close();
+            }
+            throw e;
+          }
+        }
+      }
+      reopenLocks = locks;
+      connections = conns;
+      initialized = true;
+      this.freeze();
+    } finally {
+      lock.unlock();
+    }
+    logger.info("Initialize successful for {}", this);
+  }
+
+
+  /**
+   * Returns the number of pending operations for each connection managed by this factory. The value at each index
+   * corresponds to the same connection for the life of this factory. Connections that do not track pending operations
+   * always report zero.
+   *
+   * @return  pending operation count for each connection
+   */
+  public int[] getPendingResponseCounts()
+  {
+    final Connection[] conns = connections;
+    if (conns == null) {
+      return new int[0];
+    }
+    final int[] counts = new int[conns.length];
+    for (int i = 0; i < conns.length; i++) {
+      counts[i] = getPendingResponseCount(conns[i]);
+    }
+    return counts;
+  }
+
+
+  /**
+   * Returns a connection proxy for the open connection with the fewest pending operations. Ties are broken by cycling
+   * through the connections, so load is distributed evenly when no connection reports pending operations. If no
+   * connection is open, the closed connections are returned in turn and invoking {@link Connection#open()} on the
+   * proxy reopens the connection.
+   *
+   * @return  connection proxy
+   */
+  @Override
+  public Connection getConnection()
+  {
+    final Connection[] conns = connections;
+    final ReentrantLock[] locks = reopenLocks;
+    if (!initialized || conns == null) {
+      throw new IllegalStateException("Connection factory is not initialized");
+    }
+    final int start = Math.floorMod(nextIndex.getAndIncrement(), conns.length);
+    int selected = start;
+    int selectedCount = Integer.MAX_VALUE;
+    for (int i = 0; i < conns.length; i++) {
+      final int index = (start + i) % conns.length;
+      if (conns[index].isOpen()) {
+        final int count = getPendingResponseCount(conns[index]);
+        if (count < selectedCount) {
+          selected = index;
+          selectedCount = count;
+          if (count == 0) {
+            break;
+          }
+        }
+      }
+    }
+    return (Connection) Proxy.newProxyInstance(
+      Connection.class.getClassLoader(),
+      new Class<?>[] {Connection.class},
+      new ConnectionProxy(conns[selected], locks[selected]));
+  }
+
+
+  /**
+   * Returns the number of pending operations for the supplied connection.
+   *
+   * @param  conn  to inspect
+   *
+   * @return  pending operation count or zero if the connection does not track pending operations
+   */
+  private static int getPendingResponseCount(final Connection conn)
+  {
+    if (conn instanceof TransportConnection) {
+      return ((TransportConnection) conn).getPendingResponseCount();
+    }
+    return 0;
+  }
+
+
+  @Override
+  public void close()
+  {
+    lock.lock();
+    try {
+      if (connections != null) {
+        for (Connection conn : connections) {
+          conn.close();
+        }
+      }
+      connections = null;
+      reopenLocks = null;
+      initialized = false;
+      super.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "transport=" + getTransport() + ", " +
+      "connectionCount=" + connectionCount + ", " +
+      "failFastInitialize=" + failFastInitialize + ", " +
+      "initialized=" + initialized + "]";
+  }
+
+
+  /**
+   * Proxies a shared connection. Close is ignored since the connection is managed by the factory, open only reopens
+   * the connection if it has been closed. Operations that would change the state of the connection are rejected with
+   * {@link UnsupportedOperationException}.
+   */
+  protected static class ConnectionProxy implements InvocationHandler
+  {
+
+    /** Underlying connection. */
+    private final Connection conn;
+
+    /** Lock shared by every proxy of the underlying connection. */
+    private final ReentrantLock reopenLock;
+
+
+    /**
+     * Creates a new connection proxy.
+     *
+     * @param  c  connection to proxy
+     * @param  l  lock shared by every proxy of the connection
+     */
+    public ConnectionProxy(final Connection c, final ReentrantLock l)
+    {
+      conn = c;
+      reopenLock = l;
+    }
+
+
+    /**
+     * Returns the connection that is being proxied.
+     *
+     * @return  underlying connection
+     */
+    public Connection getConnection()
+    {
+      return conn;
+    }
+
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args)
+      throws Throwable
+    {
+      if ("open".equals(method.getName())) {
+        reopen();
+        return null;
+      }
+      if ("close".equals(method.getName())) {
+        return null;
+      }
+      if ("operation".equals(method.getName())) {
+        checkRequest(args[0]);
+      } else if ("operations".equals(method.getName())) {
+        for (Object request : (List<?>) args[0]) {
+          checkRequest(request);
+        }
+      }
+      try {
+        return method.invoke(conn, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    }
+
+
+    /**
+     * Opens the underlying connection if it is closed. Proxies of the same connection share a lock, so only one of them
+     * reopens the connection. The lock is not a monitor so that a virtual thread waiting on the open is not pinned to
+     * its carrier.
+     *
+     * @throws  LdapException  if the connection cannot be opened
+     */
+    private void reopen()
+      throws LdapException
+    {
+      reopenLock.lock();
+      try {
+        if (!conn.isOpen()) {
+          conn.open();
+        }
+      } finally {
+        reopenLock.unlock();
+      }
+    }
+
+
+    /**
+     * Throws if the supplied request is not a search or compare request.
+     *
+     * @param  request  to check
+     *
+     * @throws  UnsupportedOperationException  if the request is not supported
+     */
+    private static void checkRequest(final Object request)
+    {
+      if (!(request instanceof SearchRequest) && !(request instanceof CompareRequest)) {
+        throw new UnsupportedOperationException(
+          "Multiplexed connections only support search and compare operations, received " + request);
+      }
+    }
+  }
+
+
+  /**
+   * Creates a builder for this class.
+   *
+   * @return  new builder
+   */
+  public static Builder builder()
+  {
+    return new Builder();
+  }
+
+
+  /**
+   * Creates a builder for this class.
+   *
+   * @param  t  transport
+   *
+   * @return  new builder
+   */
+  public static Builder builder(final Transport t)
+  {
+    return new Builder(t);
+  }
+
+
+  // CheckStyle:OFF
+  public static final class Builder extends DefaultConnectionFactory.Builder
+  {
+
+    private final MultiplexedConnectionFactory object;
+
+
+    private Builder()
+    {
+      this(new MultiplexedConnectionFactory());
+    }
+
+
+    private Builder(final Transport t)
+    {
+      this(new MultiplexedConnectionFactory(t));
+    }
+
+
+    private Builder(final MultiplexedConnectionFactory factory)
+    {
+      super(factory);
+      object = factory;
+    }
+
+
+    @Override
+    public Builder freeze()
+    {
+      object.freeze();
+      return this;
+    }
+
+
+    @Override
+    public Builder config(final ConnectionConfig cc)
+    {
+      object.setConnectionConfig(cc);
+      return this;
+    }
+
+
+    public Builder connectionCount(final int count)
+    {
+      object.setConnectionCount(count);
+      return this;
+    }
+
+
+    public Builder failFastInitialize(final boolean failFast)
+    {
+      object.setFailFastInitialize(failFast);
+      return this;
+    }
+
+
+    @Override
+    public MultiplexedConnectionFactory build()
+    {
+      return object;
+    }
+  }
+  // CheckStyle:ON
+}
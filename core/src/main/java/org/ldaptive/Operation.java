@@ -1,6 +1,9 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Operation interface.
  *
@@ -35,4 +38,22 @@ public interface Operation<Q extends Request, S extends Result>
    * @throws  LdapException  if the operation fails
    */
   S execute(Q request) throws LdapException;
+
+
+  /**
+   * Sends an asynchronous request and returns a completion stage for the response. See {@link
+   * OperationHandle#toCompletionStage()}. Failures sending the request complete the stage exceptionally.
+   *
+   * @param  request  operation request
+   *
+   * @return  completion stage for the operation result
+   */
+  default CompletionStage<S> executeAsync(final Q request)
+  {
+    try {
+      return send(request).toCompletionStage();
+    } catch (LdapException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
@@ -2,6 +2,8 @@
 package org.ldaptive;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import org.ldaptive.extended.ExtendedOperationHandle;
 import org.ldaptive.handler.CompleteHandler;
 import org.ldaptive.handler.ExceptionHandler;
@@ -60,6 +62,32 @@ public interface OperationHandle<Q extends Request, S extends Result>
   }
 
 
+  /**
+   * Returns a completion stage that completes with the value {@link #await()} would return, or exceptionally with the
+   * exception it would throw. The default implementation completes the stage from a handler set with {@link
+   * #onComplete(CompleteHandler)}, replacing any existing complete handler, so no thread waits for the response. If the
+   * operation has already completed the stage is completed immediately.
+   *
+   * @return  completion stage for the result of this operation
+   */
+  default CompletionStage<S> toCompletionStage()
+  {
+    final CompletableFuture<S> future = new CompletableFuture<>();
+    final CompleteHandler handler = () -> {
+      try {
+        future.complete(await());
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    };
+    onComplete(handler);
+    if (getReceivedTime() != null) {
+      handler.execute();
+    }
+    return future;
+  }
+
+
   /**
    * Sets the functions to execute when a result is received.
    *
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import org.ldaptive.asn1.DEREncoder;
+
 /**
  * LDAP protocol request.
  *
@@ -18,4 +20,19 @@ public interface Request
    * @return  asn.1 encoded request
    */
   byte[] encode(int id);
+
+
+  /**
+   * Returns an encoder for this request, which can write the request directly into a buffer. See {@link
+   * DEREncoder#encode(java.nio.ByteBuffer)}. The default implementation wraps the result of {@link #encode(int)}.
+   *
+   * @param  id  message id of this request
+   *
+   * @return  asn.1 encoder for this request
+   */
+  default DEREncoder getEncoder(final int id)
+  {
+    final byte[] encoded = encode(id);
+    return () -> encoded;
+  }
 }
@@ -7,6 +7,8 @@ import org.ldaptive.filter.FilterParser;
 import org.ldaptive.handler.LdapEntryHandler;
 import org.ldaptive.handler.SearchReferenceHandler;
 import org.ldaptive.handler.SearchResultHandler;
+import org.ldaptive.transport.DefaultSearchOperationHandle;
+import org.ldaptive.transport.SearchEntryPublisher;
 
 /**
  * Executes an ldap search operation.
@@ -414,6 +416,39 @@ public class SearchOperation extends AbstractOperation<SearchRequest, SearchResp
   }
 
 
+  /**
+   * Sends the supplied search request and returns a publisher of the entries it produces. Entries are not retained in
+   * the search response and reads on the connection are suspended while the subscriber has no outstanding demand. See
+   * {@link DefaultSearchOperationHandle#entryPublisher()}.
+   *
+   * @param  req  search request to send
+   *
+   * @return  search entry publisher
+   *
+   * @throws  LdapException  if the connection cannot be opened
+   * @throws  UnsupportedOperationException  if the connection does not produce a {@link DefaultSearchOperationHandle}
+   */
+  public SearchEntryPublisher publish(final SearchRequest req)
+    throws LdapException
+  {
+    final Connection conn = getConnectionFactory().getConnection();
+    try {
+      conn.open();
+    } catch (Exception e) {
+      conn.close();
+      throw e;
+    }
+    final SearchOperationHandle handle = configureHandle(conn.operation(configureRequest(req))).onComplete(conn::close);
+    if (!(handle instanceof DefaultSearchOperationHandle)) {
+      conn.close();
+      throw new UnsupportedOperationException("Cannot publish entries for handle " + handle);
+    }
+    final SearchEntryPublisher publisher = ((DefaultSearchOperationHandle) handle).entryPublisher();
+    handle.send();
+    return publisher;
+  }
+
+
   /**
    * Sends a search request. See {@link SearchOperationHandle#send()}.
    *
@@ -718,6 +753,25 @@ public class SearchOperation extends AbstractOperation<SearchRequest, SearchResp
   }
 
 
+  /**
+   * Executes a search request on the supplied connection, which must already be open and is not closed by this method.
+   * Use this to send several requests on the same connection, such as a paged results cookie chain. See {@link
+   * SearchOperationHandle#execute()}.
+   *
+   * @param  conn  open connection to execute the request on
+   * @param  req  search request
+   *
+   * @return  search result
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public SearchResponse execute(final Connection conn, final SearchRequest req)
+    throws LdapException
+  {
+    return configureHandle(conn.operation(configureRequest(req))).execute();
+  }
+
+
   /**
    * Executes a search request using {@link #getRequest()}. See {@link SearchOperationHandle#execute()}.
    *
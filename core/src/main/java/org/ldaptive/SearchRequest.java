@@ -457,16 +457,19 @@ public class SearchRequest extends AbstractRequestMessage
 
 
   /**
-   * Invokes {@link LdapAttribute#configureBinary(String...)} for each attribute in the supplied entry using {@link
-   * #binaryAttributes}.
+   * Sets each attribute in the supplied entry named in {@link #binaryAttributes} as binary. Attributes are looked up
+   * by name, so attributes of an entry that is decoded lazily are only decoded if they are binary.
    *
    * @param  entry  to configure binary attributes for
    */
   public void configureBinaryAttributes(final LdapEntry entry)
   {
     if (binaryAttributes != null && binaryAttributes.length > 0) {
-      for (LdapAttribute a : entry.getAttributes()) {
-        a.configureBinary(binaryAttributes);
+      for (String name : binaryAttributes) {
+        final LdapAttribute a = entry.getAttribute(name);
+        if (a != null) {
+          a.configureBinary(name);
+        }
       }
     }
   }
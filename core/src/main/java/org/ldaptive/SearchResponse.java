@@ -9,6 +9,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.ldaptive.asn1.CompiledDERPaths;
 import org.ldaptive.asn1.DERBuffer;
 import org.ldaptive.asn1.DERParser;
 import org.ldaptive.asn1.DERPath;
@@ -45,6 +46,15 @@ public final class SearchResponse extends AbstractResult implements Freezable
   /** DER path to referral. */
   private static final DERPath REFERRAL_PATH = new DERPath("/SEQ/APP(5)/CTX(3)/OCTSTR[0]");
 
+  /** Compiled DER paths for decoding. */
+  private static final CompiledDERPaths PATHS = CompiledDERPaths.compile(
+    MessageIDHandler.PATH,
+    RESULT_CODE_PATH,
+    MATCHED_DN_PATH,
+    DIAGNOSTIC_MESSAGE_PATH,
+    REFERRAL_PATH,
+    ControlsHandler.PATH);
+
   /** Entries contained in this result. */
   private final List<LdapEntry> resultEntries = new ArrayList<>();
 
@@ -68,7 +78,7 @@ public final class SearchResponse extends AbstractResult implements Freezable
    */
   public SearchResponse(final DERBuffer buffer)
   {
-    final DERParser parser = new DERParser();
+    final DERParser parser = new DERParser(PATHS);
     parser.registerHandler(MessageIDHandler.PATH, new MessageIDHandler(this));
     parser.registerHandler(RESULT_CODE_PATH, new ResultCodeHandler(this));
     parser.registerHandler(MATCHED_DN_PATH, new MatchedDNHandler(this));
@@ -48,28 +48,9 @@ public abstract class AbstractDERType
       }
     }
 
-    final byte[] lengthBytes;
-    if (itemLength <= SHORT_FORM_INT_LENGTH) {
-      lengthBytes = new byte[] {(byte) itemLength};
-    } else {
-      // use 4 bytes for all long form integers
-      // CheckStyle:MagicNumber OFF
-      lengthBytes = new byte[] {
-        (byte) 0x84,
-        (byte) (itemLength >>> 24),
-        (byte) (itemLength >>> 16),
-        (byte) (itemLength >>> 8),
-        (byte) itemLength,
-      };
-      // CheckStyle:MagicNumber ON
-    }
-
     // add 1 for the type tag, 1 or 5 for the length
-    final ByteBuffer encodedItem = ByteBuffer.allocate(itemLength + 1 + lengthBytes.length);
-    encodedItem.put((byte) derTag);
-    for (byte b : lengthBytes) {
-      encodedItem.put(b);
-    }
+    final ByteBuffer encodedItem = ByteBuffer.allocate(encodedLength(itemLength));
+    encodeHeader(encodedItem, itemLength);
     if (items != null) {
       for (byte[] b : items) {
         if (b != null) {
@@ -79,4 +60,74 @@ public abstract class AbstractDERType
     }
     return encodedItem.array();
   }
+
+
+  /**
+   * DER encodes the supplied item with the tag associated with this type into the supplied buffer. See {@link
+   * #encode(byte[]...)}.
+   *
+   * @param  target  to write the encoded item to
+   * @param  item  to encode, may be null
+   */
+  protected void encode(final ByteBuffer target, final byte[] item)
+  {
+    if (item == null) {
+      encodeHeader(target, 0);
+    } else {
+      encodeHeader(target, item.length);
+      target.put(item);
+    }
+  }
+
+
+  /**
+   * Writes the tag associated with this type and the supplied length into the supplied buffer.
+   *
+   * @param  target  to write the tag and length to
+   * @param  itemLength  length of the encoded contents
+   */
+  protected void encodeHeader(final ByteBuffer target, final int itemLength)
+  {
+    target.put((byte) derTag);
+    if (itemLength <= SHORT_FORM_INT_LENGTH) {
+      target.put((byte) itemLength);
+    } else {
+      // use 4 bytes for all long form integers
+      // CheckStyle:MagicNumber OFF
+      target.put((byte) 0x84);
+      target.put((byte) (itemLength >>> 24));
+      target.put((byte) (itemLength >>> 16));
+      target.put((byte) (itemLength >>> 8));
+      target.put((byte) itemLength);
+      // CheckStyle:MagicNumber ON
+    }
+  }
+
+
+  /**
+   * Returns the length of an encoded item whose contents have the supplied length, including the tag and length bytes.
+   *
+   * @param  itemLength  length of the encoded contents
+   *
+   * @return  length of the encoded item
+   */
+  protected static int encodedLength(final int itemLength)
+  {
+    // CheckStyle:MagicNumber OFF
+    return itemLength + (itemLength <= SHORT_FORM_INT_LENGTH ? 2 : 6);
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /**
+   * Returns the length of the supplied item once encoded with a tag and length.
+   *
+   * @param  item  to encode, may be null
+   *
+   * @return  length of the encoded item
+   */
+  protected static int encodedLength(final byte[] item)
+  {
+    return encodedLength(item != null ? item.length : 0);
+  }
 }
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
+import java.nio.ByteBuffer;
+
 /**
  * Converts booleans to and from their DER encoded format.
  *
@@ -56,6 +58,20 @@ public class BooleanType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a boolean by reading from the current position to the limit.
    *
@@ -0,0 +1,387 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.asn1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Set of {@link DERPath} compiled into a state table for use by {@link DERParser#DERParser(CompiledDERPaths)}. The
+ * paths are first merged into a trie keyed by tag and child index, which is then converted into a deterministic state
+ * machine where each state is the set of trie nodes that match the current element. Transitions are keyed by the tag
+ * class and number of a child element and by its index relative to its parent, so a parser using this table does not
+ * allocate paths or hash node names while parsing. Elements for which no registered path can match are skipped without
+ * parsing their contents.
+ *
+ * <p>Instances are immutable and should be created once and shared by every parser that registers handlers for the
+ * same paths.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class CompiledDERPaths
+{
+
+  /** Mask that clears the constructed bit of a tag byte. */
+  private static final int TAG_KEY_MASK = 0xDF;
+
+  /** Paths in the order they were supplied. */
+  private final DERPath[] paths;
+
+  /** Index of each path. */
+  private final Map<DERPath, Integer> pathIndexes = new HashMap<>();
+
+  /** Initial state, which matches the parent of the top level elements. */
+  private final State root;
+
+
+  /**
+   * Creates new compiled DER paths.
+   *
+   * @param  derPaths  to compile
+   */
+  private CompiledDERPaths(final DERPath... derPaths)
+  {
+    if (derPaths == null || derPaths.length == 0) {
+      throw new IllegalArgumentException("Paths cannot be null or empty");
+    }
+    paths = derPaths;
+    final TrieNode trie = new TrieNode(0, -1);
+    for (int i = 0; i < paths.length; i++) {
+      if (paths[i] == null || paths[i].isEmpty()) {
+        throw new IllegalArgumentException("Path cannot be null or empty");
+      }
+      if (pathIndexes.putIfAbsent(paths[i], i) != null) {
+        throw new IllegalArgumentException("Duplicate path " + paths[i]);
+      }
+      TrieNode node = trie;
+      for (DERPath.Node n : paths[i].getNodes()) {
+        node = node.child(toKey(n.getName()), n.getChildIndex());
+      }
+      node.pathIndexes.add(i);
+    }
+    final Set<TrieNode> rootSet = new LinkedHashSet<>();
+    rootSet.add(trie);
+    root = new StateBuilder().build(rootSet);
+  }
+
+
+  /**
+   * Compiles the supplied paths.
+   *
+   * @param  derPaths  to compile
+   *
+   * @return  compiled DER paths
+   */
+  public static CompiledDERPaths compile(final DERPath... derPaths)
+  {
+    return new CompiledDERPaths(derPaths);
+  }
+
+
+  /**
+   * Returns the number of compiled paths.
+   *
+   * @return  number of paths
+   */
+  public int size()
+  {
+    return paths.length;
+  }
+
+
+  /**
+   * Returns the index of the supplied path.
+   *
+   * @param  path  to find
+   *
+   * @return  path index or -1 if the path was not compiled
+   */
+  int indexOf(final DERPath path)
+  {
+    final Integer index = pathIndexes.get(path);
+    return index != null ? index : -1;
+  }
+
+
+  /**
+   * Returns the initial state.
+   *
+   * @return  state that matches the parent of the top level elements
+   */
+  State getRoot()
+  {
+    return root;
+  }
+
+
+  /**
+   * Returns the transition key for the supplied tag byte, which is the tag class and number without the constructed
+   * bit.
+   *
+   * @param  tagByte  first byte of an encoded element
+   *
+   * @return  transition key
+   */
+  static int toKey(final byte tagByte)
+  {
+    return tagByte & TAG_KEY_MASK;
+  }
+
+
+  /**
+   * Returns the transition key for the supplied path node name.
+   *
+   * @param  name  of the path node
+   *
+   * @return  transition key
+   */
+  private static int toKey(final String name)
+  {
+    if (name.startsWith(ApplicationDERTag.TAG_NAME + "(")) {
+      return ApplicationDERTag.TAG_CLASS | parseTagNo(name, ApplicationDERTag.TAG_NAME.length());
+    } else if (name.startsWith(ContextDERTag.TAG_NAME + "(")) {
+      return ContextDERTag.TAG_CLASS | parseTagNo(name, ContextDERTag.TAG_NAME.length());
+    }
+    final UniversalDERTag tag = UniversalDERTag.fromTagName(name);
+    if (tag == null) {
+      throw new IllegalArgumentException("Invalid node name: " + name);
+    }
+    return tag.getTagNo();
+  }
+
+
+  /**
+   * Parses the tag number from a node name of the form NAME(number).
+   *
+   * @param  name  of the path node
+   * @param  offset  of the opening parenthesis
+   *
+   * @return  tag number
+   */
+  private static int parseTagNo(final String name, final int offset)
+  {
+    final int tagNo = Integer.parseInt(name.substring(offset + 1, name.length() - 1));
+    // CheckStyle:MagicNumber OFF
+    if (tagNo > 0x1E) {
+      throw new IllegalArgumentException("Tag number " + tagNo + " is not supported in " + name);
+    }
+    // CheckStyle:MagicNumber ON
+    return tagNo;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "paths=" + Arrays.toString(paths) + "]";
+  }
+
+
+  /** State of the compiled state machine. */
+  static final class State
+  {
+
+    /** Indexes of the paths that match the current element, in the order the paths were supplied. */
+    private int[] pathIndexes;
+
+    /** Transition keys, parallel to {@link #transitions}. */
+    private int[] keys;
+
+    /** Transitions for each key. */
+    private Transition[] transitions;
+
+
+    /**
+     * Returns the indexes of the paths that match the element for which this state was reached.
+     *
+     * @return  path indexes
+     */
+    int[] getPathIndexes()
+    {
+      return pathIndexes;
+    }
+
+
+    /**
+     * Returns whether any child element can match a path.
+     *
+     * @return  whether this state has transitions
+     */
+    boolean hasTransitions()
+    {
+      return keys.length > 0;
+    }
+
+
+    /**
+     * Returns the state for a child element.
+     *
+     * @param  key  of the child element, see {@link CompiledDERPaths#toKey(byte)}
+     * @param  index  of the child element relative to its parent
+     *
+     * @return  next state or null if no path can match the child element or its descendants
+     */
+    State next(final int key, final int index)
+    {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == key) {
+          final Transition t = transitions[i];
+          return index < t.byIndex.length ? t.byIndex[index] : t.anyIndex;
+        }
+      }
+      return null;
+    }
+  }
+
+
+  /** Transition for a single key. */
+  private static final class Transition
+  {
+
+    /** States for child indexes that are explicitly named by a path. */
+    private final State[] byIndex;
+
+    /** State for any other child index. */
+    private final State anyIndex;
+
+
+    /**
+     * Creates a new transition.
+     *
+     * @param  states  for explicit child indexes
+     * @param  any  state for other child indexes
+     */
+    Transition(final State[] states, final State any)
+    {
+      byIndex = states;
+      anyIndex = any;
+    }
+  }
+
+
+  /** Converts sets of trie nodes into states. */
+  private static final class StateBuilder
+  {
+
+    /** States that have been created for each set of trie nodes. */
+    private final Map<Set<TrieNode>, State> states = new HashMap<>();
+
+
+    /**
+     * Returns the state for the supplied set of trie nodes, creating it and its successors if necessary.
+     *
+     * @param  nodes  set of trie nodes
+     *
+     * @return  state or null if the set is empty
+     */
+    State build(final Set<TrieNode> nodes)
+    {
+      if (nodes.isEmpty()) {
+        return null;
+      }
+      State state = states.get(nodes);
+      if (state != null) {
+        return state;
+      }
+      state = new State();
+      states.put(nodes, state);
+      state.pathIndexes = nodes.stream()
+        .flatMap(n -> n.pathIndexes.stream()).distinct().sorted().mapToInt(Integer::intValue).toArray();
+
+      final Set<Integer> keySet = new TreeSet<>();
+      nodes.forEach(n -> n.children.forEach(c -> keySet.add(c.key)));
+      state.keys = keySet.stream().mapToInt(Integer::intValue).toArray();
+      state.transitions = new Transition[state.keys.length];
+      for (int i = 0; i < state.keys.length; i++) {
+        final int key = state.keys[i];
+        final Set<TrieNode> anyNodes = new LinkedHashSet<>();
+        int maxIndex = -1;
+        for (TrieNode n : nodes) {
+          for (TrieNode c : n.children) {
+            if (c.key == key) {
+              if (c.index < 0) {
+                anyNodes.add(c);
+              } else {
+                maxIndex = Math.max(maxIndex, c.index);
+              }
+            }
+          }
+        }
+        final State any = build(anyNodes);
+        final State[] byIndex = new State[maxIndex + 1];
+        for (int index = 0; index <= maxIndex; index++) {
+          final Set<TrieNode> indexNodes = new LinkedHashSet<>(anyNodes);
+          for (TrieNode n : nodes) {
+            for (TrieNode c : n.children) {
+              if (c.key == key && c.index == index) {
+                indexNodes.add(c);
+              }
+            }
+          }
+          byIndex[index] = indexNodes.size() == anyNodes.size() ? any : build(indexNodes);
+        }
+        state.transitions[i] = new Transition(byIndex, any);
+      }
+      return state;
+    }
+  }
+
+
+  /** Node of the path trie. */
+  private static final class TrieNode
+  {
+
+    /** Transition key of this node. */
+    private final int key;
+
+    /** Child index of this node or -1 for any index. */
+    private final int index;
+
+    /** Indexes of the paths that end at this node. */
+    private final List<Integer> pathIndexes = new ArrayList<>();
+
+    /** Child nodes. */
+    private final List<TrieNode> children = new ArrayList<>();
+
+
+    /**
+     * Creates a new trie node.
+     *
+     * @param  k  transition key
+     * @param  i  child index or -1
+     */
+    TrieNode(final int k, final int i)
+    {
+      key = k;
+      index = i;
+    }
+
+
+    /**
+     * Returns the child with the supplied key and index, creating it if it does not exist.
+     *
+     * @param  k  transition key
+     * @param  i  child index or -1
+     *
+     * @return  child node
+     */
+    TrieNode child(final int k, final int i)
+    {
+      for (TrieNode c : children) {
+        if (c.key == k && c.index == i) {
+          return c;
+        }
+      }
+      final TrieNode c = new TrieNode(k, i);
+      children.add(c);
+      return c;
+    }
+  }
+}
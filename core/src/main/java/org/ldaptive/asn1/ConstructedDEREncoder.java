@@ -1,8 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Encodes constructed types to their DER format.
@@ -15,6 +14,9 @@ public class ConstructedDEREncoder extends AbstractDERType implements DEREncoder
   /** Encoders in this sequence. */
   private final DEREncoder[] derEncoders;
 
+  /** Length of the encoded contents, computed on first use by {@link #encodedLength()}. */
+  private int contentLength = -1;
+
 
   /**
    * Creates a new sequence encoder.
@@ -38,16 +40,40 @@ public class ConstructedDEREncoder extends AbstractDERType implements DEREncoder
   @Override
   public byte[] encode()
   {
-    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-    try {
-      try (bytes) {
-        for (DEREncoder encoder : derEncoders) {
-          bytes.write(encoder.encode());
-        }
+    final ByteBuffer encoded = ByteBuffer.allocate(encodedLength());
+    encode(encoded);
+    return encoded.array();
+  }
+
+
+  /**
+   * Returns the length of this sequence, which is computed once from the lengths of the encoders in this sequence.
+   *
+   * @return  length of the DER encoded sequence
+   */
+  @Override
+  public int encodedLength()
+  {
+    if (contentLength < 0) {
+      int length = 0;
+      for (DEREncoder encoder : derEncoders) {
+        length += encoder.encodedLength();
       }
-    } catch (IOException e) {
-      throw new IllegalStateException("Encode failed", e);
+      contentLength = length;
+    }
+    return encodedLength(contentLength);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    if (contentLength < 0) {
+      encodedLength();
+    }
+    encodeHeader(target, contentLength);
+    for (DEREncoder encoder : derEncoders) {
+      encoder.encode(target);
     }
-    return encode(bytes.toByteArray());
   }
 }
@@ -2,6 +2,7 @@
 package org.ldaptive.asn1;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 /**
  * Converts context types to their DER encoded format.
@@ -69,4 +70,18 @@ public class ContextType extends AbstractDERType implements DEREncoder
   {
     return encode(derItem);
   }
+
+
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
 }
@@ -156,4 +156,24 @@ public interface DERBuffer
    * @return  The new byte buffer
    */
   DERBuffer slice();
+
+
+  /**
+   * Creates a new DER buffer whose content is a shared sub-sequence of this buffer's content, see {@link #slice()}. The
+   * content of the new buffer remains valid after this buffer is released, until {@link #release()} is invoked on the
+   * new buffer. Buffers whose content is not reference counted return {@link #slice()}.
+   *
+   * @return  The new byte buffer
+   */
+  default DERBuffer retainedSlice()
+  {
+    return slice();
+  }
+
+
+  /**
+   * Releases the content of this buffer if it is reference counted. This buffer must not be used after this method is
+   * invoked. Buffers whose content is not reference counted do nothing.
+   */
+  default void release() {}
 }
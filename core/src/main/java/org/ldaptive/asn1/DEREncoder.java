@@ -1,8 +1,12 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
+import java.nio.ByteBuffer;
+
 /**
- * Interface for encoding DER objects.
+ * Interface for encoding DER objects. In addition to {@link #encode()}, encoders support a two pass encoding where
+ * {@link #encodedLength()} is used to size a buffer and {@link #encode(ByteBuffer)} writes directly into it, which
+ * avoids allocating a byte array for every element of a constructed type.
  *
  * @author  Middleware Services
  */
@@ -16,4 +20,28 @@ public interface DEREncoder
    * @return  DER encoded object
    */
   byte[] encode();
+
+
+  /**
+   * Returns the number of bytes written by {@link #encode(ByteBuffer)}. The default implementation invokes {@link
+   * #encode()}.
+   *
+   * @return  length of the DER encoded object
+   */
+  default int encodedLength()
+  {
+    return encode().length;
+  }
+
+
+  /**
+   * Encode this object into its DER type, writing it at the current position of the supplied buffer. The buffer must
+   * have at least {@link #encodedLength()} bytes remaining. The default implementation invokes {@link #encode()}.
+   *
+   * @param  target  to write the DER encoded object to
+   */
+  default void encode(final ByteBuffer target)
+  {
+    target.put(encode());
+  }
 }
@@ -14,6 +14,11 @@ import org.slf4j.LoggerFactory;
  * be registered to handlers via the {@link #registerHandler} methods. {@link DERPath} strings are used to map handlers
  * to elements of interest.
  *
+ * <p>By default every element is matched by building the permutations of its path and looking each one up in the
+ * handler map. A parser created with {@link CompiledDERPaths} instead follows a precomputed state table, which avoids
+ * allocating and hashing paths for each element and skips elements that cannot contain a registered path. Handlers may
+ * only be registered for the compiled paths.</p>
+ *
  * @author  Middleware Services
  * @see  DERPath
  */
@@ -35,6 +40,35 @@ public class DERParser
   /** Permutations of the current path. */
   private final Queue<DERPath> permutations = new ArrayDeque<>();
 
+  /** Compiled paths, null if path permutations are used. */
+  private final CompiledDERPaths compiledPaths;
+
+  /** Handlers indexed by compiled path. */
+  private final ParseHandler[] compiledHandlers;
+
+
+  /** Creates a new DER parser that matches paths using permutations of the current path. */
+  public DERParser()
+  {
+    compiledPaths = null;
+    compiledHandlers = null;
+  }
+
+
+  /**
+   * Creates a new DER parser that matches paths using the supplied compiled paths.
+   *
+   * @param  paths  compiled paths that handlers will be registered for
+   */
+  public DERParser(final CompiledDERPaths paths)
+  {
+    if (paths == null) {
+      throw new IllegalArgumentException("Compiled paths cannot be null");
+    }
+    compiledPaths = paths;
+    compiledHandlers = new ParseHandler[paths.size()];
+  }
+
 
   /**
    * Registers the supplied handler to fire when the supplied path is encountered.
@@ -44,7 +78,15 @@ public class DERParser
    */
   public void registerHandler(final DERPath path, final ParseHandler handler)
   {
-    handlerMap.put(path, handler);
+    if (compiledPaths != null) {
+      final int index = compiledPaths.indexOf(path);
+      if (index < 0) {
+        throw new IllegalArgumentException("Path " + path + " is not one of " + compiledPaths);
+      }
+      compiledHandlers[index] = handler;
+    } else {
+      handlerMap.put(path, handler);
+    }
   }
 
 
@@ -59,7 +101,11 @@ public class DERParser
     if (encoded == null) {
       throw new IllegalArgumentException("Buffer cannot be null");
     }
-    parseTags(encoded);
+    if (compiledPaths != null) {
+      parseTags(encoded, compiledPaths.getRoot());
+    } else {
+      parseTags(encoded);
+    }
   }
 
 
@@ -211,6 +257,80 @@ public class DERParser
   }
 
 
+  /**
+   * Reads the DER encoded bytes and invokes handlers as compiled paths are encountered.
+   *
+   * @param  encoded  to parse
+   * @param  state  that matched the parent of the elements in the buffer
+   */
+  private void parseTags(final DERBuffer encoded, final CompiledDERPaths.State state)
+  {
+    int index = 0;
+    while (encoded.position() < encoded.limit()) {
+      final byte b = encoded.get();
+      // CheckStyle:MagicNumber OFF
+      final int tagClass = b & 0xC0;
+      if (tagClass == UniversalDERTag.TAG_CLASS) {
+        // throws for unknown tags, same as readTag
+        UniversalDERTag.fromTagNo(b & 0x1F);
+      } else if (tagClass != ApplicationDERTag.TAG_CLASS && tagClass != ContextDERTag.TAG_CLASS) {
+        throw new IllegalArgumentException("Private classes not supported.");
+      }
+      final boolean constructed = (b & 0x20) == 0x20;
+      // CheckStyle:MagicNumber ON
+      parseTag(b, constructed, encoded, state.next(CompiledDERPaths.toKey(b), index++));
+    }
+  }
+
+
+  /**
+   * Invokes the parse handlers for the supplied state and advances to the next position in the encoded bytes.
+   *
+   * @param  tagByte  of the current element
+   * @param  constructed  whether the current element is constructed
+   * @param  encoded  to parse
+   * @param  state  that matches the current element or null if no compiled path can match
+   */
+  private void parseTag(
+    final byte tagByte,
+    final boolean constructed,
+    final DERBuffer encoded,
+    final CompiledDERPaths.State state)
+  {
+    final int limit = encoded.limit();
+    final int lengthPos = encoded.position();
+    final int length;
+    try {
+      length = readLength(encoded);
+    } catch (Exception e) {
+      throw new IllegalArgumentException(
+        "Could not parse length of tag " + Byte.toUnsignedInt(tagByte) + " at position " + lengthPos, e);
+    }
+    final int end = length + encoded.position();
+    final int start = encoded.position();
+
+    if (end > limit) {
+      throw new IllegalArgumentException(
+        "Tag " + Byte.toUnsignedInt(tagByte) + " with length " + length + " at position " + encoded.position() +
+          " exceeds limit " + limit);
+    }
+
+    if (state != null) {
+      for (int i : state.getPathIndexes()) {
+        final ParseHandler handler = compiledHandlers[i];
+        if (handler != null) {
+          encoded.positionAndLimit(start, end);
+          handler.handle(this, encoded);
+        }
+      }
+      if (constructed && state.hasTransitions()) {
+        parseTags(encoded.positionAndLimit(start, end), state);
+      }
+    }
+    encoded.positionAndLimit(end, limit);
+  }
+
+
   /**
    * Add the given tag at the specified index to all permutations of the current parser path and increases the number of
    * permutations as necessary to satisfy the following relation:
@@ -169,6 +169,17 @@ public class DERPath
   }
 
 
+  /**
+   * Returns the nodes in the path, from the root.
+   *
+   * @return  path nodes
+   */
+  Iterable<Node> getNodes()
+  {
+    return nodeStack;
+  }
+
+
   /**
    * Gets the number of nodes in the path.
    *
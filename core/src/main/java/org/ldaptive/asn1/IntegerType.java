@@ -2,6 +2,7 @@
 package org.ldaptive.asn1;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 /**
  * Converts arbitrary-precision integers to and from their DER encoded format.
@@ -82,6 +83,20 @@ public class IntegerType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to an integer by reading from the current position to the limit, which assumes the
    * bytes of the integer are in big-endian order.
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
+import java.nio.ByteBuffer;
+
 /**
  * Convenience type for a tag with a null value.
  *
@@ -26,4 +28,18 @@ public class NullType extends AbstractDERType implements DEREncoder
   {
     return encode((byte[]) null);
   }
+
+
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(0);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encodeHeader(target, 0);
+  }
 }
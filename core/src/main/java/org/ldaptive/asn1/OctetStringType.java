@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
+import java.nio.ByteBuffer;
 import org.ldaptive.LdapUtils;
 
 /**
@@ -77,6 +78,20 @@ public class OctetStringType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a string by reading from the current position to the limit, which assumes the bytes
    * of the string are in big-endian order.
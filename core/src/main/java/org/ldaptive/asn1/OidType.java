@@ -3,6 +3,7 @@ package org.ldaptive.asn1;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.StringTokenizer;
 
 /**
@@ -84,6 +85,20 @@ public class OidType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to an OID by reading from the current position to the limit, which assumes the bytes
    * of the integer are in big-endian order.
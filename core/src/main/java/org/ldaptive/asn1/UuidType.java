@@ -56,6 +56,20 @@ public class UuidType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int encodedLength()
+  {
+    return encodedLength(derItem);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer target)
+  {
+    encode(target, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a uuid by reading from the current position to the limit.
    *
@@ -0,0 +1,92 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+
+/**
+ * DN resolver that caches the DNs returned by another DN resolver in a {@link ResolverCache}, keyed by user
+ * identifier. Users with a context are always resolved by the underlying resolver, since the context may be used to
+ * resolve the DN.
+ *
+ * @author  Middleware Services
+ */
+public final class CachingDnResolver implements DnResolver
+{
+
+  /** Resolver to invoke on a cache miss. */
+  private final DnResolver dnResolver;
+
+  /** Cache of user identifier to DN. */
+  private final ResolverCache<String, String> cache;
+
+
+  /**
+   * Creates a new caching DN resolver that does not cache users that could not be resolved.
+   *
+   * @param  resolver  to invoke on a cache miss
+   * @param  size  maximum number of DNs to cache
+   * @param  ttl  time to live for each DN
+   */
+  public CachingDnResolver(final DnResolver resolver, final int size, final Duration ttl)
+  {
+    this(resolver, new ResolverCache<>("dn-resolver", size, ttl));
+  }
+
+
+  /**
+   * Creates a new caching DN resolver.
+   *
+   * @param  resolver  to invoke on a cache miss
+   * @param  c  cache of user identifier to DN
+   */
+  public CachingDnResolver(final DnResolver resolver, final ResolverCache<String, String> c)
+  {
+    dnResolver = LdapUtils.assertNotNullArg(resolver, "DN resolver cannot be null");
+    cache = LdapUtils.assertNotNullArg(c, "Cache cannot be null");
+  }
+
+
+  /**
+   * Returns the underlying DN resolver.
+   *
+   * @return  DN resolver
+   */
+  public DnResolver getDnResolver()
+  {
+    return dnResolver;
+  }
+
+
+  /**
+   * Returns the cache.
+   *
+   * @return  resolver cache
+   */
+  public ResolverCache<String, String> getCache()
+  {
+    return cache;
+  }
+
+
+  @Override
+  public String resolve(final User user)
+    throws LdapException
+  {
+    if (user == null || user.getIdentifier() == null || user.getContext() != null) {
+      return dnResolver.resolve(user);
+    }
+    return cache.get(user.getIdentifier(), () -> dnResolver.resolve(user));
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "dnResolver=" + dnResolver + ", " +
+      "cache=" + cache + "]";
+  }
+}
@@ -0,0 +1,104 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.Arrays;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+
+/**
+ * Entry resolver that caches the entries returned by another entry resolver in a {@link ResolverCache}, keyed by the
+ * authenticated DN and the requested return attributes. Entries are copied into and out of the cache, so callers may
+ * modify the entry they receive. Only successful authentications use the cache. If {@link
+ * Authenticator#setResolveEntryOnFailure(boolean)} is set, the entry for a failed bind is resolved by the underlying
+ * resolver and neither read from nor stored in the cache.
+ *
+ * @author  Middleware Services
+ */
+public final class CachingEntryResolver implements EntryResolver
+{
+
+  /** Resolver to invoke on a cache miss. */
+  private final EntryResolver entryResolver;
+
+  /** Cache of DN and return attributes to entry. */
+  private final ResolverCache<String, LdapEntry> cache;
+
+
+  /**
+   * Creates a new caching entry resolver.
+   *
+   * @param  resolver  to invoke on a cache miss
+   * @param  size  maximum number of entries to cache
+   * @param  ttl  time to live for each entry
+   */
+  public CachingEntryResolver(final EntryResolver resolver, final int size, final Duration ttl)
+  {
+    this(resolver, new ResolverCache<>("entry-resolver", size, ttl));
+  }
+
+
+  /**
+   * Creates a new caching entry resolver.
+   *
+   * @param  resolver  to invoke on a cache miss
+   * @param  c  cache of entries, keys are the DN followed by the return attributes
+   */
+  public CachingEntryResolver(final EntryResolver resolver, final ResolverCache<String, LdapEntry> c)
+  {
+    entryResolver = LdapUtils.assertNotNullArg(resolver, "Entry resolver cannot be null");
+    cache = LdapUtils.assertNotNullArg(c, "Cache cannot be null");
+  }
+
+
+  /**
+   * Returns the underlying entry resolver.
+   *
+   * @return  entry resolver
+   */
+  public EntryResolver getEntryResolver()
+  {
+    return entryResolver;
+  }
+
+
+  /**
+   * Returns the cache.
+   *
+   * @return  resolver cache
+   */
+  public ResolverCache<String, LdapEntry> getCache()
+  {
+    return cache;
+  }
+
+
+  @Override
+  public LdapEntry resolve(final AuthenticationCriteria criteria, final AuthenticationHandlerResponse response)
+    throws LdapException
+  {
+    if (criteria == null || criteria.getDn() == null || response != null && !response.isSuccess()) {
+      return entryResolver.resolve(criteria, response);
+    }
+    final String[] returnAttributes = criteria.getAuthenticationRequest() != null ?
+      criteria.getAuthenticationRequest().getReturnAttributes() : null;
+    final LdapEntry entry = cache.get(
+      criteria.getDn() + Arrays.toString(returnAttributes),
+      () -> {
+        final LdapEntry e = entryResolver.resolve(criteria, response);
+        return e != null ? LdapEntry.copy(e) : null;
+      });
+    return entry != null ? LdapEntry.copy(entry) : null;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "entryResolver=" + entryResolver + ", " +
+      "cache=" + cache + "]";
+  }
+}
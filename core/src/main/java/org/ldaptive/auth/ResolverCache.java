@@ -0,0 +1,600 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.ResultCode;
+import org.ldaptive.metrics.MetricsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of resolver results, see {@link CachingDnResolver}, {@link CachingEntryResolver} and {@link
+ * org.ldaptive.handler.RecursiveResultHandler}. Entries expire after a time to live and the least recently used entry
+ * is evicted once the cache reaches its maximum size. Larger caches are split into segments by key hash, each with its
+ * own lock and an equal share of the maximum size, so that lookups of different keys do not contend on a single lock.
+ * Least recently used order is kept per segment, which approximates it for the whole cache. Null results, a user that
+ * does not exist, are cached for a separate, usually shorter, time to live or not at all. Concurrent misses for the
+ * same key are coalesced so that only one thread invokes the loader, the others wait for its result. A key that is
+ * invalidated while it is being loaded is not cached when the load completes, since the loaded value may predate the
+ * invalidation. Exceptions are never cached.
+ *
+ * @param  <K>  type of key
+ * @param  <V>  type of value
+ *
+ * @author  Middleware Services
+ */
+public final class ResolverCache<K, V>
+{
+
+  /** Maximum number of segments. */
+  private static final int MAX_SEGMENTS = 16;
+
+  /** Minimum number of entries in each segment, smaller caches use fewer segments. */
+  private static final int MIN_SEGMENT_SIZE = 16;
+
+  /** Logger for this class. */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Name of this cache, used for metrics. */
+  private final String name;
+
+  /** Maximum number of entries. */
+  private final int maxSize;
+
+  /** Time to live for non-null values in nanoseconds. */
+  private final long timeToLive;
+
+  /** Time to live for null values in nanoseconds, zero if null values are not cached. */
+  private final long negativeTimeToLive;
+
+  /** Source of the current time in nanoseconds. */
+  private final LongSupplier clock;
+
+  /** Cached entries split by key hash, the number of segments is a power of two. */
+  private final List<Segment> segments;
+
+  /** Loads in progress. */
+  private final Map<K, Load<V>> loading = new ConcurrentHashMap<>();
+
+  /** Number of lookups that found an unexpired entry. */
+  private final LongAdder hitCount = new LongAdder();
+
+  /** Number of lookups that did not find an unexpired entry. */
+  private final LongAdder missCount = new LongAdder();
+
+  /** Number of misses that waited for a load started by another thread. */
+  private final LongAdder coalescedCount = new LongAdder();
+
+  /** Number of entries evicted because the cache was full. */
+  private final LongAdder evictionCount = new LongAdder();
+
+  /** Listener notified of hits and misses. */
+  private MetricsListener metricsListener;
+
+
+  /**
+   * Creates a new resolver cache that does not cache null values.
+   *
+   * @param  name  of this cache
+   * @param  size  maximum number of entries
+   * @param  ttl  time to live for each entry
+   */
+  public ResolverCache(final String name, final int size, final Duration ttl)
+  {
+    this(name, size, ttl, Duration.ZERO);
+  }
+
+
+  /**
+   * Creates a new resolver cache.
+   *
+   * @param  name  of this cache
+   * @param  size  maximum number of entries
+   * @param  ttl  time to live for each entry
+   * @param  negativeTtl  time to live for null values, zero to not cache null values
+   */
+  public ResolverCache(final String name, final int size, final Duration ttl, final Duration negativeTtl)
+  {
+    this(name, size, ttl, negativeTtl, System::nanoTime);
+  }
+
+
+  /**
+   * Creates a new resolver cache.
+   *
+   * @param  n  name of this cache
+   * @param  size  maximum number of entries
+   * @param  ttl  time to live for each entry
+   * @param  negativeTtl  time to live for null values, zero to not cache null values
+   * @param  time  source of the current time in nanoseconds
+   */
+  ResolverCache(
+    final String n,
+    final int size,
+    final Duration ttl,
+    final Duration negativeTtl,
+    final LongSupplier time)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Size must be greater than zero");
+    }
+    LdapUtils.assertNotNullArgOr(ttl, d -> d.isNegative() || d.isZero(), "TTL must be greater than zero");
+    LdapUtils.assertNotNullArgOr(negativeTtl, Duration::isNegative, "Negative TTL cannot be null or negative");
+    name = LdapUtils.assertNotNullArg(n, "Name cannot be null");
+    maxSize = size;
+    timeToLive = ttl.toNanos();
+    negativeTimeToLive = negativeTtl.toNanos();
+    clock = time;
+    int count = 1;
+    while (count < MAX_SEGMENTS && maxSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+      count *= 2;
+    }
+    final List<Segment> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(new Segment(maxSize / count));
+    }
+    segments = Collections.unmodifiableList(list);
+  }
+
+
+  /**
+   * Returns the name of this cache.
+   *
+   * @return  cache name
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+
+  /**
+   * Returns the metrics listener.
+   *
+   * @return  metrics listener
+   */
+  public MetricsListener getMetricsListener()
+  {
+    return metricsListener;
+  }
+
+
+  /**
+   * Sets the metrics listener, which is notified of each hit and miss with {@link MetricsListener#cacheAccess(String,
+   * boolean)}.
+   *
+   * @param  listener  metrics listener
+   */
+  public void setMetricsListener(final MetricsListener listener)
+  {
+    metricsListener = listener;
+  }
+
+
+  /**
+   * Returns the value for the supplied key. If the key is not cached, or its entry has expired, the value is loaded
+   * and cached. If another thread is loading the same key this method waits for that load instead.
+   *
+   * @param  key  to look up
+   * @param  loader  to invoke if the key is not cached
+   *
+   * @return  cached or loaded value, may be null
+   *
+   * @throws  LdapException  if the loader throws
+   */
+  public V get(final K key, final Loader<V> loader)
+    throws LdapException
+  {
+    final CachedValue<V> cached = lookup(key);
+    if (cached != null) {
+      hitCount.increment();
+      notifyAccess(true);
+      return cached.value;
+    }
+    missCount.increment();
+    notifyAccess(false);
+    final Load<V> load = new Load<>();
+    final Load<V> existing = loading.putIfAbsent(key, load);
+    if (existing != null) {
+      coalescedCount.increment();
+      return await(key, existing.future);
+    }
+    try {
+      final V value = loader.load();
+      put(key, value, load);
+      load.future.complete(value);
+      return value;
+    } catch (LdapException | RuntimeException e) {
+      load.future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, load);
+    }
+  }
+
+
+  /**
+   * Returns the cached value for the supplied key without loading it. Together with {@link #put(Object, Object)} this
+   * supports callers that load many values in a single operation.
+   *
+   * @param  key  to look up
+   *
+   * @return  cached value or null if the key is not cached, its entry has expired or a null value is cached
+   */
+  public V getIfPresent(final K key)
+  {
+    final CachedValue<V> cached = lookup(key);
+    if (cached != null) {
+      hitCount.increment();
+      notifyAccess(true);
+      return cached.value;
+    }
+    missCount.increment();
+    notifyAccess(false);
+    return null;
+  }
+
+
+  /**
+   * Caches the supplied value, replacing any existing value. Null values are only cached if a negative time to live is
+   * configured.
+   *
+   * @param  key  of the value
+   * @param  value  to cache
+   */
+  public void put(final K key, final V value)
+  {
+    put(key, value, null);
+  }
+
+
+  /**
+   * Caches the supplied value unless the supplied load was invalidated after it started.
+   *
+   * @param  key  of the value
+   * @param  value  to cache
+   * @param  load  that produced the value or null if the value was not loaded by this cache
+   */
+  private void put(final K key, final V value, final Load<V> load)
+  {
+    final long ttl = value != null ? timeToLive : negativeTimeToLive;
+    if (ttl == 0) {
+      return;
+    }
+    final Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      if (load == null || !load.invalidated) {
+        segment.entries.put(key, new CachedValue<>(value, clock.getAsLong() + ttl));
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+
+  /**
+   * Removes the entry for the supplied key. A load of the key that is in progress completes but its value is not
+   * cached.
+   *
+   * @param  key  to remove
+   */
+  public void invalidate(final K key)
+  {
+    final Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.entries.remove(key);
+      final Load<V> load = loading.get(key);
+      if (load != null) {
+        load.invalidated = true;
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+
+  /** Removes all entries. Loads that are in progress complete but their values are not cached. */
+  public void invalidateAll()
+  {
+    // segments are always locked in order, invalidateAll is the only method that holds more than one lock
+    int locked = 0;
+    try {
+      for (Segment segment : segments) {
+        segment.lock.lock();
+        locked++;
+      }
+      for (Segment segment : segments) {
+        segment.entries.clear();
+      }
+      for (Load<V> load : loading.values()) {
+        load.invalidated = true;
+      }
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        segments.get(i).lock.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Returns the number of entries, including entries that have expired but not been removed.
+   *
+   * @return  number of entries
+   */
+  public int size()
+  {
+    int size = 0;
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        size += segment.entries.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+
+  /**
+   * Returns the number of lookups that found an unexpired entry.
+   *
+   * @return  hit count
+   */
+  public long getHitCount()
+  {
+    return hitCount.sum();
+  }
+
+
+  /**
+   * Returns the number of lookups that did not find an unexpired entry.
+   *
+   * @return  miss count
+   */
+  public long getMissCount()
+  {
+    return missCount.sum();
+  }
+
+
+  /**
+   * Returns the number of misses that waited for a load started by another thread rather than invoking the loader.
+   *
+   * @return  coalesced miss count
+   */
+  public long getCoalescedCount()
+  {
+    return coalescedCount.sum();
+  }
+
+
+  /**
+   * Returns the number of entries evicted because the cache was full.
+   *
+   * @return  eviction count
+   */
+  public long getEvictionCount()
+  {
+    return evictionCount.sum();
+  }
+
+
+  /**
+   * Returns the unexpired entry for the supplied key. Expired entries are removed.
+   *
+   * @param  key  to look up
+   *
+   * @return  cached value or null
+   */
+  private CachedValue<V> lookup(final K key)
+  {
+    final Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      final CachedValue<V> cached = segment.entries.get(key);
+      if (cached != null && clock.getAsLong() - cached.expiration >= 0) {
+        segment.entries.remove(key);
+        return null;
+      }
+      return cached;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+
+  /**
+   * Returns the segment that holds the supplied key.
+   *
+   * @param  key  to find the segment for
+   *
+   * @return  segment for the key
+   */
+  private Segment segmentFor(final K key)
+  {
+    final int h = key.hashCode();
+    // CheckStyle:MagicNumber OFF
+    return segments.get((h ^ (h >>> 16)) & (segments.size() - 1));
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /**
+   * Waits for a load started by another thread.
+   *
+   * @param  key  being loaded
+   * @param  future  of the load
+   *
+   * @return  loaded value
+   *
+   * @throws  LdapException  if the load failed or the thread is interrupted
+   */
+  private V await(final K key, final CompletableFuture<V> future)
+    throws LdapException
+  {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LdapException(ResultCode.LOCAL_ERROR, "Interrupted waiting for " + key, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LdapException) {
+        throw (LdapException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new LdapException(ResultCode.LOCAL_ERROR, e.getCause());
+    }
+  }
+
+
+  /**
+   * Notifies the metrics listener of a lookup.
+   *
+   * @param  hit  whether the lookup found an unexpired entry
+   */
+  private void notifyAccess(final boolean hit)
+  {
+    final MetricsListener listener = metricsListener;
+    if (listener != null) {
+      try {
+        listener.cacheAccess(name, hit);
+      } catch (Exception e) {
+        logger.warn("Metrics listener {} threw an exception for cache {}", listener, name, e);
+      }
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "name=" + name + ", " +
+      "maxSize=" + maxSize + ", " +
+      "timeToLive=" + Duration.ofNanos(timeToLive) + ", " +
+      "negativeTimeToLive=" + Duration.ofNanos(negativeTimeToLive) + ", " +
+      "hitCount=" + getHitCount() + ", " +
+      "missCount=" + getMissCount() + "]";
+  }
+
+
+  /**
+   * Loads a value that is not cached.
+   *
+   * @param  <V>  type of value
+   */
+  @FunctionalInterface
+  public interface Loader<V>
+  {
+
+
+    /**
+     * Returns the value to cache.
+     *
+     * @return  value, may be null
+     *
+     * @throws  LdapException  if the value cannot be loaded
+     */
+    V load()
+      throws LdapException;
+  }
+
+
+  /**
+   * Load in progress and whether its key has been invalidated since it started.
+   *
+   * @param  <V>  type of value
+   */
+  private static final class Load<V>
+  {
+
+    /** Completed with the loaded value. */
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+
+    /** Whether the key was invalidated after this load started, guarded by the lock of the key's segment. */
+    private boolean invalidated;
+  }
+
+
+  /** Entries whose keys hash to the same segment, in access order, and the lock that guards them. */
+  private final class Segment
+  {
+
+    /** Guards {@link #entries}. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Cached entries in access order. */
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+
+
+    /**
+     * Creates a new segment.
+     *
+     * @param  size  maximum number of entries in this segment
+     */
+    Segment(final int size)
+    {
+      // CheckStyle:MagicNumber OFF
+      entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, CachedValue<V>> eldest)
+        {
+          if (size() > size) {
+            evictionCount.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+      // CheckStyle:MagicNumber ON
+    }
+  }
+
+
+  /**
+   * Cached value and the time it expires.
+   *
+   * @param  <V>  type of value
+   */
+  private static final class CachedValue<V>
+  {
+
+    /** Cached value. */
+    private final V value;
+
+    /** Value of the clock when this entry expires. */
+    private final long expiration;
+
+
+    /**
+     * Creates a new cached value.
+     *
+     * @param  v  value
+     * @param  exp  expiration time
+     */
+    CachedValue(final V v, final long exp)
+    {
+      value = v;
+      expiration = exp;
+    }
+  }
+}
@@ -4,6 +4,7 @@ package org.ldaptive.auth;
 import java.util.Arrays;
 import java.util.Iterator;
 import org.ldaptive.AbstractSearchOperationFactory;
+import org.ldaptive.CompiledFilterTemplate;
 import org.ldaptive.ConnectionFactory;
 import org.ldaptive.DerefAliases;
 import org.ldaptive.FilterTemplate;
@@ -31,6 +32,12 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
   /** Filter for searching for the user. */
   private String userFilter;
 
+  /** Whether to parse and encode the user filter once rather than for every search. */
+  private boolean compileUserFilter;
+
+  /** User filter parsed and encoded once, null if compilation is disabled or the user filter cannot be compiled. */
+  private CompiledFilterTemplate compiledUserFilter;
+
   /** Filter parameters for searching for the user. */
   private Object[] userFilterParameters;
 
@@ -106,6 +113,48 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
     assertMutable();
     logger.trace("setting userFilter: {}", filter);
     userFilter = filter;
+    updateCompiledUserFilter();
+  }
+
+
+  /**
+   * Returns whether the user filter is parsed and encoded once rather than for every search.
+   *
+   * @return  whether the user filter is compiled
+   */
+  public final boolean getCompileUserFilter()
+  {
+    return compileUserFilter;
+  }
+
+
+  /**
+   * Sets whether the user filter is parsed and encoded once rather than for every search. A compiled filter can only be
+   * encoded and formatted, search request handlers that inspect the filter components, such as {@link
+   * org.ldaptive.filter.FilterEvaluator}, see an opaque filter. Default is false.
+   *
+   * @param  b  whether to compile the user filter
+   */
+  public final void setCompileUserFilter(final boolean b)
+  {
+    assertMutable();
+    logger.trace("setting compileUserFilter: {}", b);
+    compileUserFilter = b;
+    updateCompiledUserFilter();
+  }
+
+
+  /** Compiles {@link #userFilter} if {@link #compileUserFilter} is true. */
+  private void updateCompiledUserFilter()
+  {
+    compiledUserFilter = null;
+    if (compileUserFilter && userFilter != null) {
+      try {
+        compiledUserFilter = CompiledFilterTemplate.compile(userFilter);
+      } catch (IllegalArgumentException e) {
+        logger.debug("Could not compile userFilter {}, filter will be parsed for each search", userFilter, e);
+      }
+    }
   }
 
 
@@ -367,7 +416,9 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
 
 
   /**
-   * Returns a search request for searching for a single entry in an LDAP, returning no attributes.
+   * Returns a search request for searching for a single entry in an LDAP, returning no attributes. If {@link
+   * #compileUserFilter} is set and the template uses {@link #userFilter} the filter is produced from the compiled user
+   * filter, which avoids formatting and parsing the filter for every search.
    *
    * @param  template  to execute
    *
@@ -375,9 +426,15 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
    */
   protected SearchRequest createSearchRequest(final FilterTemplate template)
   {
-    return SearchRequest.builder()
+    final SearchRequest.Builder builder = SearchRequest.builder();
+    final CompiledFilterTemplate compiled = compiledUserFilter;
+    if (compiled != null && compiled.getFilter().equals(template.getFilter())) {
+      builder.filter(compiled.apply(template));
+    } else {
+      builder.filter(template);
+    }
+    return builder
       .dn(baseDn)
-      .filter(template)
       .returnAttributes(
         resolveFromAttribute == null ? ReturnAttributes.NONE.value() : new String[] {resolveFromAttribute})
       .scope(subtreeSearch ? SearchScope.SUBTREE : SearchScope.ONELEVEL)
@@ -411,6 +468,7 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
       "baseDn=" + baseDn + ", " +
       "userFilter=" + userFilter + ", " +
       "userFilterParameters=" + Arrays.toString(userFilterParameters) + ", " +
+      "compileUserFilter=" + compileUserFilter + ", " +
       "allowMultipleDns=" + allowMultipleDns + ", " +
       "subtreeSearch=" + subtreeSearch + ", " +
       "derefAliases=" + derefAliases + ", " +
@@ -511,6 +569,20 @@ public class SearchDnResolver extends AbstractSearchOperationFactory implements
     }
 
 
+    /**
+     * Sets whether to compile the user filter.
+     *
+     * @param  b  whether to compile the user filter
+     *
+     * @return  this builder
+     */
+    public Builder compileUserFilter(final boolean b)
+    {
+      object.setCompileUserFilter(b);
+      return this;
+    }
+
+
     /**
      * Sets whether to allow multiple DNs.
      *
@@ -0,0 +1,238 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ldaptive.Request;
+import org.ldaptive.Result;
+import org.ldaptive.ResultCode;
+
+/**
+ * Outcome of a {@link BulkWriter} execution. Contains the number of requests that were submitted and succeeded, the
+ * failed requests and the elapsed time. Counters are updated as results arrive, so this object may also be inspected
+ * while a bulk write is in progress.
+ *
+ * @author  Middleware Services
+ */
+public final class BulkWriteResponse
+{
+
+  /** Nanoseconds in one second. */
+  private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+  /** Number of requests submitted. */
+  private final AtomicLong submitted = new AtomicLong();
+
+  /** Number of requests that succeeded. */
+  private final AtomicLong succeeded = new AtomicLong();
+
+  /** Requests that failed. */
+  private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+  /** Time the bulk write started. */
+  private final long startTime = System.nanoTime();
+
+  /** Time the bulk write completed. */
+  private volatile long endTime;
+
+
+  /** Default constructor. */
+  BulkWriteResponse() {}
+
+
+  /**
+   * Records that a request was submitted.
+   */
+  void submitted()
+  {
+    submitted.incrementAndGet();
+  }
+
+
+  /**
+   * Records the result of a request.
+   *
+   * @param  request  that completed
+   * @param  result  of the request, may be null
+   * @param  exception  thrown by the request, may be null
+   */
+  void completed(final Request request, final Result result, final Throwable exception)
+  {
+    if (exception == null && result != null && result.getResultCode() == ResultCode.SUCCESS) {
+      succeeded.incrementAndGet();
+    } else {
+      failures.add(new Failure(request, result, exception));
+    }
+  }
+
+
+  /** Records that the bulk write has completed. */
+  void finish()
+  {
+    endTime = System.nanoTime();
+  }
+
+
+  /**
+   * Returns the number of requests that were submitted.
+   *
+   * @return  number of submitted requests
+   */
+  public long getSubmitted()
+  {
+    return submitted.get();
+  }
+
+
+  /**
+   * Returns the number of requests that completed with a success result code.
+   *
+   * @return  number of successful requests
+   */
+  public long getSucceeded()
+  {
+    return succeeded.get();
+  }
+
+
+  /**
+   * Returns the number of requests that failed.
+   *
+   * @return  number of failed requests
+   */
+  public long getFailed()
+  {
+    return failures.size();
+  }
+
+
+  /**
+   * Returns the requests that did not complete with a success result code.
+   *
+   * @return  unmodifiable list of failures
+   */
+  public List<Failure> getFailures()
+  {
+    return Collections.unmodifiableList(new ArrayList<>(failures));
+  }
+
+
+  /**
+   * Returns the time elapsed between the start of the bulk write and its completion, or the current time if it has not
+   * completed.
+   *
+   * @return  elapsed time
+   */
+  public Duration getDuration()
+  {
+    final long end = endTime;
+    return Duration.ofNanos((end != 0 ? end : System.nanoTime()) - startTime);
+  }
+
+
+  /**
+   * Returns the number of requests completed per second.
+   *
+   * @return  completed requests per second
+   */
+  public double getThroughput()
+  {
+    final long nanos = getDuration().toNanos();
+    if (nanos == 0) {
+      return 0;
+    }
+    return (getSucceeded() + getFailed()) * NANOS_PER_SECOND / nanos;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "submitted=" + submitted + ", " +
+      "succeeded=" + succeeded + ", " +
+      "failed=" + failures.size() + ", " +
+      "duration=" + getDuration() + ", " +
+      "throughput=" + getThroughput() + "]";
+  }
+
+
+  /** Request that did not complete with a success result code. */
+  public static final class Failure
+  {
+
+    /** Request that failed. */
+    private final Request request;
+
+    /** Result of the request. */
+    private final Result result;
+
+    /** Exception thrown by the request. */
+    private final Throwable exception;
+
+
+    /**
+     * Creates a new failure.
+     *
+     * @param  req  request
+     * @param  res  result, may be null
+     * @param  e  exception, may be null
+     */
+    Failure(final Request req, final Result res, final Throwable e)
+    {
+      request = req;
+      result = res;
+      exception = e;
+    }
+
+
+    /**
+     * Returns the request that failed.
+     *
+     * @return  request
+     */
+    public Request getRequest()
+    {
+      return request;
+    }
+
+
+    /**
+     * Returns the result of the request.
+     *
+     * @return  result or null if the request produced an exception
+     */
+    public Result getResult()
+    {
+      return result;
+    }
+
+
+    /**
+     * Returns the exception thrown by the request.
+     *
+     * @return  exception or null if the request produced a result
+     */
+    public Throwable getException()
+    {
+      return exception;
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return "[" +
+        getClass().getName() + "@" + hashCode() + "::" +
+        "request=" + request + ", " +
+        "result=" + result + ", " +
+        "exception=" + exception + "]";
+    }
+  }
+}
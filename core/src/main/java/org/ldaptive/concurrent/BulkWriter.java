@@ -0,0 +1,516 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.ldaptive.AddRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.ModifyDnRequest;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.OperationHandle;
+import org.ldaptive.Request;
+import org.ldaptive.ResultCode;
+import org.ldaptive.io.LdifReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a stream of add, delete, modify and modify DN requests using a fixed number of connections. Requests are sent
+ * asynchronously in batches of {@link #getBatchSize()}, distributed over the connections in round-robin order, and at
+ * most {@link #getWindowSize()} requests are in flight at any time. Reading from the stream blocks while the window is
+ * full, so arbitrarily large streams can be written without a thread per request or holding the stream in memory.
+ * Requests that fail are collected in the {@link BulkWriteResponse} rather than aborting the write; a request of a
+ * type this writer does not support is recorded as failed without being sent. Waiting for room in the window is
+ * bounded by the response timeout of the connection factory, every request in flight completes within that time. A
+ * batch that cannot enter the window before the timeout is recorded as failed without being sent.
+ *
+ * <p>Requests are not ordered across connections; a request that depends on another request, such as an add of a
+ * child entry, should not be written in the same execution as the request it depends on unless a single connection is
+ * used.</p>
+ *
+ * @author  Middleware Services
+ */
+public class BulkWriter
+{
+
+  /** Default number of connections. */
+  public static final int DEFAULT_CONNECTION_COUNT = 2;
+
+  /** Default number of requests in flight. */
+  public static final int DEFAULT_WINDOW_SIZE = 100;
+
+  /** Default number of requests sent together. */
+  public static final int DEFAULT_BATCH_SIZE = 10;
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Connection factory. */
+  private ConnectionFactory connectionFactory;
+
+  /** Number of connections to write with. */
+  private int connectionCount = DEFAULT_CONNECTION_COUNT;
+
+  /** Maximum number of requests in flight. */
+  private int windowSize = DEFAULT_WINDOW_SIZE;
+
+  /** Number of requests sent to a connection together. */
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+
+  /** Default constructor. */
+  public BulkWriter() {}
+
+
+  /**
+   * Creates a new bulk writer.
+   *
+   * @param  factory  connection factory
+   */
+  public BulkWriter(final ConnectionFactory factory)
+  {
+    setConnectionFactory(factory);
+  }
+
+
+  /**
+   * Returns the connection factory.
+   *
+   * @return  connection factory
+   */
+  public ConnectionFactory getConnectionFactory()
+  {
+    return connectionFactory;
+  }
+
+
+  /**
+   * Sets the connection factory.
+   *
+   * @param  factory  connection factory
+   */
+  public void setConnectionFactory(final ConnectionFactory factory)
+  {
+    connectionFactory = factory;
+  }
+
+
+  /**
+   * Returns the number of connections to write with.
+   *
+   * @return  connection count
+   */
+  public int getConnectionCount()
+  {
+    return connectionCount;
+  }
+
+
+  /**
+   * Sets the number of connections to write with.
+   *
+   * @param  count  connection count
+   */
+  public void setConnectionCount(final int count)
+  {
+    if (count < 1) {
+      throw new IllegalArgumentException("Connection count must be greater than zero");
+    }
+    connectionCount = count;
+  }
+
+
+  /**
+   * Returns the maximum number of requests in flight.
+   *
+   * @return  window size
+   */
+  public int getWindowSize()
+  {
+    return windowSize;
+  }
+
+
+  /**
+   * Sets the maximum number of requests in flight.
+   *
+   * @param  size  window size
+   */
+  public void setWindowSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Window size must be greater than zero");
+    }
+    windowSize = size;
+  }
+
+
+  /**
+   * Returns the number of requests sent to a connection together. See {@link Connection#operations(List)}.
+   *
+   * @return  batch size
+   */
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+
+  /**
+   * Sets the number of requests sent to a connection together. Batches larger than the window size are limited to the
+   * window size.
+   *
+   * @param  size  batch size
+   */
+  public void setBatchSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be greater than zero");
+    }
+    batchSize = size;
+  }
+
+
+  /**
+   * Writes the supplied requests.
+   *
+   * @param  requests  to write
+   *
+   * @return  bulk write response
+   *
+   * @throws  LdapException  if a connection cannot be opened or the write is interrupted
+   */
+  public BulkWriteResponse execute(final Iterable<? extends Request> requests)
+    throws LdapException
+  {
+    return execute(LdapUtils.assertNotNullArg(requests, "Requests cannot be null").iterator());
+  }
+
+
+  /**
+   * Writes the supplied requests. The stream is consumed as the window allows.
+   *
+   * @param  requests  to write
+   *
+   * @return  bulk write response
+   *
+   * @throws  LdapException  if a connection cannot be opened or the write is interrupted
+   */
+  public BulkWriteResponse execute(final Stream<? extends Request> requests)
+    throws LdapException
+  {
+    return execute(LdapUtils.assertNotNullArg(requests, "Requests cannot be null").iterator());
+  }
+
+
+  /**
+   * Writes an add request for every entry in the supplied LDIF. Entries are read one at a time with {@link
+   * LdifReader#readEntry()} as the window allows.
+   *
+   * @param  reader  to read entries from
+   *
+   * @return  bulk write response
+   *
+   * @throws  LdapException  if a connection cannot be opened or the write is interrupted
+   * @throws  IOException  if the LDIF cannot be read
+   */
+  public BulkWriteResponse execute(final LdifReader reader)
+    throws LdapException, IOException
+  {
+    LdapUtils.assertNotNullArg(reader, "Reader cannot be null");
+    try {
+      return execute(new LdifIterator(reader));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+
+  /**
+   * Writes the supplied requests. The iterator is consumed as the window allows.
+   *
+   * @param  requests  to write
+   *
+   * @return  bulk write response
+   *
+   * @throws  LdapException  if a connection cannot be opened, the write is interrupted or the requests in flight do not
+   * complete within the response timeout
+   */
+  public BulkWriteResponse execute(final Iterator<? extends Request> requests)
+    throws LdapException
+  {
+    LdapUtils.assertNotNullArg(requests, "Requests cannot be null");
+    LdapUtils.assertNotNullState(connectionFactory, "Connection factory cannot be null");
+    final Semaphore window = new Semaphore(windowSize);
+    final Duration timeout = connectionFactory.getConnectionConfig().getResponseTimeout();
+    final int size = Math.min(batchSize, windowSize);
+    final BulkWriteResponse response = new BulkWriteResponse();
+    final List<Connection> connections = new ArrayList<>(connectionCount);
+    try {
+      for (int i = 0; i < connectionCount; i++) {
+        final Connection conn = connectionFactory.getConnection();
+        connections.add(conn);
+        conn.open();
+      }
+      final List<Request> batch = new ArrayList<>(size);
+      int next = 0;
+      while (requests.hasNext()) {
+        final Request request = requests.next();
+        if (isSupported(request)) {
+          batch.add(request);
+        } else {
+          logger.warn("Unsupported request type {}, recording as failed", request);
+          response.submitted();
+          response.completed(
+            request, null, new LdapException(ResultCode.LDAP_NOT_SUPPORTED, "Unsupported request type: " + request));
+        }
+        if (batch.size() == size || !batch.isEmpty() && !requests.hasNext()) {
+          send(connections.get(next++ % connections.size()), batch, window, timeout, response);
+          batch.clear();
+        }
+      }
+      if (!acquire(window, windowSize, timeout)) {
+        throw new LdapException(
+          ResultCode.LDAP_TIMEOUT,
+          "Timed out waiting for " + (windowSize - window.availablePermits()) + " requests in flight");
+      }
+      response.finish();
+      logger.debug("Completed bulk write {}", response);
+      return response;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LdapException(ResultCode.LOCAL_ERROR, "Bulk write interrupted", e);
+    } finally {
+      for (Connection conn : connections) {
+        conn.close();
+      }
+    }
+  }
+
+
+  /**
+   * Sends the supplied requests on the supplied connection once the window has room for all of them. Each request
+   * releases its place in the window when it completes. If the window does not have room before the timeout expires,
+   * every request in the batch is recorded as failed and none are sent.
+   *
+   * @param  conn  to send requests on
+   * @param  batch  requests to send
+   * @param  window  of requests in flight
+   * @param  timeout  to wait for room in the window
+   * @param  response  to record results in
+   *
+   * @throws  InterruptedException  if interrupted waiting for the window
+   */
+  private void send(
+    final Connection conn,
+    final List<Request> batch,
+    final Semaphore window,
+    final Duration timeout,
+    final BulkWriteResponse response)
+    throws InterruptedException
+  {
+    if (!acquire(window, batch.size(), timeout)) {
+      logger.warn("Timed out waiting {} for room in the window, failing batch of {} requests", timeout, batch.size());
+      final LdapException e = new LdapException(
+        ResultCode.LDAP_TIMEOUT, "Timed out waiting " + timeout + " for room in the window");
+      for (Request request : batch) {
+        response.submitted();
+        response.completed(request, null, e);
+      }
+      return;
+    }
+    final List<OperationHandle<?, ?>> handles;
+    try {
+      handles = conn.operations(batch);
+    } catch (RuntimeException e) {
+      window.release(batch.size());
+      throw e;
+    }
+    for (int i = 0; i < handles.size(); i++) {
+      final Request request = batch.get(i);
+      response.submitted();
+      handles.get(i).toCompletionStage().whenComplete((result, e) -> {
+        try {
+          response.completed(request, result, e instanceof CompletionException ? e.getCause() : e);
+        } finally {
+          window.release();
+        }
+      });
+    }
+  }
+
+
+  /**
+   * Acquires the supplied number of permits from the window, waiting at most the supplied timeout. A null or zero
+   * timeout waits indefinitely, matching a response timeout that never expires.
+   *
+   * @param  window  to acquire permits from
+   * @param  permits  number of permits
+   * @param  timeout  to wait for the permits
+   *
+   * @return  whether the permits were acquired
+   *
+   * @throws  InterruptedException  if interrupted waiting for the window
+   */
+  private static boolean acquire(final Semaphore window, final int permits, final Duration timeout)
+    throws InterruptedException
+  {
+    if (timeout == null || timeout.isZero()) {
+      window.acquire(permits);
+      return true;
+    }
+    return window.tryAcquire(permits, timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+
+  /**
+   * Returns whether the supplied request is a type this writer supports.
+   *
+   * @param  request  to check
+   *
+   * @return  whether the request is an add, delete, modify or modify DN request
+   */
+  private static boolean isSupported(final Request request)
+  {
+    return request instanceof AddRequest ||
+      request instanceof DeleteRequest ||
+      request instanceof ModifyRequest ||
+      request instanceof ModifyDnRequest;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "connectionFactory=" + connectionFactory + ", " +
+      "connectionCount=" + connectionCount + ", " +
+      "windowSize=" + windowSize + ", " +
+      "batchSize=" + batchSize + "]";
+  }
+
+
+  /**
+   * Creates a builder for this class.
+   *
+   * @return  new builder
+   */
+  public static Builder builder()
+  {
+    return new Builder();
+  }
+
+
+  /** Iterates over the entries of an LDIF, converting each entry into an add request. */
+  private static final class LdifIterator implements Iterator<AddRequest>
+  {
+
+    /** To read entries from. */
+    private final LdifReader reader;
+
+    /** Next entry or null if the reader has not been read. */
+    private LdapEntry next;
+
+    /** Whether the reader has no more entries. */
+    private boolean done;
+
+
+    /**
+     * Creates a new LDIF iterator.
+     *
+     * @param  r  to read entries from
+     */
+    LdifIterator(final LdifReader r)
+    {
+      reader = r;
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+      if (next == null && !done) {
+        try {
+          next = reader.readEntry();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        done = next == null;
+      }
+      return next != null;
+    }
+
+
+    @Override
+    public AddRequest next()
+    {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final LdapEntry entry = next;
+      next = null;
+      return new AddRequest(entry.getDn(), entry.getAttributes());
+    }
+  }
+
+
+  // CheckStyle:OFF
+  public static class Builder
+  {
+
+    private final BulkWriter object = new BulkWriter();
+
+
+    protected Builder() {}
+
+
+    public Builder factory(final ConnectionFactory factory)
+    {
+      object.setConnectionFactory(factory);
+      return this;
+    }
+
+
+    public Builder connectionCount(final int count)
+    {
+      object.setConnectionCount(count);
+      return this;
+    }
+
+
+    public Builder windowSize(final int size)
+    {
+      object.setWindowSize(size);
+      return this;
+    }
+
+
+    public Builder batchSize(final int size)
+    {
+      object.setBatchSize(size);
+      return this;
+    }
+
+
+    public BulkWriter build()
+    {
+      return object;
+    }
+  }
+  // CheckStyle:ON
+}
@@ -10,6 +10,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +47,9 @@ public class CallableWorker<T>
   /** Time to wait for results. */
   private final Duration timeout;
 
+  /** Limits the number of tasks that run concurrently when each task runs on a new virtual thread, otherwise null. */
+  private final Semaphore permits;
+
 
   /**
    * Creates a new callable worker with a fixed sized thread pool. The size of the thread pool is set to twice the
@@ -85,7 +89,8 @@ public class CallableWorker<T>
 
 
   /**
-   * Creates a new callable worker with a fixed sized thread pool.
+   * Creates a new callable worker with a fixed sized thread pool. If {@link VirtualThreads#isEnabled()} each task runs
+   * on a new virtual thread instead, and at most <code>numThreads</code> tasks run concurrently.
    *
    * @param  poolName  name to designate on the thread pool
    * @param  numThreads  size of the thread pool
@@ -94,6 +99,12 @@ public class CallableWorker<T>
   public CallableWorker(final String poolName, final int numThreads, final Duration time)
   {
     timeout = LdapUtils.assertNotNullArgOr(time, Duration::isNegative, "Timeout cannot be null or negative");
+    if (VirtualThreads.isEnabled()) {
+      executorService = VirtualThreads.newExecutor("ldaptive-" + poolName + "@" + hashCode() + "-");
+      permits = new Semaphore(numThreads);
+      return;
+    }
+    permits = null;
     executorService = new ThreadPoolExecutor(
       numThreads,
       numThreads,
@@ -130,6 +141,7 @@ public class CallableWorker<T>
   {
     timeout = LdapUtils.assertNotNullArgOr(time, Duration::isNegative, "Timeout cannot be null or negative");
     executorService = LdapUtils.assertNotNullArg(es, "Executor service cannot be null");
+    permits = null;
   }
 
 
@@ -161,7 +173,7 @@ public class CallableWorker<T>
   {
     final CompletionService<T> cs = new ExecutorCompletionService<>(executorService);
     final List<Future<T>> futures = new ArrayList<>(callables.size());
-    callables.forEach(c -> futures.add(cs.submit(c)));
+    callables.forEach(c -> futures.add(cs.submit(permits != null ? limit(c) : c)));
     final List<ExecutionException> exceptions = new ArrayList<>(callables.size());
     for (Future<T> f : futures) {
       try {
@@ -187,6 +199,26 @@ public class CallableWorker<T>
   }
 
 
+  /**
+   * Returns a callable that holds one of {@link #permits} while the supplied callable executes.
+   *
+   * @param  callable  to limit
+   *
+   * @return  callable that waits for a permit
+   */
+  private Callable<T> limit(final Callable<T> callable)
+  {
+    return () -> {
+      permits.acquire();
+      try {
+        return callable.call();
+      } finally {
+        permits.release();
+      }
+    };
+  }
+
+
   /**
    * Shutdown the underlying executor service.
    */
@@ -0,0 +1,141 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads on runtimes that support them, Java 21 and later. The virtual thread API is accessed
+ * reflectively so that this library continues to run on earlier runtimes. Virtual threads are opt-in: set the
+ * <code>org.ldaptive.concurrent.virtualThreads</code> system property to true to run {@link CallableWorker} tasks,
+ * which includes connection pool creation, validation and close tasks, and transport message threads on virtual
+ * threads. The property is ignored if the runtime does not support virtual threads.
+ *
+ * @author  Middleware Services
+ */
+public final class VirtualThreads
+{
+
+  /** Virtual threads system property. */
+  private static final String VIRTUAL_THREADS_PROPERTY = "org.ldaptive.concurrent.virtualThreads";
+
+  /** Logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+  /** Thread#ofVirtual method, null if virtual threads are not supported. */
+  private static final Method OF_VIRTUAL;
+
+  /** Thread.Builder#name(String, long) method. */
+  private static final Method BUILDER_NAME;
+
+  /** Thread.Builder#factory method. */
+  private static final Method BUILDER_FACTORY;
+
+  /** Executors#newThreadPerTaskExecutor method. */
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  /** Whether virtual threads have been requested and are supported. */
+  private static final boolean ENABLED;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newExecutor = null;
+    try {
+      final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builder.getMethod("name", String.class, long.class);
+      builderFactory = builder.getMethod("factory");
+      newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      // preview releases define the API but throw unless preview features are enabled
+      ofVirtual.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOGGER.trace("Virtual threads are not supported by this runtime", e);
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newExecutor;
+    final boolean requested = Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "false"));
+    if (requested && OF_VIRTUAL == null) {
+      LOGGER.warn("{} is set but virtual threads are not supported by this runtime", VIRTUAL_THREADS_PROPERTY);
+    }
+    ENABLED = requested && OF_VIRTUAL != null;
+  }
+
+
+  /** Default constructor. */
+  private VirtualThreads() {}
+
+
+  /**
+   * Returns whether the runtime supports virtual threads.
+   *
+   * @return  whether virtual threads are supported
+   */
+  public static boolean isSupported()
+  {
+    return OF_VIRTUAL != null;
+  }
+
+
+  /**
+   * Returns whether virtual threads have been enabled with the <code>org.ldaptive.concurrent.virtualThreads</code>
+   * system property and are supported by the runtime.
+   *
+   * @return  whether virtual threads are enabled
+   */
+  public static boolean isEnabled()
+  {
+    return ENABLED;
+  }
+
+
+  /**
+   * Returns a thread factory that creates virtual threads named with the supplied prefix followed by a counter.
+   *
+   * @param  prefix  of each thread name
+   *
+   * @return  virtual thread factory
+   *
+   * @throws  UnsupportedOperationException  if virtual threads are not supported
+   */
+  public static ThreadFactory newThreadFactory(final String prefix)
+  {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+    }
+    try {
+      final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not create virtual thread factory", e);
+    }
+  }
+
+
+  /**
+   * Returns an executor service that starts a new virtual thread for each task.
+   *
+   * @param  prefix  of each thread name
+   *
+   * @return  virtual thread executor service
+   *
+   * @throws  UnsupportedOperationException  if virtual threads are not supported
+   */
+  public static ExecutorService newExecutor(final String prefix)
+  {
+    final ThreadFactory factory = newThreadFactory(prefix);
+    try {
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not create virtual thread executor", e);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.control.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchResponse;
+import org.ldaptive.concurrent.VirtualThreads;
+
+/**
+ * Retrieves pages of search results on a background thread while the caller processes previously retrieved pages. The
+ * request for the next page is sent as soon as the previous page is complete, as long as fewer than a maximum number of
+ * entries are waiting to be consumed. Pages are handed to the consumer on the calling thread in the order they were
+ * retrieved.
+ *
+ * @author  Middleware Services
+ */
+final class PagePrefetcher
+{
+
+  /** Maximum number of buffered entries before the next page is requested. */
+  private final int maxBufferedEntries;
+
+  /** Guards the buffer. */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Signaled when a page is added to the buffer or the fetcher stops. */
+  private final Condition pageAvailable = lock.newCondition();
+
+  /** Signaled when a page is removed from the buffer or the consumer stops. */
+  private final Condition spaceAvailable = lock.newCondition();
+
+  /** Pages waiting to be consumed. */
+  private final Deque<SearchResponse> buffer = new ArrayDeque<>();
+
+  /** Number of entries in the buffer. */
+  private int bufferedEntries;
+
+  /** Whether the fetcher has retrieved its last page. */
+  private boolean fetchComplete;
+
+  /** Whether the consumer has stopped consuming pages. */
+  private boolean consumeComplete;
+
+  /** Exception thrown by the fetcher. */
+  private Exception fetchException;
+
+
+  /**
+   * Creates a new page prefetcher.
+   *
+   * @param  maxEntries  maximum number of entries to buffer ahead of the consumer
+   */
+  PagePrefetcher(final int maxEntries)
+  {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Maximum buffered entries must be greater than zero");
+    }
+    maxBufferedEntries = maxEntries;
+  }
+
+
+  /**
+   * Retrieves pages with the supplied fetcher on a background thread and hands each one to the supplied consumer on the
+   * calling thread. Returns once the fetcher returns null, or throws once the fetcher or the consumer throws.
+   *
+   * @param  fetcher  to retrieve pages
+   * @param  consumer  to process pages
+   *
+   * @return  last page retrieved, without entries or references
+   *
+   * @throws  LdapException  if the fetcher throws
+   */
+  SearchResponse execute(final PageFetcher fetcher, final Consumer<SearchResponse> consumer)
+    throws LdapException
+  {
+    final ExecutorService executor = createExecutor();
+    try {
+      executor.execute(() -> fetch(fetcher));
+      SearchResponse lastPage = null;
+      SearchResponse page;
+      while ((page = take()) != null) {
+        consumer.accept(page);
+        lastPage = page;
+      }
+      return lastPage != null ? SearchResponse.builder().copy(lastPage).build() : null;
+    } finally {
+      lock.lock();
+      try {
+        consumeComplete = true;
+        spaceAvailable.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      executor.shutdown();
+    }
+  }
+
+
+  /**
+   * Invokes the fetcher until it returns null, adding each page to the buffer.
+   *
+   * @param  fetcher  to retrieve pages
+   */
+  private void fetch(final PageFetcher fetcher)
+  {
+    SearchResponse previous = null;
+    try {
+      while (awaitSpace()) {
+        final SearchResponse page = fetcher.fetch(previous);
+        if (page == null) {
+          break;
+        }
+        lock.lock();
+        try {
+          buffer.add(page);
+          bufferedEntries += page.entrySize();
+          pageAvailable.signalAll();
+        } finally {
+          lock.unlock();
+        }
+        previous = page;
+      }
+    } catch (Exception e) {
+      lock.lock();
+      try {
+        fetchException = e;
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      lock.lock();
+      try {
+        fetchComplete = true;
+        pageAvailable.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Waits until the buffer has room for another page or the consumer has stopped.
+   *
+   * @return  whether another page should be fetched
+   *
+   * @throws  InterruptedException  if the thread is interrupted while waiting
+   */
+  private boolean awaitSpace()
+    throws InterruptedException
+  {
+    lock.lock();
+    try {
+      while (bufferedEntries >= maxBufferedEntries && !consumeComplete) {
+        spaceAvailable.await();
+      }
+      return !consumeComplete;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /**
+   * Removes the next page from the buffer, waiting for one if necessary.
+   *
+   * @return  next page or null if the fetcher has retrieved all pages
+   *
+   * @throws  LdapException  if the fetcher threw or the calling thread is interrupted
+   */
+  private SearchResponse take()
+    throws LdapException
+  {
+    lock.lock();
+    try {
+      while (buffer.isEmpty() && !fetchComplete) {
+        pageAvailable.await();
+      }
+      if (!buffer.isEmpty()) {
+        final SearchResponse page = buffer.remove();
+        bufferedEntries -= page.entrySize();
+        spaceAvailable.signalAll();
+        return page;
+      }
+      if (fetchException instanceof LdapException) {
+        throw (LdapException) fetchException;
+      } else if (fetchException != null) {
+        throw new LdapException(ResultCode.LOCAL_ERROR, fetchException);
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LdapException(ResultCode.LOCAL_ERROR, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /**
+   * Creates the executor that runs the fetcher.
+   *
+   * @return  single thread executor
+   */
+  private ExecutorService createExecutor()
+  {
+    if (VirtualThreads.isEnabled()) {
+      return VirtualThreads.newExecutor("ldaptive-page-prefetcher@" + hashCode() + "-");
+    }
+    return Executors.newSingleThreadExecutor(r -> {
+      final Thread t = new Thread(r, "ldaptive-page-prefetcher@" + hashCode());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+
+  /**
+   * Retrieves a page of search results.
+   */
+  @FunctionalInterface
+  interface PageFetcher
+  {
+
+
+    /**
+     * Retrieves the page that follows the supplied page.
+     *
+     * @param  previous  page or null to retrieve the first page
+     *
+     * @return  next page or null if there are no more pages
+     *
+     * @throws  LdapException  if the search fails
+     */
+    SearchResponse fetch(SearchResponse previous)
+      throws LdapException;
+  }
+}
@@ -4,15 +4,30 @@ package org.ldaptive.control.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.ldaptive.AbstractSearchOperationFactory;
+import org.ldaptive.Connection;
 import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.ReturnAttributes;
 import org.ldaptive.SearchOperation;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResponse;
+import org.ldaptive.SearchScope;
+import org.ldaptive.concurrent.CallableWorker;
 import org.ldaptive.control.PagedResultsControl;
 import org.ldaptive.control.RequestControl;
+import org.ldaptive.filter.AndFilter;
+import org.ldaptive.filter.Filter;
+import org.ldaptive.filter.PresenceFilter;
 
 /**
  * Client that simplifies using the paged results control.
@@ -215,6 +230,316 @@ public class PagedResultsClient extends AbstractSearchOperationFactory
   }
 
 
+  /**
+   * Performs a search operation with the {@link PagedResultsControl} and hands each page to the supplied consumer. The
+   * supplied request is modified in the following way:
+   *
+   * <ul>
+   *   <li>{@link SearchRequest#setControls( RequestControl...)} is invoked with {@link PagedResultsControl} and any
+   *   other controls previously set on the search request.</li>
+   * </ul>
+   *
+   * <p>Unlike {@link #executeToCompletion(SearchRequest)}, the request for the next page is sent on a background thread
+   * as soon as the previous page is received, while the consumer processes earlier pages. At most
+   * <code>maxBufferedEntries</code> entries, rounded up to a whole page, are retrieved ahead of the consumer. Pages are
+   * handed to the consumer on the calling thread in order and are not retained.</p>
+   *
+   * @param  request  search request to execute
+   * @param  maxBufferedEntries  maximum number of entries to retrieve ahead of the consumer
+   * @param  consumer  to process each page
+   *
+   * @return  search operation response of the last paged result operation, without entries or references
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public SearchResponse executeWithPrefetch(
+    final SearchRequest request,
+    final int maxBufferedEntries,
+    final Consumer<SearchResponse> consumer)
+    throws LdapException
+  {
+    return executeWithPrefetch(request, new DefaultCookieManager(), maxBufferedEntries, consumer);
+  }
+
+
+  /**
+   * Performs a search operation with the {@link PagedResultsControl} and hands each page to the supplied consumer. See
+   * {@link #executeWithPrefetch(SearchRequest, int, Consumer)}.
+   *
+   * <p>The cookie used for each request is read from the cookie manager and written to the cookie manager after a
+   * successful search, if the response contains a cookie. Cookies are written by the background thread and may be
+   * ahead of the pages handed to the consumer.</p>
+   *
+   * @param  request  search request to execute
+   * @param  manager  for reading and writing cookies
+   * @param  maxBufferedEntries  maximum number of entries to retrieve ahead of the consumer
+   * @param  consumer  to process each page
+   *
+   * @return  search operation response of the last paged result operation, without entries or references
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public SearchResponse executeWithPrefetch(
+    final SearchRequest request,
+    final CookieManager manager,
+    final int maxBufferedEntries,
+    final Consumer<SearchResponse> consumer)
+    throws LdapException
+  {
+    final SearchOperation search = createSearchOperation();
+    return new PagePrefetcher(maxBufferedEntries).execute(
+      previous -> {
+        final byte[] cookie;
+        if (previous == null) {
+          cookie = manager.readCookie();
+        } else {
+          cookie = getPagedResultsCookie(previous);
+          if (cookie == null) {
+            return null;
+          }
+        }
+        request.setControls(appendRequestControls(request, cookie));
+        final SearchResponse result = search.execute(request);
+        final byte[] nextCookie = getPagedResultsCookie(result);
+        if (nextCookie != null) {
+          manager.writeCookie(nextCookie);
+        }
+        return result;
+      },
+      consumer);
+  }
+
+
+  /**
+   * Partitions the supplied subtree search by the immediate children of its base DN and pages every partition
+   * concurrently. See {@link #partitionByChildren(SearchRequest)} and {@link #executeInParallel(List, int, Consumer,
+   * Consumer)}.
+   *
+   * @param  request  subtree search request to execute
+   * @param  parallelism  maximum number of partitions to page concurrently
+   * @param  consumer  to receive every entry
+   *
+   * @return  partitions in the order they were created
+   *
+   * @throws  LdapException  if the children cannot be listed or any partition fails
+   */
+  public List<PagedResultsPartition> executeInParallel(
+    final SearchRequest request,
+    final int parallelism,
+    final Consumer<LdapEntry> consumer)
+    throws LdapException
+  {
+    return executeInParallel(partitionByChildren(request), parallelism, consumer, null);
+  }
+
+
+  /**
+   * Pages each of the supplied partitions concurrently, each on its own connection from the connection factory. Use a
+   * pooled connection factory that can provide at least <code>parallelism</code> connections. The cookie chain of a
+   * partition is always replayed on the connection that produced it.
+   *
+   * <p>Entries are handed to the consumer one page at a time as each page arrives and are not retained. Invocations of
+   * the consumer are serialized, so it need not be thread safe, but entries from different partitions are interleaved
+   * in no particular order. The listener, if supplied, is invoked on the paging thread after every page and once more
+   * when the partition completes or fails.</p>
+   *
+   * <p>If any partition fails, the remaining partitions stop after their current page and the first failure is
+   * thrown once every partition has stopped.</p>
+   *
+   * @param  partitions  search requests to page, typically produced by {@link #partitionByChildren(SearchRequest)}
+   *                     or {@link #partitionByFilters(SearchRequest, Filter...)}
+   * @param  parallelism  maximum number of partitions to page concurrently
+   * @param  consumer  to receive every entry
+   * @param  listener  to receive partition progress or null
+   *
+   * @return  partitions in the order they were supplied
+   *
+   * @throws  LdapException  if any partition fails
+   */
+  public List<PagedResultsPartition> executeInParallel(
+    final List<SearchRequest> partitions,
+    final int parallelism,
+    final Consumer<LdapEntry> consumer,
+    final Consumer<PagedResultsPartition> listener)
+    throws LdapException
+  {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be greater than zero");
+    }
+    if (consumer == null) {
+      throw new IllegalArgumentException("Consumer cannot be null");
+    }
+    final List<PagedResultsPartition> results = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      results.add(new PagedResultsPartition(i, partitions.get(i)));
+    }
+    if (results.isEmpty()) {
+      return results;
+    }
+    // not a monitor, so that a blocking consumer does not pin a virtual thread to its carrier
+    final ReentrantLock consumerLock = new ReentrantLock();
+    final AtomicReference<LdapException> failure = new AtomicReference<>();
+    // the worker does not bound concurrency when it runs tasks on virtual threads
+    final Semaphore permits = new Semaphore(parallelism);
+    final List<Callable<PagedResultsPartition>> callables = new ArrayList<>(results.size());
+    for (PagedResultsPartition partition : results) {
+      callables.add(() -> {
+        if (failure.get() != null) {
+          return partition;
+        }
+        try {
+          permits.acquire();
+          try {
+            if (failure.get() != null) {
+              return partition;
+            }
+            executePartition(partition, failure, page -> {
+              consumerLock.lock();
+              try {
+                page.getEntries().forEach(consumer);
+              } finally {
+                consumerLock.unlock();
+              }
+            }, listener);
+          } finally {
+            permits.release();
+          }
+        } catch (Exception e) {
+          final LdapException ex = e instanceof LdapException ?
+            (LdapException) e : new LdapException(ResultCode.LOCAL_ERROR, e);
+          partition.fail(ex);
+          failure.compareAndSet(null, ex);
+          if (listener != null) {
+            listener.accept(partition);
+          }
+        }
+        return partition;
+      });
+    }
+    final CallableWorker<PagedResultsPartition> worker = new CallableWorker<>(
+      "paged-results", Math.min(parallelism, results.size()));
+    try {
+      final List<ExecutionException> exceptions = worker.execute(callables, p -> {});
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+      if (!exceptions.isEmpty()) {
+        throw new LdapException(ResultCode.LOCAL_ERROR, exceptions.get(0).getCause());
+      }
+    } finally {
+      worker.shutdown();
+    }
+    return results;
+  }
+
+
+  /**
+   * Pages a single partition on a dedicated connection until the server returns no cookie or another partition fails.
+   *
+   * @param  partition  to page
+   * @param  failure  first failure of any partition
+   * @param  pageConsumer  to receive each page
+   * @param  listener  to receive partition progress or null
+   *
+   * @throws  LdapException  if the search fails
+   */
+  private void executePartition(
+    final PagedResultsPartition partition,
+    final AtomicReference<LdapException> failure,
+    final Consumer<SearchResponse> pageConsumer,
+    final Consumer<PagedResultsPartition> listener)
+    throws LdapException
+  {
+    final SearchRequest request = SearchRequest.copy(partition.getRequest());
+    final SearchOperation search = createSearchOperation();
+    try (Connection conn = getConnectionFactory().getConnection()) {
+      conn.open();
+      byte[] cookie = null;
+      do {
+        request.setControls(appendRequestControls(request, cookie));
+        final SearchResponse result = search.execute(conn, request);
+        pageConsumer.accept(result);
+        partition.addPage(result);
+        if (listener != null) {
+          listener.accept(partition);
+        }
+        cookie = getPagedResultsCookie(result);
+      } while (cookie != null && failure.get() == null);
+      if (cookie == null) {
+        partition.complete();
+        if (listener != null) {
+          listener.accept(partition);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Splits the supplied subtree search into partitions by the immediate children of its base DN. The children are
+   * listed with a one level paged search that returns no attributes. The first partition is an object level search of
+   * the base DN, so the base entry is returned if it matches the filter, followed by a subtree search rooted at each
+   * child. All other properties of the supplied request are preserved.
+   *
+   * @param  request  subtree search request to partition
+   *
+   * @return  partition search requests
+   *
+   * @throws  LdapException  if the children cannot be listed
+   * @throws  IllegalArgumentException  if the request is not a subtree search
+   */
+  public List<SearchRequest> partitionByChildren(final SearchRequest request)
+    throws LdapException
+  {
+    if (request.getSearchScope() != SearchScope.SUBTREE) {
+      throw new IllegalArgumentException("Only subtree searches can be partitioned by children");
+    }
+    final SearchRequest childRequest = SearchRequest.builder()
+      .dn(request.getBaseDn())
+      .scope(SearchScope.ONELEVEL)
+      .filter(new PresenceFilter("objectClass"))
+      .returnAttributes(ReturnAttributes.NONE.value())
+      .aliases(request.getDerefAliases())
+      .build();
+    final SearchResponse children = new PagedResultsClient(getConnectionFactory(), resultSize)
+      .executeToCompletion(childRequest);
+    final List<SearchRequest> partitions = new ArrayList<>(children.entrySize() + 1);
+    final SearchRequest base = SearchRequest.copy(request);
+    base.setSearchScope(SearchScope.OBJECT);
+    partitions.add(base);
+    for (LdapEntry child : children.getEntries()) {
+      final SearchRequest partition = SearchRequest.copy(request);
+      partition.setBaseDn(child.getDn());
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+
+
+  /**
+   * Splits the supplied search into one partition per filter. Each partition is a copy of the request whose filter is
+   * the conjunction of the request filter and the partition filter, or the partition filter alone if the request has
+   * no filter. For example, filters of the form <code>(uid=a*)</code>, <code>(uid=b*)</code>, etc. partition by the
+   * first letter of uid. Callers are responsible for supplying filters that together cover every entry of interest and
+   * that do not overlap.
+   *
+   * @param  request  search request to partition
+   * @param  filters  partition filters
+   *
+   * @return  partition search requests
+   */
+  public static List<SearchRequest> partitionByFilters(final SearchRequest request, final Filter... filters)
+  {
+    final List<SearchRequest> partitions = new ArrayList<>(filters.length);
+    for (Filter f : filters) {
+      final SearchRequest partition = SearchRequest.copy(request);
+      partition.setFilter(request.getFilter() != null ? new AndFilter(request.getFilter(), f) : f);
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+
+
   /**
    * Returns the {@link PagedResultsControl} in the supplied response.
    *
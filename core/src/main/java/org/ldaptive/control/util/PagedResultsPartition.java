@@ -0,0 +1,178 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.control.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ldaptive.LdapException;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
+
+/**
+ * Progress of a single partition of a parallel paged search. See {@link
+ * PagedResultsClient#executeInParallel(java.util.List, int, java.util.function.Consumer,
+ * java.util.function.Consumer)}. Each partition is updated by the thread that pages it; readers on other threads see
+ * a consistent view of the counters but not necessarily of every field at the same instant.
+ *
+ * @author  Middleware Services
+ */
+public final class PagedResultsPartition
+{
+
+  /** Position of this partition in the list of partitions. */
+  private final int index;
+
+  /** Search request for this partition. */
+  private final SearchRequest request;
+
+  /** Number of pages received. */
+  private final AtomicInteger pageCount = new AtomicInteger();
+
+  /** Number of entries received. */
+  private final AtomicLong entryCount = new AtomicLong();
+
+  /** Response of the last page, without entries or references. */
+  private volatile SearchResponse result;
+
+  /** Exception that terminated this partition. */
+  private volatile LdapException exception;
+
+  /** Whether this partition has finished paging. */
+  private volatile boolean complete;
+
+
+  /**
+   * Creates a new paged results partition.
+   *
+   * @param  i  position of this partition
+   * @param  req  search request for this partition
+   */
+  PagedResultsPartition(final int i, final SearchRequest req)
+  {
+    index = i;
+    request = req;
+  }
+
+
+  /**
+   * Returns the position of this partition in the list of partitions.
+   *
+   * @return  partition index
+   */
+  public int getIndex()
+  {
+    return index;
+  }
+
+
+  /**
+   * Returns the search request for this partition.
+   *
+   * @return  search request
+   */
+  public SearchRequest getRequest()
+  {
+    return request;
+  }
+
+
+  /**
+   * Returns the number of pages received so far.
+   *
+   * @return  page count
+   */
+  public int getPageCount()
+  {
+    return pageCount.get();
+  }
+
+
+  /**
+   * Returns the number of entries received so far.
+   *
+   * @return  entry count
+   */
+  public long getEntryCount()
+  {
+    return entryCount.get();
+  }
+
+
+  /**
+   * Returns the response of the last page received. Entries and references are not retained.
+   *
+   * @return  last page response or null if no page has been received
+   */
+  public SearchResponse getResult()
+  {
+    return result;
+  }
+
+
+  /**
+   * Returns the exception that terminated this partition.
+   *
+   * @return  exception or null if this partition did not fail
+   */
+  public LdapException getException()
+  {
+    return exception;
+  }
+
+
+  /**
+   * Returns whether this partition has retrieved all of its pages.
+   *
+   * @return  whether this partition is complete
+   */
+  public boolean isComplete()
+  {
+    return complete;
+  }
+
+
+  /**
+   * Records a page received for this partition.
+   *
+   * @param  page  response of the page
+   */
+  void addPage(final SearchResponse page)
+  {
+    result = SearchResponse.builder().copy(page).build();
+    entryCount.addAndGet(page.entrySize());
+    pageCount.incrementAndGet();
+  }
+
+
+  /**
+   * Marks this partition complete.
+   */
+  void complete()
+  {
+    complete = true;
+  }
+
+
+  /**
+   * Marks this partition failed.
+   *
+   * @param  e  exception that terminated this partition
+   */
+  void fail(final LdapException e)
+  {
+    exception = e;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "index=" + index + ", " +
+      "request=" + request + ", " +
+      "pageCount=" + pageCount + ", " +
+      "entryCount=" + entryCount + ", " +
+      "complete=" + complete + ", " +
+      "exception=" + exception + "]";
+  }
+}
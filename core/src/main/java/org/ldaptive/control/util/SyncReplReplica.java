@@ -0,0 +1,826 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.control.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.Result;
+import org.ldaptive.ResultCode;
+import org.ldaptive.ReturnAttributes;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
+import org.ldaptive.SearchScope;
+import org.ldaptive.control.SyncDoneControl;
+import org.ldaptive.control.SyncStateControl;
+import org.ldaptive.dn.DefaultRDnNormalizer;
+import org.ldaptive.dn.Dn;
+import org.ldaptive.extended.SyncInfoMessage;
+import org.ldaptive.filter.AbstractAttributeValueAssertionFilter;
+import org.ldaptive.filter.AndFilter;
+import org.ldaptive.filter.ApproximateFilter;
+import org.ldaptive.filter.EqualityFilter;
+import org.ldaptive.filter.Filter;
+import org.ldaptive.filter.FilterEvaluator;
+import org.ldaptive.filter.OrFilter;
+import org.ldaptive.filter.PresenceFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In memory replica of the entries returned by a sync repl search. Register the replica with a {@link SyncReplRunner}
+ * or {@link SyncReplClient}, or invoke {@link #processEntry(LdapEntry)}, {@link #processMessage(SyncInfoMessage)} and
+ * {@link #processResult(Result)} from existing consumers. Entries are stored frozen and keyed by the entry UUID of
+ * their sync state control. The refresh stage of RFC 4533 is handled as follows:
+ *
+ * <ul>
+ *   <li>present phase: entries that were not reported present or changed are removed when the phase ends</li>
+ *   <li>delete phase: entries are removed as they are reported deleted</li>
+ *   <li>syncIdSet messages: entries are marked present or removed</li>
+ *   <li>e-syncRefreshRequired: all entries are removed, the cookie manager must be reset by the caller</li>
+ * </ul>
+ *
+ * <p>Search requests are answered locally by {@link #search(SearchRequest)}. Filters are evaluated with a {@link
+ * FilterEvaluator} and equality and presence assertions on indexed attributes select candidate entries from an index
+ * instead of scanning every entry. Searches may execute concurrently with each other and with updates.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class SyncReplReplica
+{
+
+  /** Maximum number of compiled filters to cache. */
+  private static final int MAX_COMPILED_FILTERS = 1024;
+
+  /** Normalizer for entry and base DNs. */
+  private static final DefaultRDnNormalizer DN_NORMALIZER = new DefaultRDnNormalizer();
+
+  /** Logger for this class. */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Evaluates search filters. */
+  private final FilterEvaluator filterEvaluator;
+
+  /** Attribute indexes keyed by every lower case name of the indexed attribute. */
+  private final Map<String, AttributeIndex> indexes = new HashMap<>();
+
+  /** Attribute indexes, one per indexed attribute. */
+  private final List<AttributeIndex> attributeIndexes = new ArrayList<>();
+
+  /** Compiled search filters in access order, the least recently used filter is evicted once the cache is full. */
+  private final Map<Filter, Predicate<LdapEntry>> compiledFilters;
+
+  /** Guards {@link #compiledFilters}. */
+  private final ReentrantLock compiledFiltersLock = new ReentrantLock();
+
+  /** Entries keyed by entry UUID. */
+  private final Map<UUID, Record> records = new HashMap<>();
+
+  /** Entries keyed by normalized DN. */
+  private final Map<String, Record> recordsByDn = new HashMap<>();
+
+  /** Entries reported present or changed during the current present phase. */
+  private final Set<UUID> presentUuids = new HashSet<>();
+
+  /** Guards the entries and indexes. */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Whether a present phase may be in progress. */
+  private boolean presentPhase = true;
+
+  /** Whether the refresh stage has completed. */
+  private volatile boolean refreshComplete;
+
+
+  /**
+   * Creates a new sync repl replica that evaluates filters without a schema.
+   *
+   * @param  indexedAttributes  names of the attributes to index
+   */
+  public SyncReplReplica(final String... indexedAttributes)
+  {
+    this(new FilterEvaluator(), indexedAttributes);
+  }
+
+
+  /**
+   * Creates a new sync repl replica.
+   *
+   * @param  evaluator  to evaluate filters and normalize indexed values with
+   * @param  indexedAttributes  names of the attributes to index
+   */
+  public SyncReplReplica(final FilterEvaluator evaluator, final String... indexedAttributes)
+  {
+    filterEvaluator = LdapUtils.assertNotNullArg(evaluator, "Filter evaluator cannot be null");
+    if (indexedAttributes != null) {
+      for (String attr : indexedAttributes) {
+        final AttributeIndex index = new AttributeIndex(attr, filterEvaluator.getAttributeNames(attr));
+        for (String name : index.names) {
+          indexes.put(name, index);
+        }
+        attributeIndexes.add(index);
+      }
+    }
+    // CheckStyle:MagicNumber OFF
+    compiledFilters = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Filter, Predicate<LdapEntry>> eldest)
+      {
+        return size() > MAX_COMPILED_FILTERS;
+      }
+    };
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /**
+   * Returns the filter evaluator.
+   *
+   * @return  filter evaluator
+   */
+  public FilterEvaluator getFilterEvaluator()
+  {
+    return filterEvaluator;
+  }
+
+
+  /**
+   * Registers this replica to receive the entries, messages and results of the supplied runner. Must be invoked before
+   * the runner is initialized.
+   *
+   * @param  runner  to register with
+   */
+  public void register(final SyncReplRunner runner)
+  {
+    runner.setOnEntry(this::processEntry);
+    runner.setOnMessage(this::processMessage);
+    runner.setOnResult(this::processResult);
+  }
+
+
+  /**
+   * Registers this replica to receive the entries, messages and results of the supplied client. Must be invoked before
+   * the client sends its request.
+   *
+   * @param  client  to register with
+   */
+  public void register(final SyncReplClient client)
+  {
+    client.setOnEntry(this::processEntry);
+    client.setOnMessage(this::processMessage);
+    client.setOnResult(this::processResult);
+  }
+
+
+  /**
+   * Returns whether the refresh stage of the sync repl search has completed, after which the replica contains every
+   * entry in the search scope.
+   *
+   * @return  whether the refresh stage has completed
+   */
+  public boolean isRefreshComplete()
+  {
+    return refreshComplete;
+  }
+
+
+  /**
+   * Returns the number of entries in this replica.
+   *
+   * @return  number of entries
+   */
+  public int size()
+  {
+    lock.readLock().lock();
+    try {
+      return records.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+
+  /**
+   * Returns the entry with the supplied DN.
+   *
+   * @param  dn  of the entry
+   *
+   * @return  frozen entry or null if the entry does not exist
+   */
+  public LdapEntry getEntry(final String dn)
+  {
+    final String normalizedDn = normalizeDn(dn);
+    lock.readLock().lock();
+    try {
+      final Record record = recordsByDn.get(normalizedDn);
+      return record != null ? record.entry : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+
+  /** Removes all entries from this replica. */
+  public void clear()
+  {
+    lock.writeLock().lock();
+    try {
+      records.clear();
+      recordsByDn.clear();
+      presentUuids.clear();
+      attributeIndexes.forEach(AttributeIndex::clear);
+      refreshComplete = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Applies the supplied sync repl entry to this replica.
+   *
+   * @param  entry  received from the sync repl search
+   */
+  public void processEntry(final LdapEntry entry)
+  {
+    final SyncStateControl control = (SyncStateControl) entry.getControl(SyncStateControl.OID);
+    final SyncStateControl.State state = control != null ? control.getSyncState() : SyncStateControl.State.ADD;
+    final UUID uuid = control != null && control.getEntryUuid() != null ?
+      control.getEntryUuid() : UUID.nameUUIDFromBytes(LdapUtils.utf8Encode(normalizeDn(entry.getDn())));
+    lock.writeLock().lock();
+    try {
+      switch (state) {
+      case PRESENT:
+        markPresent(uuid);
+        break;
+      case ADD:
+      case MODIFY:
+        put(uuid, entry);
+        markPresent(uuid);
+        break;
+      case DELETE:
+        remove(uuid);
+        break;
+      default:
+        throw new IllegalStateException("Unknown sync state " + state);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Applies the supplied sync info message to this replica.
+   *
+   * @param  message  received from the sync repl search
+   */
+  public void processMessage(final SyncInfoMessage message)
+  {
+    lock.writeLock().lock();
+    try {
+      switch (message.getMessageType()) {
+      case REFRESH_PRESENT:
+        endPresentPhase(true);
+        refreshComplete |= message.getRefreshDone();
+        break;
+      case REFRESH_DELETE:
+        endPresentPhase(false);
+        refreshComplete |= message.getRefreshDone();
+        break;
+      case SYNC_ID_SET:
+        if (message.getRefreshDeletes()) {
+          message.getEntryUuids().forEach(this::remove);
+        } else {
+          message.getEntryUuids().forEach(this::markPresent);
+        }
+        break;
+      case NEW_COOKIE:
+        break;
+      default:
+        throw new IllegalStateException("Unknown message type " + message.getMessageType());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Applies the supplied sync repl search result to this replica. A subsequent search starts a new refresh stage.
+   *
+   * @param  result  received from the sync repl search
+   */
+  public void processResult(final Result result)
+  {
+    lock.writeLock().lock();
+    try {
+      if (result.getResultCode() == ResultCode.E_SYNC_REFRESH_REQUIRED) {
+        logger.info("Server requires a full refresh, clearing {} entries", records.size());
+        records.clear();
+        recordsByDn.clear();
+        attributeIndexes.forEach(AttributeIndex::clear);
+        refreshComplete = false;
+      } else {
+        final SyncDoneControl control = (SyncDoneControl) result.getControl(SyncDoneControl.OID);
+        if (control != null) {
+          endPresentPhase(!control.getRefreshDeletes());
+          refreshComplete = true;
+        }
+      }
+      presentUuids.clear();
+      presentPhase = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  /**
+   * Executes the supplied search request against this replica. The base DN, scope, filter, size limit and return
+   * attributes of the request are honored. Returned entries are frozen.
+   *
+   * @param  request  to execute
+   *
+   * @return  search response
+   */
+  public SearchResponse search(final SearchRequest request)
+  {
+    final String baseDn = normalizeDn(request.getBaseDn());
+    final SearchScope scope = request.getSearchScope() != null ? request.getSearchScope() : SearchScope.SUBTREE;
+    final Predicate<LdapEntry> filter = request.getFilter() != null ? compile(request.getFilter()) : e -> true;
+    final String[] returnAttributes = ReturnAttributes.parse(request.getReturnAttributes());
+    final List<LdapEntry> entries = new ArrayList<>();
+    boolean sizeLimitExceeded = false;
+    boolean baseExists;
+    lock.readLock().lock();
+    try {
+      baseExists = baseDn.isEmpty() || recordsByDn.containsKey(baseDn);
+      final Collection<Record> candidates;
+      if (scope == SearchScope.OBJECT) {
+        candidates = baseExists && !baseDn.isEmpty() ?
+          Collections.singletonList(recordsByDn.get(baseDn)) : Collections.emptyList();
+      } else {
+        candidates = selectCandidates(request.getFilter());
+      }
+      for (Record record : candidates) {
+        if (record.inScope(baseDn, scope) && filter.test(record.entry)) {
+          if (request.getSizeLimit() > 0 && entries.size() == request.getSizeLimit()) {
+            sizeLimitExceeded = true;
+            break;
+          }
+          entries.add(project(record.entry, returnAttributes));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    final ResultCode resultCode;
+    if (!baseExists && entries.isEmpty()) {
+      resultCode = ResultCode.NO_SUCH_OBJECT;
+    } else if (sizeLimitExceeded) {
+      resultCode = ResultCode.SIZE_LIMIT_EXCEEDED;
+    } else {
+      resultCode = ResultCode.SUCCESS;
+    }
+    return SearchResponse.builder()
+      .resultCode(resultCode)
+      .entry(entries.toArray(LdapEntry[]::new))
+      .build();
+  }
+
+
+  /**
+   * Returns the compiled predicate for the supplied filter.
+   *
+   * @param  filter  to compile
+   *
+   * @return  predicate that evaluates the filter
+   */
+  private Predicate<LdapEntry> compile(final Filter filter)
+  {
+    compiledFiltersLock.lock();
+    try {
+      final Predicate<LdapEntry> predicate = compiledFilters.get(filter);
+      if (predicate != null) {
+        return predicate;
+      }
+    } finally {
+      compiledFiltersLock.unlock();
+    }
+    final Predicate<LdapEntry> predicate = filterEvaluator.compile(filter);
+    compiledFiltersLock.lock();
+    try {
+      compiledFilters.put(filter, predicate);
+    } finally {
+      compiledFiltersLock.unlock();
+    }
+    return predicate;
+  }
+
+
+  /**
+   * Returns the entries that may match the supplied filter. Must be invoked while holding the read lock.
+   *
+   * @param  filter  to select entries for
+   *
+   * @return  candidate entries
+   */
+  private Collection<Record> selectCandidates(final Filter filter)
+  {
+    final Set<UUID> uuids = filter != null ? selectIndexed(filter) : null;
+    if (uuids == null) {
+      return records.values();
+    }
+    final List<Record> candidates = new ArrayList<>(uuids.size());
+    for (UUID uuid : uuids) {
+      candidates.add(records.get(uuid));
+    }
+    return candidates;
+  }
+
+
+  /**
+   * Returns the UUIDs of the entries that may match the supplied filter according to the attribute indexes. An and
+   * filter uses the smallest set of any of its components, an or filter the union of all its components.
+   *
+   * @param  filter  to select entries for
+   *
+   * @return  entry UUIDs or null if the filter cannot be answered by an index
+   */
+  private Set<UUID> selectIndexed(final Filter filter)
+  {
+    if (filter instanceof EqualityFilter || filter instanceof ApproximateFilter) {
+      final AbstractAttributeValueAssertionFilter f = (AbstractAttributeValueAssertionFilter) filter;
+      final AttributeIndex index = indexes.get(LdapUtils.toLowerCase(f.getAttributeDesc()));
+      if (index == null) {
+        return null;
+      }
+      final Object key = filterEvaluator.normalizeValue(index.attribute, f.getAssertionValue());
+      final Set<UUID> uuids = key != null ? index.values.get(key) : null;
+      return uuids != null ? uuids : Collections.emptySet();
+    } else if (filter instanceof PresenceFilter) {
+      final AttributeIndex index = indexes.get(LdapUtils.toLowerCase(((PresenceFilter) filter).getAttributeDesc()));
+      return index != null ? index.present : null;
+    } else if (filter instanceof AndFilter) {
+      Set<UUID> smallest = null;
+      for (Filter component : ((AndFilter) filter).getComponents()) {
+        final Set<UUID> uuids = selectIndexed(component);
+        if (uuids != null && (smallest == null || uuids.size() < smallest.size())) {
+          smallest = uuids;
+        }
+      }
+      return smallest;
+    } else if (filter instanceof OrFilter) {
+      final Set<UUID> union = new HashSet<>();
+      for (Filter component : ((OrFilter) filter).getComponents()) {
+        final Set<UUID> uuids = selectIndexed(component);
+        if (uuids == null) {
+          return null;
+        }
+        union.addAll(uuids);
+      }
+      return union;
+    }
+    return null;
+  }
+
+
+  /**
+   * Returns the supplied entry with only the requested attributes.
+   *
+   * @param  entry  stored entry
+   * @param  returnAttributes  parsed return attributes
+   *
+   * @return  frozen entry
+   */
+  private static LdapEntry project(final LdapEntry entry, final String[] returnAttributes)
+  {
+    final List<String> names = new ArrayList<>(returnAttributes.length);
+    for (String attr : returnAttributes) {
+      if ("*".equals(attr) || "+".equals(attr)) {
+        return entry;
+      } else if (!ReturnAttributes.NONE.value()[0].equals(attr)) {
+        names.add(attr);
+      }
+    }
+    final LdapEntry projected = new LdapEntry();
+    projected.setDn(entry.getDn());
+    for (String name : names) {
+      final LdapAttribute attr = entry.getAttribute(name);
+      if (attr != null) {
+        projected.addAttributes(attr);
+      }
+    }
+    projected.freeze();
+    return projected;
+  }
+
+
+  /**
+   * Stores the supplied entry, replacing any entry with the same UUID. Must be invoked while holding the write lock.
+   *
+   * @param  uuid  of the entry
+   * @param  entry  to store
+   */
+  private void put(final UUID uuid, final LdapEntry entry)
+  {
+    remove(uuid);
+    final LdapEntry stored = new LdapEntry();
+    stored.setDn(entry.getDn());
+    entry.getAttributes().forEach(a -> stored.addAttributes(LdapAttribute.copy(a)));
+    stored.freeze();
+    final Record record = new Record(uuid, stored);
+    final Record replaced = recordsByDn.put(record.normalizedDn, record);
+    if (replaced != null) {
+      logger.debug("Replacing entry {} with {}", replaced.uuid, uuid);
+      records.remove(replaced.uuid);
+      unindex(replaced);
+    }
+    records.put(uuid, record);
+    for (AttributeIndex index : attributeIndexes) {
+      index.add(record, filterEvaluator);
+    }
+  }
+
+
+  /**
+   * Removes the entry with the supplied UUID. Must be invoked while holding the write lock.
+   *
+   * @param  uuid  of the entry
+   */
+  private void remove(final UUID uuid)
+  {
+    final Record record = records.remove(uuid);
+    if (record != null) {
+      recordsByDn.remove(record.normalizedDn, record);
+      unindex(record);
+    }
+  }
+
+
+  /**
+   * Removes the supplied record from every index.
+   *
+   * @param  record  to remove
+   */
+  private void unindex(final Record record)
+  {
+    for (AttributeIndex index : attributeIndexes) {
+      index.remove(record, filterEvaluator);
+    }
+  }
+
+
+  /**
+   * Records that the entry with the supplied UUID was reported during the present phase. Must be invoked while
+   * holding the write lock.
+   *
+   * @param  uuid  of the entry
+   */
+  private void markPresent(final UUID uuid)
+  {
+    if (presentPhase) {
+      presentUuids.add(uuid);
+    }
+  }
+
+
+  /**
+   * Ends the present phase. Must be invoked while holding the write lock.
+   *
+   * @param  removeAbsent  whether the server used the present phase and entries that were not reported should be
+   *                       removed
+   */
+  private void endPresentPhase(final boolean removeAbsent)
+  {
+    if (presentPhase && removeAbsent) {
+      final List<UUID> absent = new ArrayList<>();
+      for (UUID uuid : records.keySet()) {
+        if (!presentUuids.contains(uuid)) {
+          absent.add(uuid);
+        }
+      }
+      logger.debug("Removing {} entries not present in the refresh", absent.size());
+      absent.forEach(this::remove);
+    }
+    presentUuids.clear();
+    presentPhase = false;
+  }
+
+
+  /**
+   * Returns the normalized form of the supplied DN.
+   *
+   * @param  dn  to normalize
+   *
+   * @return  normalized DN
+   */
+  private static String normalizeDn(final String dn)
+  {
+    if (dn == null || dn.isEmpty()) {
+      return "";
+    }
+    return new Dn(dn).format(DN_NORMALIZER);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "filterEvaluator=" + filterEvaluator + ", " +
+      "indexes=" + attributeIndexes + ", " +
+      "size=" + size() + ", " +
+      "refreshComplete=" + refreshComplete + "]";
+  }
+
+
+  /** Stored entry with its normalized DN. */
+  private static final class Record
+  {
+
+    /** Entry UUID. */
+    private final UUID uuid;
+
+    /** Frozen entry. */
+    private final LdapEntry entry;
+
+    /** Normalized DN of the entry. */
+    private final String normalizedDn;
+
+    /** Normalized DN of the parent entry. */
+    private final String normalizedParentDn;
+
+
+    /**
+     * Creates a new record.
+     *
+     * @param  id  entry UUID
+     * @param  e  frozen entry
+     */
+    Record(final UUID id, final LdapEntry e)
+    {
+      uuid = id;
+      entry = e;
+      final Dn dn = new Dn(e.getDn());
+      normalizedDn = dn.format(DN_NORMALIZER);
+      normalizedParentDn = dn.size() > 1 ? dn.getParent().format(DN_NORMALIZER) : "";
+    }
+
+
+    /**
+     * Returns whether this entry is within the supplied search scope.
+     *
+     * @param  baseDn  normalized base DN
+     * @param  scope  search scope
+     *
+     * @return  whether this entry is in scope
+     */
+    boolean inScope(final String baseDn, final SearchScope scope)
+    {
+      switch (scope) {
+      case OBJECT:
+        return normalizedDn.equals(baseDn);
+      case ONELEVEL:
+        return normalizedParentDn.equals(baseDn);
+      case SUBTREE:
+        return normalizedDn.equals(baseDn) || isDescendant(baseDn);
+      default:
+        throw new IllegalArgumentException("Unknown search scope " + scope);
+      }
+    }
+
+
+    /**
+     * Returns whether this entry is below the supplied DN.
+     *
+     * @param  baseDn  normalized base DN
+     *
+     * @return  whether this entry is a descendant of the base DN
+     */
+    private boolean isDescendant(final String baseDn)
+    {
+      if (baseDn.isEmpty()) {
+        return true;
+      }
+      final int index = normalizedDn.length() - baseDn.length() - 1;
+      if (index < 1 || normalizedDn.charAt(index) != ',' || !normalizedDn.endsWith(baseDn)) {
+        return false;
+      }
+      // the comma must not be escaped
+      int backslashes = 0;
+      for (int i = index - 1; i >= 0 && normalizedDn.charAt(i) == '\\'; i--) {
+        backslashes++;
+      }
+      return backslashes % 2 == 0;
+    }
+  }
+
+
+  /** Equality and presence index of an attribute. */
+  private static final class AttributeIndex
+  {
+
+    /** Attribute description as configured. */
+    private final String attribute;
+
+    /** Lower case names of the attribute. */
+    private final String[] names;
+
+    /** Entry UUIDs keyed by normalized value. */
+    private final Map<Object, Set<UUID>> values = new HashMap<>();
+
+    /** UUIDs of the entries that contain the attribute. */
+    private final Set<UUID> present = new HashSet<>();
+
+
+    /**
+     * Creates a new attribute index.
+     *
+     * @param  attr  attribute description
+     * @param  n  lower case names of the attribute
+     */
+    AttributeIndex(final String attr, final String[] n)
+    {
+      attribute = attr;
+      names = n;
+    }
+
+
+    /**
+     * Adds the values of the supplied record to this index.
+     *
+     * @param  record  to add
+     * @param  evaluator  to normalize values with
+     */
+    void add(final Record record, final FilterEvaluator evaluator)
+    {
+      for (String name : names) {
+        final LdapAttribute attr = record.entry.getAttribute(name);
+        if (attr != null) {
+          present.add(record.uuid);
+          for (byte[] value : attr.getBinaryValues()) {
+            final Object key = evaluator.normalizeValue(attribute, value);
+            if (key != null) {
+              values.computeIfAbsent(key, k -> new HashSet<>()).add(record.uuid);
+            }
+          }
+        }
+      }
+    }
+
+
+    /**
+     * Removes the values of the supplied record from this index.
+     *
+     * @param  record  to remove
+     * @param  evaluator  to normalize values with
+     */
+    void remove(final Record record, final FilterEvaluator evaluator)
+    {
+      for (String name : names) {
+        final LdapAttribute attr = record.entry.getAttribute(name);
+        if (attr != null) {
+          present.remove(record.uuid);
+          for (byte[] value : attr.getBinaryValues()) {
+            final Object key = evaluator.normalizeValue(attribute, value);
+            final Set<UUID> uuids = key != null ? values.get(key) : null;
+            if (uuids != null && uuids.remove(record.uuid) && uuids.isEmpty()) {
+              values.remove(key);
+            }
+          }
+        }
+      }
+    }
+
+
+    /** Removes all entries from this index. */
+    void clear()
+    {
+      values.clear();
+      present.clear();
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return attribute + Arrays.toString(names);
+    }
+  }
+}
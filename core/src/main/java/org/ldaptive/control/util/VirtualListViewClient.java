@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.ldaptive.AbstractSearchOperationFactory;
 import org.ldaptive.ConnectionFactory;
@@ -194,6 +196,74 @@ public class VirtualListViewClient extends AbstractSearchOperationFactory
   }
 
 
+  /**
+   * Performs a search operation with the {@link VirtualListViewRequestControl} and hands each page to the supplied
+   * consumer. The supplied request is modified in the following way:
+   *
+   * <ul>
+   *   <li>{@link SearchRequest#setControls( RequestControl...)} is invoked with {@link SortRequestControl} and {@link
+   *   VirtualListViewRequestControl} and any other controls previously set on the search request.</li>
+   * </ul>
+   *
+   * <p>Pages are requested with the same criteria as {@link #executeToCompletion(SearchRequest,
+   * VirtualListViewParams)}, but the request for the next page is sent on a background thread as soon as the previous
+   * page is received, while the consumer processes earlier pages. At most <code>maxBufferedEntries</code> entries,
+   * rounded up to a whole page, are retrieved ahead of the consumer. Pages are handed to the consumer on the calling
+   * thread in order and are not retained.</p>
+   *
+   * @param  request  search request to execute
+   * @param  params  virtual list view data
+   * @param  maxBufferedEntries  maximum number of entries to retrieve ahead of the consumer
+   * @param  consumer  to process each page
+   *
+   * @return  search operation response of the last VLV operation, without entries or references
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public SearchResponse executeWithPrefetch(
+    final SearchRequest request,
+    final VirtualListViewParams params,
+    final int maxBufferedEntries,
+    final Consumer<SearchResponse> consumer)
+    throws LdapException
+  {
+    final SearchOperation search = createSearchOperation();
+    final AtomicInteger entryCount = new AtomicInteger();
+    final LdapEntryHandler[] handlers = search.getEntryHandlers();
+    search.setEntryHandlers(LdapUtils.concatArrays(new LdapEntryHandler[] {e -> {
+      entryCount.incrementAndGet();
+      return e;
+    }}, handlers));
+
+    final AtomicReference<VirtualListViewParams> newParams = new AtomicReference<>(params);
+    return new PagePrefetcher(maxBufferedEntries).execute(
+      previous -> {
+        if (previous != null) {
+          final VirtualListViewResponseControl ctrl = getResponseControl(previous);
+          final int contentCount = ctrl != null ? ctrl.getContentCount() : 0;
+          if (ctrl == null || ctrl.getContextID() == null || !ResultCode.SUCCESS.equals(ctrl.getViewResult()) ||
+              contentCount <= 0 || entryCount.get() >= contentCount) {
+            return null;
+          }
+          // move the target offset by the size of the after count
+          final VirtualListViewParams p = newParams.get();
+          newParams.set(
+            new VirtualListViewParams(p.getTargetOffset() + p.getAfterCount() + 1, 0, params.getAfterCount()));
+          request.setControls(appendRequestControls(request, newParams.get().createRequestControl(previous, true)));
+        } else {
+          request.setControls(appendRequestControls(request, params.createRequestControl(true)));
+        }
+        final SearchResponse result = search.execute(request);
+        final VirtualListViewResponseControl ctrl = getResponseControl(result);
+        if (ctrl != null && ctrl.getContextID() != null) {
+          newParams.get().getCookieManager().writeCookie(ctrl.getContextID());
+        }
+        return result;
+      },
+      consumer);
+  }
+
+
   /**
    * Returns the {@link VirtualListViewResponseControl} in the supplied response.
    *
@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.dn;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -27,7 +28,8 @@ public final class DefaultDnParser implements DnParser
 
 
   /**
-   * Parses the supplied DN into a list of RDNs.
+   * Parses the supplied DN into a list of RDNs. The DN is read in a single pass using indexes into the string, only
+   * attribute names and values are copied out of it.
    *
    * @param  dn  to parse
    *
@@ -37,61 +39,102 @@ public final class DefaultDnParser implements DnParser
   public List<RDn> parse(final String dn)
   {
     LdapUtils.assertNotNullArg(dn, "DN cannot be null");
-    if (LdapUtils.trimSpace(dn).isEmpty()) {
+    final int length = dn.length();
+    if (trimStart(dn, 0, length) == length) {
       return Collections.emptyList();
     }
 
     final List<RDn> rdns = new ArrayList<>();
-    final List<NameValue> nameValues = new ArrayList<>();
+    final List<NameValue> nameValues = new ArrayList<>(1);
     int pos = 0;
-    while (pos < dn.length()) {
-      final int[] endAttrNamePos = readToChar(dn, new char[] {'='}, pos);
-      final String attrName = LdapUtils.trimSpace(dn.substring(pos, endAttrNamePos[0]));
-      if (attrName.isEmpty()) {
+    while (pos < length) {
+      final int endAttrNamePos = indexOf(dn, pos, '=', '=');
+      final int nameStart = trimStart(dn, pos, endAttrNamePos);
+      final int nameEnd = trimEnd(dn, nameStart, endAttrNamePos);
+      if (nameStart == nameEnd) {
         throw new IllegalArgumentException("Invalid RDN: no attribute name found for " + dn);
-      } else if (attrName.contains("+") || attrName.contains(",")) {
-        throw new IllegalArgumentException("Invalid RDN: unexpected '" + attrName.charAt(0) + "' for " + dn);
       }
-      pos = endAttrNamePos[0];
+      for (int i = nameStart; i < nameEnd; i++) {
+        if (dn.charAt(i) == '+' || dn.charAt(i) == ',') {
+          throw new IllegalArgumentException("Invalid RDN: unexpected '" + dn.charAt(nameStart) + "' for " + dn);
+        }
+      }
+      final String attrName = dn.substring(nameStart, nameEnd);
+      pos = endAttrNamePos;
       // error if char isn't an '='
-      if (pos >= dn.length() || dn.charAt(pos++) != '=') {
+      if (pos >= length || dn.charAt(pos++) != '=') {
         throw new IllegalArgumentException("Invalid RDN: no equals found for " + dn);
       }
 
-      final int[] endAttrValuePos = readToChar(dn, new char[] {'+', ','}, pos);
-      final String attrValue = LdapUtils.trimSpace(dn.substring(pos, endAttrValuePos[0]));
-      if (attrValue.isEmpty()) {
+      final int endAttrValuePos = indexOf(dn, pos, '+', ',');
+      final int matchChar = endAttrValuePos < length ? dn.charAt(endAttrValuePos) : -1;
+      final int valueStart = trimStart(dn, pos, endAttrValuePos);
+      final int valueEnd = trimEnd(dn, valueStart, endAttrValuePos);
+      if (valueStart == valueEnd) {
         nameValues.add(new NameValue(attrName, ""));
-      } else if (attrValue.startsWith("#")) {
-        final DERParser parser = new DERParser();
-        final OctetStringHandler handler = new OctetStringHandler();
-        parser.registerHandler(HEX_PATH, handler);
-
-        final String hexData = attrValue.substring(1);
-        try {
-          parser.parse(new DefaultDERBuffer(decodeHexValue(hexData.toCharArray())));
-        } catch (Exception e) {
-          throw new IllegalArgumentException("Invalid HEX value: " + hexData, e);
-        }
-        nameValues.add(new NameValue(attrName, handler.getDecodedValue()));
+      } else if (dn.charAt(valueStart) == '#') {
+        nameValues.add(new NameValue(attrName, decodeBerValue(dn.substring(valueStart + 1, valueEnd))));
       } else {
-        nameValues.add(new NameValue(attrName, decodeStringValue(attrValue)));
+        nameValues.add(new NameValue(attrName, decodeStringValue(dn.substring(valueStart, valueEnd))));
       }
-      if (endAttrValuePos[1] == -1 || endAttrValuePos[1] == ',') {
+      if (matchChar == -1 || matchChar == ',') {
         rdns.add(new RDn(nameValues));
         nameValues.clear();
       }
-      pos = endAttrValuePos[0] + 1;
-      if (pos == dn.length() && endAttrValuePos[1] != -1) {
+      pos = endAttrValuePos + 1;
+      if (pos == length && matchChar != -1) {
         // dangling match character
         throw new IllegalArgumentException(
-          "Invalid RDN: attribute value ends with '" + endAttrValuePos[1] + "' for " + dn);
+          "Invalid RDN: attribute value ends with '" + matchChar + "' for " + dn);
       }
     }
     return Collections.unmodifiableList(rdns);
   }
 
 
+  /**
+   * Decodes the supplied hex encoded BER value. A primitive octet string, the common case, is read directly. Any other
+   * encoding is handed to a {@link DERParser}.
+   *
+   * @param  hexData  hex encoded BER
+   *
+   * @return  decoded octet string or null if the value is not an octet string
+   */
+  private static String decodeBerValue(final String hexData)
+  {
+    final byte[] bytes = decodeHexValue(hexData.toCharArray());
+    // CheckStyle:MagicNumber OFF
+    if (bytes.length > 1 && bytes[0] == 0x04) {
+      int start = 2;
+      int length = bytes[1] & 0xFF;
+      if (length > 0x7F) {
+        final int lengthBytes = length & 0x7F;
+        length = 0;
+        if (lengthBytes > 0 && lengthBytes < 4 && start + lengthBytes <= bytes.length) {
+          for (int i = 0; i < lengthBytes; i++) {
+            length = (length << 8) | (bytes[start++] & 0xFF);
+          }
+        } else {
+          length = -1;
+        }
+      }
+      if (length >= 0 && start + length <= bytes.length) {
+        return new String(bytes, start, length, StandardCharsets.UTF_8);
+      }
+    }
+    // CheckStyle:MagicNumber ON
+    final DERParser parser = new DERParser();
+    final OctetStringHandler handler = new OctetStringHandler();
+    parser.registerHandler(HEX_PATH, handler);
+    try {
+      parser.parse(new DefaultDERBuffer(bytes));
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid HEX value: " + hexData, e);
+    }
+    return handler.getDecodedValue();
+  }
+
+
   /**
    * Decodes the supplied hexadecimal value.
    *
@@ -164,23 +207,22 @@ public final class DefaultDnParser implements DnParser
 
 
   /**
-   * Reads the supplied string starting at the supplied position until one of the supplied characters is found.
+   * Returns the index of the first occurrence of either of the supplied characters, starting at the supplied position.
    * Characters escaped with '\' are ignored. Characters inside of quotes are ignored.
    *
    * @param  s  to read
-   * @param  chars  to match
+   * @param  c1  first character to match
+   * @param  c2  second character to match
    * @param  pos  to start reading at
    *
-   * @return  string index that matched a character or the last index in the string
+   * @return  index of the matched character or the length of the string if neither character was found
    */
-  private static int[] readToChar(final String s, final char[] chars, final int pos)
+  private static int indexOf(final String s, final int pos, final char c1, final char c2)
   {
     int i = pos;
-    int matchChar = -1;
     // 0 = no quotes, 1 = in quotes, 2 = after quotes
     int quotes = 0;
     while (i < s.length()) {
-      boolean match = false;
       final char sChar = s.charAt(i);
       // ignore escaped characters
       if (sChar == '\\') {
@@ -191,22 +233,51 @@ public final class DefaultDnParser implements DnParser
         }
       } else if (sChar == '"') {
         quotes++;
-      } else if (quotes != 1) {
+      } else if (quotes != 1 && (sChar == c1 || sChar == c2)) {
         // do not check for match characters inside of quotes
-        for (char c : chars) {
-          if (c == s.charAt(i)) {
-            matchChar = c;
-            match = true;
-            break;
-          }
-        }
-        if (match) {
-          break;
-        }
+        return i;
       }
       i++;
     }
-    return new int[] {i, matchChar};
+    return s.length();
+  }
+
+
+  /**
+   * Returns the index of the first character in the supplied range that is not a space.
+   *
+   * @param  s  to read
+   * @param  start  of the range, inclusive
+   * @param  end  of the range, exclusive
+   *
+   * @return  index of the first non-space character or end
+   */
+  private static int trimStart(final String s, final int start, final int end)
+  {
+    int i = start;
+    while (i < end && s.charAt(i) == ' ') {
+      i++;
+    }
+    return i;
+  }
+
+
+  /**
+   * Returns the index after the last character in the supplied range that is not a space.
+   *
+   * @param  s  to read
+   * @param  start  of the range, inclusive
+   * @param  end  of the range, exclusive
+   *
+   * @return  index after the last non-space character or start
+   */
+  private static int trimEnd(final String s, final int start, final int end)
+  {
+    int i = end;
+    while (i > start && s.charAt(i - 1) == ' ') {
+      i--;
+    }
+    return i;
   }
 
 
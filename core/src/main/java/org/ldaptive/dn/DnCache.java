@@ -0,0 +1,270 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.dn;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.ldaptive.LdapUtils;
+
+/**
+ * Bounded concurrent cache of parsed and normalized DNs keyed by DN string. Directory data tends to repeat the same
+ * suffixes and member DNs, so most lookups avoid parsing and normalization entirely. Cached DNs are frozen and may be
+ * shared between threads.
+ *
+ * <p>Entries are kept in two generations. New entries are added to the current generation; once it holds half of the
+ * maximum size it becomes the previous generation and the oldest generation is discarded. Entries found in the
+ * previous generation are promoted to the current one, so frequently used DNs survive while the cache never holds
+ * more than its maximum size. Lookups do not lock.</p>
+ *
+ * <p>A default cache used by {@link org.ldaptive.LdapEntry} is enabled by setting the
+ * <code>org.ldaptive.dn.cacheSize</code> system property to a positive number.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class DnCache
+{
+
+  /** Cache size property. */
+  private static final String CACHE_SIZE_PROPERTY = "org.ldaptive.dn.cacheSize";
+
+  /** Default cache, null if it is not configured. */
+  private static final DnCache DEFAULT_CACHE;
+
+  /** Parser used on a cache miss. */
+  private final DnParser parser;
+
+  /** Normalizer used on a cache miss. */
+  private final RDnNormalizer normalizer;
+
+  /** Maximum number of entries in each generation. */
+  private final int generationSize;
+
+  /** Number of lookups that found a cached DN. */
+  private final LongAdder hitCount = new LongAdder();
+
+  /** Number of lookups that parsed a DN. */
+  private final LongAdder missCount = new LongAdder();
+
+  /** Current generation. */
+  private volatile Map<String, CachedDn> current = new ConcurrentHashMap<>();
+
+  /** Previous generation. */
+  private volatile Map<String, CachedDn> previous = new ConcurrentHashMap<>();
+
+  /** Guards swapping the generations, a lock rather than a monitor so that lookups on virtual threads do not pin. */
+  private final ReentrantLock rotateLock = new ReentrantLock();
+
+  static {
+    final int size = (int) LdapUtils.parseLong(
+      System.getProperty(CACHE_SIZE_PROPERTY, "0"), l -> l > 0 && l <= Integer.MAX_VALUE, 0);
+    DEFAULT_CACHE = size > 0 ? new DnCache(size) : null;
+  }
+
+
+  /**
+   * Creates a new DN cache that uses a {@link DefaultDnParser} and a {@link DefaultRDnNormalizer}.
+   *
+   * @param  size  maximum number of DNs to cache
+   */
+  public DnCache(final int size)
+  {
+    this(size, new DefaultDnParser(), new DefaultRDnNormalizer());
+  }
+
+
+  /**
+   * Creates a new DN cache.
+   *
+   * @param  size  maximum number of DNs to cache
+   * @param  p  to parse DNs with
+   * @param  n  to normalize DNs with
+   */
+  public DnCache(final int size, final DnParser p, final RDnNormalizer n)
+  {
+    if (size < 2) {
+      throw new IllegalArgumentException("Cache size must be greater than one");
+    }
+    generationSize = size / 2;
+    parser = LdapUtils.assertNotNullArg(p, "DN parser cannot be null");
+    normalizer = LdapUtils.assertNotNullArg(n, "RDN normalizer cannot be null");
+  }
+
+
+  /**
+   * Returns the cache configured with the <code>org.ldaptive.dn.cacheSize</code> system property.
+   *
+   * @return  default DN cache or null if it is not configured
+   */
+  public static DnCache getDefault()
+  {
+    return DEFAULT_CACHE;
+  }
+
+
+  /**
+   * Returns the parsed DN for the supplied string, parsing it if it is not cached.
+   *
+   * @param  dn  to parse
+   *
+   * @return  frozen DN
+   *
+   * @throws  IllegalArgumentException  if the DN cannot be parsed
+   */
+  public Dn get(final String dn)
+  {
+    return lookup(dn).dn;
+  }
+
+
+  /**
+   * Returns the normalized form of the supplied DN string, parsing it if it is not cached.
+   *
+   * @param  dn  to normalize
+   *
+   * @return  normalized DN
+   *
+   * @throws  IllegalArgumentException  if the DN cannot be parsed
+   */
+  public String normalize(final String dn)
+  {
+    return lookup(dn).normalized;
+  }
+
+
+  /**
+   * Returns the number of cached DNs.
+   *
+   * @return  cache size
+   */
+  public int size()
+  {
+    return current.size() + previous.size();
+  }
+
+
+  /**
+   * Returns the number of lookups that found a cached DN.
+   *
+   * @return  hit count
+   */
+  public long getHitCount()
+  {
+    return hitCount.sum();
+  }
+
+
+  /**
+   * Returns the number of lookups that parsed a DN.
+   *
+   * @return  miss count
+   */
+  public long getMissCount()
+  {
+    return missCount.sum();
+  }
+
+
+  /** Removes all cached DNs. */
+  public void clear()
+  {
+    rotateLock.lock();
+    try {
+      previous = new ConcurrentHashMap<>();
+      current = new ConcurrentHashMap<>();
+    } finally {
+      rotateLock.unlock();
+    }
+  }
+
+
+  /**
+   * Returns the cached DN for the supplied string, parsing and caching it if it is not found.
+   *
+   * @param  dn  to find
+   *
+   * @return  cached DN
+   */
+  private CachedDn lookup(final String dn)
+  {
+    LdapUtils.assertNotNullArg(dn, "DN cannot be null");
+    final Map<String, CachedDn> gen = current;
+    CachedDn cached = gen.get(dn);
+    if (cached != null) {
+      hitCount.increment();
+      return cached;
+    }
+    cached = previous.get(dn);
+    if (cached != null) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+      final Dn parsed = new Dn(dn, parser);
+      parsed.freeze();
+      cached = new CachedDn(parsed, parsed.format(normalizer));
+    }
+    gen.put(dn, cached);
+    if (gen.size() >= generationSize) {
+      rotate(gen);
+    }
+    return cached;
+  }
+
+
+  /**
+   * Makes the supplied generation the previous generation, if it is still the current one, and starts a new current
+   * generation.
+   *
+   * @param  full  generation that reached its maximum size
+   */
+  private void rotate(final Map<String, CachedDn> full)
+  {
+    rotateLock.lock();
+    try {
+      if (current == full) {
+        previous = full;
+        current = new ConcurrentHashMap<>();
+      }
+    } finally {
+      rotateLock.unlock();
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "parser=" + parser + ", " +
+      "normalizer=" + normalizer + ", " +
+      "size=" + size() + ", " +
+      "hitCount=" + hitCount + ", " +
+      "missCount=" + missCount + "]";
+  }
+
+
+  /** Parsed DN and its normalized form. */
+  private static final class CachedDn
+  {
+
+    /** Parsed DN. */
+    private final Dn dn;
+
+    /** Normalized DN. */
+    private final String normalized;
+
+
+    /**
+     * Creates a new cached DN.
+     *
+     * @param  d  parsed DN
+     * @param  n  normalized DN
+     */
+    CachedDn(final Dn d, final String n)
+    {
+      dn = d;
+      normalized = n;
+    }
+  }
+}
@@ -0,0 +1,1092 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.filter;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapAttribute.ValuePredicate;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.dn.DefaultRDnNormalizer;
+import org.ldaptive.dn.Dn;
+import org.ldaptive.dn.NameValue;
+import org.ldaptive.dn.RDn;
+import org.ldaptive.schema.AttributeType;
+import org.ldaptive.schema.MatchingRule;
+import org.ldaptive.schema.Schema;
+import org.ldaptive.transcode.GeneralizedTimeValueTranscoder;
+
+/**
+ * Compiles search filters into predicates that evaluate the filter against an {@link LdapEntry} without contacting a
+ * server. The matching rules for each attribute are resolved from a {@link Schema} when the filter is compiled and
+ * assertion values are normalized once, so the returned predicate only normalizes the entry values it inspects.
+ * Attribute types are matched by any of their names and inherit the matching rules of their superior type. Without a
+ * schema, or for attribute types that are not in the schema or declare no matching rule, values are compared with
+ * case ignore matching. The following matching rules are implemented, any other matching rule declared by an
+ * attribute type is treated as case ignore:
+ *
+ * <ul>
+ *   <li>caseIgnore, caseIgnoreIA5, caseIgnoreList, objectIdentifier and boolean</li>
+ *   <li>caseExact and caseExactIA5</li>
+ *   <li>numericString and telephoneNumber</li>
+ *   <li>integer, octetString, distinguishedName and generalizedTime</li>
+ * </ul>
+ *
+ * <p>Filters are evaluated with the three valued logic of RFC 4511 section 4.5.1.7. An assertion value that is not
+ * valid for the matching rule, or an extensible match with an unknown matching rule, evaluates to undefined. A not
+ * filter of an undefined filter is undefined, an and filter is false if any component is false and an or filter is
+ * true if any component is true, otherwise either is undefined if any component is undefined. An entry only matches
+ * a filter that evaluates to true. Approximate filters are evaluated as equality filters. Attribute descriptions with
+ * options only match attributes with the same options. Predicates are thread safe and may be shared.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class FilterEvaluator
+{
+
+  /** Evaluation of a filter that is always undefined. */
+  private static final Evaluation UNDEFINED = entry -> Match.UNDEFINED;
+
+  /** Schema used to resolve matching rules, may be null. */
+  private final Schema schema;
+
+  /** Resolved attribute descriptions keyed by lower case attribute description. */
+  private final Map<String, AttributeMatcher> attributeMatchers = new ConcurrentHashMap<>();
+
+
+  /** Creates a new filter evaluator that uses case ignore matching for all attributes. */
+  public FilterEvaluator()
+  {
+    this(null);
+  }
+
+
+  /**
+   * Creates a new filter evaluator.
+   *
+   * @param  s  schema used to resolve matching rules, may be null
+   */
+  public FilterEvaluator(final Schema s)
+  {
+    schema = s;
+  }
+
+
+  /**
+   * Returns the schema.
+   *
+   * @return  schema or null
+   */
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+
+  /**
+   * Returns the lower case attribute descriptions that are evaluated for the supplied attribute description. This
+   * includes every name of the attribute type if it is defined in the schema.
+   *
+   * @param  desc  attribute description
+   *
+   * @return  lower case attribute descriptions
+   */
+  public String[] getAttributeNames(final String desc)
+  {
+    return getAttributeMatcher(desc).names.clone();
+  }
+
+
+  /**
+   * Normalizes a value with the equality matching rule of the supplied attribute. Two values are equal under the
+   * matching rule if and only if their normalized values are equal, so normalized values may be used as the keys of an
+   * equality index.
+   *
+   * @param  desc  attribute description
+   * @param  value  to normalize
+   *
+   * @return  normalized value or null if the value is not valid for the matching rule
+   */
+  public Object normalizeValue(final String desc, final byte[] value)
+  {
+    return getAttributeMatcher(desc).equality.normalize(value);
+  }
+
+
+  /**
+   * Parses and compiles the supplied filter.
+   *
+   * @param  filter  to compile
+   *
+   * @return  predicate that evaluates the filter
+   *
+   * @throws  FilterParseException  if the filter is invalid
+   */
+  public Predicate<LdapEntry> compile(final String filter)
+    throws FilterParseException
+  {
+    return compile(FilterParser.parse(filter));
+  }
+
+
+  /**
+   * Compiles the supplied filter. Filters of a type that is not in this package, such as the filters produced by
+   * {@link org.ldaptive.CompiledFilterTemplate}, are parsed from their string representation.
+   *
+   * @param  filter  to compile
+   *
+   * @return  predicate that evaluates the filter
+   *
+   * @throws  IllegalArgumentException  if the filter is null or of an unknown type that cannot be parsed
+   */
+  public Predicate<LdapEntry> compile(final Filter filter)
+  {
+    LdapUtils.assertNotNullArg(filter, "Filter cannot be null");
+    final Evaluation evaluation = compileEvaluation(filter);
+    return entry -> evaluation.evaluate(entry) == Match.TRUE;
+  }
+
+
+  /**
+   * Parses the string representation of a filter of an unknown type.
+   *
+   * @param  filter  to parse
+   *
+   * @return  parsed filter
+   *
+   * @throws  IllegalArgumentException  if the filter cannot be parsed or parses to a filter of an unknown type
+   */
+  private static Filter parseUnknown(final Filter filter)
+  {
+    final Filter parsed;
+    try {
+      parsed = FilterParser.parse(filter.toString());
+    } catch (FilterParseException | RuntimeException e) {
+      throw new IllegalArgumentException("Unsupported filter type: " + filter.getClass().getName(), e);
+    }
+    if (parsed == null || parsed.getClass() == filter.getClass()) {
+      throw new IllegalArgumentException("Unsupported filter type: " + filter.getClass().getName());
+    }
+    return parsed;
+  }
+
+
+  /**
+   * Compiles the supplied filter into a three valued evaluation.
+   *
+   * @param  filter  to compile
+   *
+   * @return  evaluation of the filter
+   *
+   * @throws  IllegalArgumentException  if the filter is of an unknown type that cannot be parsed
+   */
+  private Evaluation compileEvaluation(final Filter filter)
+  {
+    if (filter instanceof AndFilter) {
+      final Evaluation[] components = compileEvaluations(((AndFilter) filter).getComponents());
+      return entry -> {
+        Match match = Match.TRUE;
+        for (Evaluation e : components) {
+          final Match m = e.evaluate(entry);
+          if (m == Match.FALSE) {
+            return Match.FALSE;
+          } else if (m == Match.UNDEFINED) {
+            match = Match.UNDEFINED;
+          }
+        }
+        return match;
+      };
+    } else if (filter instanceof OrFilter) {
+      final Evaluation[] components = compileEvaluations(((OrFilter) filter).getComponents());
+      return entry -> {
+        Match match = Match.FALSE;
+        for (Evaluation e : components) {
+          final Match m = e.evaluate(entry);
+          if (m == Match.TRUE) {
+            return Match.TRUE;
+          } else if (m == Match.UNDEFINED) {
+            match = Match.UNDEFINED;
+          }
+        }
+        return match;
+      };
+    } else if (filter instanceof NotFilter) {
+      final Evaluation component = compileEvaluation(((NotFilter) filter).getComponent());
+      return entry -> component.evaluate(entry).negate();
+    } else if (filter instanceof EqualityFilter || filter instanceof ApproximateFilter) {
+      final AbstractAttributeValueAssertionFilter f = (AbstractAttributeValueAssertionFilter) filter;
+      final AttributeMatcher matcher = getAttributeMatcher(f.getAttributeDesc());
+      final ValuePredicate p = createEqualityPredicate(matcher.equality, f.getAssertionValue());
+      return p != null ? entry -> Match.valueOf(matcher.anyValueMatch(entry, p)) : UNDEFINED;
+    } else if (filter instanceof GreaterOrEqualFilter) {
+      return compileOrdering((AbstractAttributeValueAssertionFilter) filter, true);
+    } else if (filter instanceof LessOrEqualFilter) {
+      return compileOrdering((AbstractAttributeValueAssertionFilter) filter, false);
+    } else if (filter instanceof SubstringFilter) {
+      return compileSubstring((SubstringFilter) filter);
+    } else if (filter instanceof PresenceFilter) {
+      final AttributeMatcher matcher = getAttributeMatcher(((PresenceFilter) filter).getAttributeDesc());
+      return entry -> Match.valueOf(matcher.isPresent(entry));
+    } else if (filter instanceof ExtensibleFilter) {
+      return compileExtensible((ExtensibleFilter) filter);
+    }
+    return compileEvaluation(parseUnknown(filter));
+  }
+
+
+  /**
+   * Compiles each of the supplied filters.
+   *
+   * @param  filters  to compile
+   *
+   * @return  evaluations in the same order as the filters
+   */
+  private Evaluation[] compileEvaluations(final List<Filter> filters)
+  {
+    final Evaluation[] evaluations = new Evaluation[filters.size()];
+    for (int i = 0; i < evaluations.length; i++) {
+      evaluations[i] = compileEvaluation(filters.get(i));
+    }
+    return evaluations;
+  }
+
+
+  /**
+   * Compiles a greater or equal or less or equal filter.
+   *
+   * @param  filter  to compile
+   * @param  greater  whether values must be greater or equal to the assertion
+   *
+   * @return  evaluation of the filter
+   */
+  private Evaluation compileOrdering(
+    final AbstractAttributeValueAssertionFilter filter,
+    final boolean greater)
+  {
+    final AttributeMatcher matcher = getAttributeMatcher(filter.getAttributeDesc());
+    final Rule rule = matcher.ordering;
+    final Object assertion = rule.normalize(filter.getAssertionValue());
+    if (assertion == null) {
+      return UNDEFINED;
+    }
+    final ValuePredicate p = (value, offset, length) -> {
+      final Object normalized = rule.normalize(value, offset, length);
+      if (normalized == null) {
+        return false;
+      }
+      final int compare = rule.compare(normalized, assertion);
+      return greater ? compare >= 0 : compare <= 0;
+    };
+    return entry -> Match.valueOf(matcher.anyValueMatch(entry, p));
+  }
+
+
+  /**
+   * Compiles a substring filter.
+   *
+   * @param  filter  to compile
+   *
+   * @return  evaluation of the filter
+   */
+  private Evaluation compileSubstring(final SubstringFilter filter)
+  {
+    final AttributeMatcher matcher = getAttributeMatcher(filter.getAttributeDesc());
+    final Rule rule = matcher.substring;
+    final String initial = filter.getSubInitial() != null ?
+      rule.normalizeSubstring(LdapUtils.utf8Encode(filter.getSubInitial())) : null;
+    final String fin = filter.getSubFinal() != null ?
+      rule.normalizeSubstring(LdapUtils.utf8Encode(filter.getSubFinal())) : null;
+    final String[] any = filter.getSubAny() != null ?
+      Arrays.stream(filter.getSubAny())
+        .map(b -> rule.normalizeSubstring(LdapUtils.utf8Encode(b)))
+        .toArray(String[]::new) : new String[0];
+    final ValuePredicate p = (value, offset, length) -> {
+      final Object normalized = rule.normalize(value, offset, length);
+      return normalized != null && matchSubstrings((String) normalized, initial, any, fin);
+    };
+    return entry -> Match.valueOf(matcher.anyValueMatch(entry, p));
+  }
+
+
+  /**
+   * Compiles an extensible filter. If the filter has no matching rule the equality rule of the attribute is used. If
+   * the filter has no attribute description every attribute in the entry is tested.
+   *
+   * @param  filter  to compile
+   *
+   * @return  evaluation of the filter
+   */
+  private Evaluation compileExtensible(final ExtensibleFilter filter)
+  {
+    final AttributeMatcher matcher =
+      filter.getAttributeDesc() != null ? getAttributeMatcher(filter.getAttributeDesc()) : null;
+    final Rule rule;
+    if (filter.getMatchingRuleID() != null) {
+      rule = resolveRule(filter.getMatchingRuleID());
+    } else {
+      rule = matcher != null ? matcher.equality : null;
+    }
+    final ValuePredicate p = createEqualityPredicate(rule, filter.getAssertionValue());
+    if (p == null) {
+      return UNDEFINED;
+    }
+    final Predicate<LdapEntry> attributes;
+    if (matcher != null) {
+      attributes = entry -> matcher.anyValueMatch(entry, p);
+    } else {
+      attributes = entry -> {
+        for (LdapAttribute attr : entry.getAttributes()) {
+          if (attr.anyValueMatch(p)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+    if (!filter.getDnAttributes()) {
+      return entry -> Match.valueOf(attributes.test(entry));
+    }
+    return entry -> Match.valueOf(attributes.test(entry) || matchDnAttributes(entry, matcher, p));
+  }
+
+
+  /**
+   * Returns a predicate that tests whether an attribute value is equal to the supplied assertion.
+   *
+   * @param  rule  equality rule
+   * @param  value  assertion value
+   *
+   * @return  predicate or null if the rule is null or the assertion is not valid for the rule
+   */
+  private static ValuePredicate createEqualityPredicate(final Rule rule, final byte[] value)
+  {
+    if (rule == null) {
+      return null;
+    }
+    final Object assertion = rule.normalize(value);
+    if (assertion == null) {
+      return null;
+    }
+    if ((rule == Rule.CASE_IGNORE || rule == Rule.CASE_EXACT) && isAscii((String) assertion)) {
+      // compare ascii values without decoding them, fall back to the rule if the value is not ascii
+      final byte[] ascii = LdapUtils.utf8Encode((String) assertion);
+      final boolean ignoreCase = rule == Rule.CASE_IGNORE;
+      return (v, offset, length) -> {
+        final int match = compareAscii(v, offset, length, ascii, ignoreCase);
+        return match < 0 ? assertion.equals(rule.normalize(v, offset, length)) : match > 0;
+      };
+    }
+    return (v, offset, length) -> rule.equal(rule.normalize(v, offset, length), assertion);
+  }
+
+
+  /**
+   * Returns whether the RDN values of the entry DN match the supplied predicate.
+   *
+   * @param  entry  whose DN is tested
+   * @param  matcher  attribute whose RDN values are tested or null to test all RDN values
+   * @param  p  to test values with
+   *
+   * @return  whether any RDN value matches
+   */
+  private static boolean matchDnAttributes(
+    final LdapEntry entry,
+    final AttributeMatcher matcher,
+    final ValuePredicate p)
+  {
+    final Dn dn = entry.getParsedDn();
+    if (dn == null) {
+      return false;
+    }
+    for (RDn rdn : dn.getRDns()) {
+      for (NameValue nv : rdn.getNameValues()) {
+        if (matcher == null || matcher.hasName(nv.getName())) {
+          final byte[] value = nv.getBinaryValue();
+          if (p.test(value, 0, value.length)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * Returns whether the supplied value matches the substring assertions. Assertions must appear in order and may not
+   * overlap.
+   *
+   * @param  value  normalized value
+   * @param  initial  normalized initial assertion or null
+   * @param  any  normalized any assertions
+   * @param  fin  normalized final assertion or null
+   *
+   * @return  whether the value matches
+   */
+  static boolean matchSubstrings(final String value, final String initial, final String[] any, final String fin)
+  {
+    int start = 0;
+    int end = value.length();
+    if (initial != null) {
+      if (!value.startsWith(initial)) {
+        return false;
+      }
+      start = initial.length();
+    }
+    if (fin != null) {
+      if (end - fin.length() < start || !value.endsWith(fin)) {
+        return false;
+      }
+      end -= fin.length();
+    }
+    for (String s : any) {
+      final int index = value.indexOf(s, start);
+      if (index < 0 || index + s.length() > end) {
+        return false;
+      }
+      start = index + s.length();
+    }
+    return true;
+  }
+
+
+  /**
+   * Compares an attribute value with a normalized ASCII assertion without decoding the value. Leading and trailing
+   * spaces in the value are ignored and consecutive spaces compare equal to a single space, as with {@link
+   * LdapUtils#compressSpace(String, boolean)}.
+   *
+   * @param  value  attribute value
+   * @param  assertion  normalized ASCII assertion
+   * @param  ignoreCase  whether to lower case the value
+   *
+   * @return  1 if the value is equal, 0 if it is not equal or -1 if the value contains non-ASCII bytes before any
+   *          difference was found
+   */
+  static int compareAscii(final byte[] value, final byte[] assertion, final boolean ignoreCase)
+  {
+    return compareAscii(value, 0, value.length, assertion, ignoreCase);
+  }
+
+
+  /**
+   * Compares a range of an array holding an attribute value with a normalized ASCII assertion without decoding the
+   * value. See {@link #compareAscii(byte[], byte[], boolean)}.
+   *
+   * @param  value  array holding the attribute value
+   * @param  offset  of the value in the array
+   * @param  length  of the value
+   * @param  assertion  normalized ASCII assertion
+   * @param  ignoreCase  whether to lower case the value
+   *
+   * @return  1 if the value is equal, 0 if it is not equal or -1 if the value contains non-ASCII bytes before any
+   *          difference was found
+   */
+  static int compareAscii(
+    final byte[] value,
+    final int offset,
+    final int length,
+    final byte[] assertion,
+    final boolean ignoreCase)
+  {
+    int start = offset;
+    int end = offset + length;
+    while (start < end && value[start] == ' ') {
+      start++;
+    }
+    while (end > start && value[end - 1] == ' ') {
+      end--;
+    }
+    int i = start;
+    int j = 0;
+    while (i < end) {
+      byte b = value[i++];
+      if (b < 0) {
+        return -1;
+      } else if (b == ' ') {
+        // the value does not end with a space
+        while (value[i] == ' ') {
+          i++;
+        }
+      } else if (ignoreCase && b >= 'A' && b <= 'Z') {
+        b = (byte) (b + ('a' - 'A'));
+      }
+      if (j == assertion.length || assertion[j++] != b) {
+        return 0;
+      }
+    }
+    return j == assertion.length ? 1 : 0;
+  }
+
+
+  /**
+   * Returns whether the supplied string contains only ASCII characters.
+   *
+   * @param  s  to inspect
+   *
+   * @return  whether s is ASCII
+   */
+  private static boolean isAscii(final String s)
+  {
+    // CheckStyle:MagicNumber OFF
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) > 0x7F) {
+        return false;
+      }
+    }
+    // CheckStyle:MagicNumber ON
+    return true;
+  }
+
+
+  /**
+   * Returns the matcher for the supplied attribute description, creating it if necessary.
+   *
+   * @param  desc  attribute description
+   *
+   * @return  attribute matcher
+   */
+  private AttributeMatcher getAttributeMatcher(final String desc)
+  {
+    return attributeMatchers.computeIfAbsent(LdapUtils.toLowerCase(desc, false), this::createAttributeMatcher);
+  }
+
+
+  /**
+   * Creates a matcher for the supplied attribute description by resolving its attribute type in the schema.
+   *
+   * @param  desc  lower case attribute description
+   *
+   * @return  attribute matcher
+   */
+  private AttributeMatcher createAttributeMatcher(final String desc)
+  {
+    final int optionIndex = desc.indexOf(';');
+    final String type = optionIndex > 0 ? desc.substring(0, optionIndex) : desc;
+    final String options = optionIndex > 0 ? desc.substring(optionIndex) : "";
+    final AttributeType attributeType = schema != null ? schema.getAttributeType(type) : null;
+    if (attributeType == null) {
+      return new AttributeMatcher(new String[] {desc}, Rule.CASE_IGNORE, Rule.CASE_IGNORE, Rule.CASE_IGNORE);
+    }
+    final Set<String> names = new LinkedHashSet<>();
+    names.add(desc);
+    if (attributeType.getNames() != null) {
+      for (String name : attributeType.getNames()) {
+        names.add(LdapUtils.toLowerCase(name) + options);
+      }
+    }
+    final Rule equality = resolveRule(attributeType, AttributeType::getEqualityMatchingRule);
+    final Rule ordering = resolveRule(attributeType, AttributeType::getOrderingMatchingRule);
+    final Rule substring = resolveRule(attributeType, AttributeType::getSubstringMatchingRule);
+    final Rule defaultRule = equality != null ? equality : Rule.CASE_IGNORE;
+    return new AttributeMatcher(
+      names.toArray(String[]::new),
+      defaultRule,
+      ordering != null ? ordering : defaultRule,
+      substring != null && substring.substrings ? substring : defaultRule.substrings ? defaultRule : Rule.CASE_IGNORE);
+  }
+
+
+  /**
+   * Returns the matching rule declared by the supplied attribute type or by its superior types. Declared rules that
+   * are not implemented resolve to {@link Rule#CASE_IGNORE}.
+   *
+   * @param  attributeType  to inspect
+   * @param  func  that returns the matching rule name of an attribute type
+   *
+   * @return  matching rule or null if no rule is declared
+   */
+  private Rule resolveRule(final AttributeType attributeType, final Function<AttributeType, String> func)
+  {
+    final Set<String> visited = new HashSet<>();
+    AttributeType at = attributeType;
+    while (at != null && visited.add(at.getOID())) {
+      final String name = func.apply(at);
+      if (name != null) {
+        final Rule rule = resolveRule(name);
+        return rule != null ? rule : Rule.CASE_IGNORE;
+      }
+      at = at.getSuperiorType() != null ? schema.getAttributeType(at.getSuperiorType()) : null;
+    }
+    return null;
+  }
+
+
+  /**
+   * Returns the matching rule with the supplied name or OID. If the name is not known the schema is used to find
+   * other names for the same rule.
+   *
+   * @param  name  of the matching rule
+   *
+   * @return  matching rule or null if the rule is not implemented
+   */
+  private Rule resolveRule(final String name)
+  {
+    final Rule rule = Rule.forName(name);
+    if (rule != null || schema == null) {
+      return rule;
+    }
+    final MatchingRule matchingRule = schema.getMatchingRule(name);
+    if (matchingRule == null) {
+      return null;
+    }
+    if (matchingRule.getOID() != null && Rule.forName(matchingRule.getOID()) != null) {
+      return Rule.forName(matchingRule.getOID());
+    }
+    if (matchingRule.getNames() != null) {
+      for (String n : matchingRule.getNames()) {
+        if (Rule.forName(n) != null) {
+          return Rule.forName(n);
+        }
+      }
+    }
+    return null;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "schema=" + (schema != null) + "]";
+  }
+
+
+  /** Result of evaluating a filter against an entry. */
+  private enum Match {
+
+    /** Filter matches. */
+    TRUE,
+
+    /** Filter does not match. */
+    FALSE,
+
+    /** Filter cannot be evaluated, see RFC 4511 section 4.5.1.7. */
+    UNDEFINED;
+
+
+    /**
+     * Returns the match for the supplied boolean.
+     *
+     * @param  b  whether the filter matches
+     *
+     * @return  TRUE or FALSE
+     */
+    static Match valueOf(final boolean b)
+    {
+      return b ? TRUE : FALSE;
+    }
+
+
+    /**
+     * Returns the result of a not filter of this result.
+     *
+     * @return  FALSE for TRUE, TRUE for FALSE and UNDEFINED for UNDEFINED
+     */
+    Match negate()
+    {
+      if (this == TRUE) {
+        return FALSE;
+      } else if (this == FALSE) {
+        return TRUE;
+      }
+      return UNDEFINED;
+    }
+  }
+
+
+  /** Evaluates a compiled filter against an entry. */
+  @FunctionalInterface
+  private interface Evaluation
+  {
+
+
+    /**
+     * Evaluates the filter.
+     *
+     * @param  entry  to evaluate
+     *
+     * @return  result of the evaluation
+     */
+    Match evaluate(LdapEntry entry);
+  }
+
+
+  /** Attribute names and matching rules resolved for an attribute description. */
+  private static final class AttributeMatcher
+  {
+
+    /** Lower case attribute descriptions to look up in an entry. */
+    private final String[] names;
+
+    /** Equality matching rule. */
+    private final Rule equality;
+
+    /** Ordering matching rule. */
+    private final Rule ordering;
+
+    /** Substring matching rule. */
+    private final Rule substring;
+
+
+    /**
+     * Creates a new attribute matcher.
+     *
+     * @param  n  attribute descriptions
+     * @param  eq  equality matching rule
+     * @param  ord  ordering matching rule
+     * @param  sub  substring matching rule
+     */
+    AttributeMatcher(final String[] n, final Rule eq, final Rule ord, final Rule sub)
+    {
+      names = n;
+      equality = eq;
+      ordering = ord;
+      substring = sub;
+    }
+
+
+    /**
+     * Returns whether the entry contains this attribute.
+     *
+     * @param  entry  to inspect
+     *
+     * @return  whether the attribute is present
+     */
+    boolean isPresent(final LdapEntry entry)
+    {
+      for (String name : names) {
+        if (entry.hasAttribute(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+
+    /**
+     * Returns whether any value of this attribute in the entry matches the supplied predicate.
+     *
+     * @param  entry  to inspect
+     * @param  p  to test values with
+     *
+     * @return  whether any value matches
+     */
+    boolean anyValueMatch(final LdapEntry entry, final ValuePredicate p)
+    {
+      for (String name : names) {
+        final LdapAttribute attr = entry.getAttribute(name);
+        if (attr != null && attr.anyValueMatch(p)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+
+    /**
+     * Returns whether the supplied attribute name is one of the names of this attribute.
+     *
+     * @param  name  to compare
+     *
+     * @return  whether the name matches
+     */
+    boolean hasName(final String name)
+    {
+      final String lowerName = LdapUtils.toLowerCase(name);
+      for (String n : names) {
+        if (n.equals(lowerName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+
+  /** Implemented matching rules. */
+  private enum Rule {
+
+    /** caseIgnoreMatch and related rules. */
+    CASE_IGNORE(
+      true,
+      "2.5.13.2", "caseIgnoreMatch", "2.5.13.3", "caseIgnoreOrderingMatch", "2.5.13.4", "caseIgnoreSubstringsMatch",
+      "1.3.6.1.4.1.1466.109.114.2", "caseIgnoreIA5Match", "1.3.6.1.4.1.1466.109.114.3", "caseIgnoreIA5SubstringsMatch",
+      "2.5.13.11", "caseIgnoreListMatch", "2.5.13.12", "caseIgnoreListSubstringsMatch",
+      "2.5.13.0", "objectIdentifierMatch", "2.5.13.13", "booleanMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        return LdapUtils.toLowerCase(LdapUtils.compressSpace(value, true));
+      }
+
+
+      @Override
+      String normalizeSubstring(final String value)
+      {
+        return LdapUtils.toLowerCase(LdapUtils.compressSpace(value, false));
+      }
+    },
+
+    /** caseExactMatch and related rules. */
+    CASE_EXACT(
+      true,
+      "2.5.13.5", "caseExactMatch", "2.5.13.6", "caseExactOrderingMatch", "2.5.13.7", "caseExactSubstringsMatch",
+      "1.3.6.1.4.1.1466.109.114.1", "caseExactIA5Match") {
+      @Override
+      Object normalize(final String value)
+      {
+        return LdapUtils.compressSpace(value, true);
+      }
+
+
+      @Override
+      String normalizeSubstring(final String value)
+      {
+        return LdapUtils.compressSpace(value, false);
+      }
+    },
+
+    /** numericStringMatch and related rules. */
+    NUMERIC_STRING(
+      true,
+      "2.5.13.8", "numericStringMatch", "2.5.13.9", "numericStringOrderingMatch",
+      "2.5.13.10", "numericStringSubstringsMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        return value.replace(" ", "");
+      }
+
+
+      @Override
+      String normalizeSubstring(final String value)
+      {
+        return value.replace(" ", "");
+      }
+    },
+
+    /** telephoneNumberMatch and related rules. */
+    TELEPHONE_NUMBER(true, "2.5.13.20", "telephoneNumberMatch", "2.5.13.21", "telephoneNumberSubstringsMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        return normalizeSubstring(value);
+      }
+
+
+      @Override
+      String normalizeSubstring(final String value)
+      {
+        return LdapUtils.toLowerCase(value.replace(" ", "").replace("-", ""));
+      }
+    },
+
+    /** integerMatch and integerOrderingMatch. */
+    INTEGER(false, "2.5.13.14", "integerMatch", "2.5.13.15", "integerOrderingMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        try {
+          return new BigInteger(LdapUtils.trimSpace(value));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    },
+
+    /** octetStringMatch and octetStringOrderingMatch. */
+    OCTET_STRING(false, "2.5.13.17", "octetStringMatch", "2.5.13.18", "octetStringOrderingMatch") {
+      @Override
+      Object normalize(final byte[] value, final int offset, final int length)
+      {
+        return ByteBuffer.wrap(value, offset, length).slice();
+      }
+
+
+      @Override
+      Object normalize(final String value)
+      {
+        return ByteBuffer.wrap(LdapUtils.utf8Encode(value));
+      }
+
+
+      @Override
+      int compare(final Object normalized, final Object assertion)
+      {
+        final ByteBuffer a = (ByteBuffer) normalized;
+        final ByteBuffer b = (ByteBuffer) assertion;
+        return Arrays.compareUnsigned(
+          a.array(), a.arrayOffset(), a.arrayOffset() + a.remaining(),
+          b.array(), b.arrayOffset(), b.arrayOffset() + b.remaining());
+      }
+    },
+
+    /** distinguishedNameMatch. */
+    DISTINGUISHED_NAME(false, "2.5.13.1", "distinguishedNameMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        try {
+          return new Dn(value).format(DN_NORMALIZER);
+        } catch (RuntimeException e) {
+          return null;
+        }
+      }
+    },
+
+    /** generalizedTimeMatch and generalizedTimeOrderingMatch. */
+    GENERALIZED_TIME(false, "2.5.13.27", "generalizedTimeMatch", "2.5.13.28", "generalizedTimeOrderingMatch") {
+      @Override
+      Object normalize(final String value)
+      {
+        try {
+          return TIME_TRANSCODER.decodeStringValue(LdapUtils.trimSpace(value)).toInstant();
+        } catch (RuntimeException e) {
+          return null;
+        }
+      }
+    };
+
+    /** Normalizer for distinguished names. */
+    private static final DefaultRDnNormalizer DN_NORMALIZER = new DefaultRDnNormalizer();
+
+    /** Decoder for generalized time. */
+    private static final GeneralizedTimeValueTranscoder TIME_TRANSCODER = new GeneralizedTimeValueTranscoder();
+
+    /** Rules keyed by lower case name and OID. */
+    private static final Map<String, Rule> RULES = new HashMap<>();
+
+    /** Whether this rule supports substring assertions. */
+    private final boolean substrings;
+
+    /** Names and OIDs of this rule. */
+    private final String[] names;
+
+    static {
+      for (Rule rule : values()) {
+        for (String name : rule.names) {
+          RULES.put(LdapUtils.toLowerCase(name), rule);
+        }
+      }
+    }
+
+
+    /**
+     * Creates a new rule.
+     *
+     * @param  sub  whether the rule supports substring assertions
+     * @param  n  names and OIDs of the rule
+     */
+    Rule(final boolean sub, final String... n)
+    {
+      substrings = sub;
+      names = n;
+    }
+
+
+    /**
+     * Returns the rule with the supplied name or OID.
+     *
+     * @param  name  of the rule
+     *
+     * @return  rule or null
+     */
+    static Rule forName(final String name)
+    {
+      return RULES.get(LdapUtils.toLowerCase(name, false));
+    }
+
+
+    /**
+     * Normalizes the supplied value.
+     *
+     * @param  value  to normalize
+     *
+     * @return  normalized value or null if the value is not valid for this rule
+     */
+    Object normalize(final byte[] value)
+    {
+      LdapUtils.assertNotNullArg(value, "Cannot normalize null value");
+      return normalize(value, 0, value.length);
+    }
+
+
+    /**
+     * Normalizes the value that occupies the supplied range of an array.
+     *
+     * @param  value  array holding the value
+     * @param  offset  of the value in the array
+     * @param  length  of the value
+     *
+     * @return  normalized value or null if the value is not valid for this rule
+     */
+    Object normalize(final byte[] value, final int offset, final int length)
+    {
+      return normalize(new String(value, offset, length, StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Normalizes the supplied value.
+     *
+     * @param  value  to normalize
+     *
+     * @return  normalized value or null if the value is not valid for this rule
+     */
+    abstract Object normalize(String value);
+
+
+    /**
+     * Normalizes a substring assertion. Only invoked for rules that support substrings.
+     *
+     * @param  value  to normalize
+     *
+     * @return  normalized value
+     */
+    String normalizeSubstring(final String value)
+    {
+      throw new UnsupportedOperationException(name() + " does not support substrings");
+    }
+
+
+    /**
+     * Returns whether a normalized value equals a normalized assertion.
+     *
+     * @param  normalized  value, may be null
+     * @param  assertion  to compare
+     *
+     * @return  whether the values are equal
+     */
+    boolean equal(final Object normalized, final Object assertion)
+    {
+      return assertion.equals(normalized);
+    }
+
+
+    /**
+     * Compares a normalized value with a normalized assertion.
+     *
+     * @param  normalized  value
+     * @param  assertion  to compare
+     *
+     * @return  negative, zero or positive if the value is less than, equal to or greater than the assertion
+     */
+    @SuppressWarnings("unchecked")
+    int compare(final Object normalized, final Object assertion)
+    {
+      return ((Comparable<Object>) normalized).compareTo(assertion);
+    }
+  }
+}
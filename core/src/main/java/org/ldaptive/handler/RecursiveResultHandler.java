@@ -3,13 +3,21 @@ package org.ldaptive.handler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.ldaptive.LdapUtils;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchOperationHandle;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResponse;
+import org.ldaptive.auth.ResolverCache;
 import org.ldaptive.transport.AbstractMessageFunctionalEntryHandler;
 
 /**
@@ -40,6 +48,11 @@ import org.ldaptive.transport.AbstractMessageFunctionalEntryHandler;
    member: uugid=group2,ou=groups,dc=ldaptive,dc=org
  * </pre>
  *
+ * <p>Each level of nesting is resolved at once: the searches for every DN on a level are sent before any response is
+ * read, up to {@link #getBatchSize()} at a time. DNs that have already been searched for an entry are skipped, which
+ * also breaks cycles. If a {@link ResolverCache} is configured, entries found by previous searches are reused across
+ * all the entries in a response and across search operations.</p>
+ *
  * This handler should only be used with the {@link org.ldaptive.SearchOperation#execute()} method since it leverages
  * the connection to make further searches.
  *
@@ -52,6 +65,9 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   /** hash code seed. */
   private static final int HASH_CODE_SEED = 829;
 
+  /** Default batch size, value is {@value}. */
+  private static final int DEFAULT_BATCH_SIZE = 100;
+
   /** Attribute to recursively search on. */
   private String searchAttribute;
 
@@ -61,6 +77,12 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   /** Attributes to return when searching, mergeAttributes + searchAttribute. */
   private String[] retAttrs;
 
+  /** Maximum number of searches to send before reading their responses. */
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  /** Cache of DN to entry containing the return attributes, shared by every instance created by this handler. */
+  private ResolverCache<String, LdapEntry> cache;
+
 
   /** Default constructor. */
   public RecursiveResultHandler() {}
@@ -128,6 +150,57 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   }
 
 
+  /**
+   * Returns the maximum number of searches sent before their responses are read.
+   *
+   * @return  batch size
+   */
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+
+  /**
+   * Sets the maximum number of searches sent before their responses are read.
+   *
+   * @param  size  batch size
+   */
+  public void setBatchSize(final int size)
+  {
+    assertMutable();
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be greater than zero");
+    }
+    batchSize = size;
+  }
+
+
+  /**
+   * Returns the cache of DN to entry.
+   *
+   * @return  cache or null if entries are not cached
+   */
+  public ResolverCache<String, LdapEntry> getCache()
+  {
+    return cache;
+  }
+
+
+  /**
+   * Sets the cache of DN to entry. Cached entries contain the search and merge attributes of this handler, so a cache
+   * must only be shared by handlers with the same search and merge attributes. The cache is shared across all entries
+   * and all search operations that use this handler.
+   *
+   * @param  c  cache or null to not cache entries
+   */
+  public void setCache(final ResolverCache<String, LdapEntry> c)
+  {
+    assertMutable();
+    cache = c;
+  }
+
+
   /**
    * Initializes the return attributes array. Must be called after both searchAttribute and mergeAttributes have been
    * set.
@@ -155,15 +228,35 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   @Override
   public void handleEntry(final LdapEntry entry)
   {
-    // Recursively searches a list of attributes and merges those results with
-    // the existing entry.
-    final List<String> searchedDns = new ArrayList<>();
+    // Searches a level of DNs at a time and merges those results with the existing entry.
+    final Set<String> searchedDns = new HashSet<>();
     try {
+      List<String> dns;
       if (entry.getAttribute(searchAttribute) != null) {
-        searchedDns.add(entry.getDn());
-        readSearchAttribute(entry, searchedDns);
+        searchedDns.add(normalize(entry.getDn()));
+        dns = readSearchAttribute(entry);
       } else {
-        recursiveSearch(entry.getDn(), entry, searchedDns);
+        dns = List.of(entry.getDn());
+      }
+      while (!dns.isEmpty()) {
+        final List<String> unsearchedDns = new ArrayList<>(dns.size());
+        for (String dn : dns) {
+          if (searchedDns.add(normalize(dn))) {
+            unsearchedDns.add(dn);
+          }
+        }
+        final List<String> nextDns = new ArrayList<>();
+        for (LdapEntry newEntry : resolve(unsearchedDns)) {
+          nextDns.addAll(readSearchAttribute(newEntry));
+          // merge new attribute values
+          for (String s : mergeAttributes) {
+            final LdapAttribute newAttr = newEntry.getAttribute(s);
+            if (newAttr != null) {
+              entry.mergeAttributes(newAttr);
+            }
+          }
+        }
+        dns = nextDns;
       }
     } catch (LdapException e) {
       throw new RuntimeException(e);
@@ -172,64 +265,145 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
 
 
   /**
-   * Reads the values of {@link #searchAttribute} from the supplied attributes and calls {@link #recursiveSearch} for
-   * each.
+   * Returns the values of {@link #searchAttribute} from the supplied entry.
    *
    * @param  entry  to read
-   * @param  searchedDns  list of DNs whose attributes have been read
+   *
+   * @return  DNs to search
+   */
+  private List<String> readSearchAttribute(final LdapEntry entry)
+  {
+    final LdapAttribute attr = entry.getAttribute(searchAttribute);
+    if (attr != null && !attr.isBinary()) {
+      return new ArrayList<>(attr.getStringValues());
+    }
+    return List.of();
+  }
+
+
+  /**
+   * Returns the entries for the supplied DNs, reading from the cache if one is configured and searching for the rest
+   * in batches of {@link #batchSize}. DNs that do not exist are omitted and cached as an entry without attributes. DNs
+   * whose search fails for any other reason are omitted and not cached.
+   *
+   * @param  dns  to resolve
+   *
+   * @return  entries containing the return attributes
    *
    * @throws  LdapException  if an error occurs performing a search
    */
-  private void readSearchAttribute(final LdapEntry entry, final List<String> searchedDns)
+  private List<LdapEntry> resolve(final List<String> dns)
     throws LdapException
   {
-    if (entry != null) {
-      final LdapAttribute attr = entry.getAttribute(searchAttribute);
-      if (attr != null && !attr.isBinary()) {
-        final List<String> values = new ArrayList<>(attr.getStringValues());
-        for (String s : values) {
-          recursiveSearch(s, entry, searchedDns);
+    final List<LdapEntry> entries = new ArrayList<>(dns.size());
+    final List<String> uncachedDns = new ArrayList<>(dns.size());
+    for (String dn : dns) {
+      final LdapEntry cached = cache != null ? cache.getIfPresent(normalize(dn)) : null;
+      if (cached != null) {
+        if (cached.size() > 0) {
+          entries.add(cached);
+        }
+      } else {
+        uncachedDns.add(dn);
+      }
+    }
+    for (int i = 0; i < uncachedDns.size(); i += batchSize) {
+      final List<String> batch = uncachedDns.subList(i, Math.min(i + batchSize, uncachedDns.size()));
+      final Map<String, SearchResponse> results = performSearches(batch, retAttrs);
+      for (String dn : batch) {
+        final SearchResponse result = results.get(dn);
+        final LdapEntry newEntry;
+        if (result != null && result.isSuccess() && result.entrySize() == 1) {
+          newEntry = LdapEntry.copy(result.getEntry());
+          newEntry.freeze();
+          entries.add(newEntry);
+        } else if (result != null && isNotFound(result)) {
+          // cache an entry without attributes for DNs that do not exist
+          newEntry = LdapEntry.builder().dn(dn).freeze().build();
+        } else {
+          // do not cache failures, the DN is searched again by the next entry
+          logger.warn("Could not resolve {} for {}, received {}", dn, this, result);
+          continue;
+        }
+        if (cache != null) {
+          cache.put(normalize(dn), newEntry);
         }
       }
     }
+    return entries;
   }
 
 
   /**
-   * Recursively gets the attribute(s) {@link #mergeAttributes} for the supplied dn and adds the values to the supplied
-   * attributes.
+   * Returns whether the supplied object scope search result indicates that its base DN does not exist.
    *
-   * @param  dn  to get attribute(s) for
-   * @param  entry  to merge with
-   * @param  searchedDns  list of DNs that have been searched for
+   * @param  result  to inspect
    *
-   * @throws  LdapException  if an error occurs performing a search
+   * @return  whether the result is no such object or a success without entries
    */
-  private void recursiveSearch(final String dn, final LdapEntry entry, final List<String> searchedDns)
-    throws LdapException
+  private static boolean isNotFound(final SearchResponse result)
   {
-    if (!searchedDns.contains(dn)) {
+    return ResultCode.NO_SUCH_OBJECT == result.getResultCode() || result.isSuccess() && result.entrySize() == 0;
+  }
 
-      LdapEntry newEntry = null;
-      final SearchResponse result = performSearch(dn, retAttrs);
-      if (result.isSuccess() && result.entrySize() == 1) {
-        newEntry = LdapEntry.copy(result.getEntry());
-      }
-      searchedDns.add(dn);
 
-      if (newEntry != null) {
-        // recursively search new attributes
-        readSearchAttribute(newEntry, searchedDns);
+  /**
+   * Returns the key used to identify the supplied DN in the set of searched DNs and in the cache.
+   *
+   * @param  dn  to normalize
+   *
+   * @return  lower case DN
+   */
+  private static String normalize(final String dn)
+  {
+    return LdapUtils.toLowerCase(dn);
+  }
 
-        // merge new attribute values
-        for (String s : mergeAttributes) {
-          final LdapAttribute newAttr = newEntry.getAttribute(s);
-          if (newAttr != null) {
-            entry.mergeAttributes(newAttr);
+
+  /**
+   * Performs an object scope search on each of the supplied DNs. If this handler is attached to a connection all the
+   * searches are sent before any response is read, so that a level of nested groups costs a single round trip.
+   * Otherwise each DN is searched with {@link #performSearch(String, String[])}.
+   *
+   * @param  baseDns  to search on
+   * @param  attrs  attributes to return
+   *
+   * @return  map of DN to search response
+   *
+   * @throws  LdapException  if a search operation fails
+   */
+  protected Map<String, SearchResponse> performSearches(final List<String> baseDns, final String[] attrs)
+    throws LdapException
+  {
+    final Map<String, SearchResponse> results = new HashMap<>(baseDns.size() * 2);
+    if (getConnection() == null || baseDns.size() == 1) {
+      for (String dn : baseDns) {
+        results.put(dn, performSearch(dn, attrs));
+      }
+      return results;
+    }
+    final Map<String, SearchOperationHandle> handles = new LinkedHashMap<>(baseDns.size() * 2);
+    try {
+      for (String dn : baseDns) {
+        handles.put(dn, getConnection().operation(SearchRequest.objectScopeSearchRequest(dn, attrs)).send());
+      }
+      for (Map.Entry<String, SearchOperationHandle> e : handles.entrySet()) {
+        results.put(e.getKey(), e.getValue().await());
+      }
+    } catch (LdapException | RuntimeException e) {
+      // abandon the searches whose responses will not be read
+      for (SearchOperationHandle handle : handles.values()) {
+        if (handle.getReceivedTime() == null && handle.getAbandonedTime() == null) {
+          try {
+            handle.abandon();
+          } catch (Exception ex) {
+            logger.debug("Could not abandon {}", handle, ex);
           }
         }
       }
+      throw e;
     }
+    return results;
   }
 
 
@@ -253,7 +427,10 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   @Override
   public RecursiveResultHandler newInstance()
   {
-    return new RecursiveResultHandler(searchAttribute, mergeAttributes);
+    final RecursiveResultHandler handler = new RecursiveResultHandler(searchAttribute, mergeAttributes);
+    handler.setBatchSize(batchSize);
+    handler.setCache(cache);
+    return handler;
   }
 
 
@@ -267,7 +444,9 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
       final RecursiveResultHandler v = (RecursiveResultHandler) o;
       return LdapUtils.areEqual(mergeAttributes, v.mergeAttributes) &&
              LdapUtils.areEqual(retAttrs, v.retAttrs) &&
-             LdapUtils.areEqual(searchAttribute, v.searchAttribute);
+             LdapUtils.areEqual(searchAttribute, v.searchAttribute) &&
+             batchSize == v.batchSize &&
+             LdapUtils.areEqual(cache, v.cache);
     }
     return false;
   }
@@ -276,7 +455,7 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
   @Override
   public int hashCode()
   {
-    return LdapUtils.computeHashCode(HASH_CODE_SEED, mergeAttributes, retAttrs, searchAttribute);
+    return LdapUtils.computeHashCode(HASH_CODE_SEED, mergeAttributes, retAttrs, searchAttribute, batchSize, cache);
   }
 
 
@@ -287,6 +466,8 @@ public class RecursiveResultHandler extends AbstractMessageFunctionalEntryHandle
       getClass().getName() + "@" + hashCode() + "::" +
       "searchAttribute=" + searchAttribute + ", " +
       "mergeAttributes=" + Arrays.toString(mergeAttributes) + ", " +
-      "retAttrs=" + Arrays.toString(retAttrs) + "]";
+      "retAttrs=" + Arrays.toString(retAttrs) + ", " +
+      "batchSize=" + batchSize + ", " +
+      "cache=" + cache + "]";
   }
 }
@@ -15,8 +15,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Reads an LDIF from a {@link Reader} and returns a {@link SearchResponse}. This implementation only supports entry
- * records. It does not support change records or include statements.
+ * Reads an LDIF from a {@link Reader} and returns a {@link SearchResponse}. Entries can also be read one at a time with
+ * {@link #readEntry()}, which does not hold the entire LDIF in memory. This implementation only supports entry records.
+ * It does not support change records or include statements.
  *
  * @author  Middleware Services
  */
@@ -32,6 +33,9 @@ public class LdifReader implements SearchResultReader
   /** Reader to read from. */
   private final Reader ldifReader;
 
+  /** Buffered reader used by {@link #readEntry()}. */
+  private BufferedReader entryReader;
+
 
   /**
    * Creates a new ldif reader.
@@ -57,30 +61,73 @@ public class LdifReader implements SearchResultReader
   {
     final SearchResponse result = new SearchResponse();
     final BufferedReader br = new BufferedReader(ldifReader);
+    List<String> section;
+    while ((section = readNextSection(br)) != null) {
+      if (section.get(0).startsWith("dn")) {
+        result.addEntries(parseEntry(section));
+      } else if (section.get(0).startsWith("ref")) {
+        result.addReferences(parseReference(section));
+      } else {
+        logger.debug("Unknown LDIF section {}", section.get(0));
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Reads the next entry record from the reader. Any other records are skipped. Use this method rather than {@link
+   * #read()} to process an LDIF that is too large to hold in memory.
+   *
+   * @return  next entry or null if the reader has no more entries
+   *
+   * @throws  IOException  if an error occurs using the reader
+   */
+  public LdapEntry readEntry()
+    throws IOException
+  {
+    if (entryReader == null) {
+      entryReader = new BufferedReader(ldifReader);
+    }
+    List<String> section;
+    while ((section = readNextSection(entryReader)) != null) {
+      if (section.get(0).startsWith("dn")) {
+        return parseEntry(section);
+      }
+      logger.debug("Skipping LDIF section {}", section.get(0));
+    }
+    return null;
+  }
+
+
+  /**
+   * Reads the next non-empty section from the supplied reader, skipping empty lines and removing any version line.
+   *
+   * @param  br  to read
+   *
+   * @return  list of lines in the section or null if the reader is empty
+   *
+   * @throws  IOException  if an error occurs reading
+   */
+  private List<String> readNextSection(final BufferedReader br)
+    throws IOException
+  {
     String line;
     br.mark(READ_AHEAD_LIMIT);
     while ((line = br.readLine()) != null) {
       if (!line.isEmpty()) {
         br.reset();
         final List<String> section = readSection(br);
+        if (!section.isEmpty() && section.get(0).startsWith("version")) {
+          section.remove(0);
+        }
         if (!section.isEmpty()) {
-          if (section.get(0).startsWith("version")) {
-            section.remove(0);
-          }
-          if (!section.isEmpty()) {
-            if (section.get(0).startsWith("dn")) {
-              result.addEntries(parseEntry(section));
-            } else if (section.get(0).startsWith("ref")) {
-              result.addReferences(parseReference(section));
-            } else {
-              logger.debug("Unknown LDIF section {}", section.get(0));
-            }
-          }
+          return section;
         }
       }
       br.mark(READ_AHEAD_LIMIT);
     }
-    return result;
+    return null;
   }
 
 
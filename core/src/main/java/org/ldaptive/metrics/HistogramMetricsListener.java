@@ -0,0 +1,455 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.ldaptive.LdapURL;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.Request;
+import org.ldaptive.ResultCode;
+
+/**
+ * Metrics listener that records operation latencies per request type and LDAP URL, and pool check out and create
+ * latencies per pool, in {@link LatencyHistogram}. Byte, reconnect, validation, prune and cache events are recorded
+ * as counters. Histograms and counters are created the first time a key is seen and are retained for the life of the
+ * listener; use {@link #reset()} to clear them. The histograms and counters of each LDAP URL are cached by URL, so
+ * recording a connection measurement does not build a key.
+ *
+ * @author  Middleware Services
+ */
+public class HistogramMetricsListener implements MetricsListener
+{
+
+  /** Key used for measurements that have no LDAP URL. */
+  private static final String UNKNOWN_URL = "";
+
+  /** Operation latencies. */
+  private final Map<OperationKey, LatencyHistogram> operationLatencies = new ConcurrentHashMap<>();
+
+  /** Pool check out latencies. */
+  private final Map<String, LatencyHistogram> checkOutLatencies = new ConcurrentHashMap<>();
+
+  /** Pool create latencies. */
+  private final Map<String, LatencyHistogram> createLatencies = new ConcurrentHashMap<>();
+
+  /** Counters. */
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  /** Histograms and counters of each LDAP URL. */
+  private final Map<LdapURL, UrlMetrics> urlMetrics = new ConcurrentHashMap<>();
+
+  /** Number of bits of precision for each histogram. */
+  private final int precision;
+
+  /** Histograms and counters of measurements that have no LDAP URL. */
+  private volatile UrlMetrics unknownUrlMetrics = new UrlMetrics(UNKNOWN_URL);
+
+
+  /** Creates a new histogram metrics listener with {@link LatencyHistogram#DEFAULT_PRECISION}. */
+  public HistogramMetricsListener()
+  {
+    this(LatencyHistogram.DEFAULT_PRECISION);
+  }
+
+
+  /**
+   * Creates a new histogram metrics listener.
+   *
+   * @param  bits  of precision for each histogram, see {@link LatencyHistogram#LatencyHistogram(int)}
+   */
+  public HistogramMetricsListener(final int bits)
+  {
+    // CheckStyle:MagicNumber OFF
+    if (bits < 1 || bits > 16) {
+      throw new IllegalArgumentException("Precision must be between 1 and 16");
+    }
+    // CheckStyle:MagicNumber ON
+    precision = bits;
+  }
+
+
+  @Override
+  public void operationCompleted(
+    final Request request,
+    final LdapURL url,
+    final ResultCode resultCode,
+    final Duration latency)
+  {
+    final UrlMetrics metrics = getUrlMetrics(url);
+    metrics.latency(request.getClass()).record(latency);
+    if (resultCode == null) {
+      metrics.counter("operation.exception").increment();
+    }
+  }
+
+
+  @Override
+  public void operationAbandoned(final Request request, final LdapURL url)
+  {
+    getUrlMetrics(url).counter("operation.abandoned").increment();
+  }
+
+
+  @Override
+  public void bytesRead(final LdapURL url, final int bytes)
+  {
+    getUrlMetrics(url).counter("bytes.read").add(bytes);
+  }
+
+
+  @Override
+  public void bytesWritten(final LdapURL url, final int bytes)
+  {
+    getUrlMetrics(url).counter("bytes.written").add(bytes);
+  }
+
+
+  @Override
+  public void connectionReconnected(final LdapURL url, final boolean success)
+  {
+    getUrlMetrics(url).counter(success ? "connection.reconnect" : "connection.reconnect.failed").increment();
+  }
+
+
+  @Override
+  public void poolCheckOut(final String pool, final Duration wait, final boolean success)
+  {
+    if (success) {
+      checkOutLatencies.computeIfAbsent(pool, k -> new LatencyHistogram(precision)).record(wait);
+    } else {
+      add("pool.checkout.failed", pool, 1);
+    }
+  }
+
+
+  @Override
+  public void poolConnectionCreated(final String pool, final Duration time, final boolean success)
+  {
+    if (success) {
+      createLatencies.computeIfAbsent(pool, k -> new LatencyHistogram(precision)).record(time);
+    } else {
+      add("pool.create.failed", pool, 1);
+    }
+  }
+
+
+  @Override
+  public void poolConnectionValidated(final String pool, final boolean valid)
+  {
+    add(valid ? "pool.validate" : "pool.validate.failed", pool, 1);
+  }
+
+
+  @Override
+  public void poolConnectionsPruned(final String pool, final int count)
+  {
+    add("pool.prune", pool, count);
+  }
+
+
+  @Override
+  public void cacheAccess(final String cache, final boolean hit)
+  {
+    add(hit ? "cache.hit" : "cache.miss", cache, 1);
+  }
+
+
+  /**
+   * Returns the latency histogram for operations of the supplied type on the supplied URL.
+   *
+   * @param  type  of request
+   * @param  url  of the connection
+   *
+   * @return  latency histogram or null if no operations have been recorded
+   */
+  public LatencyHistogram getOperationLatency(final Class<? extends Request> type, final LdapURL url)
+  {
+    return operationLatencies.get(new OperationKey(type, toKey(url)));
+  }
+
+
+  /**
+   * Returns the latency histograms for all operations.
+   *
+   * @return  unmodifiable map of operation type and URL to latency histogram
+   */
+  public Map<OperationKey, LatencyHistogram> getOperationLatencies()
+  {
+    return Collections.unmodifiableMap(operationLatencies);
+  }
+
+
+  /**
+   * Returns the check out latency histogram for the supplied pool.
+   *
+   * @param  pool  name of the pool
+   *
+   * @return  latency histogram or null if no check outs have been recorded
+   */
+  public LatencyHistogram getCheckOutLatency(final String pool)
+  {
+    return checkOutLatencies.get(pool);
+  }
+
+
+  /**
+   * Returns the create latency histogram for the supplied pool.
+   *
+   * @param  pool  name of the pool
+   *
+   * @return  latency histogram or null if no creates have been recorded
+   */
+  public LatencyHistogram getCreateLatency(final String pool)
+  {
+    return createLatencies.get(pool);
+  }
+
+
+  /**
+   * Returns the value of every counter. Counter names are of the form <code>name[url]</code> for connection
+   * measurements, <code>name[pool]</code> for pool measurements and <code>name[cache]</code> for cache measurements,
+   * for example <code>bytes.read[ldap://directory:389]</code>.
+   *
+   * @return  unmodifiable map of counter name to value
+   */
+  public Map<String, Long> getCounters()
+  {
+    final Map<String, Long> values = new ConcurrentHashMap<>(counters.size());
+    counters.forEach((k, v) -> values.put(k, v.sum()));
+    return Collections.unmodifiableMap(values);
+  }
+
+
+  /**
+   * Returns the value of the counter with the supplied name.
+   *
+   * @param  name  of the counter
+   * @param  url  of the connection
+   *
+   * @return  counter value
+   */
+  public long getCounter(final String name, final LdapURL url)
+  {
+    return getCounter(name, toKey(url));
+  }
+
+
+  /**
+   * Returns the value of the counter with the supplied name.
+   *
+   * @param  name  of the counter
+   * @param  pool  name of the pool or cache
+   *
+   * @return  counter value
+   */
+  public long getCounter(final String name, final String pool)
+  {
+    final LongAdder adder = counters.get(name + "[" + pool + "]");
+    return adder != null ? adder.sum() : 0;
+  }
+
+
+  /** Removes all histograms and counters. */
+  public void reset()
+  {
+    urlMetrics.clear();
+    unknownUrlMetrics = new UrlMetrics(UNKNOWN_URL);
+    operationLatencies.clear();
+    checkOutLatencies.clear();
+    createLatencies.clear();
+    counters.clear();
+  }
+
+
+  /**
+   * Returns the histograms and counters of the supplied URL, creating them if this is the first measurement for the
+   * URL.
+   *
+   * @param  url  of the connection or null
+   *
+   * @return  URL metrics
+   */
+  private UrlMetrics getUrlMetrics(final LdapURL url)
+  {
+    if (url == null) {
+      return unknownUrlMetrics;
+    }
+    return urlMetrics.computeIfAbsent(url, u -> new UrlMetrics(toKey(u)));
+  }
+
+
+  /**
+   * Adds to the counter with the supplied name.
+   *
+   * @param  name  of the counter
+   * @param  key  URL or pool name
+   * @param  value  to add
+   */
+  private void add(final String name, final String key, final long value)
+  {
+    counters.computeIfAbsent(name + "[" + key + "]", k -> new LongAdder()).add(value);
+  }
+
+
+  /**
+   * Returns the key for the supplied URL.
+   *
+   * @param  url  to convert
+   *
+   * @return  URL key
+   */
+  private static String toKey(final LdapURL url)
+  {
+    return url != null ? url.getHostnameWithSchemeAndPort() : UNKNOWN_URL;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "operationLatencies=" + operationLatencies.keySet() + ", " +
+      "checkOutLatencies=" + checkOutLatencies.keySet() + ", " +
+      "createLatencies=" + createLatencies.keySet() + ", " +
+      "counters=" + counters.keySet() + "]";
+  }
+
+
+  /**
+   * Histograms and counters of a single LDAP URL. Each is resolved from the maps of the listener the first time it is
+   * used and then looked up by request type or counter name, without building a key.
+   */
+  private final class UrlMetrics
+  {
+
+    /** URL key. */
+    private final String key;
+
+    /** Operation latencies by request type. */
+    private final Map<Class<?>, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    /** Counters by name. */
+    private final Map<String, LongAdder> adders = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates new URL metrics.
+     *
+     * @param  k  URL key
+     */
+    UrlMetrics(final String k)
+    {
+      key = k;
+    }
+
+
+    /**
+     * Returns the latency histogram for the supplied request type.
+     *
+     * @param  type  of request
+     *
+     * @return  latency histogram
+     */
+    LatencyHistogram latency(final Class<?> type)
+    {
+      return latencies.computeIfAbsent(
+        type,
+        t -> operationLatencies.computeIfAbsent(new OperationKey(t, key), k -> new LatencyHistogram(precision)));
+    }
+
+
+    /**
+     * Returns the counter with the supplied name.
+     *
+     * @param  name  of the counter
+     *
+     * @return  counter
+     */
+    LongAdder counter(final String name)
+    {
+      return adders.computeIfAbsent(name, n -> counters.computeIfAbsent(n + "[" + key + "]", k -> new LongAdder()));
+    }
+  }
+
+
+  /** Request type and LDAP URL for which operation latencies are recorded. */
+  public static final class OperationKey
+  {
+
+    /** hash code seed. */
+    private static final int HASH_CODE_SEED = 10463;
+
+    /** Request type. */
+    private final Class<?> type;
+
+    /** LDAP URL. */
+    private final String url;
+
+
+    /**
+     * Creates a new operation key.
+     *
+     * @param  t  request type
+     * @param  u  LDAP URL
+     */
+    OperationKey(final Class<?> t, final String u)
+    {
+      type = t;
+      url = u;
+    }
+
+
+    /**
+     * Returns the request type.
+     *
+     * @return  request type
+     */
+    public Class<?> getType()
+    {
+      return type;
+    }
+
+
+    /**
+     * Returns the LDAP URL, with scheme, hostname and port.
+     *
+     * @return  LDAP URL or empty string if the URL is unknown
+     */
+    public String getUrl()
+    {
+      return url;
+    }
+
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof OperationKey) {
+        final OperationKey v = (OperationKey) o;
+        return LdapUtils.areEqual(type, v.type) && LdapUtils.areEqual(url, v.url);
+      }
+      return false;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+      return LdapUtils.computeHashCode(HASH_CODE_SEED, type, url);
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return type.getSimpleName() + "[" + url + "]";
+    }
+  }
+}
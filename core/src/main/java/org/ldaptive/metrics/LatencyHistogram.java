@@ -0,0 +1,224 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in nanoseconds, with buckets laid out in the same manner as an HDR histogram. Values
+ * below 2<sup>precision</sup> are counted exactly; larger values are counted in buckets whose width doubles with each
+ * power of two, so every recorded value is within a relative error of 2<sup>-precision</sup> of its bucket. Recording
+ * a value is a single atomic increment and never allocates, so a histogram may be updated by any number of threads.
+ * Percentiles computed while values are being recorded reflect some subset of the concurrent updates.
+ *
+ * @author  Middleware Services
+ */
+public final class LatencyHistogram
+{
+
+  /** Default number of bits of precision, which provides a relative error of less than 1%. */
+  public static final int DEFAULT_PRECISION = 7;
+
+  /** Largest value that can be recorded, about 39 hours. Larger values are recorded as this value. */
+  public static final long MAX_VALUE = (1L << 47) - 1;
+
+  /** Number of bits of precision. */
+  private final int precision;
+
+  /** Number of buckets for each power of two. */
+  private final int subBucketCount;
+
+  /** Count of values recorded in each bucket. */
+  private final AtomicLongArray counts;
+
+  /** Number of recorded values. */
+  private final AtomicLong totalCount = new AtomicLong();
+
+  /** Sum of the recorded values. */
+  private final AtomicLong totalValue = new AtomicLong();
+
+  /** Largest recorded value. */
+  private final AtomicLong maxValue = new AtomicLong();
+
+
+  /** Creates a new latency histogram with {@link #DEFAULT_PRECISION}. */
+  public LatencyHistogram()
+  {
+    this(DEFAULT_PRECISION);
+  }
+
+
+  /**
+   * Creates a new latency histogram.
+   *
+   * @param  bits  of precision, between 1 and 16
+   */
+  public LatencyHistogram(final int bits)
+  {
+    // CheckStyle:MagicNumber OFF
+    if (bits < 1 || bits > 16) {
+      throw new IllegalArgumentException("Precision must be between 1 and 16");
+    }
+    // CheckStyle:MagicNumber ON
+    precision = bits;
+    subBucketCount = 1 << bits;
+    counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+  }
+
+
+  /**
+   * Records the supplied latency.
+   *
+   * @param  latency  to record
+   */
+  public void record(final Duration latency)
+  {
+    record(latency.toNanos());
+  }
+
+
+  /**
+   * Records the supplied number of nanoseconds. Negative values are recorded as zero.
+   *
+   * @param  nanos  to record
+   */
+  public void record(final long nanos)
+  {
+    final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    totalValue.addAndGet(value);
+    long max = maxValue.get();
+    while (value > max && !maxValue.compareAndSet(max, value)) {
+      max = maxValue.get();
+    }
+  }
+
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return  count
+   */
+  public long getCount()
+  {
+    return totalCount.get();
+  }
+
+
+  /**
+   * Returns the largest recorded value.
+   *
+   * @return  maximum latency
+   */
+  public Duration getMax()
+  {
+    return Duration.ofNanos(maxValue.get());
+  }
+
+
+  /**
+   * Returns the mean of the recorded values.
+   *
+   * @return  mean latency
+   */
+  public Duration getMean()
+  {
+    final long count = totalCount.get();
+    return count == 0 ? Duration.ZERO : Duration.ofNanos(totalValue.get() / count);
+  }
+
+
+  /**
+   * Returns the value below which the supplied percentage of recorded values fall. The value returned is the highest
+   * value in the bucket containing the percentile, limited to the largest recorded value.
+   *
+   * @param  percentile  between 0 and 100
+   *
+   * @return  latency at the percentile or zero if no values have been recorded
+   */
+  public Duration getValueAtPercentile(final double percentile)
+  {
+    // CheckStyle:MagicNumber OFF
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    final long count = totalCount.get();
+    if (count == 0) {
+      return Duration.ZERO;
+    }
+    final long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    // CheckStyle:MagicNumber ON
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Duration.ofNanos(Math.min(highestValueAt(i), maxValue.get()));
+      }
+    }
+    return getMax();
+  }
+
+
+  /** Removes all recorded values. Values recorded concurrently with a reset may be partially retained. */
+  public void reset()
+  {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    totalValue.set(0);
+    maxValue.set(0);
+  }
+
+
+  /**
+   * Returns the index of the bucket for the supplied value.
+   *
+   * @param  value  between 0 and {@link #MAX_VALUE}
+   *
+   * @return  bucket index
+   */
+  int indexOf(final long value)
+  {
+    if (value < subBucketCount) {
+      return (int) value;
+    }
+    final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - precision;
+    return (shift + 1) * subBucketCount + (int) (value >>> shift) - subBucketCount;
+  }
+
+
+  /**
+   * Returns the highest value counted by the bucket at the supplied index.
+   *
+   * @param  index  of the bucket
+   *
+   * @return  highest value in the bucket
+   */
+  long highestValueAt(final int index)
+  {
+    if (index < subBucketCount) {
+      return index;
+    }
+    final int shift = index / subBucketCount - 1;
+    final long sub = index % subBucketCount + subBucketCount;
+    return ((sub + 1) << shift) - 1;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    // CheckStyle:MagicNumber OFF
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "count=" + getCount() + ", " +
+      "mean=" + getMean() + ", " +
+      "p50=" + getValueAtPercentile(50) + ", " +
+      "p99=" + getValueAtPercentile(99) + ", " +
+      "max=" + getMax() + "]";
+    // CheckStyle:MagicNumber ON
+  }
+}
@@ -0,0 +1,126 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.metrics;
+
+import java.time.Duration;
+import org.ldaptive.LdapURL;
+import org.ldaptive.Request;
+import org.ldaptive.ResultCode;
+
+/**
+ * Receives measurements from operations, connections and connection pools. Every method has an empty default
+ * implementation so that listeners only implement the measurements they record. Methods are invoked synchronously on
+ * the thread that produced the measurement, which is frequently an I/O thread, so implementations must be thread safe
+ * and must not block. See {@link HistogramMetricsListener} for an implementation that records latency histograms.
+ *
+ * @author  Middleware Services
+ */
+public interface MetricsListener
+{
+
+
+  /**
+   * Invoked when an operation completes, either with a result or with an exception.
+   *
+   * @param  request  of the operation
+   * @param  url  of the connection the operation was sent on, may be null
+   * @param  resultCode  of the operation result or null if the operation produced an exception
+   * @param  latency  time between sending the request and completing the operation
+   */
+  default void operationCompleted(
+    final Request request,
+    final LdapURL url,
+    final ResultCode resultCode,
+    final Duration latency) {}
+
+
+  /**
+   * Invoked when an operation is abandoned.
+   *
+   * @param  request  of the operation
+   * @param  url  of the connection the operation was sent on, may be null
+   */
+  default void operationAbandoned(final Request request, final LdapURL url) {}
+
+
+  /**
+   * Invoked when the number of operations waiting for a response on a connection changes.
+   *
+   * @param  url  of the connection
+   * @param  count  number of operations waiting for a response
+   */
+  default void pendingOperations(final LdapURL url, final int count) {}
+
+
+  /**
+   * Invoked when bytes are read from a connection.
+   *
+   * @param  url  of the connection
+   * @param  bytes  number of bytes read
+   */
+  default void bytesRead(final LdapURL url, final int bytes) {}
+
+
+  /**
+   * Invoked when bytes are written to a connection.
+   *
+   * @param  url  of the connection
+   * @param  bytes  number of bytes written
+   */
+  default void bytesWritten(final LdapURL url, final int bytes) {}
+
+
+  /**
+   * Invoked when a connection attempts to reconnect after it was unexpectedly closed.
+   *
+   * @param  url  of the connection after the attempt, may be null if the attempt failed
+   * @param  success  whether the connection was reopened
+   */
+  default void connectionReconnected(final LdapURL url, final boolean success) {}
+
+
+  /**
+   * Invoked when a connection is checked out of a pool, or the check out fails.
+   *
+   * @param  pool  name of the pool
+   * @param  wait  time spent waiting for the connection
+   * @param  success  whether a connection was checked out
+   */
+  default void poolCheckOut(final String pool, final Duration wait, final boolean success) {}
+
+
+  /**
+   * Invoked when a pool creates a connection.
+   *
+   * @param  pool  name of the pool
+   * @param  time  spent creating and opening the connection
+   * @param  success  whether the connection was created
+   */
+  default void poolConnectionCreated(final String pool, final Duration time, final boolean success) {}
+
+
+  /**
+   * Invoked when a pool validates a connection.
+   *
+   * @param  pool  name of the pool
+   * @param  valid  whether the connection passed validation
+   */
+  default void poolConnectionValidated(final String pool, final boolean valid) {}
+
+
+  /**
+   * Invoked when a pool prunes connections.
+   *
+   * @param  pool  name of the pool
+   * @param  count  number of connections that were removed
+   */
+  default void poolConnectionsPruned(final String pool, final int count) {}
+
+
+  /**
+   * Invoked when a cache is accessed, see {@link org.ldaptive.auth.ResolverCache}.
+   *
+   * @param  cache  name of the cache
+   * @param  hit  whether the cache contained the value
+   */
+  default void cacheAccess(final String cache, final boolean hit) {}
+}
@@ -29,6 +29,7 @@ import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.LdapUtils;
 import org.ldaptive.SearchConnectionValidator;
 import org.ldaptive.concurrent.CallableWorker;
+import org.ldaptive.metrics.MetricsListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +73,12 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
   /** Lock for check outs. */
   protected final ReentrantLock checkOutLock = new ReentrantLock();
 
+  /**
+   * Lock for initialize and close. A lock is used rather than synchronization so that threads creating connections
+   * while holding it do not pin a virtual thread to its carrier.
+   */
+  protected final ReentrantLock lifecycleLock = new ReentrantLock();
+
   /** List of available connections in the pool. */
   protected Queue<PooledConnectionProxy> available;
 
@@ -548,91 +555,96 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
    *                                 size is greater than zero
    */
   @Override
-  public synchronized void initialize()
+  public void initialize()
   {
-    if (initialized) {
-      throw new IllegalStateException("Pool " + name + " has already been initialized");
-    }
-    logger.debug("Beginning pool initialization for {}", this);
-
-    if (pruneStrategy == null) {
-      throw new IllegalStateException("No prune strategy configured for pool " + name);
-    }
-    if (activator == null) {
-      throw new IllegalStateException("No activator configured for pool " + name);
-    }
-    if (passivator == null) {
-      throw new IllegalStateException("No passivator configured for pool " + name);
-    }
-
-    if (maxPoolSize < minPoolSize) {
-      throw new IllegalStateException(
-        "Max pool size " + maxPoolSize + " must be greater than or equal to min pool size " + minPoolSize);
-    }
+    lifecycleLock.lock();
+    try {
+      if (initialized) {
+        throw new IllegalStateException("Pool " + name + " has already been initialized");
+      }
+      logger.debug("Beginning pool initialization for {}", this);
 
-    available = new Queue<>(queueType);
-    active = new Queue<>(queueType);
+      if (pruneStrategy == null) {
+        throw new IllegalStateException("No prune strategy configured for pool " + name);
+      }
+      if (activator == null) {
+        throw new IllegalStateException("No activator configured for pool " + name);
+      }
+      if (passivator == null) {
+        throw new IllegalStateException("No passivator configured for pool " + name);
+      }
 
-    IllegalStateException growException = null;
-    try {
-      createAvailableConnections(minPoolSize, true, false);
-    } catch (IllegalStateException e) {
-      growException = e;
-    }
-    if (available.isEmpty() && minPoolSize > 0) {
-      if (failFastInitialize) {
-        closeAllConnections();
+      if (maxPoolSize < minPoolSize) {
         throw new IllegalStateException(
-          "Could not initialize pool size for pool " + name,
-          growException != null ? growException.getCause() : null);
-      } else {
-        logger.info("Could not initialize pool size (pool is empty) for {}", this);
+          "Max pool size " + maxPoolSize + " must be greater than or equal to min pool size " + minPoolSize);
       }
-    }
-    logger.debug("Initialized available queue {} for {}", available, this);
 
-    poolExecutor = Executors.newSingleThreadScheduledExecutor(
-      r -> {
-        final Thread t = new Thread(r, name + "@" + hashCode());
-        t.setDaemon(true);
-        return t;
-      });
+      available = new Queue<>(queueType);
+      active = new Queue<>(queueType);
 
-    poolExecutor.scheduleAtFixedRate(
-      () -> {
-        logger.debug("Begin prune task for {}", AbstractConnectionPool.this);
-        try {
-          prune();
-        } catch (Exception e) {
-          logger.warn("Prune task failed for {}", AbstractConnectionPool.this);
+      IllegalStateException growException = null;
+      try {
+        createAvailableConnections(minPoolSize, true, false);
+      } catch (IllegalStateException e) {
+        growException = e;
+      }
+      if (availableCount() == 0 && minPoolSize > 0) {
+        if (failFastInitialize) {
+          closeAllConnections();
+          throw new IllegalStateException(
+            "Could not initialize pool size for pool " + name,
+            growException != null ? growException.getCause() : null);
+        } else {
+          logger.info("Could not initialize pool size (pool is empty) for {}", this);
         }
-        logger.debug("End prune task for {}", AbstractConnectionPool.this);
-      },
-      pruneStrategy.getPrunePeriod().toMillis(),
-      pruneStrategy.getPrunePeriod().toMillis(),
-      TimeUnit.MILLISECONDS);
-    logger.debug("Prune pool task scheduled for {}", this);
+      }
+      logger.debug("Initialized available queue {} for {}", available, this);
+
+      poolExecutor = Executors.newSingleThreadScheduledExecutor(
+        r -> {
+          final Thread t = new Thread(r, name + "@" + hashCode());
+          t.setDaemon(true);
+          return t;
+        });
 
-    if (validatePeriodically) {
       poolExecutor.scheduleAtFixedRate(
         () -> {
-          logger.debug("Begin validate task for {}", AbstractConnectionPool.this);
+          logger.debug("Begin prune task for {}", AbstractConnectionPool.this);
           try {
-            validate();
+            prune();
           } catch (Exception e) {
-            logger.warn("Validation task failed for {}", AbstractConnectionPool.this);
+            logger.warn("Prune task failed for {}", AbstractConnectionPool.this);
           }
-          logger.debug("End validate task for {}", AbstractConnectionPool.this);
+          logger.debug("End prune task for {}", AbstractConnectionPool.this);
         },
-        validator.getValidatePeriod().toMillis(),
-        validator.getValidatePeriod().toMillis(),
+        pruneStrategy.getPrunePeriod().toMillis(),
+        pruneStrategy.getPrunePeriod().toMillis(),
         TimeUnit.MILLISECONDS);
-      logger.debug("Validate pool task scheduled for {}", this);
-    }
+      logger.debug("Prune pool task scheduled for {}", this);
+
+      if (validatePeriodically) {
+        poolExecutor.scheduleAtFixedRate(
+          () -> {
+            logger.debug("Begin validate task for {}", AbstractConnectionPool.this);
+            try {
+              validate();
+            } catch (Exception e) {
+              logger.warn("Validation task failed for {}", AbstractConnectionPool.this);
+            }
+            logger.debug("End validate task for {}", AbstractConnectionPool.this);
+          },
+          validator.getValidatePeriod().toMillis(),
+          validator.getValidatePeriod().toMillis(),
+          TimeUnit.MILLISECONDS);
+        logger.debug("Validate pool task scheduled for {}", this);
+      }
 
-    freeze();
-    initialized = true;
-    logger.info("Pool initialized for {}", this);
+      freeze();
+      initialized = true;
+      logger.info("Pool initialized for {}", this);
+    } finally {
+      lifecycleLock.unlock();
+    }
   }
 
 
@@ -656,7 +668,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
           if (!initialized) {
             return;
           }
-          final int currentPoolSize = active.size() + available.size();
+          final int currentPoolSize = activeCount() + availableCount();
           logger.debug("Checking connection pool size >= {} for {}", size, this);
           numConnsToAdd = size - currentPoolSize;
           if (numConnsToAdd <= 0) {
@@ -669,7 +681,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
         if (numConnsToAdd > 0) {
           createAvailableConnections(numConnsToAdd, false, true);
         }
-        logger.debug("Pool size after grow is {} for {}", available.size() + active.size(), this);
+        logger.debug("Pool size after grow is {} for {}", availableCount() + activeCount(), this);
       } finally {
         checkOutLock.unlock();
       }
@@ -685,40 +697,39 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
    * @throws  IllegalStateException  if this pool has not been initialized
    */
   @Override
-  public synchronized void close()
+  public void close()
   {
-    logger.debug("Closing {} of size {}", this, available.size() + active.size());
-    poolLock.lock();
+    lifecycleLock.lock();
     try {
-      closeAllConnections();
-      if (poolExecutor != null && !poolExecutor.isShutdown()) {
-        poolExecutor.shutdown();
+      logger.debug("Closing {} of size {}", this, availableCount() + activeCount());
+      poolLock.lock();
+      try {
+        closeAllConnections();
+        if (poolExecutor != null && !poolExecutor.isShutdown()) {
+          poolExecutor.shutdown();
+        }
+        initialized = false;
+        logger.info("Pool {} closed", this);
+      } finally {
+        poolLock.unlock();
       }
-      initialized = false;
-      logger.info("Pool {} closed", this);
     } finally {
-      poolLock.unlock();
+      lifecycleLock.unlock();
     }
   }
 
 
   /**
-   * Closes all connections in the pool.
+   * Closes all connections in the pool. Invoked while holding {@link #lifecycleLock}.
    */
-  private synchronized void closeAllConnections()
+  private void closeAllConnections()
   {
     poolLock.lock();
     try {
-      if (available.isEmpty() && active.isEmpty()) {
+      final List<PooledConnectionProxy> removeConns = removeAllConnections();
+      if (removeConns.isEmpty()) {
         return;
       }
-      final List<PooledConnectionProxy> removeConns = new ArrayList<>(available.size() + active.size());
-      while (!available.isEmpty()) {
-        removeConns.add(available.remove());
-      }
-      while (!active.isEmpty()) {
-        removeConns.add(active.remove());
-      }
       final CallableWorker<PooledConnectionProxy> callableWorker =
         new CallableWorker<>(name + "-close", MAX_WORKER_TIME);
       try {
@@ -732,6 +743,27 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
   }
 
 
+  /**
+   * Removes every connection from both the available and active queues. Invoked while holding the pool lock.
+   *
+   * @return  connections that were removed from the pool
+   */
+  protected List<PooledConnectionProxy> removeAllConnections()
+  {
+    if (available.isEmpty() && active.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<PooledConnectionProxy> removeConns = new ArrayList<>(available.size() + active.size());
+    while (!available.isEmpty()) {
+      removeConns.add(available.remove());
+    }
+    while (!active.isEmpty()) {
+      removeConns.add(active.remove());
+    }
+    return removeConns;
+  }
+
+
   /**
    * Asynchronously closes all the connections in the supplied list.
    *
@@ -793,8 +825,9 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
    *
    * @throws  IllegalStateException  if {@link #connectOnCreate} is true and the connection cannot be opened
    */
-  private PooledConnectionProxy createConnection(final boolean throwOnFailure)
+  protected PooledConnectionProxy createConnection(final boolean throwOnFailure)
   {
+    final long startTime = System.nanoTime();
     Connection c = connectionFactory.getConnection();
     if (connectOnCreate) {
       try {
@@ -803,19 +836,40 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
         logger.debug("Unable to open connection for {}}", this, e);
         c.close();
         c = null;
+        final MetricsListener listener = getMetricsListener();
+        if (listener != null) {
+          listener.poolConnectionCreated(name, Duration.ofNanos(System.nanoTime() - startTime), false);
+        }
         if (throwOnFailure) {
           throw new IllegalStateException("Unable to open connection for pool " + name, e);
         }
       }
     }
+    final MetricsListener listener = getMetricsListener();
+    if (c != null && listener != null) {
+      listener.poolConnectionCreated(name, Duration.ofNanos(System.nanoTime() - startTime), true);
+    }
     if (c != null) {
-      return new DefaultPooledConnectionProxy(c);
+      return createPooledConnectionProxy(c);
     } else {
       return null;
     }
   }
 
 
+  /**
+   * Creates a pooled connection proxy for the supplied connection.
+   *
+   * @param  c  connection to participate in this pool
+   *
+   * @return  pooled connection proxy
+   */
+  protected PooledConnectionProxy createPooledConnectionProxy(final Connection c)
+  {
+    return new DefaultPooledConnectionProxy(c);
+  }
+
+
   /**
    * Asynchronously creates new connections and confirms that the connections can be passivated and validated. See
    * {@link #passivateAndValidateConnection(PooledConnectionProxy)}. This method can make up to (count * 2) attempts in
@@ -912,12 +966,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
           throwIfNotInitialized();
         }
         for (PooledConnectionProxy pc : connections) {
-          if (available.size() + active.size() < maxPoolSize) {
-            available.add(pc);
-            poolNotEmpty.signal();
-            pc.getPooledConnectionStatistics().addAvailableStat();
-            logger.debug("Added available connection {} for {}", pc.getConnection(), this);
-          } else {
+          if (!addAvailableConnection(pc)) {
             closeConnections.add(pc);
           }
         }
@@ -953,12 +1002,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
     if (pc != null) {
       poolLock.lock();
       try {
-        if (initialized && available.size() + active.size() < maxPoolSize) {
-          available.add(pc);
-          poolNotEmpty.signal();
-          pc.getPooledConnectionStatistics().addAvailableStat();
-          logger.debug("Added available connection {} for {}", pc.getConnection(), this);
-        } else {
+        if (!initialized || !addAvailableConnection(pc)) {
           // pool was closed while the connection was created or max pool size was reached
           pc.getConnection().close();
           pc = null;
@@ -973,6 +1017,27 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
   }
 
 
+  /**
+   * Adds a newly created connection to the available queue if the pool has not reached its maximum size. Invoked while
+   * holding the pool lock.
+   *
+   * @param  pc  connection to add
+   *
+   * @return  whether the connection was added to the pool
+   */
+  protected boolean addAvailableConnection(final PooledConnectionProxy pc)
+  {
+    if (available.size() + active.size() >= maxPoolSize) {
+      return false;
+    }
+    available.add(pc);
+    poolNotEmpty.signal();
+    pc.getPooledConnectionStatistics().addAvailableStat();
+    logger.debug("Added available connection {} for {}", pc.getConnection(), this);
+    return true;
+  }
+
+
   /**
    * Create a new connection and place it in the active queue. This method creates the connection and then attempts to
    * acquire the pool lock in order to add the connection to the active queue. Therefore, this method can be invoked
@@ -1102,7 +1167,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
       removeAvailableAndActiveConnection(pc);
       throw new ActivationException("Activation of connection failed for pool " + name);
     }
-    if (validateOnCheckOut && !validator.apply(pc.getConnection())) {
+    if (validateOnCheckOut && !notifyValidated(validator.apply(pc.getConnection()))) {
       logger.debug("Failed check out validation on {} with {} for {}", pc.getConnection(), validator, this);
       removeAvailableAndActiveConnection(pc);
       throw new ValidationException("Validation of connection failed for pool " + name);
@@ -1129,7 +1194,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
     boolean valid = false;
     if (passivator.apply(pc.getConnection())) {
       if (validateOnCheckIn) {
-        if (validator.apply(pc.getConnection())) {
+        if (notifyValidated(validator.apply(pc.getConnection()))) {
           logger.trace("connection {} passed initialize validation", pc);
           valid = true;
         } else {
@@ -1169,6 +1234,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
     } finally {
       poolLock.unlock();
     }
+    notifyPruned(numConnPruned);
     if (numConnPruned == 0) {
       logger.debug("Prune strategy {} did not remove any connections for {}", pruneStrategy, this);
     } else {
@@ -1203,7 +1269,7 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
         for (Map.Entry<PooledConnectionProxy, Supplier<Boolean>> entry : results.entrySet()) {
           // blocks until a result is received
           final Boolean validateResult = entry.getValue().get();
-          if (validateResult != null && validateResult) {
+          if (notifyValidated(validateResult != null && validateResult)) {
             logger.trace("passed validation on {} with {} for {}", entry.getKey(), validator, this);
           } else {
             logger.debug(
@@ -1237,6 +1303,64 @@ public abstract class AbstractConnectionPool extends AbstractFreezable implement
   }
 
 
+  /**
+   * Returns the metrics listener configured on the connection factory of this pool.
+   *
+   * @return  metrics listener or null
+   */
+  protected MetricsListener getMetricsListener()
+  {
+    final DefaultConnectionFactory cf = connectionFactory;
+    return cf != null ? cf.getConnectionConfig().getMetricsListener() : null;
+  }
+
+
+  /**
+   * Notifies the metrics listener of a check out attempt.
+   *
+   * @param  startTime  value of {@link System#nanoTime()} when the check out began
+   * @param  success  whether a connection was checked out
+   */
+  protected void notifyCheckOut(final long startTime, final boolean success)
+  {
+    final MetricsListener listener = getMetricsListener();
+    if (listener != null) {
+      listener.poolCheckOut(name, Duration.ofNanos(System.nanoTime() - startTime), success);
+    }
+  }
+
+
+  /**
+   * Notifies the metrics listener of the number of connections removed by a prune.
+   *
+   * @param  numConnPruned  number of connections pruned
+   */
+  protected void notifyPruned(final int numConnPruned)
+  {
+    final MetricsListener listener = getMetricsListener();
+    if (listener != null) {
+      listener.poolConnectionsPruned(name, numConnPruned);
+    }
+  }
+
+
+  /**
+   * Notifies the metrics listener of a validation result.
+   *
+   * @param  valid  whether the connection passed validation
+   *
+   * @return  valid
+   */
+  protected boolean notifyValidated(final boolean valid)
+  {
+    final MetricsListener listener = getMetricsListener();
+    if (listener != null) {
+      listener.poolConnectionValidated(name, valid);
+    }
+    return valid;
+  }
+
+
   @Override
   public int availableCount()
   {
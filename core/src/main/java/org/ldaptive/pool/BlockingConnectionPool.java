@@ -67,6 +67,29 @@ public class BlockingConnectionPool extends AbstractConnectionPool
   @Override
   public Connection getConnection()
     throws PoolException
+  {
+    final long startTime = System.nanoTime();
+    final Connection conn;
+    try {
+      conn = checkOutConnection();
+    } catch (PoolException | RuntimeException e) {
+      notifyCheckOut(startTime, false);
+      throw e;
+    }
+    notifyCheckOut(startTime, true);
+    return conn;
+  }
+
+
+  /**
+   * Checks out a connection from the pool, creating one if the pool can grow or blocking until one is available.
+   *
+   * @return  connection from the pool
+   *
+   * @throws  PoolException  if this operation fails
+   */
+  private Connection checkOutConnection()
+    throws PoolException
   {
     PooledConnectionProxy pc = null;
     boolean create = false;
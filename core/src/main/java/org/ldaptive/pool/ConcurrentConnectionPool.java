@@ -0,0 +1,762 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.ldaptive.Connection;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.LdapUtils;
+
+/**
+ * Implements a pool of connections that has a set minimum and maximum size where check out and check in do not acquire
+ * the pool lock. Every connection carries its own state which is claimed with a compare-and-set, so threads only
+ * contend when they select the same connection. A thread first attempts to reclaim the connection it most recently
+ * returned, then scans the pool starting from an offset derived from its thread ID. The number of concurrent check outs
+ * is bounded by a semaphore sized to the maximum pool size; when the pool is exhausted requests block for {@link
+ * #getBlockWaitTime()}. The pool lock is only acquired when connections are added to or removed from the pool, and
+ * prune and validate reserve individual connections rather than locking the whole pool. The {@link QueueType} of this
+ * pool is not used. See {@link AbstractConnectionPool}.
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentConnectionPool extends AbstractConnectionPool
+{
+
+  /** Connection is available for check out. */
+  private static final int STATE_AVAILABLE = 0;
+
+  /** Connection is checked out. */
+  private static final int STATE_ACTIVE = 1;
+
+  /** Connection is reserved by a pool maintenance task. */
+  private static final int STATE_RESERVED = 2;
+
+  /** Connection has been removed from the pool. */
+  private static final int STATE_REMOVED = -1;
+
+  /** Time to park while waiting for a reserved connection to be released. */
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /** Empty connection array. */
+  private static final ConcurrentPooledConnectionProxy[] EMPTY_CONNECTIONS = new ConcurrentPooledConnectionProxy[0];
+
+  /** Number of connections in the pool, including those that are being created. */
+  private final AtomicInteger poolSize = new AtomicInteger();
+
+  /** Number of connections that are checked out. */
+  private final AtomicInteger activeSize = new AtomicInteger();
+
+  /** Connection most recently returned to the pool by each thread. */
+  private final ThreadLocal<ConcurrentPooledConnectionProxy> lastReturned = new ThreadLocal<>();
+
+  /** Duration to wait for an available connection. */
+  private Duration blockWaitTime = Duration.ofMinutes(1);
+
+  /** Connections in the pool. Replaced while holding the pool lock. */
+  private volatile ConcurrentPooledConnectionProxy[] connections = EMPTY_CONNECTIONS;
+
+  /** Permits for checking out connections. */
+  private volatile Semaphore checkOutPermits;
+
+
+  /** Creates a new concurrent pool. */
+  public ConcurrentConnectionPool() {}
+
+
+  /**
+   * Creates a new concurrent pool.
+   *
+   * @param  cf  connection factory
+   */
+  public ConcurrentConnectionPool(final DefaultConnectionFactory cf)
+  {
+    setDefaultConnectionFactory(cf);
+  }
+
+
+  /**
+   * Returns the block wait time. Default time is 1 minute.
+   *
+   * @return  time to wait for available connections
+   */
+  public Duration getBlockWaitTime()
+  {
+    return blockWaitTime;
+  }
+
+
+  /**
+   * Sets the block wait time. Default time is 1 minute.
+   *
+   * @param  time  to wait for available connections
+   */
+  public void setBlockWaitTime(final Duration time)
+  {
+    assertMutable();
+    LdapUtils.assertNotNullArgOr(time, Duration::isNegative, "Block wait time cannot be null or negative");
+    blockWaitTime = time;
+  }
+
+
+  @Override
+  public void initialize()
+  {
+    lifecycleLock.lock();
+    try {
+      checkOutPermits = new Semaphore(getMaxPoolSize());
+      super.initialize();
+    } finally {
+      lifecycleLock.unlock();
+    }
+  }
+
+
+  @Override
+  public Connection getConnection()
+    throws PoolException
+  {
+    throwIfNotInitialized();
+    final long startTime = System.nanoTime();
+    final Semaphore permits = checkOutPermits;
+    final ConcurrentPooledConnectionProxy pc;
+    try {
+      acquirePermit(permits);
+    } catch (PoolException | RuntimeException e) {
+      notifyCheckOut(startTime, false);
+      throw e;
+    }
+    try {
+      pc = checkOut(startTime);
+      activateAndValidateConnection(pc);
+    } catch (PoolException | RuntimeException e) {
+      permits.release();
+      notifyCheckOut(startTime, false);
+      throw e;
+    }
+    notifyCheckOut(startTime, true);
+    return createConnectionProxy(pc);
+  }
+
+
+  /**
+   * Acquires a check out permit, blocking if the maximum number of connections are checked out.
+   *
+   * @param  permits  to acquire from
+   *
+   * @throws  PoolException  if the thread is interrupted
+   * @throws  BlockingTimeoutException  if the block wait time is exceeded
+   */
+  private void acquirePermit(final Semaphore permits)
+    throws PoolException
+  {
+    if (permits.tryAcquire()) {
+      return;
+    }
+    logger.trace("pool is full, block until connection is available");
+    try {
+      if (Duration.ZERO.equals(blockWaitTime)) {
+        permits.acquire();
+      } else if (!permits.tryAcquire(blockWaitTime.toMillis(), TimeUnit.MILLISECONDS)) {
+        logger.debug("Block time of {} exceeded, throwing exception", blockWaitTime);
+        throw new BlockingTimeoutException(
+          "Block time of " + blockWaitTime + " exceeded waiting for connection on pool " + getName() +
+            " with max size of " + getMaxPoolSize());
+      }
+    } catch (InterruptedException e) {
+      throw new PoolException("Interrupted while waiting for an available connection", e);
+    }
+  }
+
+
+  /**
+   * Claims a connection for the caller, which must hold a check out permit. Attempts to claim an available connection,
+   * then to create a new connection. If neither succeeds the remaining connections are reserved by pool maintenance or
+   * being replaced, so this method waits for one of them to be released.
+   *
+   * @param  startTime  of the check out in nanoseconds
+   *
+   * @return  connection in the active state
+   *
+   * @throws  PoolException  if a connection cannot be claimed
+   */
+  private ConcurrentPooledConnectionProxy checkOut(final long startTime)
+    throws PoolException
+  {
+    boolean createAttempted = false;
+    while (true) {
+      throwIfNotInitialized();
+      ConcurrentPooledConnectionProxy pc = claimAvailableConnection();
+      if (pc != null) {
+        logger.trace("retrieved available connection: {}", pc);
+        return pc;
+      }
+      if (!createAttempted) {
+        createAttempted = true;
+        pc = (ConcurrentPooledConnectionProxy) createActiveConnection(false);
+        if (pc != null) {
+          logger.trace("created new active connection: {}", pc);
+          return pc;
+        }
+        if (poolSize.get() == 0) {
+          throw new PoolExhaustedException("Pool is empty and connection creation failed");
+        }
+      }
+      if (!Duration.ZERO.equals(blockWaitTime) && System.nanoTime() - startTime > blockWaitTime.toNanos()) {
+        logger.debug("Block time of {} exceeded, throwing exception", blockWaitTime);
+        throw new BlockingTimeoutException(
+          "Block time of " + blockWaitTime + " exceeded waiting for connection on pool " + getName() +
+            " with max size of " + getMaxPoolSize());
+      }
+      LockSupport.parkNanos(PARK_NANOS);
+      if (Thread.interrupted()) {
+        throw new PoolException("Interrupted while waiting for an available connection");
+      }
+    }
+  }
+
+
+  /**
+   * Attempts to claim an available connection without blocking. The connection last returned by the current thread is
+   * tried first, followed by every connection in the pool starting at an offset derived from the current thread.
+   *
+   * @return  connection in the active state or null if no connection could be claimed
+   */
+  private ConcurrentPooledConnectionProxy claimAvailableConnection()
+  {
+    final ConcurrentPooledConnectionProxy local = lastReturned.get();
+    if (local != null) {
+      if (local.claim()) {
+        return local;
+      }
+      lastReturned.remove();
+    }
+    final ConcurrentPooledConnectionProxy[] conns = connections;
+    if (conns.length == 0) {
+      return null;
+    }
+    final int offset = (int) (Thread.currentThread().getId() % conns.length);
+    for (int i = 0; i < conns.length; i++) {
+      final ConcurrentPooledConnectionProxy pc = conns[(offset + i) % conns.length];
+      if (pc.claim()) {
+        return pc;
+      }
+    }
+    return null;
+  }
+
+
+  @Override
+  public void putConnection(final Connection c)
+  {
+    final ConcurrentPooledConnectionProxy pc = (ConcurrentPooledConnectionProxy) retrieveConnectionProxy(c);
+    final boolean valid = passivateAndValidateConnection(pc);
+    throwIfNotInitialized();
+    if (pc.getState() != STATE_ACTIVE) {
+      if (pc.getState() == STATE_REMOVED) {
+        logger.warn("Attempt to return unknown connection: {}", pc);
+      } else {
+        logger.warn("Returned available connection: {}", pc);
+      }
+      return;
+    }
+    if (!valid) {
+      removeActiveConnection(pc);
+    } else {
+      pc.getPooledConnectionStatistics().addAvailableStat();
+      activeSize.decrementAndGet();
+      pc.release(STATE_ACTIVE);
+      lastReturned.set(pc);
+      logger.trace("returned active connection: {}", pc);
+    }
+    checkOutPermits.release();
+  }
+
+
+  @Override
+  protected PooledConnectionProxy createPooledConnectionProxy(final Connection c)
+  {
+    return new ConcurrentPooledConnectionProxy(c);
+  }
+
+
+  @Override
+  protected boolean addAvailableConnection(final PooledConnectionProxy pc)
+  {
+    if (!reservePoolSize()) {
+      return false;
+    }
+    ((ConcurrentPooledConnectionProxy) pc).setState(STATE_AVAILABLE);
+    pc.getPooledConnectionStatistics().addAvailableStat();
+    addConnection((ConcurrentPooledConnectionProxy) pc);
+    logger.debug("Added available connection {} for {}", pc.getConnection(), this);
+    return true;
+  }
+
+
+  @Override
+  protected PooledConnectionProxy createActiveConnection(final boolean throwOnFailure)
+  {
+    if (!reservePoolSize()) {
+      logger.trace("pool at maximum size, create not allowed");
+      return null;
+    }
+    final ConcurrentPooledConnectionProxy pc;
+    try {
+      pc = (ConcurrentPooledConnectionProxy) createConnection(throwOnFailure);
+    } catch (RuntimeException e) {
+      poolSize.decrementAndGet();
+      throw e;
+    }
+    if (pc == null) {
+      poolSize.decrementAndGet();
+      logger.debug("Unable to create active connection for {}", this);
+      return null;
+    }
+    pc.setState(STATE_ACTIVE);
+    activeSize.incrementAndGet();
+    pc.getPooledConnectionStatistics().addActiveStat();
+    poolLock.lock();
+    try {
+      if (!isInitialized()) {
+        // pool was closed while the connection was created
+        activeSize.decrementAndGet();
+        poolSize.decrementAndGet();
+        pc.setState(STATE_REMOVED);
+        pc.getConnection().close();
+        return null;
+      }
+      addConnection(pc);
+    } finally {
+      poolLock.unlock();
+    }
+    logger.debug("Added active connection {} for {}", pc.getConnection(), this);
+    return pc;
+  }
+
+
+  /**
+   * Increments the pool size if it is less than the maximum pool size.
+   *
+   * @return  whether the pool size was incremented
+   */
+  private boolean reservePoolSize()
+  {
+    int size;
+    do {
+      size = poolSize.get();
+      if (size >= getMaxPoolSize()) {
+        return false;
+      }
+    } while (!poolSize.compareAndSet(size, size + 1));
+    return true;
+  }
+
+
+  /**
+   * Adds the supplied connection to the pool. Caller must hold the pool lock.
+   *
+   * @param  pc  connection to add
+   */
+  private void addConnection(final ConcurrentPooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy[] conns = Arrays.copyOf(connections, connections.length + 1);
+    conns[conns.length - 1] = pc;
+    connections = conns;
+  }
+
+
+  /**
+   * Removes the supplied connection from the pool. The connection must already be in the removed state.
+   *
+   * @param  pc  connection to remove
+   */
+  private void removeConnection(final ConcurrentPooledConnectionProxy pc)
+  {
+    poolLock.lock();
+    try {
+      final ConcurrentPooledConnectionProxy[] conns = connections;
+      for (int i = 0; i < conns.length; i++) {
+        if (conns[i] == pc) {
+          final ConcurrentPooledConnectionProxy[] newConns = new ConcurrentPooledConnectionProxy[conns.length - 1];
+          System.arraycopy(conns, 0, newConns, 0, i);
+          System.arraycopy(conns, i + 1, newConns, i, conns.length - i - 1);
+          connections = newConns;
+          poolSize.decrementAndGet();
+          break;
+        }
+      }
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+
+  @Override
+  protected List<PooledConnectionProxy> removeAllConnections()
+  {
+    final ConcurrentPooledConnectionProxy[] conns = connections;
+    connections = EMPTY_CONNECTIONS;
+    final List<PooledConnectionProxy> removeConns = new ArrayList<>(super.removeAllConnections());
+    for (ConcurrentPooledConnectionProxy pc : conns) {
+      if (pc.setState(STATE_REMOVED) == STATE_ACTIVE) {
+        activeSize.decrementAndGet();
+      }
+      poolSize.decrementAndGet();
+      removeConns.add(pc);
+    }
+    return removeConns;
+  }
+
+
+  @Override
+  protected void removeAvailableConnection(final PooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) pc;
+    if (cpc.remove(STATE_AVAILABLE) || cpc.remove(STATE_RESERVED)) {
+      removeConnection(cpc);
+      pc.getConnection().close();
+      logger.debug("Removed {} from {}", pc.getConnection(), this);
+    } else {
+      logger.warn("Attempt to remove unknown available connection {} from {}", pc.getConnection(), this);
+    }
+  }
+
+
+  @Override
+  protected void removeActiveConnection(final PooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) pc;
+    if (cpc.remove(STATE_ACTIVE)) {
+      activeSize.decrementAndGet();
+      removeConnection(cpc);
+      pc.getConnection().close();
+      logger.debug("Removed {} from {}", pc.getConnection(), this);
+    } else {
+      logger.warn("Attempt to remove unknown active connection {} from {}", pc.getConnection(), this);
+    }
+  }
+
+
+  @Override
+  protected void removeAvailableAndActiveConnection(final PooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) pc;
+    final int state = cpc.setState(STATE_REMOVED);
+    if (state != STATE_REMOVED) {
+      if (state == STATE_ACTIVE) {
+        activeSize.decrementAndGet();
+      }
+      removeConnection(cpc);
+      pc.getConnection().close();
+      logger.debug("Removed {} from {}", pc.getConnection(), this);
+    }
+  }
+
+
+  /**
+   * Reserves every available connection in the pool for a maintenance task.
+   *
+   * @return  reserved connections
+   */
+  private List<ConcurrentPooledConnectionProxy> reserveAvailableConnections()
+  {
+    final ConcurrentPooledConnectionProxy[] conns = connections;
+    final List<ConcurrentPooledConnectionProxy> reserved = new ArrayList<>(conns.length);
+    for (ConcurrentPooledConnectionProxy pc : conns) {
+      if (pc.reserve()) {
+        reserved.add(pc);
+      }
+    }
+    return reserved;
+  }
+
+
+  @Override
+  public void prune()
+  {
+    logger.trace("reserving available connections to prune for {}", this);
+    if (!isInitialized()) {
+      return;
+    }
+    final List<ConcurrentPooledConnectionProxy> reserved = reserveAvailableConnections();
+    if (reserved.isEmpty()) {
+      logger.debug("No available connections, no connections pruned for {}", this);
+      notifyPruned(0);
+      return;
+    }
+    int numConnPruned = 0;
+    try {
+      getPruneStrategy().accept(() -> new ReservedIterator(reserved));
+    } finally {
+      for (ConcurrentPooledConnectionProxy pc : reserved) {
+        if (!pc.release(STATE_RESERVED)) {
+          numConnPruned++;
+        }
+      }
+    }
+    notifyPruned(numConnPruned);
+    if (numConnPruned == 0) {
+      logger.debug("Prune strategy {} did not remove any connections for {}", getPruneStrategy(), this);
+    } else {
+      grow(getMinPoolSize());
+      logger.info("Available pool size pruned to {} for {}", availableCount(), this);
+    }
+  }
+
+
+  @Override
+  public void validate()
+  {
+    if (!isInitialized()) {
+      return;
+    }
+    final int initialPoolSize = poolSize.get();
+    final List<ConcurrentPooledConnectionProxy> reserved = reserveAvailableConnections();
+    final List<ConcurrentPooledConnectionProxy> remove = new ArrayList<>();
+    if (!reserved.isEmpty()) {
+      logger.debug("Validate available pool of size {} for {}", reserved.size(), this);
+      final Map<ConcurrentPooledConnectionProxy, Supplier<Boolean>> results = new LinkedHashMap<>(reserved.size());
+      try {
+        for (ConcurrentPooledConnectionProxy pc : reserved) {
+          logger.trace("validating {} for {}", pc, this);
+          results.put(pc, getValidator().applyAsync(pc.getConnection()));
+        }
+        for (Map.Entry<ConcurrentPooledConnectionProxy, Supplier<Boolean>> entry : results.entrySet()) {
+          // blocks until a result is received
+          final Boolean validateResult = entry.getValue().get();
+          if (notifyValidated(validateResult != null && validateResult)) {
+            logger.trace("passed validation on {} with {} for {}", entry.getKey(), getValidator(), this);
+            entry.getKey().release(STATE_RESERVED);
+          } else {
+            logger.debug(
+              "Failed validation on {} with {} for {}, {}",
+              entry.getKey().getConnection(),
+              getValidator(),
+              this,
+              validateResult == null ? "validator timeout exceeded" : "validator returned false");
+            if (entry.getKey().remove(STATE_RESERVED)) {
+              removeConnection(entry.getKey());
+              remove.add(entry.getKey());
+            }
+          }
+        }
+      } finally {
+        // release any connections that were not validated
+        reserved.forEach(pc -> pc.release(STATE_RESERVED));
+      }
+    } else {
+      logger.debug("No available connections, no validation performed for {}", this);
+    }
+    if (initialPoolSize == poolSize.get()) {
+      logger.debug("Pool size of {} unchanged after validation for {}", poolSize.get(), this);
+    } else {
+      logger.info("Pool size after validation is {} for {}", poolSize.get(), this);
+    }
+    remove.forEach(pc -> pc.getConnection().close());
+    grow(getMinPoolSize());
+  }
+
+
+  @Override
+  public int availableCount()
+  {
+    return Math.max(0, connections.length - activeSize.get());
+  }
+
+
+  @Override
+  public int activeCount()
+  {
+    return activeSize.get();
+  }
+
+
+  @Override
+  public Set<PooledConnectionStatistics> getPooledConnectionStatistics()
+  {
+    final Set<PooledConnectionStatistics> stats = new HashSet<>();
+    for (ConcurrentPooledConnectionProxy pc : connections) {
+      stats.add(pc.getPooledConnectionStatistics());
+    }
+    return Collections.unmodifiableSet(stats);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return super.toString() + ", " + "blockWaitTime=" + blockWaitTime;
+  }
+
+
+  /** Iterates over reserved connections, skipping any that have been removed. */
+  private final class ReservedIterator implements Iterator<PooledConnectionProxy>
+  {
+
+    /** Reserved connections. */
+    private final List<ConcurrentPooledConnectionProxy> reserved;
+
+    /** Index of the next connection. */
+    private int index;
+
+    /** Last connection returned by {@link #next()}. */
+    private ConcurrentPooledConnectionProxy current;
+
+
+    /**
+     * Creates a new reserved iterator.
+     *
+     * @param  conns  reserved connections
+     */
+    ReservedIterator(final List<ConcurrentPooledConnectionProxy> conns)
+    {
+      reserved = conns;
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+      while (index < reserved.size() && reserved.get(index).getState() != STATE_RESERVED) {
+        index++;
+      }
+      return index < reserved.size();
+    }
+
+
+    @Override
+    public PooledConnectionProxy next()
+    {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      current = reserved.get(index++);
+      return current;
+    }
+
+
+    @Override
+    public void remove()
+    {
+      if (current == null) {
+        throw new IllegalStateException();
+      }
+      // prune strategies close the connection after removing it
+      if (current.remove(STATE_RESERVED)) {
+        removeConnection(current);
+      }
+      current = null;
+    }
+  }
+
+
+  /** Pooled connection proxy that tracks the state of the connection in this pool. */
+  protected class ConcurrentPooledConnectionProxy extends DefaultPooledConnectionProxy
+  {
+
+    /** State of this connection. */
+    private final AtomicInteger state = new AtomicInteger(STATE_REMOVED);
+
+
+    /**
+     * Creates a new concurrent pooled connection.
+     *
+     * @param  c  connection to participate in this pool
+     */
+    public ConcurrentPooledConnectionProxy(final Connection c)
+    {
+      super(c);
+    }
+
+
+    /**
+     * Returns the state of this connection.
+     *
+     * @return  connection state
+     */
+    int getState()
+    {
+      return state.get();
+    }
+
+
+    /**
+     * Sets the state of this connection.
+     *
+     * @param  newState  to set
+     *
+     * @return  previous state
+     */
+    int setState(final int newState)
+    {
+      return state.getAndSet(newState);
+    }
+
+
+    /**
+     * Transitions this connection from available to active.
+     *
+     * @return  whether this connection was claimed
+     */
+    boolean claim()
+    {
+      if (state.get() == STATE_AVAILABLE && state.compareAndSet(STATE_AVAILABLE, STATE_ACTIVE)) {
+        activeSize.incrementAndGet();
+        getPooledConnectionStatistics().addActiveStat();
+        return true;
+      }
+      return false;
+    }
+
+
+    /**
+     * Transitions this connection from available to reserved.
+     *
+     * @return  whether this connection was reserved
+     */
+    boolean reserve()
+    {
+      return state.compareAndSet(STATE_AVAILABLE, STATE_RESERVED);
+    }
+
+
+    /**
+     * Transitions this connection from the supplied state to available.
+     *
+     * @param  expected  current state
+     *
+     * @return  whether this connection was released
+     */
+    boolean release(final int expected)
+    {
+      return state.compareAndSet(expected, STATE_AVAILABLE);
+    }
+
+
+    /**
+     * Transitions this connection from the supplied state to removed.
+     *
+     * @param  expected  current state
+     *
+     * @return  whether this connection was removed
+     */
+    boolean remove(final int expected)
+    {
+      return state.compareAndSet(expected, STATE_REMOVED);
+    }
+  }
+}
@@ -3,11 +3,13 @@ package org.ldaptive.pool;
 
 import java.time.Instant;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Statistics associated with a connection's activity in the pool. Exposes the timestamps when this connection entered
  * both the available pool and the active pool. A size of 512 uses approximately 50 kilobytes of memory per connection.
+ * Timestamps are added without locking, so recording a check out or check in never blocks.
  *
  * @author  Middleware Services
  */
@@ -32,40 +34,8 @@ public class PooledConnectionStatistics
   public PooledConnectionStatistics(final int i)
   {
     size = i;
-    availableStats = new LinkedList<>() {
-
-
-      @Override
-      public boolean add(final Instant e)
-      {
-        if (size < 1) {
-          return false;
-        }
-
-        final boolean b = super.add(e);
-        while (size() > size) {
-          remove();
-        }
-        return b;
-      }
-    };
-    activeStats = new LinkedList<>() {
-
-
-      @Override
-      public boolean add(final Instant e)
-      {
-        if (size < 1) {
-          return false;
-        }
-
-        final boolean b = super.add(e);
-        while (size() > size) {
-          remove();
-        }
-        return b;
-      }
-    };
+    availableStats = new BoundedDeque(i);
+    activeStats = new BoundedDeque(i);
   }
 
 
@@ -92,7 +62,7 @@ public class PooledConnectionStatistics
 
 
   /** Inserts the current timestamp into the available statistics. */
-  public synchronized void addAvailableStat()
+  public void addAvailableStat()
   {
     availableStats.add(Instant.now());
   }
@@ -103,7 +73,7 @@ public class PooledConnectionStatistics
    *
    * @param  instant  to add
    */
-  synchronized void addAvailableStat(final Instant instant)
+  void addAvailableStat(final Instant instant)
   {
     availableStats.add(instant);
   }
@@ -132,7 +102,7 @@ public class PooledConnectionStatistics
 
 
   /** Inserts the current timestamp into the active statistics. */
-  public synchronized void addActiveStat()
+  public void addActiveStat()
   {
     activeStats.add(Instant.now());
   }
@@ -143,7 +113,7 @@ public class PooledConnectionStatistics
    *
    * @param  instant  to add
    */
-  synchronized void addActiveStat(final Instant instant)
+  void addActiveStat(final Instant instant)
   {
     activeStats.add(instant);
   }
@@ -154,4 +124,49 @@ public class PooledConnectionStatistics
   {
     return "[" + getClass().getName() + "@" + hashCode() + "::" + "size=" + size + "]";
   }
+
+
+  /** Deque that removes its oldest elements once it contains more than a maximum number of elements. */
+  private static final class BoundedDeque extends ConcurrentLinkedDeque<Instant>
+  {
+
+    /** serialVersionUID. */
+    private static final long serialVersionUID = -3128816493047751206L;
+
+    /** Maximum number of elements. */
+    private final int maxSize;
+
+    /** Number of elements added and not yet trimmed, avoids the linear cost of {@link #size()}. */
+    private final AtomicInteger count = new AtomicInteger();
+
+
+    /**
+     * Creates a new bounded deque.
+     *
+     * @param  max  maximum number of elements
+     */
+    BoundedDeque(final int max)
+    {
+      maxSize = max;
+    }
+
+
+    @Override
+    public boolean add(final Instant e)
+    {
+      if (maxSize < 1) {
+        return false;
+      }
+      final boolean b = super.add(e);
+      int c = count.incrementAndGet();
+      while (c > maxSize) {
+        // each thread that decrements the count removes exactly one element
+        if (count.compareAndSet(c, c - 1)) {
+          pollFirst();
+        }
+        c = count.get();
+      }
+      return b;
+    }
+  }
 }
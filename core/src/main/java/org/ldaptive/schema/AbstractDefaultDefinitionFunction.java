@@ -1,16 +1,13 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.schema;
 
-import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import org.ldaptive.LdapUtils;
 
 /**
- * Base class for default definition functions.
+ * Base class for default definition functions. Definitions are read in a single pass over a buffer that wraps the
+ * characters of the definition, each token is copied out of the buffer once.
  *
  * @param  <T>  type of schema element
  *
@@ -36,26 +33,16 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
     if (definition == null || definition.isEmpty()) {
       throw new SchemaParseException("Definition cannot be null or empty");
     }
-    CharBuffer buffer;
-    try {
-      buffer = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(LdapUtils.utf8Encode(definition)));
-    } catch (CharacterCodingException e) {
-      throw new SchemaParseException("Error decoding definition", e);
-    }
-    if (buffer.get() != '(') {
+    if (definition.charAt(0) != '(') {
       throw new SchemaParseException("Definition '" + definition + "' must start with '('");
     }
-    if (buffer.get(buffer.limit() - 1) != ')') {
+    if (definition.length() < 2 || definition.charAt(definition.length() - 1) != ')') {
       throw new SchemaParseException("Definition '" + definition + "' must end with ')'");
     }
-    if (!buffer.hasRemaining()) {
-      throw new SchemaParseException("Definition '" + definition + "' does not contain an expression");
-    }
-    buffer = buffer.limit(buffer.limit() - 1).slice();
-    if (!buffer.hasRemaining()) {
+    if (definition.length() == 2) {
       throw new SchemaParseException("Definition '" + definition + "' does not contain an expression");
     }
-    return buffer;
+    return CharBuffer.wrap(definition.toCharArray(), 1, definition.length() - 2).slice();
   }
 
 
@@ -65,10 +52,17 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  oid
+   *
+   * @throws  SchemaParseException  if the buffer has no remaining characters
    */
   protected String readOID(final CharBuffer cb)
+    throws SchemaParseException
   {
-    return readUntilSpace(cb);
+    final String oid = readUntilSpace(cb);
+    if (oid.isEmpty()) {
+      throw new SchemaParseException("Cannot read oid from empty buffer");
+    }
+    return oid;
   }
 
 
@@ -80,32 +74,32 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  oids
+
+   *
+   * @throws  SchemaParseException  if the buffer does not contain oids
    */
   protected String[] readOIDs(final CharBuffer cb)
+    throws SchemaParseException
   {
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read oids from empty buffer");
+      throw new SchemaParseException("Cannot read oids from empty buffer");
     }
     char c = cb.get();
     if (c != '(') {
       return new String[] {readOID(cb.position(cb.position() - 1))};
     }
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read oids with empty content");
+      throw new SchemaParseException("Cannot read oids with empty content");
     }
 
-    final int startPos = cb.position();
-    final int limit = cb.limit();
-    c = readUntil(cb, ')');
-    if (c != ')') {
-      throw new IllegalArgumentException("oids must end with a close paren");
+    final int endPos = indexOf(cb, cb.position(), ')');
+    if (endPos < 0) {
+      throw new SchemaParseException("oids must end with a close paren");
     }
-    final int endPos = cb.position() - 1;
-    final CharBuffer slice = cb.limit(endPos).position(startPos).slice();
-    cb.limit(limit).position(endPos + 1);
-    final String[] oids = SchemaUtils.parseOIDs(slice.toString().trim());
+    final String[] oids = SchemaUtils.parseOIDs(read(cb, endPos).trim());
+    cb.position(endPos + 1);
     if (oids.length == 0) {
-      throw new IllegalArgumentException("oids cannot be empty");
+      throw new SchemaParseException("oids cannot be empty");
     }
     return oids;
   }
@@ -117,11 +111,18 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  rule id
+   *
+   * @throws  SchemaParseException  if the buffer does not contain a rule id
    */
   protected int readRuleID(final CharBuffer cb)
+    throws SchemaParseException
   {
     final String id = readUntilSpace(cb);
-    return Integer.parseInt(id);
+    try {
+      return Integer.parseInt(id);
+    } catch (NumberFormatException e) {
+      throw new SchemaParseException("Invalid ruleid '" + id + "'", e);
+    }
   }
 
 
@@ -132,32 +133,32 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  rule ids
+
+   *
+   * @throws  SchemaParseException  if the buffer does not contain rule ids
    */
   protected int[] readRuleIDs(final CharBuffer cb)
+    throws SchemaParseException
   {
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read ruleids from empty buffer");
+      throw new SchemaParseException("Cannot read ruleids from empty buffer");
     }
     char c = cb.get();
     if (c != '(') {
       return new int[] {readRuleID(cb.position(cb.position() - 1))};
     }
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read ruleids with empty content");
+      throw new SchemaParseException("Cannot read ruleids with empty content");
     }
 
-    final int startPos = cb.position();
-    final int limit = cb.limit();
-    c = readUntil(cb, ')');
-    if (c != ')') {
-      throw new IllegalArgumentException("ruleids must end with a close paren");
+    final int endPos = indexOf(cb, cb.position(), ')');
+    if (endPos < 0) {
+      throw new SchemaParseException("ruleids must end with a close paren");
     }
-    final int endPos = cb.position() - 1;
-    final CharBuffer slice = cb.limit(endPos).position(startPos).slice();
-    cb.limit(limit).position(endPos + 1);
-    final int[] ids = SchemaUtils.parseNumbers(slice.toString().trim());
+    final int[] ids = SchemaUtils.parseNumbers(read(cb, endPos).trim());
+    cb.position(endPos + 1);
     if (ids.length == 0) {
-      throw new IllegalArgumentException("ruleids cannot be empty");
+      throw new SchemaParseException("ruleids cannot be empty");
     }
     return ids;
   }
@@ -170,30 +171,30 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  string read from the buffer
+   *
+   * @throws  SchemaParseException  if the buffer does not contain a qdstring
    */
   protected String readQDString(final CharBuffer cb)
+    throws SchemaParseException
   {
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read qdstring from empty buffer");
+      throw new SchemaParseException("Cannot read qdstring from empty buffer");
     }
-    char c = cb.get();
+    final char c = cb.get();
     if (c != '\'') {
-      throw new IllegalArgumentException("qdstring must start with a single quote");
+      throw new SchemaParseException("qdstring must start with a single quote");
     }
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read qdstring with empty content");
+      throw new SchemaParseException("Cannot read qdstring with empty content");
     }
 
-    final int startPos = cb.position();
-    final int limit = cb.limit();
-    c = readUntil(cb, '\'');
-    if (c != '\'') {
-      throw new IllegalArgumentException("qdstring must end with a single quote");
+    final int endPos = indexOf(cb, cb.position(), '\'');
+    if (endPos < 0) {
+      throw new SchemaParseException("qdstring must end with a single quote");
     }
-    final int endPos = cb.position() - 1;
-    final CharBuffer slice = cb.limit(endPos).position(startPos).slice();
-    cb.limit(limit).position(endPos + 1);
-    return SchemaUtils.parseQDString(slice.toString());
+    final String value = SchemaUtils.parseQDString(read(cb, endPos));
+    cb.position(endPos + 1);
+    return value;
   }
 
 
@@ -205,45 +206,44 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    * @param  cb  to read from
    *
    * @return  string read from the buffer
+   *
+   * @throws  SchemaParseException  if the buffer does not contain qdstrings
    */
   protected String[] readQDStrings(final CharBuffer cb)
+    throws SchemaParseException
   {
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read qdstrings from empty buffer");
+      throw new SchemaParseException("Cannot read qdstrings from empty buffer");
     }
     char c = cb.get();
     if (c == '\'') {
       return new String[] {readQDString(cb.position(cb.position() - 1))};
     } else if (c != '(') {
-      throw new IllegalArgumentException("qdstrings must start with a single quote or an open paren");
+      throw new SchemaParseException("qdstrings must start with a single quote or an open paren");
     }
     if (!cb.hasRemaining()) {
-      throw new IllegalArgumentException("Cannot read qdstrings with empty content");
+      throw new SchemaParseException("Cannot read qdstrings with empty content");
     }
 
     final List<String> values = new ArrayList<>();
-    final int limit = cb.limit();
     while (cb.hasRemaining()) {
       c = cb.get();
       if (c == ')') {
         break;
       } else if (c == '\'') {
-        final int startValue = cb.position();
-        c = readUntil(cb, '\'');
-        if (c != '\'') {
-          throw new IllegalArgumentException("qdstring must end with a single quote");
+        final int endPos = indexOf(cb, cb.position(), '\'');
+        if (endPos < 0) {
+          throw new SchemaParseException("qdstring must end with a single quote");
         }
-        final int endPos = cb.position() - 1;
-        final CharBuffer slice = cb.limit(endPos).position(startValue).slice();
-        cb.limit(limit).position(endPos + 1);
-        values.add(SchemaUtils.parseQDString(slice.toString()));
+        values.add(SchemaUtils.parseQDString(read(cb, endPos)));
+        cb.position(endPos + 1);
       }
     }
     if (c != ')') {
-      throw new IllegalArgumentException("qdstrings must end with a close paren");
+      throw new SchemaParseException("qdstrings must end with a close paren");
     }
     if (values.isEmpty()) {
-      throw new IllegalArgumentException("qdstrings cannot be empty");
+      throw new SchemaParseException("qdstrings cannot be empty");
     }
     return values.toArray(new String[0]);
   }
@@ -262,13 +262,13 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
     if (!cb.hasRemaining()) {
       return "";
     }
-    final int startPos = cb.position();
-    final int limit = cb.limit();
-    readUntil(cb, ' ');
-    final int endPos = cb.position() - 1;
-    final CharBuffer slice = cb.limit(endPos).position(startPos).slice();
-    cb.limit(limit).position(endPos);
-    return slice.toString();
+    int endPos = indexOf(cb, cb.position(), ' ');
+    if (endPos < 0) {
+      endPos = cb.limit();
+    }
+    final String value = read(cb, endPos);
+    cb.position(endPos);
+    return value;
   }
 
 
@@ -280,38 +280,59 @@ public abstract class AbstractDefaultDefinitionFunction<T extends SchemaElement<
    */
   protected void skipSpaces(final CharBuffer cb)
   {
-    if (!cb.hasRemaining()) {
-      return;
+    int pos = cb.position();
+    while (pos < cb.limit() && cb.get(pos) == ' ') {
+      pos++;
     }
-    while (cb.hasRemaining()) {
-      if (cb.get() != ' ') {
-        break;
+    cb.position(pos);
+  }
+
+
+  /**
+   * Returns the position of the first occurrence of the supplied character at or after the supplied position. Does not
+   * change the buffer position.
+   *
+   * @param  cb  to search
+   * @param  start  position to search from
+   * @param  c  to find
+   *
+   * @return  position of the character or -1 if it does not occur before the buffer limit
+   */
+  private static int indexOf(final CharBuffer cb, final int start, final char c)
+  {
+    final int limit = cb.limit();
+    if (cb.hasArray()) {
+      final char[] array = cb.array();
+      final int offset = cb.arrayOffset();
+      for (int i = start; i < limit; i++) {
+        if (array[offset + i] == c) {
+          return i;
+        }
       }
+      return -1;
     }
-    if (!cb.hasRemaining()) {
-      return;
+    for (int i = start; i < limit; i++) {
+      if (cb.get(i) == c) {
+        return i;
+      }
     }
-    cb.position(cb.position() - 1);
+    return -1;
   }
 
 
   /**
-   * Advances the buffer position until the supplied character is found or the end of the buffer is reached.
+   * Returns the characters between the buffer position and the supplied position. Does not change the buffer position.
    *
    * @param  cb  to read from
-   * @param  c  to stop advancing at
+   * @param  end  position, exclusive
    *
-   * @return  the last character read
+   * @return  characters read
    */
-  private char readUntil(final CharBuffer cb, final char c)
+  private static String read(final CharBuffer cb, final int end)
   {
-    char bufferChar = 0;
-    while (cb.hasRemaining()) {
-      bufferChar = cb.get();
-      if (bufferChar == c) {
-        break;
-      }
+    if (cb.hasArray()) {
+      return new String(cb.array(), cb.arrayOffset() + cb.position(), end - cb.position());
     }
-    return bufferChar;
+    return cb.subSequence(0, end - cb.position()).toString();
   }
 }
@@ -591,7 +591,7 @@ public final class AttributeType extends AbstractNamedSchemaElement<String>
           atd.setSubstringMatchingRule(readOID(buffer));
           break;
         case "SYNTAX":
-          atd.setSyntaxOID(readUntilSpace(buffer));
+          atd.setSyntaxOID(readOID(buffer));
           break;
         case "SINGLE-VALUE":
           atd.setSingleValued(true);
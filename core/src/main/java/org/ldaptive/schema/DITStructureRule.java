@@ -295,7 +295,7 @@ public final class DITStructureRule extends AbstractNamedSchemaElement<Integer>
           dsr.setObsolete(true);
           break;
         case "FORM":
-          dsr.setNameForm(readUntilSpace(buffer));
+          dsr.setNameForm(readOID(buffer));
           break;
         case "SUP":
           dsr.setSuperiorRules(readRuleIDs(buffer));
@@ -260,7 +260,7 @@ public final class MatchingRule extends AbstractNamedSchemaElement<String>
           mr.setObsolete(true);
           break;
         case "SYNTAX":
-          mr.setSyntaxOID(readUntilSpace(buffer));
+          mr.setSyntaxOID(readOID(buffer));
           break;
         case "":
           break;
@@ -2,10 +2,12 @@
 package org.ldaptive.schema;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import org.ldaptive.AbstractFreezable;
+import org.ldaptive.AttributeRegistry;
 import org.ldaptive.LdapUtils;
 
 /**
@@ -151,17 +153,7 @@ public final class Schema extends AbstractFreezable
   {
     final List<String> binaryAttrs = new ArrayList<>();
     for (AttributeType type : attributeTypes.getElements()) {
-      boolean isBinary = false;
-      final String syntaxOid = type.getSyntaxOID(false);
-      if (BINARY_SYNTAX.equals(syntaxOid)) {
-        isBinary = true;
-      } else {
-        final Syntax syntax = getSyntax(syntaxOid);
-        if (Syntax.containsBooleanExtension(syntax, "X-NOT-HUMAN-READABLE")) {
-          isBinary = true;
-        }
-      }
-      if (isBinary) {
+      if (isBinarySyntax(type.getSyntaxOID(false))) {
         Collections.addAll(binaryAttrs, type.getNames());
       }
     }
@@ -169,6 +161,65 @@ public final class Schema extends AbstractFreezable
   }
 
 
+  /**
+   * Creates an attribute registry from the attribute types in this schema. Each attribute type is described by its
+   * names, OID, syntax and equality matching rule, inheriting the syntax and matching rule from its superior types if
+   * it does not declare them. An attribute type is binary if its syntax is binary as described in {@link
+   * #getBinaryAttributeNames()} or if {@link AttributeRegistry#getBinaryRegistry()} describes it as binary. Binary
+   * attribute names that are not defined in this schema are included as well.
+   *
+   * @return  attribute registry
+   */
+  public AttributeRegistry createAttributeRegistry()
+  {
+    final AttributeRegistry binaryRegistry = AttributeRegistry.getBinaryRegistry();
+    final List<AttributeRegistry.Descriptor> descriptors = new ArrayList<>();
+    for (AttributeRegistry.Descriptor d : binaryRegistry.getDescriptors()) {
+      if (Arrays.stream(d.getNames()).noneMatch(n -> getAttributeType(n) != null)) {
+        descriptors.add(d);
+      }
+    }
+    for (AttributeType type : attributeTypes.getElements()) {
+      String syntaxOid = type.getSyntaxOID(false);
+      String equality = type.getEqualityMatchingRule();
+      // follow superior types for an inherited syntax and matching rule, guarding against cycles
+      AttributeType superior = type;
+      for (int i = 0; i < attributeTypes.getElements().size() && (syntaxOid == null || equality == null); i++) {
+        superior = superior.getSuperiorType() != null ? getAttributeType(superior.getSuperiorType()) : null;
+        if (superior == null) {
+          break;
+        }
+        syntaxOid = syntaxOid != null ? syntaxOid : superior.getSyntaxOID(false);
+        equality = equality != null ? equality : superior.getEqualityMatchingRule();
+      }
+      final String[] names = type.getNames() != null ? type.getNames() : new String[0];
+      descriptors.add(
+        new AttributeRegistry.Descriptor(
+          type.getOID(),
+          names,
+          syntaxOid,
+          equality,
+          isBinarySyntax(syntaxOid) || Arrays.stream(names).anyMatch(binaryRegistry::isBinary)));
+    }
+    return new AttributeRegistry(descriptors);
+  }
+
+
+  /**
+   * Returns whether the supplied syntax represents binary data. That is the case for the binary syntax and any syntax
+   * with the 'X-NOT-HUMAN-READABLE' extension.
+   *
+   * @param  syntaxOid  to inspect
+   *
+   * @return  whether the syntax is binary
+   */
+  private boolean isBinarySyntax(final String syntaxOid)
+  {
+    return BINARY_SYNTAX.equals(syntaxOid) ||
+      Syntax.containsBooleanExtension(getSyntax(syntaxOid), "X-NOT-HUMAN-READABLE");
+  }
+
+
   /**
    * Returns the DIT content rules.
    *
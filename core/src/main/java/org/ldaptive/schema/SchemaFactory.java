@@ -5,7 +5,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.ldaptive.LdapUtils;
@@ -19,6 +27,9 @@ import org.ldaptive.schema.transcode.MatchingRuleValueTranscoder;
 import org.ldaptive.schema.transcode.NameFormValueTranscoder;
 import org.ldaptive.schema.transcode.ObjectClassValueTranscoder;
 import org.ldaptive.schema.transcode.SyntaxValueTranscoder;
+import org.ldaptive.transcode.ValueTranscoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Factory to create {@link Schema} objects from an LDAP entry.
@@ -28,32 +39,38 @@ import org.ldaptive.schema.transcode.SyntaxValueTranscoder;
 public final class SchemaFactory
 {
 
+  /** Logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SchemaFactory.class);
+
   /** Attribute on the root DSE indicating the location of the subschema entry. */
   private static final String SUBSCHEMA_SUBENTRY_ATTR_NAME = "subschemaSubentry";
 
   /** Attribute types attribute name on the subschema entry. */
-  private static final String ATTRIBUTE_TYPES_ATTR_NAME = "attributeTypes";
+  static final String ATTRIBUTE_TYPES_ATTR_NAME = "attributeTypes";
 
   /** DIT content rules attribute name on the subschema entry. */
-  private static final String DIT_CONTENT_RULES_ATTR_NAME = "dITContentRules";
+  static final String DIT_CONTENT_RULES_ATTR_NAME = "dITContentRules";
 
   /** DIT structure rules attribute name on the subschema entry. */
-  private static final String DIT_STRUCTURE_RULES_ATTR_NAME = "dITStructureRules";
+  static final String DIT_STRUCTURE_RULES_ATTR_NAME = "dITStructureRules";
 
   /** LDAP syntaxes attribute name on the subschema entry. */
-  private static final String LDAP_SYNTAXES_ATTR_NAME = "ldapSyntaxes";
+  static final String LDAP_SYNTAXES_ATTR_NAME = "ldapSyntaxes";
 
   /** Matching rules attribute name on the subschema entry. */
-  private static final String MATCHING_RULES_ATTR_NAME = "matchingRules";
+  static final String MATCHING_RULES_ATTR_NAME = "matchingRules";
 
   /** Matching rule use attribute name on the subschema entry. */
-  private static final String MATCHING_RULE_USE_ATTR_NAME = "matchingRuleUse";
+  static final String MATCHING_RULE_USE_ATTR_NAME = "matchingRuleUse";
 
   /** Name forms attribute name on the subschema entry. */
-  private static final String NAME_FORMS_ATTR_NAME = "nameForms";
+  static final String NAME_FORMS_ATTR_NAME = "nameForms";
 
   /** Object classes attribute name on the subschema entry. */
-  private static final String OBJECT_CLASS_ATTR_NAME = "objectClasses";
+  static final String OBJECT_CLASS_ATTR_NAME = "objectClasses";
+
+  /** Minimum number of values before the values of a schema attribute are parsed in parallel. */
+  private static final int PARALLEL_PARSE_THRESHOLD = 64;
 
 
   /** Default constructor. */
@@ -89,38 +106,196 @@ public final class SchemaFactory
    */
   public static Schema createSchema(final ConnectionFactory factory)
     throws LdapException
+  {
+    return createSchema(getSubschemaEntry(factory, getSubschemaEntryDn(factory)));
+  }
+
+
+  /**
+   * Creates a new schema. The entryDn is searched to obtain the schema.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   * @param  entryDn  the subschema entry
+   *
+   * @return  schema created from the connection factory
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public static Schema createSchema(final ConnectionFactory factory, final String entryDn)
+    throws LdapException
+  {
+    return createSchema(getSubschemaEntry(factory, entryDn));
+  }
+
+
+  /**
+   * Creates a new schema using a snapshot file, see {@link SchemaSnapshot}. If the snapshot file exists it is loaded
+   * and the modify timestamp of the server schema is checked against it. The server schema is only searched for when
+   * it has changed, in which case the snapshot file is replaced. If the server cannot be reached the snapshot schema is
+   * returned. If the snapshot file does not exist or cannot be read, the schema is searched for and the snapshot file
+   * is written.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   * @param  snapshot  file to load the schema from and save it to
+   *
+   * @return  schema created from the snapshot or the connection factory
+   *
+   * @throws  LdapException  if the snapshot cannot be loaded and the search fails
+   */
+  public static Schema createSchema(final ConnectionFactory factory, final Path snapshot)
+    throws LdapException
+  {
+    LdapUtils.assertNotNullArg(snapshot, "Snapshot path cannot be null");
+    final SchemaSnapshot cached = loadSnapshot(snapshot);
+    if (cached != null) {
+      return refreshSnapshot(factory, snapshot, cached).getSchema();
+    }
+    final SchemaSnapshot current = SchemaSnapshot.create(factory);
+    saveSnapshot(current, snapshot);
+    return current.getSchema();
+  }
+
+
+  /**
+   * Creates a new schema using a snapshot file, see {@link SchemaSnapshot}. If the snapshot file exists it is loaded
+   * and returned without contacting the server. A task is submitted to the supplied executor that checks whether the
+   * server schema has changed and replaces the snapshot file if it has, a changed server schema is used the next time
+   * the snapshot is loaded. The task uses the supplied connection factory, callers must not close the factory until the
+   * executor has been shutdown and the task has completed. If the snapshot file does not exist or cannot be read, the
+   * schema is searched for and the snapshot file is written.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   * @param  snapshot  file to load the schema from and save it to
+   * @param  executor  to run the snapshot refresh on
+   *
+   * @return  schema created from the snapshot or the connection factory
+   *
+   * @throws  LdapException  if the snapshot cannot be loaded and the search fails
+   */
+  public static Schema createSchema(final ConnectionFactory factory, final Path snapshot, final Executor executor)
+    throws LdapException
+  {
+    LdapUtils.assertNotNullArg(snapshot, "Snapshot path cannot be null");
+    LdapUtils.assertNotNullArg(executor, "Executor cannot be null");
+    final SchemaSnapshot cached = loadSnapshot(snapshot);
+    if (cached != null) {
+      executor.execute(() -> refreshSnapshot(factory, snapshot, cached));
+      return cached.getSchema();
+    }
+    final SchemaSnapshot current = SchemaSnapshot.create(factory);
+    saveSnapshot(current, snapshot);
+    return current.getSchema();
+  }
+
+
+  /**
+   * Loads the supplied snapshot file, logging any failure.
+   *
+   * @param  snapshot  file to load
+   *
+   * @return  loaded snapshot or null if the file does not exist or cannot be read
+   */
+  private static SchemaSnapshot loadSnapshot(final Path snapshot)
+  {
+    SchemaSnapshot cached = null;
+    if (Files.exists(snapshot)) {
+      try {
+        cached = SchemaSnapshot.load(snapshot);
+        LOGGER.debug("Loaded schema snapshot {} from {}", cached, snapshot);
+      } catch (IOException e) {
+        LOGGER.warn("Could not load schema snapshot from {}", snapshot, e);
+      }
+    }
+    return cached;
+  }
+
+
+  /**
+   * Saves a new snapshot if the server schema is different from the supplied snapshot. Failures are logged and the
+   * supplied snapshot is returned.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   * @param  snapshot  file to save the schema to
+   * @param  cached  snapshot that was loaded from the file
+   *
+   * @return  current snapshot
+   */
+  private static SchemaSnapshot refreshSnapshot(
+    final ConnectionFactory factory,
+    final Path snapshot,
+    final SchemaSnapshot cached)
+  {
+    try {
+      final SchemaSnapshot current = cached.refresh(factory);
+      if (current != cached) {
+        LOGGER.debug("Server schema changed, replacing schema snapshot {} with {}", cached, current);
+        saveSnapshot(current, snapshot);
+      }
+      return current;
+    } catch (Exception e) {
+      LOGGER.warn("Could not refresh schema snapshot {}", snapshot, e);
+      return cached;
+    }
+  }
+
+
+  /**
+   * Saves the supplied snapshot, logging any failure.
+   *
+   * @param  current  snapshot to save
+   * @param  snapshot  file to save to
+   */
+  private static void saveSnapshot(final SchemaSnapshot current, final Path snapshot)
+  {
+    try {
+      current.save(snapshot);
+    } catch (IOException e) {
+      LOGGER.warn("Could not save schema snapshot to {}", snapshot, e);
+    }
+  }
+
+
+  /**
+   * Returns the DN of the subschema entry listed on the root DSE.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   *
+   * @return  subschema entry DN
+   *
+   * @throws  LdapException  if the search fails
+   */
+  static String getSubschemaEntryDn(final ConnectionFactory factory)
+    throws LdapException
   {
     final LdapEntry rootDSE = SchemaUtils.getLdapEntry(
       factory,
       "",
       "(objectClass=*)",
       SUBSCHEMA_SUBENTRY_ATTR_NAME);
-    final String entryDn = rootDSE.getAttribute(SUBSCHEMA_SUBENTRY_ATTR_NAME).getStringValue();
-    return createSchema(
-      SchemaUtils.getLdapEntry(factory, entryDn, "(objectClass=subSchema)", ReturnAttributes.ALL.value()));
+    return rootDSE.getAttribute(SUBSCHEMA_SUBENTRY_ATTR_NAME).getStringValue();
   }
 
 
   /**
-   * Creates a new schema. The entryDn is searched to obtain the schema.
+   * Returns the subschema entry with the supplied DN, including operational attributes.
    *
    * @param  factory  to obtain an LDAP connection from
-   * @param  entryDn  the subschema entry
+   * @param  entryDn  of the subschema entry
    *
-   * @return  schema created from the connection factory
+   * @return  subschema entry
    *
    * @throws  LdapException  if the search fails
    */
-  public static Schema createSchema(final ConnectionFactory factory, final String entryDn)
+  static LdapEntry getSubschemaEntry(final ConnectionFactory factory, final String entryDn)
     throws LdapException
   {
-    return createSchema(
-      SchemaUtils.getLdapEntry(factory, entryDn, "(objectClass=subSchema)", ReturnAttributes.ALL.value()));
+    return SchemaUtils.getLdapEntry(factory, entryDn, "(objectClass=subSchema)", ReturnAttributes.ALL.value());
   }
 
 
   /**
-   * Creates a new schema. The schema entry is parsed to obtain the schema.
+   * Creates a new schema. The schema entry is parsed to obtain the schema. Attributes with many values, such as the
+   * attribute types of a large directory, have their values parsed in parallel.
    *
    * @param  schemaEntry  containing the schema
    *
@@ -133,28 +308,47 @@ public final class SchemaFactory
     final Schema schema = new Schema();
     schemaEntry.processAttribute(
       ATTRIBUTE_TYPES_ATTR_NAME,
-      attr -> schema.setAttributeTypes(attr.getValues(new AttributeTypeValueTranscoder().decoder())));
+      attr -> schema.setAttributeTypes(parseValues(attr, new AttributeTypeValueTranscoder())));
     schemaEntry.processAttribute(
       DIT_CONTENT_RULES_ATTR_NAME,
-      attr -> schema.setDITContentRules(attr.getValues(new DITContentRuleValueTranscoder().decoder())));
+      attr -> schema.setDITContentRules(parseValues(attr, new DITContentRuleValueTranscoder())));
     schemaEntry.processAttribute(
       DIT_STRUCTURE_RULES_ATTR_NAME,
-      attr -> schema.setDITStructureRules(attr.getValues(new DITStructureRuleValueTranscoder().decoder())));
+      attr -> schema.setDITStructureRules(parseValues(attr, new DITStructureRuleValueTranscoder())));
     schemaEntry.processAttribute(
       LDAP_SYNTAXES_ATTR_NAME,
-      attr -> schema.setSyntaxes(attr.getValues(new SyntaxValueTranscoder().decoder())));
+      attr -> schema.setSyntaxes(parseValues(attr, new SyntaxValueTranscoder())));
     schemaEntry.processAttribute(
       MATCHING_RULES_ATTR_NAME,
-      attr -> schema.setMatchingRules(attr.getValues(new MatchingRuleValueTranscoder().decoder())));
+      attr -> schema.setMatchingRules(parseValues(attr, new MatchingRuleValueTranscoder())));
     schemaEntry.processAttribute(
       MATCHING_RULE_USE_ATTR_NAME,
-      attr -> schema.setMatchingRuleUses(attr.getValues(new MatchingRuleUseValueTranscoder().decoder())));
+      attr -> schema.setMatchingRuleUses(parseValues(attr, new MatchingRuleUseValueTranscoder())));
     schemaEntry.processAttribute(
       NAME_FORMS_ATTR_NAME,
-      attr -> schema.setNameForms(attr.getValues(new NameFormValueTranscoder().decoder())));
+      attr -> schema.setNameForms(parseValues(attr, new NameFormValueTranscoder())));
     schemaEntry.processAttribute(
       OBJECT_CLASS_ATTR_NAME,
-      attr -> schema.setObjectClasses(attr.getValues(new ObjectClassValueTranscoder().decoder())));
+      attr -> schema.setObjectClasses(parseValues(attr, new ObjectClassValueTranscoder())));
     return schema;
   }
+
+
+  /**
+   * Decodes the values of the supplied schema attribute with the supplied transcoder. Values are decoded in parallel if
+   * there are at least {@link #PARALLEL_PARSE_THRESHOLD} of them. The order of the values is preserved.
+   *
+   * @param  <T>  type of schema element
+   * @param  attr  containing schema definitions
+   * @param  transcoder  to decode each definition with
+   *
+   * @return  decoded schema elements
+   */
+  private static <T> List<T> parseValues(final LdapAttribute attr, final ValueTranscoder<T> transcoder)
+  {
+    final Collection<byte[]> values = attr.getBinaryValues();
+    final Stream<byte[]> stream = values.size() >= PARALLEL_PARSE_THRESHOLD ?
+      values.parallelStream() : values.stream();
+    return stream.map(transcoder.decoder()).collect(Collectors.toUnmodifiableList());
+  }
 }
@@ -0,0 +1,410 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.schema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+
+/**
+ * Parsed schema together with the DN and modify timestamp of the subschema entry it was created from. A snapshot can
+ * be saved to a compact versioned binary file and loaded at startup instead of searching for the subschema entry. The
+ * modify timestamp is compared with the subschema entry on the server to decide whether the snapshot is still current,
+ * which only requires reading a single attribute. See {@link SchemaFactory#createSchema(ConnectionFactory, Path)}.
+ *
+ * <p>The binary format is a magic number and a format version, followed by the entry DN, the modify timestamp and the
+ * definitions of each type of schema element. Strings are stored as a length followed by UTF-8 bytes. Definitions are
+ * parsed again when a snapshot is loaded, in parallel for large schemas.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class SchemaSnapshot
+{
+
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1193;
+
+  /** Identifies a schema snapshot, the ASCII characters 'LDSS'. */
+  private static final int MAGIC = 0x4C445353;
+
+  /** Version of the binary format. */
+  private static final int VERSION = 1;
+
+  /** Modify timestamp attribute name on the subschema entry. */
+  private static final String MODIFY_TIMESTAMP_ATTR_NAME = "modifyTimestamp";
+
+  /** DN of the subschema entry. */
+  private final String entryDn;
+
+  /** Modify timestamp of the subschema entry. */
+  private final String modifyTimestamp;
+
+  /** Parsed schema. */
+  private final Schema schema;
+
+
+  /**
+   * Creates a new schema snapshot.
+   *
+   * @param  dn  of the subschema entry
+   * @param  timestamp  modify timestamp of the subschema entry, may be null
+   * @param  s  parsed schema
+   */
+  public SchemaSnapshot(final String dn, final String timestamp, final Schema s)
+  {
+    entryDn = LdapUtils.assertNotNullArg(dn, "Entry DN cannot be null");
+    modifyTimestamp = timestamp;
+    schema = LdapUtils.assertNotNullArg(s, "Schema cannot be null");
+  }
+
+
+  /**
+   * Creates a new schema snapshot from the supplied subschema entry.
+   *
+   * @param  schemaEntry  containing the schema and its modify timestamp
+   *
+   * @return  schema snapshot
+   */
+  public static SchemaSnapshot create(final LdapEntry schemaEntry)
+  {
+    LdapUtils.assertNotNullArg(schemaEntry, "Schema entry cannot be null");
+    final LdapAttribute timestamp = schemaEntry.getAttribute(MODIFY_TIMESTAMP_ATTR_NAME);
+    return new SchemaSnapshot(
+      schemaEntry.getDn(),
+      timestamp != null ? timestamp.getStringValue() : null,
+      SchemaFactory.createSchema(schemaEntry));
+  }
+
+
+  /**
+   * Creates a new schema snapshot by searching for the subschema entry.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   *
+   * @return  schema snapshot
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public static SchemaSnapshot create(final ConnectionFactory factory)
+    throws LdapException
+  {
+    return create(SchemaFactory.getSubschemaEntry(factory, SchemaFactory.getSubschemaEntryDn(factory)));
+  }
+
+
+  /**
+   * Returns the DN of the subschema entry.
+   *
+   * @return  entry DN
+   */
+  public String getEntryDn()
+  {
+    return entryDn;
+  }
+
+
+  /**
+   * Returns the modify timestamp of the subschema entry.
+   *
+   * @return  modify timestamp or null if the entry did not have one
+   */
+  public String getModifyTimestamp()
+  {
+    return modifyTimestamp;
+  }
+
+
+  /**
+   * Returns the schema.
+   *
+   * @return  schema
+   */
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+
+  /**
+   * Returns whether the subschema entry on the server has the same modify timestamp as this snapshot. A snapshot
+   * without a modify timestamp is never current.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   *
+   * @return  whether this snapshot matches the server schema
+   *
+   * @throws  LdapException  if the search fails
+   */
+  public boolean isCurrent(final ConnectionFactory factory)
+    throws LdapException
+  {
+    if (modifyTimestamp == null) {
+      return false;
+    }
+    final LdapEntry entry = SchemaUtils.getLdapEntry(
+      factory,
+      entryDn,
+      "(objectClass=subSchema)",
+      MODIFY_TIMESTAMP_ATTR_NAME);
+    final LdapAttribute timestamp = entry != null ? entry.getAttribute(MODIFY_TIMESTAMP_ATTR_NAME) : null;
+    return timestamp != null && modifyTimestamp.equals(timestamp.getStringValue());
+  }
+
+
+  /**
+   * Returns a snapshot of the current server schema. Returns this snapshot if it is current, otherwise searches for the
+   * subschema entry.
+   *
+   * @param  factory  to obtain an LDAP connection from
+   *
+   * @return  current schema snapshot
+   *
+   * @throws  LdapException  if a search fails
+   */
+  public SchemaSnapshot refresh(final ConnectionFactory factory)
+    throws LdapException
+  {
+    if (isCurrent(factory)) {
+      return this;
+    }
+    return create(SchemaFactory.getSubschemaEntry(factory, entryDn));
+  }
+
+
+  /**
+   * Encodes this snapshot in the binary snapshot format.
+   *
+   * @return  encoded snapshot
+   */
+  public byte[] encode()
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, entryDn);
+      writeString(out, modifyTimestamp);
+      writeElements(out, schema.getAttributeTypes());
+      writeElements(out, schema.getDITContentRules());
+      writeElements(out, schema.getDITStructureRules());
+      writeElements(out, schema.getSyntaxes());
+      writeElements(out, schema.getMatchingRules());
+      writeElements(out, schema.getMatchingRuleUses());
+      writeElements(out, schema.getNameForms());
+      writeElements(out, schema.getObjectClasses());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode schema snapshot", e);
+    }
+    return bytes.toByteArray();
+  }
+
+
+  /**
+   * Decodes a snapshot in the binary snapshot format.
+   *
+   * @param  buffer  containing the encoded snapshot
+   *
+   * @return  schema snapshot
+   *
+   * @throws  IllegalArgumentException  if the buffer does not contain a snapshot or has an unsupported version
+   */
+  public static SchemaSnapshot decode(final ByteBuffer buffer)
+  {
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IllegalArgumentException("Buffer does not contain a schema snapshot");
+      }
+      final int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported schema snapshot version " + version);
+      }
+      final String dn = readString(buffer);
+      final String timestamp = readString(buffer);
+      final LdapEntry entry = new LdapEntry();
+      entry.setDn(dn);
+      entry.addAttributes(
+        readElements(buffer, SchemaFactory.ATTRIBUTE_TYPES_ATTR_NAME),
+        readElements(buffer, SchemaFactory.DIT_CONTENT_RULES_ATTR_NAME),
+        readElements(buffer, SchemaFactory.DIT_STRUCTURE_RULES_ATTR_NAME),
+        readElements(buffer, SchemaFactory.LDAP_SYNTAXES_ATTR_NAME),
+        readElements(buffer, SchemaFactory.MATCHING_RULES_ATTR_NAME),
+        readElements(buffer, SchemaFactory.MATCHING_RULE_USE_ATTR_NAME),
+        readElements(buffer, SchemaFactory.NAME_FORMS_ATTR_NAME),
+        readElements(buffer, SchemaFactory.OBJECT_CLASS_ATTR_NAME));
+      return new SchemaSnapshot(dn, timestamp, SchemaFactory.createSchema(entry));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Schema snapshot is truncated", e);
+    }
+  }
+
+
+  /**
+   * Writes this snapshot to the supplied file. The snapshot is written to a temporary file in the same directory which
+   * then replaces the file, so a concurrent {@link #load(Path)} never reads a partial snapshot.
+   *
+   * @param  path  to write to
+   *
+   * @throws  IOException  if the file cannot be written
+   */
+  public void save(final Path path)
+    throws IOException
+  {
+    final Path dir = path.toAbsolutePath().getParent();
+    final Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+    try {
+      Files.write(tmp, encode());
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+
+  /**
+   * Reads a snapshot from the supplied file. The file is memory mapped.
+   *
+   * @param  path  to read from
+   *
+   * @return  schema snapshot
+   *
+   * @throws  IOException  if the file cannot be read or does not contain a valid snapshot
+   */
+  public static SchemaSnapshot load(final Path path)
+    throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Could not read schema snapshot from " + path, e);
+    }
+  }
+
+
+  /**
+   * Writes the definitions of the supplied schema elements.
+   *
+   * @param  out  to write to
+   * @param  elements  to write
+   *
+   * @throws  IOException  if the stream cannot be written to
+   */
+  private static void writeElements(final DataOutputStream out, final Collection<? extends SchemaElement<?>> elements)
+    throws IOException
+  {
+    out.writeInt(elements.size());
+    for (SchemaElement<?> element : elements) {
+      writeString(out, element.format());
+    }
+  }
+
+
+  /**
+   * Reads schema element definitions into an attribute.
+   *
+   * @param  buffer  to read from
+   * @param  name  of the attribute
+   *
+   * @return  attribute containing the definitions
+   */
+  private static LdapAttribute readElements(final ByteBuffer buffer, final String name)
+  {
+    final int count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid number of " + name + ": " + count);
+    }
+    final LdapAttribute attr = new LdapAttribute(name);
+    for (int i = 0; i < count; i++) {
+      attr.addStringValues(readString(buffer));
+    }
+    return attr;
+  }
+
+
+  /**
+   * Writes a string as its length followed by its UTF-8 bytes. A null string is written as a length of -1.
+   *
+   * @param  out  to write to
+   * @param  s  to write
+   *
+   * @throws  IOException  if the stream cannot be written to
+   */
+  private static void writeString(final DataOutputStream out, final String s)
+    throws IOException
+  {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+
+  /**
+   * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+   *
+   * @param  buffer  to read from
+   *
+   * @return  string or null
+   */
+  private static String readString(final ByteBuffer buffer)
+  {
+    final int length = buffer.getInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid string length " + length);
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof SchemaSnapshot) {
+      final SchemaSnapshot v = (SchemaSnapshot) o;
+      return LdapUtils.areEqual(entryDn, v.entryDn) &&
+             LdapUtils.areEqual(modifyTimestamp, v.modifyTimestamp) &&
+             LdapUtils.areEqual(schema, v.schema);
+    }
+    return false;
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED, entryDn, modifyTimestamp, schema);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "entryDn=" + entryDn + ", " +
+      "modifyTimestamp=" + modifyTimestamp + "]";
+  }
+}
@@ -4,8 +4,14 @@ package org.ldaptive.transport;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import org.ldaptive.AbandonRequest;
 import org.ldaptive.AddRequest;
@@ -48,6 +54,7 @@ import org.ldaptive.handler.ResponseControlHandler;
 import org.ldaptive.handler.ResultHandler;
 import org.ldaptive.handler.ResultPredicate;
 import org.ldaptive.handler.UnsolicitedNotificationHandler;
+import org.ldaptive.metrics.MetricsListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,9 +127,18 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   /** Function to run when a result is received to determine whether an exception should be raised. */
   private ResultPredicate throwCondition;
 
+  /**
+   * Guards the transition of this handle to complete. Complete handlers and completion stage actions are invoked after
+   * it is released, so they do not run on the I/O thread while other threads wait for the lock.
+   */
+  private final ReentrantLock completeLock = new ReentrantLock();
+
   /** Semaphore to determine when a response has been received. */
   private final Semaphore responseSemaphore = new Semaphore(0);
 
+  /** Whether this handle has suspended reads on its connection, see {@link #suspendReads()}. */
+  private final AtomicBoolean readsSuspended = new AtomicBoolean();
+
   /** Timestamp when the handle was created. */
   private final Instant creationTime = Instant.now();
 
@@ -138,12 +154,21 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   /** Whether this handle has consumed any messages. */
   private volatile boolean consumedMessage;
 
+  /** Value of {@link System#nanoTime()} when the request was sent or a message last signaled the response timeout. */
+  private volatile long lastResponseActivity;
+
   /** Protocol response result. */
   private S result;
 
   /** Exception encountered attempting to process the request. */
   private LdapException exception;
 
+  /** Completed when this handle completes, see {@link #toCompletionStage()}. */
+  private volatile CompletableFuture<S> completionFuture;
+
+  /** Index of the {@link ResponseTimeoutWheel} bucket containing this handle, or -1 if it is not in a wheel. */
+  volatile int timeoutBucket = -1;
+
 
   /**
    * Creates a new operation handle.
@@ -166,6 +191,18 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   }
 
 
+  /**
+   * Returns whether this operation is abandoned if no message is received within its response timeout. See {@link
+   * ResponseTimeoutWheel} and {@link #toCompletionStage()}.
+   *
+   * @return  whether the response timeout is non-zero
+   */
+  protected boolean isResponseTimeoutEnabled()
+  {
+    return responseTimeout != null && !Duration.ZERO.equals(responseTimeout);
+  }
+
+
   /**
    * Returns a predicate to determine whether the responseTimeout semaphore should be released.
    *
@@ -220,6 +257,21 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
       logger.trace("await interrupted acquiring {} for handle {} waiting for response", responseSemaphore, this, e);
       abandon(new LdapException(ResultCode.LOCAL_ERROR, e));
     }
+    return completedResult();
+  }
+
+
+  /**
+   * Returns the result of this operation after it has completed. Invokes {@link #onReferralResult} and the throw
+   * condition, if they exist.
+   *
+   * @return  result of the operation
+   *
+   * @throws  LdapException  if the operation produced an exception or the throw condition fails
+   */
+  protected S completedResult()
+    throws LdapException
+  {
     if (result != null && exception == null) {
       logger.trace("await received result {} for handle {}", result, this);
       if (ResultCode.REFERRAL == result.getResultCode() && onReferralResult != null) {
@@ -239,6 +291,85 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   }
 
 
+  /**
+   * Returns a completion stage that is completed by the thread that completes this handle, so no thread waits for the
+   * response. The stage completes with the value {@link #await()} would return, or exceptionally with the exception it
+   * would throw. If no message is received within the response timeout the operation is abandoned and the stage
+   * completes with {@link ResultCode#LDAP_TIMEOUT}. Time spent with reads suspended on the connection, such as while a
+   * subscriber of {@link SearchEntryPublisher} has no demand, does not count towards the timeout. The result is
+   * processed once, when the stage completes, so callers should not also invoke {@link #await()}.
+   *
+   * @return  completion stage for the result of this operation
+   */
+  @Override
+  public CompletionStage<S> toCompletionStage()
+  {
+    final CompletableFuture<S> future;
+    boolean completed = false;
+    completeLock.lock();
+    try {
+      if (completionFuture == null) {
+        completionFuture = new CompletableFuture<>();
+        if (receivedTime != null) {
+          completed = true;
+        } else if (sentTime != null) {
+          scheduleCompletionTimeout();
+        }
+      }
+      future = completionFuture;
+    } finally {
+      completeLock.unlock();
+    }
+    if (completed) {
+      completeFuture();
+    }
+    return future;
+  }
+
+
+  /**
+   * Abandons this operation if no message is consumed within {@link #responseTimeout}. The timeout is evaluated against
+   * the same response deadline as {@link ResponseTimeoutWheel}, so it is extended by consumed messages and restarted
+   * while reads are suspended on the connection.
+   */
+  private void scheduleCompletionTimeout()
+  {
+    if (!isResponseTimeoutEnabled()) {
+      return;
+    }
+    scheduleCompletionTimeout(responseTimeout.toNanos());
+  }
+
+
+  /**
+   * Checks the response deadline of this operation after the supplied delay, see {@link #expire(long, Executor)}. The
+   * check is rescheduled until the operation completes or expires.
+   *
+   * @param  delay  in nanoseconds
+   */
+  private void scheduleCompletionTimeout(final long delay)
+  {
+    CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+      if (!completionFuture.isDone() && !expire(System.nanoTime(), Runnable::run)) {
+        scheduleCompletionTimeout(Math.max(getResponseDeadline() - System.nanoTime(), 1));
+      }
+    });
+  }
+
+
+  /**
+   * Completes {@link #completionFuture} with the result of {@link #completedResult()}.
+   */
+  private void completeFuture()
+  {
+    try {
+      completionFuture.complete(completedResult());
+    } catch (Exception e) {
+      completionFuture.completeExceptionally(e);
+    }
+  }
+
+
   /**
    * Invokes {@link #throwCondition}, if it exists, for the supplied result.
    *
@@ -412,6 +543,14 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
           logger.debug("Could not abandon operation for {}", this, e);
         } finally {
           abandonedTime = Instant.now();
+          final MetricsListener listener = getMetricsListener();
+          if (listener != null) {
+            try {
+              listener.operationAbandoned(request, connection != null ? connection.getLdapURL() : null);
+            } catch (Exception e) {
+              logger.warn("Metrics listener {} in handle {} threw an exception", listener, this, e);
+            }
+          }
           exception(cause);
         }
       } else {
@@ -490,6 +629,17 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   }
 
 
+  /**
+   * Returns the duration to wait for a response.
+   *
+   * @return  response timeout
+   */
+  public Duration getResponseTimeout()
+  {
+    return responseTimeout;
+  }
+
+
   @Override
   public Instant getSentTime()
   {
@@ -655,6 +805,10 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
       throw new IllegalStateException("Message already sent.");
     }
     sentTime = Instant.now();
+    lastResponseActivity = System.nanoTime();
+    if (completionFuture != null) {
+      scheduleCompletionTimeout();
+    }
   }
 
 
@@ -878,6 +1032,61 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   }
 
 
+  /**
+   * Returns the value of {@link System#nanoTime()} at which this operation times out if no further message is consumed.
+   * Consuming a message that satisfies {@link #getResponseTimeoutCondition()} extends the deadline in the same manner
+   * as {@link #await()}.
+   *
+   * @return  response deadline in nanoseconds
+   */
+  long getResponseDeadline()
+  {
+    return lastResponseActivity + responseTimeout.toNanos();
+  }
+
+
+  /**
+   * Abandons this operation with {@link ResultCode#LDAP_TIMEOUT} on the supplied executor if no response has been
+   * received by its response deadline. See {@link ResponseTimeoutWheel}. While reads are suspended on the connection
+   * no responses can arrive, so the deadline is restarted rather than expired; a slow consumer of a streaming search
+   * does not cause operations to time out.
+   *
+   * @param  now  value of {@link System#nanoTime()}
+   * @param  executor  to abandon the operation on, so that abandon and complete handlers do not run on the caller
+   *
+   * @return  true if this operation is complete or was expired, false if its deadline has not passed
+   */
+  boolean expire(final long now, final Executor executor)
+  {
+    if (receivedTime != null || abandonedTime != null) {
+      return true;
+    }
+    final TransportConnection conn = connection;
+    if (conn != null && conn.isReadsSuspended()) {
+      lastResponseActivity = now;
+      return false;
+    }
+    if (now - getResponseDeadline() < 0) {
+      return false;
+    }
+    final Runnable abandon = () -> {
+      if (receivedTime == null && abandonedTime == null) {
+        abandon(
+          new LdapException(
+            ResultCode.LDAP_TIMEOUT,
+            "No response received in " + responseTimeout.toMillis() + "ms for handle " + this));
+      }
+    };
+    try {
+      executor.execute(abandon);
+    } catch (RejectedExecutionException e) {
+      logger.debug("Could not dispatch expiration of handle {}, expiring on the calling thread", this, e);
+      abandon.run();
+    }
+    return true;
+  }
+
+
   /**
    * Indicates that a protocol message was consumed by a supplied consumer.
    *
@@ -887,23 +1096,82 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   {
     consumedMessage = true;
     if (signalResponseSemaphore) {
+      lastResponseActivity = System.nanoTime();
       responseSemaphore.release();
     }
   }
 
 
+  /**
+   * Requests that the connection stop reading responses from the server. See {@link
+   * TransportConnection#suspendReads()}. Each handle holds at most one suspension, which is released by {@link
+   * #resumeReads()} or when the handle completes.
+   */
+  protected void suspendReads()
+  {
+    final TransportConnection conn = connection;
+    if (conn != null && readsSuspended.compareAndSet(false, true)) {
+      conn.suspendReads();
+    }
+  }
+
+
+  /**
+   * Requests that the connection resume reading responses from the server. See {@link
+   * TransportConnection#resumeReads()}. Does nothing if this handle has not suspended reads.
+   */
+  protected void resumeReads()
+  {
+    final TransportConnection conn = connection;
+    if (conn != null && readsSuspended.compareAndSet(true, false)) {
+      conn.resumeReads();
+    }
+  }
+
+
+  /**
+   * Returns whether this handle has suspended reads on its connection.
+   *
+   * @return  whether reads are suspended by this handle
+   */
+  boolean isReadsSuspended()
+  {
+    return readsSuspended.get();
+  }
+
+
   /**
    * Releases the latch and sets the response as received. Invokes {@link #onComplete}. Handle is considered done when
    * this is invoked.
    */
-  private synchronized void complete()
+  private void complete()
   {
+    final CompletableFuture<S> future;
+    completeLock.lock();
     try {
       if (receivedTime != null) {
         logger.debug("Operation already complete for handle {}", this);
         return;
       }
       receivedTime = Instant.now();
+      future = completionFuture;
+    } finally {
+      completeLock.unlock();
+    }
+    try {
+      resumeReads();
+      final MetricsListener listener = getMetricsListener();
+      if (listener != null) {
+        try {
+          listener.operationCompleted(
+            request,
+            connection.getLdapURL(),
+            result != null ? result.getResultCode() : null,
+            Duration.between(sentTime != null ? sentTime : creationTime, receivedTime));
+        } catch (Exception e) {
+          logger.warn("Metrics listener {} in handle {} threw an exception", listener, this, e);
+        }
+      }
       if (onComplete != null) {
         try {
           onComplete.execute();
@@ -911,6 +1179,9 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
           logger.warn("Complete consumer {} in handle {} threw an exception", onComplete, this, e);
         }
       }
+      if (future != null) {
+        completeFuture();
+      }
     } finally {
       try {
         if (connection != null) {
@@ -925,6 +1196,18 @@ public class DefaultOperationHandle<Q extends Request, S extends Result> impleme
   }
 
 
+  /**
+   * Returns the metrics listener configured on the connection of this handle.
+   *
+   * @return  metrics listener or null if none is configured or this handle has completed
+   */
+  private MetricsListener getMetricsListener()
+  {
+    final TransportConnection conn = connection;
+    return conn != null ? conn.connectionConfig.getMetricsListener() : null;
+  }
+
+
   /**
    * Invokes the supplied referral result handler and returns the result of that handler.
    *
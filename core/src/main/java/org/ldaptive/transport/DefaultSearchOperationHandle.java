@@ -13,6 +13,9 @@ import org.ldaptive.SearchOperationHandle;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResponse;
 import org.ldaptive.SearchResultReference;
+import org.ldaptive.control.PersistentSearchRequestControl;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.control.SyncRequestControl;
 import org.ldaptive.extended.IntermediateResponse;
 import org.ldaptive.handler.CompleteHandler;
 import org.ldaptive.handler.ExceptionHandler;
@@ -60,7 +63,10 @@ public final class DefaultSearchOperationHandle
   private static final boolean SORT_RESULTS = Boolean.parseBoolean(
     System.getProperty("org.ldaptive.sortSearchResults", "false"));
 
-  /** Synthetic result that is built as entries and references are received. */
+  /**
+   * Synthetic result that is built as entries and references are received. Entries are fully decoded before they are
+   * added, so the result never holds a slice of a response buffer.
+   */
   private final SearchResponse result = new SearchResponse();
 
   /** Number of entries received. */
@@ -75,6 +81,9 @@ public final class DefaultSearchOperationHandle
   /** Functions to handle complete response. */
   private SearchResultHandler[] onSearchResult;
 
+  /** Receives entries instead of the search response. */
+  private SearchEntrySink entrySink;
+
 
   /**
    * Creates a new search operation handle.
@@ -96,6 +105,31 @@ public final class DefaultSearchOperationHandle
   }
 
 
+  /**
+   * Persistent searches and sync repl searches may legitimately go without a response for an unbounded period, so they
+   * are never abandoned by the response timeout.
+   *
+   * @return  whether the response timeout is non-zero and the request is not a persistent or sync repl search
+   */
+  @Override
+  protected boolean isResponseTimeoutEnabled()
+  {
+    if (!super.isResponseTimeoutEnabled()) {
+      return false;
+    }
+    final RequestControl[] controls = getRequest().getControls();
+    if (controls != null) {
+      for (RequestControl control : controls) {
+        if (PersistentSearchRequestControl.OID.equals(control.getOID()) ||
+            SyncRequestControl.OID.equals(control.getOID())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+
   @Override
   public DefaultSearchOperationHandle send()
   {
@@ -105,10 +139,10 @@ public final class DefaultSearchOperationHandle
 
 
   @Override
-  public SearchResponse await()
+  protected SearchResponse completedResult()
     throws LdapException
   {
-    SearchResponse done = super.await();
+    SearchResponse done = super.completedResult();
     if (onSearchResult != null) {
       for (SearchResultHandler func : onSearchResult) {
         final SearchResponse handlerResponse;
@@ -237,6 +271,56 @@ public final class DefaultSearchOperationHandle
   }
 
 
+  /**
+   * Configures this handle to stream entries through the returned iterator instead of adding them to the search
+   * response. Entries are delivered after any {@link #onEntry} handlers have been invoked. Reads on the connection are
+   * suspended whenever the number of unconsumed entries reaches the supplied capacity, so a slow consumer applies
+   * backpressure to the server rather than buffering the entire result set. This method must be invoked before {@link
+   * #send()}.
+   *
+   * @param  capacity  number of unconsumed entries at which reads are suspended
+   *
+   * @return  iterator of search entries
+   */
+  public SearchEntryIterator entryIterator(final int capacity)
+  {
+    assertNotSent();
+    final SearchEntryIterator iterator = new SearchEntryIterator(this, capacity);
+    entrySink = iterator;
+    return iterator;
+  }
+
+
+  /**
+   * Configures this handle to publish entries to a single subscriber instead of adding them to the search response.
+   * Entries are delivered after any {@link #onEntry} handlers have been invoked. Reads on the connection are suspended
+   * whenever the subscriber has no outstanding demand, so a slow subscriber applies backpressure to the server rather
+   * than buffering the entire result set. This method must be invoked before {@link #send()}.
+   *
+   * @return  publisher of search entries
+   */
+  public SearchEntryPublisher entryPublisher()
+  {
+    assertNotSent();
+    final SearchEntryPublisher publisher = new SearchEntryPublisher(this);
+    entrySink = publisher;
+    return publisher;
+  }
+
+
+  /**
+   * Throws if this handle has already been sent.
+   *
+   * @throws  IllegalStateException  if this handle has been sent
+   */
+  private void assertNotSent()
+  {
+    if (getSentTime() != null) {
+      throw new IllegalStateException("Request for handle " + this + " has already been sent");
+    }
+  }
+
+
   /**
    * Returns the ldap entry handlers.
    *
@@ -301,7 +385,15 @@ public final class DefaultSearchOperationHandle
     }
     entryCount++;
     if (e != null) {
-      result.addEntries(e);
+      if (entrySink != null) {
+        entrySink.add(e);
+      } else {
+        // copy any lazily decoded attributes out of the response buffer before the entry is retained
+        e.decodeAttributes();
+        result.addEntries(e);
+      }
+    } else {
+      r.release();
     }
     consumedMessage(r);
   }
@@ -337,6 +429,9 @@ public final class DefaultSearchOperationHandle
   public void result(final SearchResponse r)
   {
     processResult(r);
+    if (entrySink != null) {
+      entrySink.complete();
+    }
     r.addEntries(result.getEntries());
     r.addReferences(result.getReferences());
     if (SORT_RESULTS) {
@@ -347,6 +442,19 @@ public final class DefaultSearchOperationHandle
   }
 
 
+  @Override
+  public void exception(final LdapException e)
+  {
+    try {
+      super.exception(e);
+    } finally {
+      if (entrySink != null) {
+        entrySink.complete();
+      }
+    }
+  }
+
+
   @Override
   public String toString()
   {
@@ -355,6 +463,7 @@ public final class DefaultSearchOperationHandle
       "entryCount=" + entryCount + ", " +
       "onEntry=" + Arrays.toString(onEntry) + ", " +
       "onReference=" + Arrays.toString(onReference) + ", " +
-      "onSearchResult=" + Arrays.toString(onSearchResult);
+      "onSearchResult=" + Arrays.toString(onSearchResult) + ", " +
+      "entrySink=" + entrySink;
   }
 }
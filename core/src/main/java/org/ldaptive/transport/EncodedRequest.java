@@ -1,11 +1,15 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.transport;
 
+import java.nio.ByteBuffer;
 import org.ldaptive.LdapUtils;
 import org.ldaptive.Request;
+import org.ldaptive.asn1.DEREncoder;
 
 /**
- * Wrapper object that stores an encoded request with its message ID.
+ * Wrapper object that stores an encoded request with its message ID. The length of the request is computed when this
+ * object is created, but the request is not written until {@link #encode(ByteBuffer)} is invoked, so a transport can
+ * write it directly into an I/O buffer without first encoding it to a byte array.
  *
  * @author  Middleware Services
  */
@@ -15,8 +19,14 @@ public final class EncodedRequest
   /** Protocol message ID. */
   private final int messageID;
 
-  /** Encoded request. */
-  private final byte[] encoded;
+  /** Request encoder. */
+  private final DEREncoder encoder;
+
+  /** Length of the encoded request. */
+  private final int length;
+
+  /** Encoded request, created on demand by {@link #getEncoded()}. */
+  private byte[] encoded;
 
 
   /**
@@ -28,7 +38,8 @@ public final class EncodedRequest
   public EncodedRequest(final int id, final Request request)
   {
     messageID = id;
-    encoded = request.encode(messageID);
+    encoder = request.getEncoder(messageID);
+    length = encoder.encodedLength();
   }
 
 
@@ -43,6 +54,17 @@ public final class EncodedRequest
   }
 
 
+  /**
+   * Returns the length of the encoded request.
+   *
+   * @return  number of bytes in the encoded request
+   */
+  public int getLength()
+  {
+    return length;
+  }
+
+
   /**
    * Returns the encoded request.
    *
@@ -50,15 +72,34 @@ public final class EncodedRequest
    */
   public byte[] getEncoded()
   {
+    if (encoded == null) {
+      encoded = encoder.encode();
+    }
     return encoded;
   }
 
 
+  /**
+   * Writes the encoded request at the current position of the supplied buffer.
+   *
+   * @param  target  to write to, which must have at least {@link #getLength()} bytes remaining
+   */
+  public void encode(final ByteBuffer target)
+  {
+    if (encoded != null) {
+      target.put(encoded);
+    } else {
+      encoder.encode(target);
+    }
+  }
+
+
   @Override
   public String toString()
   {
     return getClass().getName() + "@" + hashCode() + "::" +
       "messageID=" + messageID + ", " +
-      "encoded=" + String.valueOf(LdapUtils.hexEncode(encoded));
+      "length=" + length + ", " +
+      "encoded=" + String.valueOf(LdapUtils.hexEncode(getEncoded()));
   }
 }
@@ -3,9 +3,6 @@ package org.ldaptive.transport;
 
 import java.time.Duration;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -17,7 +14,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Container for operation handles that are waiting on a response from the LDAP server.
+ * Container for operation handles that are waiting on a response from the LDAP server. Handles are stored by message ID
+ * in a {@link MessageIdMap}, so message IDs are not boxed on the request and response paths.
  *
  * @author  Middleware Services
  */
@@ -42,7 +40,7 @@ public final class HandleMap
     LdapUtils.parseLong(System.getProperty(THROTTLE_TIMEOUT_PROPERTY, "60"), l -> l >= 0, 60));
 
   /** Map of message IDs to their operation handle. */
-  private final Map<Integer, DefaultOperationHandle<?, ?>> pending = new ConcurrentHashMap<>();
+  private final MessageIdMap<DefaultOperationHandle<?, ?>> pending = new MessageIdMap<>();
 
   /** Only one notification can occur at a time. */
   private final AtomicBoolean notificationLock = new AtomicBoolean();
@@ -149,7 +147,7 @@ public final class HandleMap
 
 
   /**
-   * Returns all the operation handles in the queue.
+   * Returns a snapshot of the operation handles in the queue.
    *
    * @return  all operation handles
    */
@@ -213,6 +211,23 @@ public final class HandleMap
   }
 
 
+  /**
+   * Removes the supplied handle from the queue if it is still mapped to its message ID.
+   *
+   * @param  handle  to remove
+   *
+   * @return  whether the handle was removed
+   */
+  private boolean removeHandle(final DefaultOperationHandle<?, ?> handle)
+  {
+    if (pending.remove(handle.getMessageID(), handle)) {
+      releaseThrottle(1);
+      return true;
+    }
+    return false;
+  }
+
+
   /**
    * Invokes {@link DefaultOperationHandle#abandon()} for all handles that have sent a request but not received a
    * response. This method removes all handles from the queue.
@@ -221,12 +236,8 @@ public final class HandleMap
   {
     if (notificationLock.compareAndSet(false, true)) {
       try {
-        final Iterator<DefaultOperationHandle<?, ?>> i = pending.values().iterator();
-        while (i.hasNext()) {
-          final DefaultOperationHandle<?, ?> h = i.next();
-          if (h.getSentTime() != null && h.getReceivedTime() == null) {
-            i.remove();
-            releaseThrottle(1);
+        for (DefaultOperationHandle<?, ?> h : pending.values()) {
+          if (h.getSentTime() != null && h.getReceivedTime() == null && removeHandle(h)) {
             h.abandon();
           }
         }
@@ -249,12 +260,10 @@ public final class HandleMap
   {
     if (notificationLock.compareAndSet(false, true)) {
       try {
-        final Iterator<DefaultOperationHandle<?, ?>> i = pending.values().iterator();
-        while (i.hasNext()) {
-          final DefaultOperationHandle<?, ?> h = i.next();
-          i.remove();
-          releaseThrottle(1);
-          h.exception(e);
+        for (DefaultOperationHandle<?, ?> h : pending.values()) {
+          if (removeHandle(h)) {
+            h.exception(e);
+          }
         }
       } finally {
         notificationLock.set(false);
@@ -0,0 +1,380 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map of message ID to value that stores keys as primitive ints. The map is split into segments, each an
+ * open addressing table with linear probing, so that adding or removing an entry does not allocate unless the segment
+ * must grow. Reads use an optimistic lock and do not block while no write is in progress on the same segment; writes
+ * lock a single segment. Null values are not permitted.
+ *
+ * @param  <V>  type of value
+ *
+ * @author  Middleware Services
+ */
+final class MessageIdMap<V>
+{
+
+  /** Number of bits used to select a segment. */
+  private static final int SEGMENT_BITS = 4;
+
+  /** Number of segments. */
+  private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+  /** Initial capacity of each segment. */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Segments of this map. */
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+
+  /** Creates a new message ID map. */
+  MessageIdMap()
+  {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+
+  /**
+   * Returns the value for the supplied key.
+   *
+   * @param  key  message ID
+   *
+   * @return  value or null if the key does not exist
+   */
+  @SuppressWarnings("unchecked")
+  V get(final int key)
+  {
+    final int hash = hash(key);
+    return (V) segments[hash & (SEGMENT_COUNT - 1)].get(key, hash >>> SEGMENT_BITS);
+  }
+
+
+  /**
+   * Adds the supplied value if the key does not exist.
+   *
+   * @param  key  message ID
+   * @param  value  to add
+   *
+   * @return  existing value or null if the value was added
+   */
+  @SuppressWarnings("unchecked")
+  V putIfAbsent(final int key, final V value)
+  {
+    if (value == null) {
+      throw new NullPointerException("Value cannot be null");
+    }
+    final int hash = hash(key);
+    return (V) segments[hash & (SEGMENT_COUNT - 1)].putIfAbsent(key, hash >>> SEGMENT_BITS, value);
+  }
+
+
+  /**
+   * Removes the value for the supplied key.
+   *
+   * @param  key  message ID
+   *
+   * @return  removed value or null if the key did not exist
+   */
+  @SuppressWarnings("unchecked")
+  V remove(final int key)
+  {
+    final int hash = hash(key);
+    return (V) segments[hash & (SEGMENT_COUNT - 1)].remove(key, hash >>> SEGMENT_BITS, null);
+  }
+
+
+  /**
+   * Removes the value for the supplied key if it is the supplied value.
+   *
+   * @param  key  message ID
+   * @param  value  expected value
+   *
+   * @return  whether the value was removed
+   */
+  boolean remove(final int key, final V value)
+  {
+    final int hash = hash(key);
+    return segments[hash & (SEGMENT_COUNT - 1)].remove(key, hash >>> SEGMENT_BITS, value) != null;
+  }
+
+
+  /**
+   * Returns the number of entries in this map.
+   *
+   * @return  number of entries
+   */
+  int size()
+  {
+    int size = 0;
+    for (Segment s : segments) {
+      size += s.size;
+    }
+    return size;
+  }
+
+
+  /**
+   * Returns a snapshot of the values in this map.
+   *
+   * @return  list of values
+   */
+  @SuppressWarnings("unchecked")
+  List<V> values()
+  {
+    final List<V> list = new ArrayList<>(size());
+    for (Segment s : segments) {
+      s.addValuesTo((List<Object>) list);
+    }
+    return list;
+  }
+
+
+  /** Removes every entry from this map. */
+  void clear()
+  {
+    for (Segment s : segments) {
+      s.clear();
+    }
+  }
+
+
+  /**
+   * Spreads the bits of the supplied message ID. Message IDs are mostly sequential, the multiplication distributes
+   * consecutive IDs over every segment and the shift brings the well mixed high bits into the slot index.
+   *
+   * @param  key  message ID
+   *
+   * @return  hash
+   */
+  private static int hash(final int key)
+  {
+    // CheckStyle:MagicNumber OFF
+    final int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return values().toString();
+  }
+
+
+  /** Open addressing table guarded by a stamped lock. */
+  private static final class Segment
+  {
+
+    /** Lock for this segment. */
+    private final StampedLock lock = new StampedLock();
+
+    /** Keys, parallel to {@link #values}. */
+    private int[] keys = new int[INITIAL_CAPACITY];
+
+    /** Values, null for an empty slot. */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /** Number of entries. */
+    private volatile int size;
+
+
+    /**
+     * Returns the value for the supplied key.
+     *
+     * @param  key  message ID
+     * @param  hash  of the key
+     *
+     * @return  value or null
+     */
+    Object get(final int key, final int hash)
+    {
+      final long stamp = lock.tryOptimisticRead();
+      Object value = find(keys, values, key, hash);
+      if (!lock.validate(stamp)) {
+        final long readStamp = lock.readLock();
+        try {
+          value = find(keys, values, key, hash);
+        } finally {
+          lock.unlockRead(readStamp);
+        }
+      }
+      return value;
+    }
+
+
+    /**
+     * Adds the supplied value if the key does not exist.
+     *
+     * @param  key  message ID
+     * @param  hash  of the key
+     * @param  value  to add
+     *
+     * @return  existing value or null
+     */
+    Object putIfAbsent(final int key, final int hash, final Object value)
+    {
+      final long stamp = lock.writeLock();
+      try {
+        int i = hash & (keys.length - 1);
+        while (values[i] != null) {
+          if (keys[i] == key) {
+            return values[i];
+          }
+          i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if (size > keys.length >>> 1) {
+          resize();
+        }
+        return null;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+
+    /**
+     * Removes the value for the supplied key. Entries that follow the removed entry in its probe sequence are shifted
+     * back so that no tombstones are required.
+     *
+     * @param  key  message ID
+     * @param  hash  of the key
+     * @param  expected  value to remove or null to remove any value
+     *
+     * @return  removed value or null
+     */
+    Object remove(final int key, final int hash, final Object expected)
+    {
+      final long stamp = lock.writeLock();
+      try {
+        final int mask = keys.length - 1;
+        int i = hash & mask;
+        while (values[i] != null && keys[i] != key) {
+          i = (i + 1) & mask;
+        }
+        final Object removed = values[i];
+        if (removed == null || (expected != null && removed != expected)) {
+          return null;
+        }
+        values[i] = null;
+        size--;
+        int j = i;
+        while (true) {
+          j = (j + 1) & mask;
+          if (values[j] == null) {
+            break;
+          }
+          final int home = (hash(keys[j]) >>> SEGMENT_BITS) & mask;
+          // move the entry at j into the hole at i unless its home slot lies cyclically in (i, j]
+          if (i <= j ? home <= i || home > j : home <= i && home > j) {
+            keys[i] = keys[j];
+            values[i] = values[j];
+            values[j] = null;
+            i = j;
+          }
+        }
+        return removed;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+
+    /**
+     * Adds every value in this segment to the supplied list.
+     *
+     * @param  list  to add values to
+     */
+    void addValuesTo(final List<Object> list)
+    {
+      final long stamp = lock.readLock();
+      try {
+        for (Object v : values) {
+          if (v != null) {
+            list.add(v);
+          }
+        }
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+
+    /** Removes every entry from this segment. */
+    void clear()
+    {
+      final long stamp = lock.writeLock();
+      try {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+
+    /** Doubles the capacity of this segment. Must be invoked while holding the write lock. */
+    private void resize()
+    {
+      final int[] oldKeys = keys;
+      final Object[] oldValues = values;
+      final int[] newKeys = new int[oldKeys.length << 1];
+      final Object[] newValues = new Object[oldValues.length << 1];
+      final int mask = newKeys.length - 1;
+      for (int i = 0; i < oldValues.length; i++) {
+        if (oldValues[i] != null) {
+          int j = (hash(oldKeys[i]) >>> SEGMENT_BITS) & mask;
+          while (newValues[j] != null) {
+            j = (j + 1) & mask;
+          }
+          newKeys[j] = oldKeys[i];
+          newValues[j] = oldValues[i];
+        }
+      }
+      keys = newKeys;
+      values = newValues;
+    }
+
+
+    /**
+     * Finds the value for the supplied key. The arrays may be inconsistent if they are read without a lock, in which
+     * case the result is discarded by the caller.
+     *
+     * @param  k  keys
+     * @param  v  values
+     * @param  key  message ID
+     * @param  hash  of the key
+     *
+     * @return  value or null
+     */
+    private static Object find(final int[] k, final Object[] v, final int key, final int hash)
+    {
+      if (k.length != v.length) {
+        return null;
+      }
+      final int mask = k.length - 1;
+      int i = hash & mask;
+      for (int n = 0; n < k.length; n++) {
+        final Object value = v[i];
+        if (value == null) {
+          return null;
+        }
+        if (k[i] == key) {
+          return value;
+        }
+        i = (i + 1) & mask;
+      }
+      return null;
+    }
+  }
+}
@@ -12,6 +12,7 @@ import org.ldaptive.ModifyDnResponse;
 import org.ldaptive.ModifyResponse;
 import org.ldaptive.SearchResponse;
 import org.ldaptive.SearchResultReference;
+import org.ldaptive.asn1.CompiledDERPaths;
 import org.ldaptive.asn1.DERBuffer;
 import org.ldaptive.asn1.DERParser;
 import org.ldaptive.asn1.DERPath;
@@ -61,8 +62,22 @@ public class ResponseParser
   /** Intermediate response DER path. */
   private static final DERPath INTERMEDIATE_PATH = new DERPath("/SEQ/APP(25)");
 
+  /** Compiled DER paths for decoding. */
+  private static final CompiledDERPaths PATHS = CompiledDERPaths.compile(
+    BIND_PATH,
+    ENTRY_PATH,
+    SEARCH_PATH,
+    MODIFY_PATH,
+    ADD_PATH,
+    DELETE_PATH,
+    MODIFY_DN_PATH,
+    COMPARE_PATH,
+    SEARCH_REFERENCE_PATH,
+    EXTENDED_PATH,
+    INTERMEDIATE_PATH);
+
   /** Parser for decoding LDAP messages. */
-  private final DERParser parser = new DERParser();
+  private final DERParser parser = new DERParser(PATHS);
 
   /** Message produced from parsing a DER buffer. */
   private Message message;
@@ -72,6 +87,17 @@ public class ResponseParser
    * Creates a new response parser.
    */
   public ResponseParser()
+  {
+    this(false);
+  }
+
+
+  /**
+   * Creates a new response parser.
+   *
+   * @param  lazyEntries  whether to decode search result entries with {@link LdapEntry#decodeLazily(DERBuffer)}
+   */
+  public ResponseParser(final boolean lazyEntries)
   {
     parser.registerHandler(BIND_PATH, (p, e) -> {
       e.clear();
@@ -79,7 +105,7 @@ public class ResponseParser
     });
     parser.registerHandler(ENTRY_PATH, (p, e) -> {
       e.clear();
-      message = new LdapEntry(e);
+      message = lazyEntries ? LdapEntry.decodeLazily(e) : new LdapEntry(e);
     });
     parser.registerHandler(SEARCH_PATH, (p, e) -> {
       e.clear();
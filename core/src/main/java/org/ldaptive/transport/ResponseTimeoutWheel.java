@@ -0,0 +1,292 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel that abandons operations which have not received a response within their response timeout.
+ * Handles are placed in the bucket for the tick following their deadline and the wheel advances once per tick on the
+ * supplied executor while it contains handles, so an operation times out whether or not a thread is waiting on it.
+ * Handles whose deadline is extended by a response message are moved to a later bucket when their original bucket is
+ * reached. Operations expire up to one tick after their deadline. Expired operations are abandoned on a separate
+ * dispatch executor, so that abandon and complete handlers do not block the thread that advances the wheel. The
+ * deadline of an operation is restarted while reads are suspended on its connection. Handles that complete are removed
+ * with {@link #cancel(DefaultOperationHandle)}.
+ *
+ * <p>This class is not thread safe. Other than {@link #cancel(DefaultOperationHandle)}, it must only be accessed from
+ * the thread of its executor, typically an I/O event loop.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class ResponseTimeoutWheel
+{
+
+  /** Default number of buckets. */
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  /** Logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseTimeoutWheel.class);
+
+  /** Executor that advances the wheel. */
+  private final ScheduledExecutorService executor;
+
+  /** Executor that abandons expired operations. */
+  private final Executor dispatchExecutor;
+
+  /** Duration of a tick in nanoseconds. */
+  private final long tickNanos;
+
+  /** Buckets of handles, indexed by tick. */
+  private final ArrayDeque<DefaultOperationHandle<?, ?>>[] buckets;
+
+  /** Value of {@link System#nanoTime()} when this wheel was created, ticks are counted from this time. */
+  private final long startTime = System.nanoTime();
+
+  /** Last tick that was processed. */
+  private long currentTick;
+
+  /** Number of handles in this wheel. */
+  private int size;
+
+  /** Whether a tick has been scheduled on the executor. */
+  private boolean ticking;
+
+
+  /**
+   * Creates a new response timeout wheel with {@link #DEFAULT_WHEEL_SIZE} buckets that abandons expired operations on
+   * {@link ForkJoinPool#commonPool()}.
+   *
+   * @param  exec  executor that advances the wheel
+   * @param  tick  duration of each tick
+   */
+  public ResponseTimeoutWheel(final ScheduledExecutorService exec, final Duration tick)
+  {
+    this(exec, tick, DEFAULT_WHEEL_SIZE);
+  }
+
+
+  /**
+   * Creates a new response timeout wheel that abandons expired operations on {@link ForkJoinPool#commonPool()}.
+   *
+   * @param  exec  executor that advances the wheel
+   * @param  tick  duration of each tick
+   * @param  wheelSize  number of buckets, rounded up to a power of two
+   */
+  public ResponseTimeoutWheel(final ScheduledExecutorService exec, final Duration tick, final int wheelSize)
+  {
+    this(exec, tick, wheelSize, null);
+  }
+
+
+  /**
+   * Creates a new response timeout wheel.
+   *
+   * @param  exec  executor that advances the wheel
+   * @param  tick  duration of each tick
+   * @param  wheelSize  number of buckets, rounded up to a power of two
+   * @param  dispatch  executor that abandons expired operations, {@link ForkJoinPool#commonPool()} if null
+   */
+  @SuppressWarnings("unchecked")
+  public ResponseTimeoutWheel(
+    final ScheduledExecutorService exec,
+    final Duration tick,
+    final int wheelSize,
+    final Executor dispatch)
+  {
+    if (exec == null) {
+      throw new IllegalArgumentException("Executor cannot be null");
+    }
+    if (tick == null || tick.isNegative() || tick.isZero()) {
+      throw new IllegalArgumentException("Tick must be greater than zero");
+    }
+    if (wheelSize < 1 || wheelSize > 1 << 30) {
+      throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+    }
+    executor = exec;
+    dispatchExecutor = dispatch != null ? dispatch : ForkJoinPool.commonPool();
+    tickNanos = tick.toNanos();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    final ArrayDeque<DefaultOperationHandle<?, ?>>[] wheel =
+      new ArrayDeque[wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1];
+    buckets = wheel;
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new ArrayDeque<>();
+    }
+  }
+
+
+  /**
+   * Returns the duration of each tick.
+   *
+   * @return  tick duration
+   */
+  public Duration getTickDuration()
+  {
+    return Duration.ofNanos(tickNanos);
+  }
+
+
+  /**
+   * Returns the number of handles in this wheel, including handles that have completed but whose removal has not yet
+   * run on the executor.
+   *
+   * @return  number of handles
+   */
+  public int size()
+  {
+    return size;
+  }
+
+
+  /**
+   * Adds the supplied handle to this wheel if its response timeout is enabled, see {@link
+   * DefaultOperationHandle#isResponseTimeoutEnabled()} and it has not completed. The handle must have been sent.
+   * Starts advancing the wheel if it was empty.
+   *
+   * @param  handle  to expire when its response deadline passes
+   */
+  public void schedule(final DefaultOperationHandle<?, ?> handle)
+  {
+    if (!handle.isResponseTimeoutEnabled() || handle.timeoutBucket >= 0 || handle.getReceivedTime() != null) {
+      return;
+    }
+    add(handle);
+    if (!ticking) {
+      scheduleTick();
+    }
+  }
+
+
+  /**
+   * Removes the supplied handle from this wheel on the executor. May be invoked from any thread, typically when the
+   * handle completes or is abandoned. Does nothing if the handle is not in this wheel.
+   *
+   * @param  handle  to remove
+   */
+  public void cancel(final DefaultOperationHandle<?, ?> handle)
+  {
+    if (handle.timeoutBucket < 0) {
+      return;
+    }
+    try {
+      executor.execute(() -> remove(handle));
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Could not remove handle {} from {}", handle, this, e);
+    }
+  }
+
+
+  /**
+   * Processes every bucket up to the supplied time. Handles that have completed are removed, handles whose deadline has
+   * passed are expired on the dispatch executor and any others are moved to the bucket for their deadline.
+   *
+   * @param  now  value of {@link System#nanoTime()}
+   */
+  void expire(final long now)
+  {
+    final long nowTick = tickOf(now);
+    // process each bucket at most once, even if several revolutions have elapsed
+    final long firstTick = Math.max(currentTick + 1, nowTick - buckets.length + 1);
+    currentTick = nowTick;
+    for (long t = firstTick; t <= nowTick; t++) {
+      final ArrayDeque<DefaultOperationHandle<?, ?>> bucket = buckets[(int) (t & (buckets.length - 1))];
+      for (int n = bucket.size(); n > 0; n--) {
+        final DefaultOperationHandle<?, ?> handle = bucket.poll();
+        handle.timeoutBucket = -1;
+        size--;
+        try {
+          if (!handle.expire(now, dispatchExecutor)) {
+            add(handle);
+          }
+        } catch (Exception e) {
+          LOGGER.warn("Could not expire handle {}", handle, e);
+        }
+      }
+    }
+  }
+
+
+  /** Advances this wheel to the current time and reschedules itself while any handles remain. */
+  private void tick()
+  {
+    ticking = false;
+    expire(System.nanoTime());
+    if (size > 0) {
+      scheduleTick();
+    }
+  }
+
+
+  /** Schedules the next tick on the executor. Handles are retained, but not expired, if the executor rejects it. */
+  private void scheduleTick()
+  {
+    try {
+      executor.schedule(this::tick, tickNanos, TimeUnit.NANOSECONDS);
+      ticking = true;
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Could not schedule tick for {}", this, e);
+    }
+  }
+
+
+  /**
+   * Adds the supplied handle to the bucket for the tick following its deadline.
+   *
+   * @param  handle  to add
+   */
+  private void add(final DefaultOperationHandle<?, ?> handle)
+  {
+    final long tick = Math.max(tickOf(handle.getResponseDeadline()) + 1, currentTick + 1);
+    final int index = (int) (tick & (buckets.length - 1));
+    buckets[index].add(handle);
+    handle.timeoutBucket = index;
+    size++;
+  }
+
+
+  /**
+   * Removes the supplied handle from the bucket that contains it.
+   *
+   * @param  handle  to remove
+   */
+  private void remove(final DefaultOperationHandle<?, ?> handle)
+  {
+    final int index = handle.timeoutBucket;
+    if (index >= 0 && buckets[index].remove(handle)) {
+      handle.timeoutBucket = -1;
+      size--;
+    }
+  }
+
+
+  /**
+   * Returns the tick that contains the supplied time.
+   *
+   * @param  time  value of {@link System#nanoTime()}
+   *
+   * @return  tick
+   */
+  private long tickOf(final long time)
+  {
+    return Math.floorDiv(time - startTime, tickNanos);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "tickDuration=" + getTickDuration() + ", " +
+      "wheelSize=" + buckets.length + ", " +
+      "size=" + size + "]";
+  }
+}
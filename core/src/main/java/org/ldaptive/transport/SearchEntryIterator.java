@@ -0,0 +1,293 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the entries of a search as they are received. Entries are handed to the consumer and never added to the
+ * search response, so memory use is bounded by the capacity of this iterator rather than by the size of the result set.
+ * When the number of unconsumed entries reaches capacity, reads on the connection are suspended until the consumer has
+ * drained half of them. See {@link DefaultSearchOperationHandle#entryIterator(int)}.
+ *
+ * <p>This iterator cannot throw checked exceptions. If the operation fails, iteration ends and the cause is thrown by
+ * {@link #getResponse()}. If the consuming thread is interrupted while waiting for an entry, the operation is
+ * abandoned, the interrupt status is preserved and iteration ends.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class SearchEntryIterator extends SearchEntrySink implements Iterator<LdapEntry>, AutoCloseable
+{
+
+  /** Marks the end of the entries in the queue. */
+  private static final LdapEntry END_OF_ENTRIES = new LdapEntry();
+
+  /** Logger for this class. */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Handle that produces entries. */
+  private final DefaultSearchOperationHandle handle;
+
+  /** Number of unconsumed entries at which reads are suspended. */
+  private final int capacity;
+
+  /** Entries that have been received but not consumed. */
+  private final LinkedBlockingQueue<LdapEntry> entries = new LinkedBlockingQueue<>();
+
+  /** Guards changes to {@link #suspended}. */
+  private final ReentrantLock flowLock = new ReentrantLock();
+
+  /** Whether reads are currently suspended. */
+  private volatile boolean suspended;
+
+  /** Whether unconsumed entries are discarded, set when the consumer stops iterating. */
+  private volatile boolean discarding;
+
+  /** Next entry to return. */
+  private LdapEntry nextEntry;
+
+  /** Whether all entries have been consumed. */
+  private boolean finished;
+
+
+  /**
+   * Creates a new search entry iterator.
+   *
+   * @param  h  handle that produces entries
+   * @param  size  number of unconsumed entries at which reads are suspended
+   */
+  SearchEntryIterator(final DefaultSearchOperationHandle h, final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Capacity must be greater than zero");
+    }
+    handle = h;
+    capacity = size;
+  }
+
+
+  /**
+   * Returns the number of unconsumed entries at which reads are suspended.
+   *
+   * @return  capacity
+   */
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+
+  /**
+   * Adds an entry received by the handle. Suspends reads if this iterator is at capacity. Entries received after the
+   * consumer has stopped iterating are released.
+   *
+   * @param  entry  to add
+   */
+  @Override
+  void add(final LdapEntry entry)
+  {
+    entries.offer(entry);
+    if (discarding) {
+      releaseEntries();
+      return;
+    }
+    if (!suspended && entries.size() >= capacity) {
+      flowLock.lock();
+      try {
+        if (!suspended && entries.size() >= capacity) {
+          suspended = true;
+          handle.suspendReads();
+        }
+      } finally {
+        flowLock.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Indicates that the handle has completed and no more entries will be added. Resumes reads if they are suspended,
+   * since the remaining entries are already in memory and other operations may be waiting on the connection.
+   */
+  @Override
+  void complete()
+  {
+    resume(Integer.MAX_VALUE);
+    entries.offer(END_OF_ENTRIES);
+  }
+
+
+  /**
+   * Resumes reads if they are suspended and the number of unconsumed entries is at or below the supplied threshold.
+   *
+   * @param  threshold  number of entries
+   */
+  private void resume(final int threshold)
+  {
+    if (suspended && entries.size() <= threshold) {
+      flowLock.lock();
+      try {
+        if (suspended && entries.size() <= threshold) {
+          suspended = false;
+          handle.resumeReads();
+        }
+      } finally {
+        flowLock.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Waits for the next entry, abandoning the operation if no message is received within the response timeout of the
+   * handle.
+   *
+   * @return  whether an entry is available
+   */
+  @Override
+  public boolean hasNext()
+  {
+    if (nextEntry != null) {
+      return true;
+    }
+    while (!finished) {
+      final Duration timeout = handle.getResponseTimeout();
+      final LdapEntry entry;
+      try {
+        if (timeout == null || Duration.ZERO.equals(timeout)) {
+          entry = entries.take();
+        } else {
+          entry = entries.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+      } catch (InterruptedException e) {
+        // stop iterating, the interrupt would cause every subsequent wait to fail immediately
+        Thread.currentThread().interrupt();
+        logger.trace("interrupted waiting for entry on handle {}", handle, e);
+        handle.abandon(new LdapException(ResultCode.LOCAL_ERROR, e));
+        discard();
+        return false;
+      }
+      if (entry == null) {
+        handle.abandon(
+          new LdapException(
+            ResultCode.LDAP_TIMEOUT,
+            "No response received in " + timeout.toMillis() + "ms for handle " + handle));
+      } else if (entry == END_OF_ENTRIES) {
+        finished = true;
+      } else {
+        resume(capacity / 2);
+        nextEntry = entry;
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  @Override
+  public LdapEntry next()
+  {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more entries for handle " + handle);
+    }
+    final LdapEntry entry = nextEntry;
+    nextEntry = null;
+    return entry;
+  }
+
+
+  /**
+   * Returns the search response once all entries have been consumed. The response does not contain any entries. See
+   * {@link DefaultSearchOperationHandle#await()}.
+   *
+   * @return  search response
+   *
+   * @throws  LdapException  if the operation failed
+   * @throws  IllegalStateException  if entries remain to be consumed
+   */
+  public SearchResponse getResponse()
+    throws LdapException
+  {
+    if (!finished) {
+      throw new IllegalStateException("Entries have not been consumed for handle " + handle);
+    }
+    return handle.await();
+  }
+
+
+  /**
+   * Returns a sequential stream over the remaining entries. Closing the stream closes this iterator.
+   *
+   * @return  stream of entries
+   */
+  public Stream<LdapEntry> stream()
+  {
+    return StreamSupport.stream(
+      Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+      false).onClose(this::close);
+  }
+
+
+  /**
+   * Abandons the operation if it has not completed and releases any unconsumed entries.
+   */
+  @Override
+  public void close()
+  {
+    if (handle.getReceivedTime() == null) {
+      handle.abandon();
+    }
+    discard();
+  }
+
+
+  /**
+   * Ends iteration and releases any unconsumed entries, including entries the handle adds after this method returns.
+   * See {@link LdapEntry#release()}.
+   */
+  private void discard()
+  {
+    discarding = true;
+    finished = true;
+    if (nextEntry != null) {
+      nextEntry.release();
+      nextEntry = null;
+    }
+    releaseEntries();
+  }
+
+
+  /** Removes and releases every entry in the queue. */
+  private void releaseEntries()
+  {
+    for (LdapEntry entry = entries.poll(); entry != null; entry = entries.poll()) {
+      entry.release();
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "capacity=" + capacity + ", " +
+      "size=" + entries.size() + ", " +
+      "suspended=" + suspended + ", " +
+      "finished=" + finished + "]";
+  }
+}
@@ -0,0 +1,293 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.SearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the entries of a search to a single subscriber as they are received. Entries are never added to the search
+ * response. Reads on the connection are suspended whenever the subscriber has no outstanding demand and resumed when
+ * it requests more, so entries are only buffered for the messages that were already read from the socket. The
+ * subscriber is completed after the last entry, or receives the exception that caused the operation to fail. See
+ * {@link DefaultSearchOperationHandle#entryPublisher()}.
+ *
+ * @author  Middleware Services
+ */
+public final class SearchEntryPublisher extends SearchEntrySink implements Flow.Publisher<LdapEntry>
+{
+
+  /** Logger for this class. */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Handle that produces entries. */
+  private final DefaultSearchOperationHandle handle;
+
+  /** Completes with the search response. */
+  private final CompletionStage<SearchResponse> response;
+
+  /** Entries that have been received but not delivered. */
+  private final Queue<LdapEntry> entries = new ConcurrentLinkedQueue<>();
+
+  /** Number of entries requested by the subscriber that have not been delivered. */
+  private final AtomicLong demand = new AtomicLong();
+
+  /** Serializes signals to the subscriber. */
+  private final AtomicInteger drainCount = new AtomicInteger();
+
+  /** Whether a subscriber has been accepted. */
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /** Guards changes to {@link #suspended}. */
+  private final ReentrantLock flowLock = new ReentrantLock();
+
+  /** Subscriber to publish to. */
+  private volatile Flow.Subscriber<? super LdapEntry> subscriber;
+
+  /** Whether reads are currently suspended. */
+  private volatile boolean suspended;
+
+  /** Whether the subscription has been cancelled or a terminal signal delivered. */
+  private volatile boolean terminated;
+
+  /** Whether the operation has completed. */
+  private volatile boolean done;
+
+  /** Exception that caused the operation to fail. */
+  private volatile Throwable error;
+
+  /** Exception for a request of non-positive demand, delivered to the subscriber by {@link #drain()}. */
+  private volatile Throwable requestError;
+
+
+  /**
+   * Creates a new search entry publisher.
+   *
+   * @param  h  handle that produces entries
+   */
+  SearchEntryPublisher(final DefaultSearchOperationHandle h)
+  {
+    handle = h;
+    response = handle.toCompletionStage();
+    response.whenComplete((r, e) -> {
+      error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      done = true;
+      drain();
+    });
+  }
+
+
+  /**
+   * Returns a completion stage for the search response. The response does not contain any entries.
+   *
+   * @return  search response completion stage
+   */
+  public CompletionStage<SearchResponse> getResponse()
+  {
+    return response;
+  }
+
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super LdapEntry> s)
+  {
+    if (s == null) {
+      throw new NullPointerException("Subscriber cannot be null");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      s.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(final long n) {}
+
+          @Override
+          public void cancel() {}
+        });
+      s.onError(new IllegalStateException("Publisher for handle " + handle + " only supports a single subscriber"));
+      return;
+    }
+    subscriber = s;
+    s.onSubscribe(new EntrySubscription());
+    drain();
+  }
+
+
+  @Override
+  void add(final LdapEntry entry)
+  {
+    entries.offer(entry);
+    if (!suspended && demand.get() == 0) {
+      flowLock.lock();
+      try {
+        if (!suspended && demand.get() == 0 && !terminated) {
+          suspended = true;
+          handle.suspendReads();
+        }
+      } finally {
+        flowLock.unlock();
+      }
+    }
+    drain();
+  }
+
+
+  /**
+   * Resumes reads, since the remaining entries are already in memory and other operations may be waiting on the
+   * connection. The subscriber is completed when the completion stage for the handle completes.
+   */
+  @Override
+  void complete()
+  {
+    resume();
+  }
+
+
+  /** Resumes reads if they are suspended. */
+  private void resume()
+  {
+    if (suspended) {
+      flowLock.lock();
+      try {
+        if (suspended) {
+          suspended = false;
+          handle.resumeReads();
+        }
+      } finally {
+        flowLock.unlock();
+      }
+    }
+  }
+
+
+  /**
+   * Delivers buffered entries to the subscriber while it has demand, followed by the terminal signal once the operation
+   * has completed and all entries have been delivered. Only one thread delivers signals at a time, other callers
+   * increment {@link #drainCount} so that the delivering thread makes another pass. Once delivery has terminated any
+   * buffered entries are released, see {@link LdapEntry#release()}.
+   */
+  private void drain()
+  {
+    if (drainCount.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      final Flow.Subscriber<? super LdapEntry> s = subscriber;
+      if (s != null && !terminated) {
+        final Throwable invalidRequest = requestError;
+        if (invalidRequest != null) {
+          terminated = true;
+          stop();
+          s.onError(invalidRequest);
+        } else {
+          deliver(s);
+        }
+      }
+      if (terminated) {
+        for (LdapEntry entry = entries.poll(); entry != null; entry = entries.poll()) {
+          entry.release();
+        }
+      }
+      missed = drainCount.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+
+  /**
+   * Delivers buffered entries to the supplied subscriber while it has demand, followed by the terminal signal once the
+   * operation has completed and all entries have been delivered. Must only be invoked by {@link #drain()}.
+   *
+   * @param  s  subscriber to deliver to
+   */
+  private void deliver(final Flow.Subscriber<? super LdapEntry> s)
+  {
+    while (demand.get() > 0 && !entries.isEmpty() && !terminated) {
+      final LdapEntry entry = entries.poll();
+      demand.decrementAndGet();
+      try {
+        s.onNext(entry);
+      } catch (RuntimeException e) {
+        logger.warn("Subscriber {} threw an exception for handle {}", s, handle, e);
+        cancel();
+      }
+    }
+    if (done && entries.isEmpty() && !terminated) {
+      terminated = true;
+      if (error != null) {
+        s.onError(error);
+      } else {
+        s.onComplete();
+      }
+    }
+  }
+
+
+  /** Cancels delivery, abandoning the operation if it has not completed. Buffered entries are released. */
+  private void cancel()
+  {
+    terminated = true;
+    stop();
+    drain();
+  }
+
+
+  /** Resumes reads and abandons the operation if it has not completed. */
+  private void stop()
+  {
+    resume();
+    if (handle.getReceivedTime() == null) {
+      handle.abandon();
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "demand=" + demand + ", " +
+      "size=" + entries.size() + ", " +
+      "suspended=" + suspended + ", " +
+      "terminated=" + terminated + ", " +
+      "done=" + done + "]";
+  }
+
+
+  /** Subscription that adds demand and resumes reads. */
+  private final class EntrySubscription implements Flow.Subscription
+  {
+
+
+    @Override
+    public void request(final long n)
+    {
+      if (n <= 0) {
+        // signal the error from drain, so it is serialized with any other signal to the subscriber
+        requestError = new IllegalArgumentException("Request must be positive, was " + n);
+        drain();
+        return;
+      }
+      demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+      resume();
+      drain();
+    }
+
+
+    @Override
+    public void cancel()
+    {
+      SearchEntryPublisher.this.cancel();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import org.ldaptive.LdapEntry;
+
+/**
+ * Receives the entries of a search in place of the search response. See {@link DefaultSearchOperationHandle}.
+ *
+ * @author  Middleware Services
+ */
+abstract class SearchEntrySink
+{
+
+
+  /**
+   * Adds an entry received by the handle.
+   *
+   * @param  entry  search result entry
+   */
+  abstract void add(LdapEntry entry);
+
+
+  /**
+   * Indicates that the handle has completed and no more entries will be added.
+   */
+  abstract void complete();
+}
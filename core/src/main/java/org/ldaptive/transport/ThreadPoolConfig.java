@@ -2,6 +2,7 @@
 package org.ldaptive.transport;
 
 import org.ldaptive.AbstractConfig;
+import org.ldaptive.concurrent.VirtualThreads;
 
 /**
  * Contains configuration properties for creating thread pools used by transports.
@@ -37,6 +38,12 @@ public final class ThreadPoolConfig extends AbstractConfig
    */
   private int messageThreads = -1;
 
+  /**
+   * Whether message threads are virtual threads. I/O threads are always platform threads. Default is {@link
+   * VirtualThreads#isEnabled()}.
+   */
+  private boolean virtualThreads = VirtualThreads.isEnabled();
+
   /** Thread pool shutdown strategy. */
   private ShutdownStrategy shutdownStrategy = ShutdownStrategy.CONNECTION_CLOSE;
 
@@ -119,6 +126,31 @@ public final class ThreadPoolConfig extends AbstractConfig
   }
 
 
+  /**
+   * Returns whether message threads are virtual threads.
+   *
+   * @return  whether to use virtual message threads
+   */
+  public boolean getVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+
+  /**
+   * Sets whether message threads are virtual threads. Virtual threads require Java 21 or later, platform threads are
+   * used on earlier runtimes. Message threads are only created if {@link #getMessageThreads()} is not -1.
+   *
+   * @param  b  whether to use virtual message threads
+   */
+  public void setVirtualThreads(final boolean b)
+  {
+    assertMutable();
+    logger.trace("setting virtualThreads: {}", b);
+    virtualThreads = b;
+  }
+
+
   /**
    * Returns the thread pool shutdown strategy.
    *
@@ -150,6 +182,7 @@ public final class ThreadPoolConfig extends AbstractConfig
       "threadPoolName=" + threadPoolName + ", " +
       "ioThreads=" + ioThreads + ", " +
       "messageThreads=" + messageThreads + ", " +
+      "virtualThreads=" + virtualThreads + ", " +
       "shutdownStrategy=" + shutdownStrategy + "]";
   }
 
@@ -242,6 +275,13 @@ public final class ThreadPoolConfig extends AbstractConfig
     }
 
 
+    public Builder virtualThreads(final boolean b)
+    {
+      object.setVirtualThreads(b);
+      return this;
+    }
+
+
     public Builder shutdownStrategy(final ShutdownStrategy strategy)
     {
       object.setShutdownStrategy(strategy);
@@ -2,20 +2,33 @@
 package org.ldaptive.transport;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import org.ldaptive.ActivePassiveConnectionStrategy;
+import org.ldaptive.AddRequest;
+import org.ldaptive.BindRequest;
+import org.ldaptive.CompareRequest;
 import org.ldaptive.ConnectException;
 import org.ldaptive.Connection;
 import org.ldaptive.ConnectionConfig;
 import org.ldaptive.ConnectionStrategy;
+import org.ldaptive.DeleteRequest;
 import org.ldaptive.InitialRetryMetadata;
 import org.ldaptive.LdapException;
 import org.ldaptive.LdapURL;
 import org.ldaptive.LdapUtils;
+import org.ldaptive.ModifyDnRequest;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.OperationHandle;
+import org.ldaptive.Request;
 import org.ldaptive.ResultCode;
 import org.ldaptive.RetryMetadata;
+import org.ldaptive.SearchRequest;
 import org.ldaptive.UnbindRequest;
+import org.ldaptive.extended.ExtendedRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -204,6 +217,105 @@ public abstract class TransportConnection implements Connection
   }
 
 
+  /**
+   * Creates a handle for each request and writes them as a group with {@link #write(List)}. Every request is validated
+   * before any of them are written.
+   *
+   * @param  requests  to send
+   *
+   * @return  operation handles for the requests
+   *
+   * @throws  IllegalArgumentException  if a request type is not supported
+   */
+  @Override
+  public List<OperationHandle<?, ?>> operations(final List<? extends Request> requests)
+  {
+    LdapUtils.assertNotNullArg(requests, "Requests cannot be null");
+    final List<DefaultOperationHandle<?, ?>> handles = new ArrayList<>(requests.size());
+    for (Request request : requests) {
+      handles.add(createHandle(request));
+    }
+    write(handles);
+    return Collections.unmodifiableList(handles);
+  }
+
+
+  /**
+   * Returns a new handle for the supplied request.
+   *
+   * @param  request  to create a handle for
+   *
+   * @return  operation handle
+   *
+   * @throws  IllegalArgumentException  if the request type is not supported
+   */
+  private DefaultOperationHandle<?, ?> createHandle(final Request request)
+  {
+    final OperationHandle<?, ?> handle;
+    // binds and extended operations such as StartTLS change the state of the connection and must not be pipelined
+    if (request instanceof BindRequest || request instanceof ExtendedRequest) {
+      throw new IllegalArgumentException("Bind and extended requests cannot be sent as a batch: " + request);
+    } else if (request instanceof AddRequest) {
+      handle = operation((AddRequest) request);
+    } else if (request instanceof CompareRequest) {
+      handle = operation((CompareRequest) request);
+    } else if (request instanceof DeleteRequest) {
+      handle = operation((DeleteRequest) request);
+    } else if (request instanceof ModifyRequest) {
+      handle = operation((ModifyRequest) request);
+    } else if (request instanceof ModifyDnRequest) {
+      handle = operation((ModifyDnRequest) request);
+    } else if (request instanceof SearchRequest) {
+      handle = operation((SearchRequest) request);
+    } else {
+      throw new IllegalArgumentException("Unsupported request type for batch operations: " + request);
+    }
+    if (!(handle instanceof DefaultOperationHandle)) {
+      throw new IllegalStateException("Unsupported handle type for batch operations: " + handle);
+    }
+    return (DefaultOperationHandle<?, ?>) handle;
+  }
+
+
+  /**
+   * Returns the number of operations that have been written to this connection and have not yet completed. Used to
+   * balance load across connections that service concurrent operations. Implementations that do not track pending
+   * operations return zero.
+   *
+   * @return  number of pending operations
+   */
+  public int getPendingResponseCount()
+  {
+    return 0;
+  }
+
+
+  /**
+   * Stops reading responses from the server until {@link #resumeReads()} is invoked. Used by consumers that cannot keep
+   * up with the rate responses arrive, so that data is left in the socket rather than buffered in memory. Messages that
+   * have already been read may still be delivered. The default implementation does nothing.
+   */
+  protected void suspendReads() {}
+
+
+  /**
+   * Resumes reading responses from the server after {@link #suspendReads()}. The default implementation does nothing.
+   */
+  protected void resumeReads() {}
+
+
+  /**
+   * Returns whether reads are currently suspended on this connection, see {@link #suspendReads()}. The default
+   * implementation returns false.
+   *
+   * @return  whether reads are suspended
+   */
+  protected boolean isReadsSuspended()
+  {
+    return false;
+  }
+
+
   /**
    * Determine whether the supplied URL is acceptable for use.
    *
@@ -241,6 +353,21 @@ public abstract class TransportConnection implements Connection
   protected abstract void write(DefaultOperationHandle<?, ?> handle);
 
 
+  /**
+   * Write the requests in the supplied handles to the LDAP server. Implementations should write the requests as a
+   * group where possible. This method does not throw, it should report exceptions to each handle. The default
+   * implementation invokes {@link #write(DefaultOperationHandle)} for each handle.
+   *
+   * @param  handles  for the operation writes
+   */
+  protected void write(final List<? extends DefaultOperationHandle<?, ?>> handles)
+  {
+    for (DefaultOperationHandle<?, ?> handle : handles) {
+      write(handle);
+    }
+  }
+
+
   /**
    * Report that the supplied handle has completed. Allows the connection to clean up any resources associated with the
    * handle.
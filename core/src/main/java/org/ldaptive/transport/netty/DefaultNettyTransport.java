@@ -5,6 +5,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
 import org.ldaptive.Connection;
 import org.ldaptive.ConnectionConfig;
+import org.ldaptive.concurrent.VirtualThreads;
 import org.ldaptive.transport.Transport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,9 @@ class DefaultNettyTransport implements Transport
   /** Number of message threads. */
   private final int numMessageThreads;
 
+  /** Whether message threads are virtual threads. */
+  private final boolean virtualMessageThreads;
+
 
   /**
    * Creates a new default netty transport.
@@ -72,10 +76,26 @@ class DefaultNettyTransport implements Transport
    * @param  messageThreads  number of threads for LDAP message handling in the event loop group
    */
   DefaultNettyTransport(final String name, final int ioThreads, final int messageThreads)
+  {
+    this(name, ioThreads, messageThreads, false);
+  }
+
+
+  /**
+   * Creates a new default netty transport.
+   *
+   * @param  name  of the thread pool
+   * @param  ioThreads  number of threads used for I/O in the event loop group
+   * @param  messageThreads  number of threads for LDAP message handling in the event loop group
+   * @param  virtualThreads  whether message threads are virtual threads
+   */
+  DefaultNettyTransport(
+    final String name, final int ioThreads, final int messageThreads, final boolean virtualThreads)
   {
     threadPoolName = name == null ? "default-netty-transport" : name;
     numIoThreads = ioThreads;
     numMessageThreads = messageThreads;
+    virtualMessageThreads = virtualThreads;
   }
 
 
@@ -104,6 +124,29 @@ class DefaultNettyTransport implements Transport
   }
 
 
+  /**
+   * Returns a new event loop group with the supplied name and number of threads, whose threads are virtual threads if
+   * requested and supported. See {@link NettyUtils#createMessageEventLoopGroup(String, int, boolean)}. Platform thread
+   * groups are created by {@link #createEventLoopGroup(String, int)}.
+   *
+   * @param  name  of the event loop group
+   * @param  numThreads  number of worker threads
+   * @param  virtualThreads  whether the event loops run on virtual threads
+   *
+   * @return  new event loop group
+   */
+  protected EventLoopGroup createEventLoopGroup(final String name, final int numThreads, final boolean virtualThreads)
+  {
+    if (virtualThreads) {
+      if (VirtualThreads.isSupported()) {
+        return NettyUtils.createMessageEventLoopGroup(name, numThreads, true);
+      }
+      logger.warn("Virtual threads are not supported by this runtime, using platform threads for {}", name);
+    }
+    return createEventLoopGroup(name, numThreads);
+  }
+
+
   @Override
   public Connection create(final ConnectionConfig cc)
   {
@@ -112,7 +155,7 @@ class DefaultNettyTransport implements Transport
         cc,
         getSocketChannelType(),
         createEventLoopGroup(threadPoolName + "-io", numIoThreads),
-        createEventLoopGroup(threadPoolName + "-messages", numMessageThreads),
+        createEventLoopGroup(threadPoolName + "-messages", numMessageThreads, virtualMessageThreads),
         true);
     }
     return new NettyConnection(
@@ -139,6 +182,7 @@ class DefaultNettyTransport implements Transport
       getClass().getName() + "@" + hashCode() + "::" +
       "threadPoolName" + threadPoolName + ", " +
       "numIoThreads=" + numIoThreads + ", " +
-      "numMessageThreads=" + numMessageThreads + "]";
+      "numMessageThreads=" + numMessageThreads + ", " +
+      "virtualMessageThreads=" + virtualMessageThreads + "]";
   }
 }
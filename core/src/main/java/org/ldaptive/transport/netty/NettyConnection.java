@@ -5,9 +5,13 @@ import java.net.InetSocketAddress;
 import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -15,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -28,6 +33,7 @@ import javax.net.ssl.SSLSession;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
@@ -35,6 +41,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.SimpleUserEventChannelHandler;
@@ -83,6 +90,7 @@ import org.ldaptive.extended.IntermediateResponse;
 import org.ldaptive.extended.StartTLSRequest;
 import org.ldaptive.extended.UnsolicitedNotification;
 import org.ldaptive.handler.ReferralResultHandler;
+import org.ldaptive.metrics.MetricsListener;
 import org.ldaptive.sasl.DefaultSaslClientRequest;
 import org.ldaptive.sasl.QualityOfProtection;
 import org.ldaptive.sasl.SaslClient;
@@ -99,6 +107,7 @@ import org.ldaptive.transport.DefaultSearchOperationHandle;
 import org.ldaptive.transport.EncodedRequest;
 import org.ldaptive.transport.HandleMap;
 import org.ldaptive.transport.ResponseParser;
+import org.ldaptive.transport.ResponseTimeoutWheel;
 import org.ldaptive.transport.TransportConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -120,6 +129,13 @@ final class NettyConnection extends TransportConnection
   /** Inbound handler to read the next message if autoRead is false. */
   private static final AutoReadEventHandler READ_NEXT_MESSAGE = new AutoReadEventHandler();
 
+  /** Response timeout tick system property. */
+  private static final String RESPONSE_TIMEOUT_TICK_PROPERTY = "org.ldaptive.transport.netty.responseTimeoutTick";
+
+  /** Interval at which requests are checked for a response timeout. Default is 100 milliseconds. */
+  private static final Duration RESPONSE_TIMEOUT_TICK = Duration.ofMillis(
+    LdapUtils.parseLong(System.getProperty(RESPONSE_TIMEOUT_TICK_PROPERTY, "100"), l -> l > 0, 100));
+
   /** Type of channel. */
   private final Class<? extends Channel> channelType;
 
@@ -150,6 +166,12 @@ final class NettyConnection extends TransportConnection
   /** Operation lock when a bind occurs. */
   private final ReentrantReadWriteLock bindLock = new ReentrantReadWriteLock();
 
+  /**
+   * Response of a bind sent by {@link BindOperationHandle#toCompletionStage()}. The bind lock is released once the
+   * request is written, so other operations are rejected while this is set, as if the lock were still held.
+   */
+  private final AtomicReference<CompletableFuture<BindResponse>> pendingBind = new AtomicReference<>();
+
   /**
    * Executor for scheduling various connection related tasks that cannot or should not be handled by the netty
    * event loop groups. Reconnects in particular require a dedicated thread as the event loop group may be shared or may
@@ -163,9 +185,21 @@ final class NettyConnection extends TransportConnection
   /** Connection to the LDAP server. */
   private Channel channel;
 
+  /** Queues requests written to {@link #channel} and flushes them in groups. */
+  private WriteCoalescer writeCoalescer;
+
+  /** Expires requests on {@link #channel} that have not received a response within the response timeout. */
+  private ResponseTimeoutWheel responseTimeouts;
+
   /** Time this connection was successfully established, null if the connection is not open. */
   private Instant connectTime;
 
+  /** Number of outstanding {@link #suspendReads()} invocations, reads resume when it returns to zero. */
+  private volatile int readSuspensions;
+
+  /** Guards {@link #readSuspensions} and the corresponding change to the channel. */
+  private final ReentrantLock readSuspensionLock = new ReentrantLock();
+
   /** Last exception received on the inbound pipeline. */
   private Throwable inboundException;
 
@@ -300,7 +334,17 @@ final class NettyConnection extends TransportConnection
               return t;
             });
         }
+        readSuspensions = 0;
         channel = connectInternal();
+        writeCoalescer = new WriteCoalescer(
+          channel,
+          connectionConfig.getWriteBatchSize(),
+          connectionConfig.getWriteBatchDelay());
+        responseTimeouts = new ResponseTimeoutWheel(
+          channel.eventLoop(),
+          RESPONSE_TIMEOUT_TICK,
+          ResponseTimeoutWheel.DEFAULT_WHEEL_SIZE,
+          messageWorkerGroup != null ? messageWorkerGroup : connectionExecutor);
         channel.closeFuture().addListener(closeListener);
         pendingResponses.open();
         openInitialize(url);
@@ -360,6 +404,8 @@ final class NettyConnection extends TransportConnection
       } finally {
         pendingResponses.clear();
         channel = null;
+        writeCoalescer = null;
+        responseTimeouts = null;
       }
       throw e;
     }
@@ -635,7 +681,7 @@ final class NettyConnection extends TransportConnection
         if (!isOpen()) {
           LOGGER.debug("Attempt to unbind ignored, connection {} is not open", this);
         } else {
-          if (bindLock.readLock().tryLock()) {
+          if (tryLockBindRead()) {
             try {
               final EncodedRequest encodedRequest = new EncodedRequest(getAndIncrementMessageID(), request);
               channel.writeAndFlush(encodedRequest).addListener(
@@ -671,7 +717,7 @@ final class NettyConnection extends TransportConnection
     throws LdapException
   {
     throwIfClosed();
-    if (!bindLock.writeLock().tryLock()) {
+    if (!tryLockBindWrite()) {
       throw new LdapException(ResultCode.LOCAL_ERROR, "Operation in progress, cannot send bind request");
     }
     try {
@@ -709,7 +755,7 @@ final class NettyConnection extends TransportConnection
     throws LdapException
   {
     throwIfClosed();
-    if (!bindLock.writeLock().tryLock()) {
+    if (!tryLockBindWrite()) {
       throw new LdapException(ResultCode.LOCAL_ERROR, "Operation in progress, cannot send bind request");
     }
     try {
@@ -792,7 +838,7 @@ final class NettyConnection extends TransportConnection
             handle.exception(new LdapException(ResultCode.SERVER_DOWN, "Connection is not open"));
           }
         } else {
-          if (bindLock.readLock().tryLock()) {
+          if (tryLockBindRead()) {
             try {
               final EncodedRequest encodedRequest = new EncodedRequest(getAndIncrementMessageID(), request);
               channel.writeAndFlush(encodedRequest).addListener(
@@ -905,7 +951,6 @@ final class NettyConnection extends TransportConnection
 
 
   @Override
-  @SuppressWarnings("unchecked")
   protected void write(final DefaultOperationHandle<?, ?> handle)
   {
     if (LOGGER.isTraceEnabled()) {
@@ -913,6 +958,34 @@ final class NettyConnection extends TransportConnection
     } else if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("Write handle {} with {} pending responses", handle, pendingResponses.size());
     }
+    write(Collections.singletonList(handle), false);
+  }
+
+
+  /**
+   * Writes the requests in the supplied handles as a group. The reconnect and bind locks are acquired once for the
+   * entire group and the channel is flushed once after every request has been written.
+   *
+   * @param  handles  for the operation writes
+   */
+  @Override
+  protected void write(final List<? extends DefaultOperationHandle<?, ?>> handles)
+  {
+    LOGGER.debug("Write {} handles with {} pending responses", handles.size(), pendingResponses.size());
+    write(handles, true);
+  }
+
+
+  /**
+   * Writes the requests in the supplied handles while holding the reconnect and bind read locks. Each request is
+   * written immediately if batch is false and {@link ConnectionConfig#getWriteBatchSize()} is one, otherwise it is
+   * queued and flushed by {@link WriteCoalescer}.
+   *
+   * @param  handles  for the operation writes
+   * @param  batch  whether the handles should be written as a single group
+   */
+  private void write(final List<? extends DefaultOperationHandle<?, ?>> handles, final boolean batch)
+  {
     try {
       boolean gotReconnectLock;
       try {
@@ -930,33 +1003,36 @@ final class NettyConnection extends TransportConnection
       if (gotReconnectLock) {
         try {
           if (!isOpen()) {
-            handle.exception(new LdapException(ResultCode.SERVER_DOWN, "Connection is closed, write aborted"));
+            exception(handles, new LdapException(ResultCode.SERVER_DOWN, "Connection is closed, write aborted"));
           } else {
-            if (bindLock.readLock().tryLock()) {
+            if (tryLockBindRead()) {
               try {
-                final EncodedRequest encodedRequest = new EncodedRequest(
-                  getAndIncrementMessageID(),
-                  handle.getRequest());
-                handle.messageID(encodedRequest.getMessageID());
-                try {
-                  if (pendingResponses.put(encodedRequest.getMessageID(), handle) != null) {
-                    throw new LdapException(
-                      ResultCode.ENCODING_ERROR,
-                      "Request already exists for ID " + encodedRequest.getMessageID());
+                if (batch) {
+                  final List<EncodedRequest> requests = new ArrayList<>(handles.size());
+                  final List<ChannelFutureListener> listeners = new ArrayList<>(handles.size());
+                  for (DefaultOperationHandle<?, ?> handle : handles) {
+                    final EncodedRequest encodedRequest = encode(handle);
+                    if (encodedRequest != null) {
+                      requests.add(encodedRequest);
+                      listeners.add(sentListener(handle));
+                    }
                   }
-                } catch (LdapException e) {
-                  if (inboundException != null) {
-                    throw new LdapException(ResultCode.SERVER_DOWN, e.getMessage(), inboundException);
+                  writeCoalescer.writeAll(requests, listeners);
+                } else {
+                  for (DefaultOperationHandle<?, ?> handle : handles) {
+                    final EncodedRequest encodedRequest = encode(handle);
+                    if (encodedRequest == null) {
+                      continue;
+                    }
+                    if (connectionConfig.getWriteBatchSize() > 1) {
+                      writeCoalescer.write(encodedRequest, sentListener(handle));
+                    } else {
+                      channel.writeAndFlush(encodedRequest)
+                        .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE)
+                        .addListener(sentListener(handle));
+                    }
                   }
-                  throw e;
                 }
-                channel.writeAndFlush(encodedRequest).addListeners(
-                  ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE,
-                  f -> {
-                    if (f.isSuccess()) {
-                      handle.sent();
-                    }
-                  });
                 if (LOGGER.isTraceEnabled() && channel.eventLoop() instanceof SingleThreadEventLoop) {
                   LOGGER.trace(
                     "event loop group {} has {} pending tasks for {}",
@@ -968,20 +1044,94 @@ final class NettyConnection extends TransportConnection
                 bindLock.readLock().unlock();
               }
             } else {
-              handle.exception(new LdapException(ResultCode.LOCAL_ERROR, "Bind in progress"));
+              exception(handles, new LdapException(ResultCode.LOCAL_ERROR, "Bind in progress"));
             }
           }
         } finally {
           reconnectLock.readLock().unlock();
         }
       } else {
-        handle.exception(new LdapException(ResultCode.SERVER_DOWN, "Reconnect in progress"));
+        exception(handles, new LdapException(ResultCode.SERVER_DOWN, "Reconnect in progress"));
+      }
+    } catch (Exception e) {
+      exception(handles, new LdapException(ResultCode.LOCAL_ERROR, e));
+    }
+  }
+
+
+  /**
+   * Encodes the request in the supplied handle and registers the handle to receive the response. Any exception is
+   * reported to the handle.
+   *
+   * @param  handle  to encode
+   *
+   * @return  encoded request or null if the request could not be encoded
+   */
+  private EncodedRequest encode(final DefaultOperationHandle<?, ?> handle)
+  {
+    try {
+      final EncodedRequest encodedRequest = new EncodedRequest(getAndIncrementMessageID(), handle.getRequest());
+      handle.messageID(encodedRequest.getMessageID());
+      try {
+        if (pendingResponses.put(encodedRequest.getMessageID(), handle) != null) {
+          throw new LdapException(
+            ResultCode.ENCODING_ERROR,
+            "Request already exists for ID " + encodedRequest.getMessageID());
+        }
+      } catch (LdapException e) {
+        if (inboundException != null) {
+          throw new LdapException(ResultCode.SERVER_DOWN, e.getMessage(), inboundException);
+        }
+        throw e;
       }
+      notifyPendingOperations();
+      return encodedRequest;
     } catch (LdapException e) {
       handle.exception(e);
     } catch (Exception e) {
       handle.exception(new LdapException(ResultCode.LOCAL_ERROR, e));
     }
+    return null;
+  }
+
+
+  /**
+   * Returns a listener that notifies the supplied handle when its request has been written. Handles with a response
+   * timeout are then added to {@link #responseTimeouts}, the listener is invoked on the channel event loop which also
+   * advances the wheel. Handles are removed from the wheel when they complete, see {@link
+   * #complete(DefaultOperationHandle)}.
+   *
+   * @param  handle  to notify
+   *
+   * @return  channel future listener
+   */
+  private ChannelFutureListener sentListener(final DefaultOperationHandle<?, ?> handle)
+  {
+    final ResponseTimeoutWheel wheel = responseTimeouts;
+    return f -> {
+      if (f.isSuccess()) {
+        handle.sent();
+        if (wheel != null) {
+          wheel.schedule(handle);
+        }
+      }
+    };
+  }
+
+
+  /**
+   * Reports the supplied exception to each handle that has not been written.
+   *
+   * @param  handles  to notify
+   * @param  e  exception to report
+   */
+  private static void exception(final List<? extends DefaultOperationHandle<?, ?>> handles, final LdapException e)
+  {
+    for (DefaultOperationHandle<?, ?> handle : handles) {
+      if (handle.getSentTime() == null) {
+        handle.exception(e);
+      }
+    }
   }
 
 
@@ -990,6 +1140,59 @@ final class NettyConnection extends TransportConnection
   {
     if (handle != null && handle.getMessageID() != null) {
       pendingResponses.remove(handle.getMessageID());
+      notifyPendingOperations();
+      final ResponseTimeoutWheel wheel = responseTimeouts;
+      if (wheel != null) {
+        wheel.cancel(handle);
+      }
+    }
+  }
+
+
+  /**
+   * Acquires the read lock of {@link #bindLock} unless a bind is in progress, see {@link #pendingBind}.
+   *
+   * @return  whether the read lock was acquired
+   */
+  private boolean tryLockBindRead()
+  {
+    if (!bindLock.readLock().tryLock()) {
+      return false;
+    }
+    if (pendingBind.get() != null) {
+      bindLock.readLock().unlock();
+      return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * Acquires the write lock of {@link #bindLock} unless a bind is in progress, see {@link #pendingBind}.
+   *
+   * @return  whether the write lock was acquired
+   */
+  private boolean tryLockBindWrite()
+  {
+    if (!bindLock.writeLock().tryLock()) {
+      return false;
+    }
+    if (pendingBind.get() != null) {
+      bindLock.writeLock().unlock();
+      return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * Notifies the configured metrics listener of the number of operations waiting for a response.
+   */
+  private void notifyPendingOperations()
+  {
+    final MetricsListener listener = connectionConfig.getMetricsListener();
+    if (listener != null) {
+      listener.pendingOperations(ldapURL, pendingResponses.size());
     }
   }
 
@@ -1121,6 +1324,8 @@ final class NettyConnection extends TransportConnection
         pendingResponses.clear();
         connectionExecutor = null;
         channel = null;
+        writeCoalescer = null;
+        responseTimeouts = null;
         connectTime = null;
         if (shutdownOnClose) {
           NettyUtils.shutdownGracefully(ioWorkerGroup);
@@ -1205,11 +1410,18 @@ final class NettyConnection extends TransportConnection
       if (gotReconnectLock) {
         List<DefaultOperationHandle> replayOperations = null;
         try {
+          final MetricsListener listener = connectionConfig.getMetricsListener();
           try {
             reopen(new ClosedRetryMetadata(lastSuccessfulOpen, inboundException));
             LOGGER.trace("auto reconnect finished for connection {}", this);
+            if (listener != null) {
+              listener.connectionReconnected(ldapURL, true);
+            }
           } catch (Exception e) {
             LOGGER.debug("Auto reconnect failed for connection {}", this, e);
+            if (listener != null) {
+              listener.connectionReconnected(ldapURL, false);
+            }
           }
           // replay operations that have been sent, but have not received a response
           // notify all other operations
@@ -1251,6 +1463,76 @@ final class NettyConnection extends TransportConnection
   }
 
 
+  /**
+   * Suspends reads on the underlying channel. If auto read is enabled it is disabled on the channel, otherwise the read
+   * that is normally requested after each message is processed is skipped. Suspensions are counted, so that several
+   * streaming operations on this connection can each apply backpressure.
+   */
+  @Override
+  protected void suspendReads()
+  {
+    readSuspensionLock.lock();
+    try {
+      readSuspensions = readSuspensions + 1;
+      if (readSuspensions == 1) {
+        final Channel ch = channel;
+        if (ch != null && connectionConfig.getAutoRead()) {
+          ch.config().setAutoRead(false);
+        }
+        LOGGER.trace("suspended reads for {}", this);
+      }
+    } finally {
+      readSuspensionLock.unlock();
+    }
+  }
+
+
+  /**
+   * Resumes reads on the underlying channel once every {@link #suspendReads()} invocation has been matched by a resume.
+   * If auto read is enabled it is enabled on the channel, otherwise a read is requested to replace the one skipped
+   * while reads were suspended.
+   */
+  @Override
+  protected void resumeReads()
+  {
+    readSuspensionLock.lock();
+    try {
+      if (readSuspensions == 0) {
+        return;
+      }
+      readSuspensions = readSuspensions - 1;
+      if (readSuspensions > 0) {
+        return;
+      }
+      final Channel ch = channel;
+      if (ch != null) {
+        if (connectionConfig.getAutoRead()) {
+          ch.config().setAutoRead(true);
+        } else {
+          ch.read();
+        }
+      }
+      LOGGER.trace("resumed reads for {}", this);
+    } finally {
+      readSuspensionLock.unlock();
+    }
+  }
+
+
+  @Override
+  protected boolean isReadsSuspended()
+  {
+    return readSuspensions > 0;
+  }
+
+
+  @Override
+  public int getPendingResponseCount()
+  {
+    return pendingResponses.size();
+  }
+
+
   /**
    * Returns whether this connection is currently attempting to open.
    *
@@ -1319,6 +1601,9 @@ final class NettyConnection extends TransportConnection
   public final class BindOperationHandle extends DefaultOperationHandle<BindRequest, BindResponse>
   {
 
+    /** Completes with the result of this bind, see {@link #toCompletionStage()}. */
+    private final AtomicReference<CompletableFuture<BindResponse>> bindFuture = new AtomicReference<>();
+
 
     /**
      * Creates a new bind operation handle.
@@ -1347,6 +1632,59 @@ final class NettyConnection extends TransportConnection
     }
 
 
+    /**
+     * Sends this bind request and returns a completion stage for the result, which is completed by the thread that
+     * completes this handle. Other operations are rejected until the bind completes, as they are while {@link
+     * #execute()} holds the bind lock. The request is sent once, subsequent invocations return the same stage.
+     *
+     * @return  completion stage for the bind result
+     */
+    @Override
+    public CompletionStage<BindResponse> toCompletionStage()
+    {
+      final CompletableFuture<BindResponse> future = new CompletableFuture<>();
+      if (!bindFuture.compareAndSet(null, future)) {
+        return bindFuture.get();
+      }
+      if (tryLockBindWrite()) {
+        sendAndComplete(future);
+      } else {
+        future.completeExceptionally(new IllegalStateException("Operation in progress, cannot send bind request"));
+      }
+      return future;
+    }
+
+
+    /**
+     * Sends this bind request and releases the bind lock, which must be held by the caller. {@link #pendingBind} is set
+     * until the response is received, at which point the supplied future is completed.
+     *
+     * @param  future  to complete with the bind result
+     */
+    private void sendAndComplete(final CompletableFuture<BindResponse> future)
+    {
+      final CompletableFuture<BindResponse> response;
+      try {
+        super.send();
+        response = super.toCompletionStage().toCompletableFuture();
+        pendingBind.set(response);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+        return;
+      } finally {
+        bindLock.writeLock().unlock();
+      }
+      response.whenComplete((r, e) -> {
+        pendingBind.compareAndSet(response, null);
+        if (e != null) {
+          future.completeExceptionally(e);
+        } else {
+          future.complete(r);
+        }
+      });
+    }
+
+
     @Override
     protected BindResponse processReferralResult(
       final BindResponse done, final ReferralResultHandler<BindResponse> handler)
@@ -1360,7 +1698,7 @@ final class NettyConnection extends TransportConnection
     public BindResponse execute()
       throws LdapException
     {
-      if (bindLock.writeLock().tryLock()) {
+      if (tryLockBindWrite()) {
         try {
           super.send();
           return super.await();
@@ -1496,6 +1834,9 @@ final class NettyConnection extends TransportConnection
       if (sslHandler != null) {
         ch.pipeline().addFirst("ssl", sslHandler);
       }
+      if (connectionConfig.getMetricsListener() != null) {
+        ch.pipeline().addFirst("metrics", new MetricsHandler(connectionConfig.getMetricsListener()));
+      }
       if (LOGGER.isDebugEnabled()) {
         ch.pipeline().addLast("logger", new LoggingHandler(LogLevel.DEBUG));
       } else if (LOGGER.isTraceEnabled()) {
@@ -1504,7 +1845,7 @@ final class NettyConnection extends TransportConnection
       // inbound handlers are processed top to bottom
       // outbound handlers are processed bottom to top
       ch.pipeline().addLast("frame_decoder", new MessageFrameDecoder());
-      ch.pipeline().addLast("response_decoder", new MessageDecoder());
+      ch.pipeline().addLast("response_decoder", new MessageDecoder(connectionConfig.getLazyEntries()));
       if (!ch.config().isAutoRead()) {
         ch.pipeline().addLast("flow_control_handler", new AutoReadFlowControlHandler());
       }
@@ -1551,8 +1892,9 @@ final class NettyConnection extends TransportConnection
 
 
   /**
-   * Encodes an LDAP request into its DER bytes. See {@link EncodedRequest#getEncoded()}. This class prefers direct
-   * byte buffers.
+   * Encodes an LDAP request into its DER bytes. The buffer is sized with {@link EncodedRequest#getLength()} and the
+   * request is written directly into it with {@link EncodedRequest#encode(java.nio.ByteBuffer)}. This class prefers
+   * direct byte buffers.
    */
   @ChannelHandler.Sharable
   protected static class RequestEncoder extends MessageToByteEncoder<EncodedRequest>
@@ -1566,7 +1908,16 @@ final class NettyConnection extends TransportConnection
     protected void encode(final ChannelHandlerContext ctx, final EncodedRequest msg, final ByteBuf out)
     {
       logger.trace("encoding message {} on {}", msg, ctx);
-      out.writeBytes(msg.getEncoded());
+      final int length = msg.getLength();
+      out.ensureWritable(length);
+      if (out.nioBufferCount() == 1) {
+        final int index = out.writerIndex();
+        msg.encode(out.nioBuffer(index, length));
+        out.writerIndex(index + length);
+      } else {
+        // buffer is not backed by a single region of memory that can be shared
+        out.writeBytes(msg.getEncoded());
+      }
     }
 
 
@@ -1576,7 +1927,7 @@ final class NettyConnection extends TransportConnection
       final EncodedRequest msg,
       final boolean preferDirect)
     {
-      final int msgSize = msg.getEncoded().length;
+      final int msgSize = msg.getLength();
       if (preferDirect) {
         return ctx.alloc().ioBuffer(msgSize);
       } else {
@@ -1593,13 +1944,34 @@ final class NettyConnection extends TransportConnection
   protected static class MessageDecoder extends ByteToMessageDecoder
   {
 
+    /** Whether to decode search result entries lazily. */
+    private final boolean lazyEntries;
+
+
+    /** Creates a new message decoder. */
+    public MessageDecoder()
+    {
+      this(false);
+    }
+
+
+    /**
+     * Creates a new message decoder.
+     *
+     * @param  lazy  whether to decode search result entries lazily, see {@link ResponseParser#ResponseParser(boolean)}
+     */
+    public MessageDecoder(final boolean lazy)
+    {
+      lazyEntries = lazy;
+    }
+
 
     @Override
     protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out)
       throws LdapException
     {
       LOGGER.trace("received {} bytes on {}", in.readableBytes(), ctx);
-      final ResponseParser parser = new ResponseParser();
+      final ResponseParser parser = new ResponseParser(lazyEntries);
       final Message message =  parser.parse(new NettyDERBuffer(in))
         .orElseThrow(() -> new LdapException(ResultCode.DECODING_ERROR, "No response found"));
       out.add(message);
@@ -1666,9 +2038,13 @@ final class NettyConnection extends TransportConnection
             msg,
             pendingResponses,
             NettyConnection.this);
+          if (msg instanceof LdapEntry) {
+            ((LdapEntry) msg).release();
+          }
         }
       } finally {
-        if (ctx != null) {
+        // resumeReads will request the next read if reads have been suspended
+        if (ctx != null && readSuspensions == 0) {
           ctx.fireUserEventTriggered(MessageStatus.COMPLETE);
         }
       }
@@ -1802,6 +2178,49 @@ final class NettyConnection extends TransportConnection
   }
 
 
+  /**
+   * Notifies a metrics listener of the number of bytes read from and written to the channel. Added to the head of the
+   * pipeline so that the bytes on the wire are counted.
+   */
+  private final class MetricsHandler extends ChannelDuplexHandler
+  {
+
+    /** Listener to notify. */
+    private final MetricsListener listener;
+
+
+    /**
+     * Creates a new metrics handler.
+     *
+     * @param  l  listener to notify
+     */
+    MetricsHandler(final MetricsListener l)
+    {
+      listener = l;
+    }
+
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg)
+    {
+      if (msg instanceof ByteBuf) {
+        listener.bytesRead(ldapURL, ((ByteBuf) msg).readableBytes());
+      }
+      ctx.fireChannelRead(msg);
+    }
+
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise)
+    {
+      if (msg instanceof ByteBuf) {
+        listener.bytesWritten(ldapURL, ((ByteBuf) msg).readableBytes());
+      }
+      ctx.write(msg, promise);
+    }
+  }
+
+
   /**
    * Invokes a latch when this handler is added or removed from a pipeline.
    */
@@ -141,6 +141,20 @@ final class NettyDERBuffer implements DERBuffer
   }
 
 
+  @Override
+  public DERBuffer retainedSlice()
+  {
+    return new NettyDERBuffer(buffer.retainedSlice(position(), remaining()));
+  }
+
+
+  @Override
+  public void release()
+  {
+    buffer.release();
+  }
+
+
   @Override
   public String toString()
   {
@@ -20,18 +20,23 @@ public class NettyTransportFactory implements DelegateTransportFactory
     Transport transport = null;
     if (config.getShutdownStrategy() == ThreadPoolConfig.ShutdownStrategy.CONNECTION_CLOSE) {
       transport = new DefaultNettyTransport(
-        config.getThreadPoolName(), config.getIoThreads(), config.getMessageThreads());
+        config.getThreadPoolName(),
+        config.getIoThreads(),
+        config.getMessageThreads(),
+        config.getVirtualThreads());
     } else if (config.getShutdownStrategy() == ThreadPoolConfig.ShutdownStrategy.CONNECTION_FACTORY_CLOSE) {
       transport = new StatefulNettyTransport(
         config.getThreadPoolName(),
         config.getIoThreads(),
         config.getMessageThreads(),
+        config.getVirtualThreads(),
         true);
     } else if (config.getShutdownStrategy() == ThreadPoolConfig.ShutdownStrategy.NEVER) {
       transport = new StatefulNettyTransport(
         config.getThreadPoolName(),
         config.getIoThreads(),
         config.getMessageThreads(),
+        config.getVirtualThreads(),
         false);
     }
     if (transport == null) {
@@ -4,6 +4,7 @@ package org.ldaptive.transport.netty;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import io.netty.channel.Channel;
+import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
@@ -15,6 +16,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import org.ldaptive.concurrent.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -135,6 +137,35 @@ final class NettyUtils
   }
 
 
+  /**
+   * Returns an event loop group for handling inbound messages. If virtual threads are requested and supported, see
+   * {@link VirtualThreads#isSupported()}, each event loop runs on a virtual thread so that message handlers which
+   * block do not occupy a platform thread. Otherwise returns {@link #createDefaultEventLoopGroup(String, int)}. Set
+   * numThreads to zero to use the netty default.
+   *
+   * @param  name  of the thread pool
+   * @param  numThreads  number of threads in the thread pool
+   * @param  virtualThreads  whether to run the event loops on virtual threads
+   * @return  event loop group
+   */
+  public static EventLoopGroup createMessageEventLoopGroup(
+    final String name,
+    final int numThreads,
+    final boolean virtualThreads)
+  {
+    if (virtualThreads) {
+      if (VirtualThreads.isSupported()) {
+        final String poolName = name.startsWith("ldaptive-") ? name : "ldaptive-" + name;
+        return new DefaultEventLoopGroup(
+          numThreads,
+          new ThreadPerTaskExecutor(VirtualThreads.newThreadFactory(poolName + "-")));
+      }
+      LOGGER.warn("Virtual threads are not supported by this runtime, using platform threads for {}", name);
+    }
+    return createDefaultEventLoopGroup(name, numThreads);
+  }
+
+
   /**
    * Invokes {@link EventLoopGroup#shutdownGracefully(long, long, TimeUnit)} on the supplied worker group. This method
    * blocks for twice the {@link #DEFAULT_SHUTDOWN_MAX_TIMEOUT} waiting for the shutdown to be done. If the future is
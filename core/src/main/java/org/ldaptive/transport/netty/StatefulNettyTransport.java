@@ -78,14 +78,34 @@ class StatefulNettyTransport implements Transport
    */
   StatefulNettyTransport(
     final String name, final int ioThreads, final int messageThreads, final boolean shutdown)
+  {
+    this(name, ioThreads, messageThreads, false, shutdown);
+  }
+
+
+  /**
+   * Creates a new stateful netty transport.
+   *
+   * @param  name  to assign the thread pool
+   * @param  ioThreads  number of threads used for I/O in the event loop group
+   * @param  messageThreads  number of threads for LDAP message handling in the event loop group
+   * @param  virtualThreads  whether message threads are virtual threads
+   * @param  shutdown  whether to shut down the event loop groups on close
+   */
+  StatefulNettyTransport(
+    final String name,
+    final int ioThreads,
+    final int messageThreads,
+    final boolean virtualThreads,
+    final boolean shutdown)
   {
     this(
       NettyUtils.getDefaultSocketChannelType(),
       NettyUtils.createDefaultEventLoopGroup(
         (name == null ? "stateful-netty-transport" : name) + "-io", ioThreads),
       messageThreads == -1 ? null :
-        NettyUtils.createDefaultEventLoopGroup(
-          (name == null ? "stateful-netty-transport" : name) + "-messages", messageThreads),
+        NettyUtils.createMessageEventLoopGroup(
+          (name == null ? "stateful-netty-transport" : name) + "-messages", messageThreads, virtualThreads),
       shutdown);
   }
 
@@ -0,0 +1,181 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport.netty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+
+/**
+ * Queues messages for a channel and writes them from the event loop, flushing the channel once per group of messages
+ * rather than once per message. A group is written when the number of queued messages reaches the batch size or when
+ * the batch delay has elapsed since the first message was queued, whichever occurs first. A delay of zero writes the
+ * group on the next pass of the event loop, which coalesces every message queued by other threads in the meantime.
+ *
+ * @author  Middleware Services
+ */
+final class WriteCoalescer
+{
+
+  /** Channel to write to. */
+  private final Channel channel;
+
+  /** Number of queued messages that causes the queue to be written immediately. */
+  private final int batchSize;
+
+  /** Nanoseconds to wait after the first message is queued before the queue is written. */
+  private final long batchDelay;
+
+  /** Messages that have not been written. */
+  private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+
+  /** Number of messages that have been queued and not written. */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /** Writes the queue. */
+  private final Runnable drainTask = this::drain;
+
+
+  /**
+   * Creates a new write coalescer.
+   *
+   * @param  ch  channel to write to
+   * @param  size  number of queued messages that causes the queue to be written immediately
+   * @param  delay  maximum amount of time a message is queued
+   */
+  WriteCoalescer(final Channel ch, final int size, final Duration delay)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be greater than zero");
+    }
+    channel = ch;
+    batchSize = size;
+    batchDelay = delay.toNanos();
+  }
+
+
+  /**
+   * Queues a message to be written. The supplied listener is notified when the write completes.
+   *
+   * @param  message  to write
+   * @param  listener  to notify when the write completes
+   */
+  void write(final Object message, final ChannelFutureListener listener)
+  {
+    queue.offer(new PendingWrite(message, listener));
+    final int n = size.incrementAndGet();
+    if (n >= batchSize && n % batchSize == 0) {
+      channel.eventLoop().execute(drainTask);
+    } else if (n == 1) {
+      scheduleDrain();
+    }
+  }
+
+
+  /**
+   * Queues every message in the supplied list and writes the queue on the next pass of the event loop.
+   *
+   * @param  messages  to write
+   * @param  listeners  to notify when each write completes, parallel to messages
+   */
+  void writeAll(final List<?> messages, final List<ChannelFutureListener> listeners)
+  {
+    if (messages.size() != listeners.size()) {
+      throw new IllegalArgumentException("Messages and listeners must be the same size");
+    }
+    if (messages.isEmpty()) {
+      return;
+    }
+    for (int i = 0; i < messages.size(); i++) {
+      queue.offer(new PendingWrite(messages.get(i), listeners.get(i)));
+    }
+    size.addAndGet(messages.size());
+    channel.eventLoop().execute(drainTask);
+  }
+
+
+  /**
+   * Returns the number of messages that have been queued and not written.
+   *
+   * @return  number of queued messages
+   */
+  int size()
+  {
+    return Math.max(size.get(), 0);
+  }
+
+
+  /** Schedules the queue to be written after the batch delay. */
+  private void scheduleDrain()
+  {
+    if (batchDelay == 0) {
+      channel.eventLoop().execute(drainTask);
+    } else {
+      channel.eventLoop().schedule(drainTask, batchDelay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+
+  /**
+   * Writes every queued message and flushes the channel. Invoked on the event loop. Messages may be queued while the
+   * queue is being written; if any remain once it is empty, another write is scheduled so that no message waits for
+   * longer than the batch delay.
+   */
+  @SuppressWarnings("unchecked")
+  private void drain()
+  {
+    int count = 0;
+    PendingWrite write;
+    while ((write = queue.poll()) != null) {
+      channel.write(write.message).addListeners(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE, write.listener);
+      count++;
+    }
+    if (count > 0) {
+      channel.flush();
+    }
+    if (size.addAndGet(-count) > 0) {
+      scheduleDrain();
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return "[" +
+      getClass().getName() + "@" + hashCode() + "::" +
+      "channel=" + channel + ", " +
+      "batchSize=" + batchSize + ", " +
+      "batchDelay=" + batchDelay + ", " +
+      "size=" + size + "]";
+  }
+
+
+  /** Message and the listener to notify when it has been written. */
+  private static final class PendingWrite
+  {
+
+    /** Message to write. */
+    private final Object message;
+
+    /** Listener to notify when the write completes. */
+    private final ChannelFutureListener listener;
+
+
+    /**
+     * Creates a new pending write.
+     *
+     * @param  m  message
+     * @param  l  listener
+     */
+    PendingWrite(final Object m, final ChannelFutureListener l)
+    {
+      message = m;
+      listener = l;
+    }
+  }
+}
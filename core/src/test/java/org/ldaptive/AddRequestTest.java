@@ -1,6 +1,11 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.control.ManageDsaITControl;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
@@ -61,4 +66,56 @@ public class AddRequestTest
   {
     assertThat(request.encode(2)).isEqualTo(berValue);
   }
+
+
+  /**
+   * @param  request  add request to encode.
+   * @param  berValue  expected value.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(dataProvider = "request")
+  public void encodeToBuffer(final AddRequest request, final byte[] berValue)
+    throws Exception
+  {
+    final DEREncoder encoder = request.getEncoder(2);
+    assertThat(encoder.encodedLength()).isEqualTo(berValue.length);
+    final ByteBuffer buffer = ByteBuffer.allocate(berValue.length);
+    encoder.encode(buffer);
+    assertThat(buffer.hasRemaining()).isFalse();
+    assertThat(buffer.array()).isEqualTo(berValue);
+  }
+
+
+  /**
+   * Encodes a request whose elements use the long form length encoding.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test
+  public void encodeLongFormToBuffer()
+    throws Exception
+  {
+    final byte[] value = new byte[1024];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+    final AddRequest request = AddRequest.builder()
+      .dn("dc=example,dc=com")
+      .attributes(
+        LdapAttribute.builder().name("objectClass").values("top", "domain").build(),
+        LdapAttribute.builder().name("jpegPhoto").binaryValues(List.of(value)).build())
+      .controls(new ManageDsaITControl())
+      .build();
+    final byte[] berValue = request.encode(3);
+    assertThat(berValue[1]).isEqualTo((byte) 0x84);
+    final DEREncoder encoder = request.getEncoder(3);
+    assertThat(encoder.encodedLength()).isEqualTo(berValue.length);
+    final ByteBuffer buffer = ByteBuffer.allocate(berValue.length + 2);
+    buffer.put((byte) 0xFF);
+    encoder.encode(buffer);
+    assertThat(buffer.position()).isEqualTo(berValue.length + 1);
+    assertThat(buffer.get(0)).isEqualTo((byte) 0xFF);
+    assertThat(Arrays.copyOfRange(buffer.array(), 1, berValue.length + 1)).isEqualTo(berValue);
+  }
 }
@@ -0,0 +1,132 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import org.ldaptive.schema.Schema;
+import org.ldaptive.schema.SchemaFactory;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link AttributeRegistry}.
+ *
+ * @author  Middleware Services
+ */
+public class AttributeRegistryTest
+{
+
+  /** Subschema entry to create registries from. */
+  private static final LdapEntry SCHEMA_ENTRY = LdapEntry.builder()
+    .dn("cn=subschema")
+    .attributes(
+      new LdapAttribute(
+        "attributeTypes",
+        "( 2.5.4.41 NAME 'name' EQUALITY caseIgnoreMatch SYNTAX 1.3.6.1.4.1.1466.115.121.1.15{32768} )",
+        "( 2.5.4.4 NAME ( 'sn' 'surname' ) SUP name )",
+        "( 0.9.2342.19200300.100.1.60 NAME 'jpegPhoto' SYNTAX 1.3.6.1.4.1.1466.115.121.1.28 )",
+        "( 1.10.101.1 NAME 'customCert' SYNTAX 1.3.6.1.4.1.1466.115.121.1.8 )",
+        "( 1.10.101.2 NAME 'sshKey' SYNTAX 1.3.6.1.4.1.1466.115.121.1.5 )"),
+      new LdapAttribute(
+        "ldapSyntaxes",
+        "( 1.3.6.1.4.1.1466.115.121.1.8 DESC 'Certificate' X-NOT-HUMAN-READABLE 'TRUE' )"))
+    .build();
+
+
+  /** Default registry of binary attribute names. */
+  @Test(groups = "attribute")
+  public void binaryRegistry()
+  {
+    final AttributeRegistry registry = AttributeRegistry.getBinaryRegistry();
+    assertThat(AttributeRegistry.getDefault()).isSameAs(registry);
+    assertThat(registry.isBinary("jpegPhoto")).isTrue();
+    assertThat(registry.isBinary("JPEGPHOTO")).isTrue();
+    assertThat(registry.isBinary("userCertificate;binary")).isTrue();
+    assertThat(registry.isBinary("cACertificate;lang-en")).isTrue();
+    assertThat(registry.isBinary("sshKey;x-opt;binary")).isTrue();
+    assertThat(registry.isBinary("sshKey;binaryish")).isFalse();
+    assertThat(registry.isBinary("cn")).isFalse();
+    assertThat(registry.isBinary(null)).isFalse();
+    assertThat(registry.lookup("cn")).isNull();
+    assertThat(registry.lookup("userCertificate;binary").getNames()).containsExactly("userCertificate");
+
+    assertThat(registry.getLowerName("jpegPhoto")).isEqualTo("jpegphoto");
+    assertThat(registry.getLowerName(new String("jpegPhoto"))).isSameAs(registry.getLowerName("jpegPhoto"));
+    assertThat(registry.getLowerName("givenName")).isEqualTo("givenname");
+    assertThat(registry.getLowerName("jpegPhoto;binary")).isEqualTo("jpegphoto;binary");
+    try {
+      registry.getLowerName(null);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "attribute")
+  public void schemaRegistry()
+    throws Exception
+  {
+    final Schema schema = SchemaFactory.createSchema(SCHEMA_ENTRY);
+    final AttributeRegistry registry = schema.createAttributeRegistry();
+
+    final AttributeRegistry.Descriptor sn = registry.lookup("Surname");
+    assertThat(sn).isSameAs(registry.lookup("sn")).isSameAs(registry.lookup("2.5.4.4"));
+    assertThat(sn.getOID()).isEqualTo("2.5.4.4");
+    assertThat(sn.getSyntaxOID()).isEqualTo("1.3.6.1.4.1.1466.115.121.1.15");
+    assertThat(sn.getEqualityMatchingRule()).isEqualTo("caseIgnoreMatch");
+    assertThat(sn.isBinary()).isFalse();
+
+    assertThat(registry.isBinary("jpegPhoto")).isTrue();
+    assertThat(registry.isBinary("customCert")).isTrue();
+    assertThat(registry.isBinary("SSHKEY")).isTrue();
+    assertThat(registry.isBinary("userCertificate")).isTrue();
+    assertThat(registry.isBinary("name")).isFalse();
+    assertThat(registry.lookup("userCertificate").getSyntaxOID()).isNull();
+
+    AttributeRegistry.setDefault(registry);
+    try {
+      assertThat(new LdapAttribute("customcert").isBinary()).isTrue();
+      assertThat(new LdapAttribute("surname").isBinary()).isFalse();
+      final LdapEntry entry = LdapEntry.builder()
+        .dn("uid=1")
+        .attributes(new LdapAttribute("sshKey", new byte[] {0x01}), new LdapAttribute("SN", "Wallace"))
+        .build();
+      assertThat(entry.getAttribute("sshkey").isBinary()).isTrue();
+      assertThat(entry.getAttribute("sn").getStringValue()).isEqualTo("Wallace");
+      assertThat(entry.hasAttribute("Surname")).isFalse();
+    } finally {
+      AttributeRegistry.setDefault(null);
+    }
+    assertThat(AttributeRegistry.getDefault()).isSameAs(AttributeRegistry.getBinaryRegistry());
+    assertThat(new LdapAttribute("customCert").isBinary()).isFalse();
+  }
+
+
+  /** Descriptors that cannot be created. */
+  @Test(groups = "attribute")
+  public void invalidDescriptors()
+  {
+    final String[][] names = {
+      null,
+      new String[0],
+      new String[] {null},
+      new String[] {""},
+    };
+    for (String[] n : names) {
+      try {
+        new AttributeRegistry.Descriptor(null, n, null, null, false);
+        fail("Should have thrown IllegalArgumentException for " + (n != null ? n.length : null));
+      } catch (Exception e) {
+        assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+      }
+    }
+    try {
+      new AttributeRegistry((AttributeRegistry.Descriptor) null);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+}
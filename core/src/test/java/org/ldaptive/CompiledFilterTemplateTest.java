@@ -0,0 +1,173 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.List;
+import java.util.Map;
+import org.ldaptive.filter.Filter;
+import org.ldaptive.filter.FilterParser;
+import org.ldaptive.filter.PresenceFilter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link CompiledFilterTemplate}.
+ *
+ * @author  Middleware Services
+ */
+public class CompiledFilterTemplateTest
+{
+
+
+  /**
+   * Filter template test data.
+   *
+   * @return  filter templates
+   */
+  @DataProvider(name = "templates")
+  public Object[][] createTemplates()
+  {
+    final String longValue = "x".repeat(300);
+    return
+      new Object[][] {
+        new Object[] {
+          FilterTemplate.builder().filter("(uid={user})").parameter("user", "bwallace").build(),
+        },
+        new Object[] {
+          FilterTemplate.builder().filter("(&(objectClass=person)(uid={0}))").parameter(0, "bwallace").build(),
+        },
+        new Object[] {
+          FilterTemplate.builder()
+            .filter("(|(givenName={0})(!(sn={1}))(mail={0}@ldaptive.org))")
+            .parameter(0, "Bill")
+            .parameter(1, "Wallace")
+            .build(),
+        },
+        new Object[] {
+          FilterTemplate.builder()
+            .filter("(&(givenName={firstname})(sn={lastname}))")
+            .parameter("firstname", "Bill*")
+            .parameter("lastname", "Wa(ll)ace\\")
+            .build(),
+        },
+        new Object[] {
+          FilterTemplate.builder()
+            .filter("(&(givenName={0})(sn={1}))")
+            .parameter(0, new byte[] {'B', 'i', 'l', 'l', })
+            .parameter(1, new byte[] {0x00, (byte) 0xFF, 0x2A, })
+            .build(),
+        },
+        new Object[] {
+          FilterTemplate.builder().filter("(cn=pre{0}*mid*{0}post)").parameter(0, "value").build(),
+        },
+        new Object[] {
+          FilterTemplate.builder()
+            .filter("(&(uidNumber>={0})(uidNumber<={1})(cn~={2}))")
+            .parameter(0, 1000)
+            .parameter(1, 2000L)
+            .parameter(2, "Bill")
+            .build(),
+        },
+        new Object[] {
+          FilterTemplate.builder().filter("(cn:caseExactMatch:={0})").parameter(0, "Bill").build(),
+        },
+        new Object[] {
+          FilterTemplate.builder().filter("(&(cn={0})(sn={0}))").parameter(0, longValue).build(),
+        },
+        new Object[] {
+          FilterTemplate.builder()
+            .filter("(&(objectClass=inetOrgPerson)(description=" + longValue + ")(uid={0}))")
+            .parameter(0, "éè中")
+            .build(),
+        },
+        new Object[] {
+          FilterTemplate.builder().filter("(&(objectClass=person)(cn=*))").build(),
+        },
+      };
+  }
+
+
+  /**
+   * @param  template  to compile
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "filter", dataProvider = "templates")
+  public void apply(final FilterTemplate template)
+    throws Exception
+  {
+    final CompiledFilterTemplate compiled = CompiledFilterTemplate.compile(template.getFilter());
+    final Filter parsed = FilterParser.parse(template.format());
+    final Filter filter = compiled.apply(template);
+    assertThat(filter.getEncoder().encode()).isEqualTo(parsed.getEncoder().encode());
+    assertThat(filter.getEncoder().encodedLength()).isEqualTo(parsed.getEncoder().encode().length);
+    assertThat(filter.toString()).isEqualTo(template.format());
+    assertThat(compiled.apply(template.getParameters())).isEqualTo(filter);
+    assertThat(compiled.apply(template.getParameters()).hashCode()).isEqualTo(filter.hashCode());
+  }
+
+
+  /** Positional and named parameters. */
+  @Test(groups = "filter")
+  public void parameters()
+  {
+    final CompiledFilterTemplate compiled = CompiledFilterTemplate.compile("(&(givenName={1})(sn={0})(uid={user}))");
+    assertThat(compiled.getParameterNames()).isEqualTo(List.of("1", "0", "user"));
+
+    final FilterTemplate template = FilterTemplate.builder()
+      .filter("(&(givenName={1})(sn={0})(uid={user}))")
+      .parameters("Wallace", "Bill")
+      .parameter("user", "bwallace")
+      .build();
+    assertThat(compiled.apply(Map.of("0", "Wallace", "1", "Bill", "user", "bwallace")).getEncoder().encode())
+      .isEqualTo(compiled.apply(template).getEncoder().encode());
+    assertThat(compiled.apply(Map.of("0", "Wallace", "1", "Bill", "user", "bwallace")))
+      .isNotEqualTo(compiled.apply(Map.of("0", "Wallace", "1", "Bob", "user", "bwallace")));
+    assertThat(CompiledFilterTemplate.compile("(&(givenName={0})(sn={1}))").apply("Bill", "Wallace").toString())
+      .isEqualTo("(&(givenName=Bill)(sn=Wallace))");
+  }
+
+
+  /**
+   * Null and empty values change the shape of the filter and are formatted and parsed.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "filter")
+  public void emptyValues()
+    throws Exception
+  {
+    final CompiledFilterTemplate compiled = CompiledFilterTemplate.compile("(cn={0}*)");
+    assertThat(compiled.apply("")).isEqualTo(new PresenceFilter("cn"));
+    assertThat(compiled.apply(new byte[0])).isEqualTo(new PresenceFilter("cn"));
+    assertThat(CompiledFilterTemplate.compile("(cn={0})").apply(Map.of()))
+      .isEqualTo(FilterParser.parse("(cn={0})"));
+  }
+
+
+  /** Templates that cannot be compiled. */
+  @Test(groups = "filter")
+  public void invalidTemplates()
+  {
+    final String[] templates = {
+      "({0}=bwallace)",
+      "(uid={0}",
+      "(cn:{0}:=Bill)",
+      "(uid=)",
+    };
+    for (String template : templates) {
+      try {
+        CompiledFilterTemplate.compile(template);
+        fail("Should have thrown IllegalArgumentException for " + template);
+      } catch (Exception e) {
+        assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+      }
+    }
+    try {
+      CompiledFilterTemplate.compile("(uid={0})").apply(new FilterTemplate("(cn={0})"));
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package org.ldaptive;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
+import org.ldaptive.asn1.DefaultDERBuffer;
 import org.ldaptive.auth.AuthenticationHandlerResponse;
 import org.ldaptive.auth.AuthenticationResponse;
 import org.ldaptive.extended.ExtendedResponse;
@@ -103,6 +104,11 @@ public class EqualsTest
           .attributes(LdapAttribute.builder().name("id").values("abrown").build()).build())
       .suppress(Warning.STRICT_INHERITANCE)
       .suppress(Warning.NONFINAL_FIELDS)
+      .withNonnullFields("attributes")
+      .withPrefabValues(
+        EncodedAttributes.class,
+        new EncodedAttributes(new DefaultDERBuffer(new byte[0])),
+        new EncodedAttributes(new DefaultDERBuffer(new byte[0])))
       .verify();
   }
 
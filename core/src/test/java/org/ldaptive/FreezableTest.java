@@ -205,6 +205,9 @@ public class FreezableTest
         new Object[] {
           SingleConnectionFactory.class,
         },
+        new Object[] {
+          MultiplexedConnectionFactory.class,
+        },
         new Object[] {
           Dn.class,
         },
@@ -10,6 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
 
@@ -722,4 +723,86 @@ public class LdapAttributeTest
         "org.ldaptive.LdapAttribute@-1981327803::name=givenName, " +
           "values=[Bill\uD83C\uDDEE\uD83C\uDDF8Wallace], binary=false");
   }
+
+
+  /** Tests attributes whose values are stored compactly. */
+  @Test
+  public void compactValues()
+  {
+    final List<String> members = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      members.add("uid=user" + i + ",ou=People,dc=ldaptive,dc=org");
+    }
+    final LdapAttribute small = new LdapAttribute("member");
+    small.addStringValues(members.subList(0, 900));
+    final LdapAttribute large = new LdapAttribute("member");
+    large.addStringValues(members);
+    large.addStringValues(members.subList(0, 10));
+    assertThat(large.size()).isEqualTo(5000);
+    assertThat(large.getStringValues()).containsExactlyElementsOf(members);
+    assertThat(large.getStringValue()).isEqualTo(members.get(0));
+    assertThat(large.hasValue("uid=user4999,ou=People,dc=ldaptive,dc=org")).isTrue();
+    assertThat(large.hasValue("uid=user5000,ou=People,dc=ldaptive,dc=org")).isFalse();
+
+    // equals and hashCode do not depend on storage
+    final LdapAttribute reversed = new LdapAttribute("MEMBER");
+    for (int i = members.size() - 1; i >= 0; i--) {
+      reversed.addStringValues(members.get(i));
+    }
+    assertThat(large).isEqualTo(reversed);
+    assertThat(large.hashCode()).isEqualTo(reversed.hashCode());
+    final LdapAttribute frozen = LdapAttribute.copy(small);
+    frozen.freeze();
+    assertThat(frozen).isEqualTo(small);
+    assertThat(small).isEqualTo(frozen);
+    assertThat(frozen.hashCode()).isEqualTo(small.hashCode());
+    assertThat(frozen.getStringValues()).containsExactlyElementsOf(members.subList(0, 900));
+    assertThat(frozen.hasValue("uid=user899,ou=People,dc=ldaptive,dc=org")).isTrue();
+    assertThat(frozen.hasValue("uid=user900,ou=People,dc=ldaptive,dc=org")).isFalse();
+
+    // removals preserve order
+    large.removeStringValues(members.subList(0, 3000));
+    large.removeStringValues("uid=user4000,ou=People,dc=ldaptive,dc=org");
+    final List<String> remaining = new ArrayList<>(members.subList(3000, 5000));
+    remaining.remove("uid=user4000,ou=People,dc=ldaptive,dc=org");
+    assertThat(large.size()).isEqualTo(1999);
+    assertThat(large.getStringValues()).containsExactlyElementsOf(remaining);
+    assertThat(large.hasValue("uid=user0,ou=People,dc=ldaptive,dc=org")).isFalse();
+    assertThat(large.hasValue("uid=user4001,ou=People,dc=ldaptive,dc=org")).isTrue();
+    large.addStringValues("uid=user0,ou=People,dc=ldaptive,dc=org");
+    assertThat(large.size()).isEqualTo(2000);
+    assertThat(large.getStringValues()).endsWith("uid=user0,ou=People,dc=ldaptive,dc=org");
+
+    // copies and merges
+    final LdapAttribute copy = LdapAttribute.copy(large);
+    assertThat(copy).isEqualTo(large);
+    copy.merge(small);
+    assertThat(copy.size()).isEqualTo(2899);
+    assertThat(copy.isFrozen()).isFalse();
+    copy.clear();
+    assertThat(copy.size()).isZero();
+    assertThat(large.size()).isEqualTo(2000);
+    assertThat(LdapAttribute.sort(frozen).getStringValues()).hasSize(900);
+
+    // reads from compact storage
+    assertThat(large.anyValueMatch(v -> v.length == 41)).isTrue();
+    assertThat(large.anyValueMatch(v -> v.length == 0)).isFalse();
+    final byte[] last = LdapUtils.utf8Encode("uid=user0,ou=People,dc=ldaptive,dc=org");
+    assertThat(large.anyValueMatch(
+      (v, offset, length) -> Arrays.equals(v, offset, offset + length, last, 0, last.length))).isTrue();
+    assertThat(large.anyValueMatch((v, offset, length) -> length == 0)).isFalse();
+    final LdapAttribute binary = new LdapAttribute("member");
+    binary.setBinary(true);
+    binary.addBinaryValues(members.stream().map(LdapUtils::utf8Encode).collect(Collectors.toList()));
+    assertThat(binary.getStringValue()).isEqualTo(LdapUtils.base64Encode(members.get(0)));
+    assertThat(binary.getStringValues()).containsExactlyElementsOf(
+      members.stream().map(LdapUtils::base64Encode).collect(Collectors.toList()));
+
+    // few values are not compacted on freeze
+    final LdapAttribute single = new LdapAttribute("member", members.get(0));
+    single.freeze();
+    assertThat(single.getStringValue()).isEqualTo(members.get(0));
+    assertThat(single.anyValueMatch(v -> v.length == members.get(0).length())).isTrue();
+    assertThat(single).isEqualTo(new LdapAttribute("member", members.get(0)));
+  }
 }
@@ -3,6 +3,7 @@ package org.ldaptive;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -254,6 +255,41 @@ public class LdapEntryTest
   }
 
 
+  /**
+   * @param  berValue  encoded response.
+   * @param  response  expected decoded response.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(dataProvider = "response")
+  public void decodeLazily(final byte[] berValue, final LdapEntry response)
+    throws Exception
+  {
+    assertThat(LdapEntry.decodeLazily(new DefaultDERBuffer(berValue))).isEqualTo(response);
+
+    final LdapEntry entry = LdapEntry.decodeLazily(new DefaultDERBuffer(berValue));
+    assertThat(entry.getMessageID()).isEqualTo(response.getMessageID());
+    assertThat(entry.getDn()).isEqualTo(response.getDn());
+    assertThat(entry.getControls()).isEqualTo(response.getControls());
+    assertThat(entry.size()).isEqualTo(response.size());
+    assertThat(entry.getAttributeNames()).containsExactlyInAnyOrder(response.getAttributeNames());
+    for (LdapAttribute attr : response.getAttributes()) {
+      assertThat(entry.hasAttribute(attr.getName().toUpperCase())).isTrue();
+      assertThat(entry.getAttribute(attr.getName())).isEqualTo(attr);
+    }
+    assertThat(entry.hasAttribute("doesNotExist")).isFalse();
+    assertThat(entry.getAttribute("doesNotExist")).isNull();
+    entry.release();
+    assertThat(entry).isEqualTo(response);
+
+    final LdapEntry decoded = LdapEntry.decodeLazily(new DefaultDERBuffer(berValue));
+    decoded.decodeAttributes();
+    decoded.release();
+    assertThat(decoded.size()).isEqualTo(response.size());
+    assertThat(decoded).isEqualTo(response);
+  }
+
+
   /**
    * Tests ordered ldap attribute values.
    */
@@ -1023,4 +1059,69 @@ public class LdapEntryTest
           LdapAttribute.builder().name("displayName").values("Bob Smith").build())
         .build());
   }
+
+
+  /** Tests the immutable form of a frozen entry. */
+  @Test
+  public void frozenEntry()
+  {
+    final LdapEntry entry = LdapEntry.builder()
+      .dn("uid=bob,ou=People,dc=ldaptive,dc=org")
+      .attributes(
+        LdapAttribute.builder().name("uid").values("bob").build(),
+        LdapAttribute.builder().name("objectClass").values("top", "inetOrgPerson").build(),
+        LdapAttribute.builder().name("displayName;lang-en").values("Bob").build(),
+        LdapAttribute.builder().name("n\u00E4me").values("B\u00F6b").build())
+      .build();
+    final LdapEntry frozen = LdapEntry.copy(entry);
+    frozen.freeze();
+    assertThat(frozen).isEqualTo(entry);
+    assertThat(entry).isEqualTo(frozen);
+    assertThat(frozen.hashCode()).isEqualTo(entry.hashCode()).isEqualTo(frozen.hashCode());
+    assertThat(frozen.getNormalizedDn()).isEqualTo(entry.getNormalizedDn());
+    assertThat(frozen.getAttributeNames()).containsExactly("uid", "objectClass", "displayName;lang-en", "n\u00E4me");
+
+    assertThat(frozen.getAttribute("OBJECTCLASS").getStringValues()).containsExactly("top", "inetOrgPerson");
+    assertThat(frozen.getAttribute("objectclass")).isSameAs(frozen.getAttribute("objectClass"));
+    assertThat(frozen.getAttribute("DisplayName;Lang-EN").getStringValue()).isEqualTo("Bob");
+    assertThat(frozen.getAttribute("N\u00C4ME").getStringValue()).isEqualTo("B\u00F6b");
+    assertThat(frozen.getAttribute("displayName")).isNull();
+    assertThat(frozen.getAttribute(null)).isNull();
+    assertThat(frozen.hasAttribute("UID")).isTrue();
+    assertThat(frozen.hasAttribute("cn")).isFalse();
+    assertThat(frozen.hasAttribute(null)).isFalse();
+    assertThat(frozen.getAttribute().getName()).isEqualTo("uid");
+    assertThat(frozen.size()).isEqualTo(4);
+
+    final Collection<LdapAttribute> attrs = frozen.getAttributes();
+    assertThat(attrs).hasSize(4);
+    try {
+      attrs.clear();
+      fail("Should have thrown UnsupportedOperationException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(UnsupportedOperationException.class);
+    }
+    try {
+      frozen.getAttribute("uid").addStringValues("robert");
+      fail("Should have thrown IllegalStateException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    final Set<LdapEntry> set = new HashSet<>();
+    set.add(frozen);
+    assertThat(set).contains(entry);
+    final LdapEntry other = LdapEntry.copy(entry);
+    other.getAttribute("uid").addStringValues("robert");
+    other.freeze();
+    assertThat(other).isNotEqualTo(frozen);
+    assertThat(set).doesNotContain(other);
+
+    final LdapEntry copy = LdapEntry.copy(frozen);
+    assertThat(copy.isFrozen()).isFalse();
+    copy.removeAttribute("uid");
+    assertThat(copy.size()).isEqualTo(3);
+    assertThat(frozen.size()).isEqualTo(4);
+    assertThat(LdapEntry.sort(frozen)).isEqualTo(entry);
+  }
 }
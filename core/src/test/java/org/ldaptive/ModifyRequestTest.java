@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.nio.ByteBuffer;
+import org.ldaptive.asn1.DEREncoder;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
@@ -87,4 +89,23 @@ public class ModifyRequestTest
   {
     assertThat(request.encode(2)).isEqualTo(berValue);
   }
+
+
+  /**
+   * @param  request  modify request to encode.
+   * @param  berValue  expected value.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(dataProvider = "request")
+  public void encodeToBuffer(final ModifyRequest request, final byte[] berValue)
+    throws Exception
+  {
+    final DEREncoder encoder = request.getEncoder(2);
+    assertThat(encoder.encodedLength()).isEqualTo(berValue.length);
+    final ByteBuffer buffer = ByteBuffer.allocate(berValue.length);
+    encoder.encode(buffer);
+    assertThat(buffer.hasRemaining()).isFalse();
+    assertThat(buffer.array()).isEqualTo(berValue);
+  }
 }
@@ -0,0 +1,172 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import org.ldaptive.transport.DefaultOperationHandle;
+import org.ldaptive.transport.DefaultSearchOperationHandle;
+import org.ldaptive.transport.Transport;
+import org.ldaptive.transport.mock.MockConnection;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link MultiplexedConnectionFactory}.
+ *
+ * @author  Middleware Services
+ */
+public class MultiplexedConnectionFactoryTest
+{
+
+
+  /**
+   * Creates a new factory that uses mock connections. Search handles are written but never receive a response until
+   * the test completes them.
+   *
+   * @param  count  number of connections
+   * @param  written  to store handles that have been written
+   *
+   * @return  connection factory
+   */
+  private static MultiplexedConnectionFactory createFactory(
+    final int count, final List<DefaultOperationHandle> written)
+  {
+    return createFactory(count, written, url -> true);
+  }
+
+
+  /**
+   * Creates a new factory that uses mock connections. Search handles are written but never receive a response until
+   * the test completes them.
+   *
+   * @param  count  number of connections
+   * @param  written  to store handles that have been written
+   * @param  openPredicate  whether a mock connection can be opened
+   *
+   * @return  connection factory
+   */
+  private static MultiplexedConnectionFactory createFactory(
+    final int count, final List<DefaultOperationHandle> written, final Predicate<LdapURL> openPredicate)
+  {
+    return MultiplexedConnectionFactory.builder(
+      new Transport() {
+        @Override
+        public Connection create(final ConnectionConfig cc)
+        {
+          final MockConnection conn = MockConnection.builder(cc)
+            .openPredicate(openPredicate)
+            .writeConsumer(h -> {
+              h.messageID(1);
+              h.sent();
+              synchronized (written) {
+                written.add(h);
+              }
+            })
+            .build();
+          conn.setSearchOperationFunction(req -> new DefaultSearchOperationHandle(
+            (SearchRequest) req, conn, Duration.ofSeconds(1)));
+          return conn;
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void shutdown() {}
+      })
+      .config(ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build())
+      .connectionCount(count)
+      .build();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "conn")
+  public void leastPending()
+    throws Exception
+  {
+    final List<DefaultOperationHandle> written = new ArrayList<>();
+    final MultiplexedConnectionFactory factory = createFactory(3, written);
+    assertThatIllegalStateException().isThrownBy(factory::getConnection);
+    assertThat(factory.getPendingResponseCounts()).isEmpty();
+    factory.initialize();
+    try {
+      assertThat(factory.getPendingResponseCounts()).containsExactly(0, 0, 0);
+      for (int i = 0; i < 5; i++) {
+        final Connection conn = factory.getConnection();
+        conn.open();
+        assertThat(conn.isOpen()).isTrue();
+        conn.operation(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org")).send();
+        // close is ignored, connection remains open
+        conn.close();
+        assertThat(conn.isOpen()).isTrue();
+      }
+      assertThat(written).hasSize(5);
+      assertThat(factory.getPendingResponseCounts()).containsExactlyInAnyOrder(2, 2, 1);
+
+      written.get(0).result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+      written.get(1).result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+      assertThat(factory.getPendingResponseCounts()).containsExactlyInAnyOrder(1, 1, 1);
+    } finally {
+      factory.close();
+    }
+    assertThat(factory.isInitialized()).isFalse();
+    assertThatIllegalStateException().isThrownBy(factory::getConnection);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "conn")
+  public void unsupportedOperations()
+    throws Exception
+  {
+    final MultiplexedConnectionFactory factory = createFactory(1, new ArrayList<>());
+    factory.initialize();
+    try {
+      final Connection conn = factory.getConnection();
+      assertThatExceptionOfType(UnsupportedOperationException.class)
+        .isThrownBy(() -> conn.operation(SimpleBindRequest.builder().dn("uid=1").password("secret").build()));
+      assertThatExceptionOfType(UnsupportedOperationException.class)
+        .isThrownBy(() -> conn.operation(new DeleteRequest("uid=1,dc=ldaptive,dc=org")));
+      assertThatExceptionOfType(UnsupportedOperationException.class)
+        .isThrownBy(() -> conn.operation(new AbandonRequest(1)));
+      assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> factory.setConnectionCount(2));
+    } finally {
+      factory.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "conn")
+  public void reopen()
+    throws Exception
+  {
+    final AtomicBoolean available = new AtomicBoolean();
+    final MultiplexedConnectionFactory factory = createFactory(2, new ArrayList<>(), url -> available.get());
+    factory.setFailFastInitialize(false);
+    factory.initialize();
+    try {
+      final Connection conn = factory.getConnection();
+      assertThat(conn.isOpen()).isFalse();
+      assertThatExceptionOfType(ConnectException.class).isThrownBy(conn::open);
+      available.set(true);
+      conn.open();
+      assertThat(conn.isOpen()).isTrue();
+      // opening an open connection is ignored
+      conn.open();
+      assertThat(factory.getConnection().isOpen()).isTrue();
+    } finally {
+      factory.close();
+    }
+  }
+}
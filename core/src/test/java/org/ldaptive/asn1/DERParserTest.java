@@ -483,6 +483,59 @@ public class DERParserTest
   }
 
 
+  /**
+   * @param  encoded  to parse.
+   * @param  handlers  to verify
+   */
+  @Test(groups = "asn1", dataProvider = "parserData")
+  public void testCompiledParse(final DERBuffer encoded, final TestParseHandler[] handlers)
+  {
+    final CompiledDERPaths paths = CompiledDERPaths.compile(
+      Arrays.stream(handlers).map(h -> new DERPath(h.getDerPath())).toArray(DERPath[]::new));
+    final DERParser parser = new DERParser(paths);
+    for (TestParseHandler handler : handlers) {
+      parser.registerHandler(new DERPath(handler.getDerPath()), handler);
+    }
+    parser.parse(encoded);
+    Arrays.stream(handlers)
+      .forEach(h -> assertThat(h.getActualCount())
+        .withFailMessage("Path %s expected %s but was %s", h.getDerPath(), h.getExpectedCount(), h.getActualCount())
+        .isEqualTo(h.getExpectedCount()));
+  }
+
+
+  /**
+   * Compiled paths with overlapping wildcard and indexed nodes.
+   */
+  @Test(groups = "asn1")
+  public void testCompiledPaths()
+  {
+    final TestParseHandler any = new TestParseHandler("/SEQ/OCTSTR", 3);
+    final TestParseHandler first = new TestParseHandler("/SEQ/OCTSTR[0]", 1);
+    final TestParseHandler third = new TestParseHandler("/SEQ[0]/OCTSTR[2]", 1);
+    final TestParseHandler missing = new TestParseHandler("/SEQ/OCTSTR[3]", 0);
+    final DERParser parser = new DERParser(
+      CompiledDERPaths.compile(
+        new DERPath(any.getDerPath()),
+        new DERPath(first.getDerPath()),
+        new DERPath(third.getDerPath()),
+        new DERPath(missing.getDerPath())));
+    parser.registerHandler(new DERPath(any.getDerPath()), any);
+    parser.registerHandler(new DERPath(first.getDerPath()), first);
+    parser.registerHandler(new DERPath(third.getDerPath()), third);
+    parser.registerHandler(new DERPath(missing.getDerPath()), missing);
+    parser.parse(
+      new DefaultDERBuffer(new byte[] {0x30, 0x09, 0x04, 0x01, 0x61, 0x04, 0x01, 0x62, 0x04, 0x01, 0x63}));
+    for (TestParseHandler h : new TestParseHandler[] {any, first, third, missing}) {
+      assertThat(h.getActualCount()).withFailMessage("Path %s", h.getDerPath()).isEqualTo(h.getExpectedCount());
+    }
+
+    assertThatIllegalArgumentException().isThrownBy(() -> parser.registerHandler(new DERPath("/SEQ"), any));
+    assertThatIllegalArgumentException().isThrownBy(
+      () -> CompiledDERPaths.compile(new DERPath("/SEQ"), new DERPath("/SEQ")));
+  }
+
+
   /**
    * @param  encoded  to parse
    *
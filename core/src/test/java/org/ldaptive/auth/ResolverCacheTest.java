@@ -0,0 +1,279 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ldaptive.BindResponse;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.metrics.HistogramMetricsListener;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link ResolverCache}, {@link CachingDnResolver} and {@link CachingEntryResolver}.
+ *
+ * @author  Middleware Services
+ */
+public class ResolverCacheTest
+{
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void timeToLive()
+    throws Exception
+  {
+    final AtomicLong time = new AtomicLong();
+    final ResolverCache<String, String> cache = new ResolverCache<>(
+      "test", 10, Duration.ofNanos(100), Duration.ofNanos(10), time::get);
+    final AtomicInteger loads = new AtomicInteger();
+    assertThat(cache.get("bob", () -> "uid=bob-" + loads.incrementAndGet())).isEqualTo("uid=bob-1");
+    time.set(99);
+    assertThat(cache.get("bob", () -> "uid=bob-" + loads.incrementAndGet())).isEqualTo("uid=bob-1");
+    time.set(100);
+    assertThat(cache.get("bob", () -> "uid=bob-" + loads.incrementAndGet())).isEqualTo("uid=bob-2");
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+
+    // negative entries use their own time to live
+    assertThat(cache.get("alice", () -> null)).isNull();
+    assertThat(cache.get("alice", () -> "uid=alice")).isNull();
+    time.addAndGet(10);
+    assertThat(cache.get("alice", () -> "uid=alice")).isEqualTo("uid=alice");
+
+    final ResolverCache<String, String> noNegative = new ResolverCache<>("test", 10, Duration.ofMinutes(1));
+    assertThat(noNegative.get("alice", () -> null)).isNull();
+    assertThat(noNegative.get("alice", () -> "uid=alice")).isEqualTo("uid=alice");
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void eviction()
+    throws Exception
+  {
+    final ResolverCache<Integer, Integer> cache = new ResolverCache<>("test", 3, Duration.ofMinutes(1));
+    for (int i = 0; i < 3; i++) {
+      final int value = i;
+      cache.get(i, () -> value);
+    }
+    // access 0 so that 1 is the least recently used
+    assertThat(cache.get(0, () -> -1)).isEqualTo(0);
+    assertThat(cache.get(3, () -> 3)).isEqualTo(3);
+    assertThat(cache.size()).isEqualTo(3);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.get(1, () -> -1)).isEqualTo(-1);
+    assertThat(cache.get(0, () -> -1)).isEqualTo(0);
+
+    cache.invalidate(0);
+    assertThat(cache.get(0, () -> -1)).isEqualTo(-1);
+    cache.invalidateAll();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void segmentedEviction()
+    throws Exception
+  {
+    final ResolverCache<Integer, Integer> cache = new ResolverCache<>("test", 256, Duration.ofMinutes(1));
+    for (int i = 0; i < 1000; i++) {
+      final int value = i;
+      cache.get(i, () -> value);
+    }
+    assertThat(cache.size()).isEqualTo(256);
+    assertThat(cache.getEvictionCount()).isEqualTo(744);
+    // the most recently used keys of each segment are retained
+    for (int i = 984; i < 1000; i++) {
+      assertThat(cache.getIfPresent(i)).isEqualTo(i);
+    }
+    assertThat(cache.getIfPresent(0)).isNull();
+
+    cache.invalidate(999);
+    assertThat(cache.getIfPresent(999)).isNull();
+    cache.invalidateAll();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void exceptionsNotCached()
+    throws Exception
+  {
+    final ResolverCache<String, String> cache = new ResolverCache<>(
+      "test", 10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    try {
+      cache.get("bob", () -> {
+        throw new LdapException(ResultCode.SERVER_DOWN, "down");
+      });
+      fail("Should have thrown LdapException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(LdapException.class);
+    }
+    assertThat(cache.get("bob", () -> "uid=bob")).isEqualTo("uid=bob");
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void singleFlight()
+    throws Exception
+  {
+    final ResolverCache<String, String> cache = new ResolverCache<>("test", 10, Duration.ofMinutes(1));
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<String>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> cache.get("bob", () -> {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new LdapException(ResultCode.LOCAL_ERROR, e);
+        }
+        return "uid=bob";
+      })));
+      assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < 7; i++) {
+        futures.add(executor.submit(() -> cache.get("bob", () -> "uid=bob-" + loads.incrementAndGet())));
+      }
+      while (cache.getCoalescedCount() < 7) {
+        Thread.sleep(10);
+      }
+      release.countDown();
+      for (Future<String> f : futures) {
+        assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("uid=bob");
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void invalidateDuringLoad()
+    throws Exception
+  {
+    final ResolverCache<String, String> cache = new ResolverCache<>("test", 10, Duration.ofMinutes(1));
+    assertThat(cache.get("bob", () -> {
+      cache.invalidate("bob");
+      return "uid=bob";
+    })).isEqualTo("uid=bob");
+    assertThat(cache.size()).isZero();
+    assertThat(cache.get("bob", () -> {
+      cache.invalidateAll();
+      return "uid=bob";
+    })).isEqualTo("uid=bob");
+    assertThat(cache.size()).isZero();
+    // invalidating another key does not affect the load
+    assertThat(cache.get("bob", () -> {
+      cache.invalidate("alice");
+      return "uid=bob";
+    })).isEqualTo("uid=bob");
+    assertThat(cache.getIfPresent("bob")).isEqualTo("uid=bob");
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void cachingDnResolver()
+    throws Exception
+  {
+    final AtomicInteger resolves = new AtomicInteger();
+    final CachingDnResolver resolver = new CachingDnResolver(
+      user -> {
+        resolves.incrementAndGet();
+        return "uid=" + user.getIdentifier() + ",ou=people,dc=ldaptive,dc=org";
+      },
+      100,
+      Duration.ofMinutes(1));
+    final HistogramMetricsListener listener = new HistogramMetricsListener();
+    resolver.getCache().setMetricsListener(listener);
+    assertThat(resolver.resolve(new User("bob"))).isEqualTo("uid=bob,ou=people,dc=ldaptive,dc=org");
+    assertThat(resolver.resolve(new User("bob"))).isEqualTo("uid=bob,ou=people,dc=ldaptive,dc=org");
+    assertThat(resolves.get()).isEqualTo(1);
+    // users with a context are not cached
+    resolver.resolve(new User("bob", "ctx"));
+    resolver.resolve(new User("bob", "ctx"));
+    assertThat(resolves.get()).isEqualTo(3);
+    assertThat(listener.getCounter("cache.hit", "dn-resolver")).isEqualTo(1);
+    assertThat(listener.getCounter("cache.miss", "dn-resolver")).isEqualTo(1);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "auth")
+  public void cachingEntryResolver()
+    throws Exception
+  {
+    final AtomicInteger resolves = new AtomicInteger();
+    final CachingEntryResolver resolver = new CachingEntryResolver(
+      (criteria, response) -> {
+        resolves.incrementAndGet();
+        return LdapEntry.builder().dn(criteria.getDn()).attributes(new LdapAttribute("uid", "bob")).build();
+      },
+      100,
+      Duration.ofMinutes(1));
+    final AuthenticationCriteria criteria = new AuthenticationCriteria(
+      "uid=bob,ou=people,dc=ldaptive,dc=org",
+      new AuthenticationRequest(new User("bob"), null, "uid"));
+    final LdapEntry entry = resolver.resolve(criteria, null);
+    assertThat(entry.getAttribute("uid").getStringValue()).isEqualTo("bob");
+    entry.addAttributes(new LdapAttribute("cn", "Bob"));
+    final LdapEntry cached = resolver.resolve(criteria, null);
+    assertThat(cached.getAttribute("cn")).isNull();
+    assertThat(resolves.get()).isEqualTo(1);
+
+    resolver.resolve(
+      new AuthenticationCriteria(
+        "uid=bob,ou=people,dc=ldaptive,dc=org",
+        new AuthenticationRequest(new User("bob"), null, "uid", "cn")),
+      null);
+    assertThat(resolves.get()).isEqualTo(2);
+
+    // failed binds do not use the cache
+    final AuthenticationHandlerResponse failure = new AuthenticationHandlerResponse(
+      BindResponse.builder().resultCode(ResultCode.INVALID_CREDENTIALS).build(),
+      AuthenticationResultCode.AUTHENTICATION_HANDLER_FAILURE,
+      null);
+    assertThat(resolver.resolve(criteria, failure)).isNotNull();
+    assertThat(resolves.get()).isEqualTo(3);
+    resolver.getCache().invalidateAll();
+    resolver.resolve(criteria, failure);
+    assertThat(resolver.getCache().size()).isZero();
+  }
+}
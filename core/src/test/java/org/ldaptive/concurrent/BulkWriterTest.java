@@ -0,0 +1,305 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import io.netty.channel.Channel;
+import org.ldaptive.AddRequest;
+import org.ldaptive.AddResponse;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.DeleteResponse;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapURL;
+import org.ldaptive.OperationHandle;
+import org.ldaptive.Request;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.io.LdifReader;
+import org.ldaptive.transport.WriteRequestParser;
+import org.ldaptive.transport.netty.SimpleNettyServer;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link BulkWriter}.
+ *
+ * @author  Middleware Services
+ */
+public class BulkWriterTest
+{
+
+
+  /**
+   * Creates a server that responds to add and delete requests. Every tenth response on a connection is {@link
+   * ResultCode#ENTRY_ALREADY_EXISTS}.
+   *
+   * @param  received  incremented for each add and delete request received
+   *
+   * @return  simple netty server
+   */
+  private static SimpleNettyServer createServer(final AtomicInteger received)
+  {
+    final Map<Channel, AtomicInteger> msgIds = new ConcurrentHashMap<>();
+    final SimpleNettyServer server = new SimpleNettyServer(
+      (ctx, msg) -> {
+        if (!(msg instanceof AddRequest || msg instanceof DeleteRequest)) {
+          return;
+        }
+        received.incrementAndGet();
+        final int id = msgIds.computeIfAbsent(ctx.channel(), c -> new AtomicInteger()).incrementAndGet();
+        final ResultCode code = id % 10 == 0 ? ResultCode.ENTRY_ALREADY_EXISTS : ResultCode.SUCCESS;
+        if (msg instanceof AddRequest) {
+          ctx.channel().writeAndFlush(AddResponse.builder().messageID(id).resultCode(code).build());
+        } else {
+          ctx.channel().writeAndFlush(DeleteResponse.builder().messageID(id).resultCode(code).build());
+        }
+      });
+    server.setRequestParser(buffer -> new WriteRequestParser().parse(buffer));
+    return server;
+  }
+
+
+  /**
+   * Creates a connection factory for the supplied address.
+   *
+   * @param  address  of the server
+   *
+   * @return  connection factory
+   */
+  private static DefaultConnectionFactory createConnectionFactory(final InetSocketAddress address)
+  {
+    return new DefaultConnectionFactory(
+      ConnectionConfig.builder()
+        .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+        .build());
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void execute()
+    throws Exception
+  {
+    final AtomicInteger received = new AtomicInteger();
+    final SimpleNettyServer server = createServer(received);
+    try {
+      final DefaultConnectionFactory factory = createConnectionFactory(server.start());
+      try {
+        final BulkWriter writer = BulkWriter.builder()
+          .factory(factory)
+          .connectionCount(2)
+          .windowSize(8)
+          .batchSize(3)
+          .build();
+        final List<Request> requests = IntStream.range(0, 50)
+          .mapToObj(i -> i % 2 == 0 ?
+            new AddRequest("uid=" + i + ",dc=ldaptive,dc=org", new LdapAttribute("uid", String.valueOf(i))) :
+            new DeleteRequest("uid=" + i + ",dc=ldaptive,dc=org"))
+          .collect(Collectors.toList());
+        final BulkWriteResponse response = writer.execute(requests);
+        assertThat(received.get()).isEqualTo(50);
+        assertThat(response.getSubmitted()).isEqualTo(50);
+        assertThat(response.getSucceeded()).isEqualTo(46);
+        assertThat(response.getFailed()).isEqualTo(4);
+        assertThat(response.getFailures())
+          .allSatisfy(f -> {
+            assertThat(requests).contains(f.getRequest());
+            if (f.getResult() != null) {
+              assertThat(f.getResult().getResultCode()).isEqualTo(ResultCode.ENTRY_ALREADY_EXISTS);
+            } else {
+              assertThat(f.getException()).isNotNull();
+            }
+          });
+        assertThat(response.getDuration()).isPositive();
+        assertThat(response.getThroughput()).isPositive();
+      } finally {
+        factory.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void executeLdif()
+    throws Exception
+  {
+    final AtomicInteger received = new AtomicInteger();
+    final SimpleNettyServer server = createServer(received);
+    try {
+      final DefaultConnectionFactory factory = createConnectionFactory(server.start());
+      try {
+        final StringBuilder ldif = new StringBuilder("version: 1\n\n");
+        for (int i = 0; i < 5; i++) {
+          ldif.append("dn: uid=").append(i).append(",dc=ldaptive,dc=org\n")
+            .append("uid: ").append(i).append("\n\n");
+        }
+        final BulkWriteResponse response = new BulkWriter(factory).execute(
+          new LdifReader(new StringReader(ldif.toString())));
+        assertThat(received.get()).isEqualTo(5);
+        assertThat(response.getSubmitted()).isEqualTo(5);
+        assertThat(response.getSucceeded()).isEqualTo(5);
+        assertThat(response.getFailures()).isEmpty();
+      } finally {
+        factory.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void unsupportedRequest()
+    throws Exception
+  {
+    final AtomicInteger received = new AtomicInteger();
+    final SimpleNettyServer server = createServer(received);
+    try {
+      final DefaultConnectionFactory factory = createConnectionFactory(server.start());
+      try {
+        final List<Request> requests = new ArrayList<>();
+        requests.add(new DeleteRequest("uid=0,dc=ldaptive,dc=org"));
+        requests.add(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org"));
+        requests.add(new DeleteRequest("uid=1,dc=ldaptive,dc=org"));
+        requests.add(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org"));
+        final BulkWriteResponse response = BulkWriter.builder()
+          .factory(factory)
+          .connectionCount(1)
+          .batchSize(2)
+          .build()
+          .execute(requests);
+        assertThat(received.get()).isEqualTo(2);
+        assertThat(response.getSubmitted()).isEqualTo(4);
+        assertThat(response.getSucceeded()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getFailures())
+          .allSatisfy(f -> {
+            assertThat(f.getRequest()).isInstanceOf(SearchRequest.class);
+            assertThat(f.getResult()).isNull();
+            assertThat(f.getException()).isExactlyInstanceOf(LdapException.class);
+            assertThat(((LdapException) f.getException()).getResultCode()).isEqualTo(ResultCode.LDAP_NOT_SUPPORTED);
+          });
+      } finally {
+        factory.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test
+  public void windowTimeout()
+    throws Exception
+  {
+    final AtomicInteger sent = new AtomicInteger();
+    // handles that never complete, so the window never has room again
+    final OperationHandle<?, ?> handle = (OperationHandle<?, ?>) Proxy.newProxyInstance(
+      OperationHandle.class.getClassLoader(),
+      new Class<?>[] {OperationHandle.class},
+      (proxy, method, args) -> "toCompletionStage".equals(method.getName()) ? new CompletableFuture<>() : null);
+    final Connection conn = (Connection) Proxy.newProxyInstance(
+      Connection.class.getClassLoader(),
+      new Class<?>[] {Connection.class},
+      (proxy, method, args) -> {
+        if ("operations".equals(method.getName())) {
+          final List<OperationHandle<?, ?>> handles = new ArrayList<>();
+          for (Object request : (List<?>) args[0]) {
+            sent.incrementAndGet();
+            handles.add(handle);
+          }
+          return handles;
+        }
+        return null;
+      });
+    final ConnectionFactory factory = new ConnectionFactory() {
+      @Override
+      public Connection getConnection()
+      {
+        return conn;
+      }
+
+      @Override
+      public ConnectionConfig getConnectionConfig()
+      {
+        return ConnectionConfig.builder().responseTimeout(Duration.ofMillis(100)).build();
+      }
+
+      @Override
+      public void close() {}
+    };
+    final BulkWriter writer = BulkWriter.builder()
+      .factory(factory)
+      .connectionCount(1)
+      .windowSize(2)
+      .batchSize(1)
+      .build();
+    final List<Request> requests = IntStream.range(0, 4)
+      .mapToObj(i -> new DeleteRequest("uid=" + i + ",dc=ldaptive,dc=org"))
+      .collect(Collectors.toList());
+    assertThatExceptionOfType(LdapException.class)
+      .isThrownBy(() -> writer.execute(requests))
+      .extracting(LdapException::getResultCode).isEqualTo(ResultCode.LDAP_TIMEOUT);
+    // batches that could not enter the window were not sent
+    assertThat(sent.get()).isEqualTo(2);
+  }
+
+
+  @Test
+  public void invalidConfig()
+  {
+    final BulkWriter writer = new BulkWriter();
+    try {
+      writer.setConnectionCount(0);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      writer.setWindowSize(0);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      writer.setBatchSize(0);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      writer.execute(List.of());
+      fail("Should have thrown IllegalStateException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalStateException.class);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link VirtualThreads}.
+ *
+ * @author  Middleware Services
+ */
+public class VirtualThreadsTest
+{
+
+
+  @Test(groups = "concurrent")
+  public void isSupported()
+  {
+    assertThat(VirtualThreads.isSupported()).isEqualTo(Runtime.version().feature() >= 21);
+    assertThat(VirtualThreads.isEnabled())
+      .isEqualTo(VirtualThreads.isSupported() && Boolean.getBoolean("org.ldaptive.concurrent.virtualThreads"));
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void newExecutor()
+    throws Exception
+  {
+    if (!VirtualThreads.isSupported()) {
+      try {
+        VirtualThreads.newExecutor("test-");
+        fail("Should have thrown UnsupportedOperationException");
+      } catch (Exception e) {
+        assertThat(e).isExactlyInstanceOf(UnsupportedOperationException.class);
+      }
+      return;
+    }
+    final ExecutorService executor = VirtualThreads.newExecutor("test-");
+    try {
+      final List<Future<Boolean>> futures = IntStream.range(0, 10_000)
+        .mapToObj(i -> executor.submit(() -> {
+          Thread.sleep(10);
+          return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+        }))
+        .collect(Collectors.toList());
+      for (Future<Boolean> f : futures) {
+        assertThat(f.get()).isTrue();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void callableWorker()
+    throws Exception
+  {
+    final CallableWorker<Integer> worker = new CallableWorker<>("virtual-threads-test", 2, Duration.ofSeconds(10));
+    try {
+      final List<Integer> results = new CopyOnWriteArrayList<>();
+      assertThat(worker.execute(() -> 1, 100, results::add)).isEmpty();
+      assertThat(results).hasSize(100).containsOnly(1);
+    } finally {
+      worker.shutdown();
+    }
+  }
+}
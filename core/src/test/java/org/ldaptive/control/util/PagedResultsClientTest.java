@@ -0,0 +1,453 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.control.util;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchOperationHandle;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
+import org.ldaptive.SearchScope;
+import org.ldaptive.control.PagedResultsControl;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.filter.Filter;
+import org.ldaptive.filter.FilterEvaluator;
+import org.ldaptive.filter.FilterParser;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for the parallel and prefetch modes of {@link PagedResultsClient}.
+ *
+ * @author  Middleware Services
+ */
+public class PagedResultsClientTest
+{
+
+  /** Base DN of the test directory. */
+  private static final String BASE_DN = "dc=ldaptive,dc=org";
+
+  /** Entries in the test directory. */
+  private static final List<LdapEntry> ENTRIES = new ArrayList<>();
+
+  static {
+    ENTRIES.add(
+      LdapEntry.builder()
+        .dn(BASE_DN)
+        .attributes(new LdapAttribute("objectClass", "domain"), new LdapAttribute("dc", "ldaptive"))
+        .build());
+    for (String ou : new String[] {"People", "Groups", "Services"}) {
+      final String ouDn = "ou=" + ou + "," + BASE_DN;
+      ENTRIES.add(
+        LdapEntry.builder()
+          .dn(ouDn)
+          .attributes(new LdapAttribute("objectClass", "organizationalUnit"), new LdapAttribute("ou", ou))
+          .build());
+      for (int i = 0; i < 25; i++) {
+        ENTRIES.add(
+          LdapEntry.builder()
+            .dn("uid=" + ou.toLowerCase() + i + "," + ouDn)
+            .attributes(new LdapAttribute("objectClass", "account"), new LdapAttribute("uid", ou.toLowerCase() + i))
+            .build());
+      }
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void partitionByChildren()
+    throws Exception
+  {
+    final DirectoryConnectionFactory cf = new DirectoryConnectionFactory(null);
+    final PagedResultsClient client = new PagedResultsClient(cf, 10);
+    final SearchRequest request = SearchRequest.builder()
+      .dn(BASE_DN)
+      .scope(SearchScope.SUBTREE)
+      .filter("(objectClass=*)")
+      .build();
+    final List<SearchRequest> partitions = client.partitionByChildren(request);
+    assertThat(partitions).hasSize(4);
+    assertThat(partitions.get(0).getSearchScope()).isEqualTo(SearchScope.OBJECT);
+    assertThat(partitions.get(0).getBaseDn()).isEqualTo(BASE_DN);
+    assertThat(partitions.subList(1, 4)).extracting(SearchRequest::getBaseDn).containsExactly(
+      "ou=People," + BASE_DN, "ou=Groups," + BASE_DN, "ou=Services," + BASE_DN);
+    assertThat(partitions.subList(1, 4)).extracting(SearchRequest::getSearchScope).containsOnly(SearchScope.SUBTREE);
+
+    final List<String> dns = new ArrayList<>();
+    final List<PagedResultsPartition> progress = new CopyOnWriteArrayList<>();
+    final List<PagedResultsPartition> results = client.executeInParallel(partitions, 2, e -> dns.add(e.getDn()), p -> {
+      if (p.isComplete()) {
+        progress.add(p);
+      }
+    });
+    assertThat(dns).hasSize(ENTRIES.size()).doesNotHaveDuplicates();
+    assertThat(results).hasSize(4);
+    assertThat(results).extracting(PagedResultsPartition::isComplete).containsOnly(true);
+    assertThat(results).extracting(PagedResultsPartition::getEntryCount).containsExactly(1L, 26L, 26L, 26L);
+    assertThat(results).extracting(PagedResultsPartition::getPageCount).containsExactly(1, 3, 3, 3);
+    assertThat(results.get(1).getResult().getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(results.get(1).getResult().entrySize()).isZero();
+    assertThat(progress).containsExactlyInAnyOrderElementsOf(results);
+    assertThat(cf.cookieMismatches.get()).isZero();
+    assertThat(cf.openConnections.get()).isZero();
+    assertThat(cf.maxOpenConnections.get()).isBetween(1, 2);
+
+    // convenience method partitions by children
+    final List<LdapEntry> entries = new CopyOnWriteArrayList<>();
+    assertThat(client.executeInParallel(request, 4, entries::add)).hasSize(4);
+    assertThat(entries).hasSize(ENTRIES.size());
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void partitionByFilters()
+    throws Exception
+  {
+    final DirectoryConnectionFactory cf = new DirectoryConnectionFactory(null);
+    final PagedResultsClient client = new PagedResultsClient(cf, 7);
+    final SearchRequest request = SearchRequest.builder()
+      .dn(BASE_DN)
+      .scope(SearchScope.SUBTREE)
+      .filter("(uid=*)")
+      .build();
+    final List<SearchRequest> partitions = PagedResultsClient.partitionByFilters(
+      request, FilterParser.parse("(uid=p*)"), FilterParser.parse("(uid=g*)"), FilterParser.parse("(uid=x*)"));
+    assertThat(partitions).extracting(SearchRequest::getFilter).containsExactly(
+      FilterParser.parse("(&(uid=*)(uid=p*))"),
+      FilterParser.parse("(&(uid=*)(uid=g*))"),
+      FilterParser.parse("(&(uid=*)(uid=x*))"));
+    assertThat(request.getFilter()).isEqualTo(FilterParser.parse("(uid=*)"));
+    assertThat(PagedResultsClient.partitionByFilters(
+      SearchRequest.builder().dn(BASE_DN).build(), FilterParser.parse("(uid=p*)"), FilterParser.parse("(uid=g*)")))
+      .extracting(SearchRequest::getFilter)
+      .containsExactly(FilterParser.parse("(uid=p*)"), FilterParser.parse("(uid=g*)"));
+
+    final Set<String> dns = ConcurrentHashMap.newKeySet();
+    final List<PagedResultsPartition> results = client.executeInParallel(partitions, 3, e -> dns.add(e.getDn()), null);
+    assertThat(dns).hasSize(50);
+    assertThat(results).extracting(PagedResultsPartition::getEntryCount).containsExactly(25L, 25L, 0L);
+    assertThat(results).extracting(PagedResultsPartition::getPageCount).containsExactly(4, 4, 1);
+    assertThat(cf.cookieMismatches.get()).isZero();
+    assertThat(cf.openConnections.get()).isZero();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void partitionFailure()
+    throws Exception
+  {
+    final DirectoryConnectionFactory cf = new DirectoryConnectionFactory("ou=Groups," + BASE_DN);
+    final PagedResultsClient client = new PagedResultsClient(cf, 5);
+    final SearchRequest request = SearchRequest.builder()
+      .dn(BASE_DN)
+      .scope(SearchScope.SUBTREE)
+      .filter("(objectClass=*)")
+      .build();
+    final List<SearchRequest> partitions = client.partitionByChildren(request);
+    try {
+      client.executeInParallel(partitions, 1, e -> {}, null);
+      fail("Should have thrown LdapException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(LdapException.class);
+      assertThat(((LdapException) e).getResultCode()).isEqualTo(ResultCode.SERVER_DOWN);
+    }
+    assertThat(cf.openConnections.get()).isZero();
+
+    try {
+      client.partitionByChildren(
+        SearchRequest.builder().dn(BASE_DN).scope(SearchScope.ONELEVEL).filter("(objectClass=*)").build());
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      client.executeInParallel(partitions, 0, e -> {}, null);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "concurrent")
+  public void prefetch()
+    throws Exception
+  {
+    final DirectoryConnectionFactory cf = new DirectoryConnectionFactory(null);
+    final PagedResultsClient client = new PagedResultsClient(cf, 10);
+    final SearchRequest request = SearchRequest.builder()
+      .dn(BASE_DN)
+      .scope(SearchScope.SUBTREE)
+      .filter("(objectClass=*)")
+      .build();
+    final CountDownLatch firstPage = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> dns = new ArrayList<>();
+    final List<Integer> pageSizes = new ArrayList<>();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<SearchResponse> future = executor.submit(() -> client.executeWithPrefetch(request, 10, page -> {
+        if (pageSizes.isEmpty()) {
+          firstPage.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        pageSizes.add(page.entrySize());
+        page.getEntries().forEach(e -> dns.add(e.getDn()));
+      }));
+      assertThat(firstPage.await(5, TimeUnit.SECONDS)).isTrue();
+      // the second page is requested while the first is being consumed, the third is not
+      while (cf.searches.get() < 2) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      assertThat(cf.searches.get()).isEqualTo(2);
+      release.countDown();
+      final SearchResponse response = future.get(5, TimeUnit.SECONDS);
+      assertThat(response.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(response.entrySize()).isZero();
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(pageSizes).containsExactly(10, 10, 10, 10, 10, 10, 10, 9);
+    assertThat(dns).containsExactlyElementsOf(ENTRIES.stream().map(LdapEntry::getDn).collect(Collectors.toList()));
+    assertThat(cf.searches.get()).isEqualTo(8);
+
+    final DirectoryConnectionFactory failing = new DirectoryConnectionFactory(BASE_DN);
+    final AtomicInteger pages = new AtomicInteger();
+    try {
+      new PagedResultsClient(failing, 10).executeWithPrefetch(request, 100, page -> pages.incrementAndGet());
+      fail("Should have thrown LdapException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(LdapException.class);
+      assertThat(((LdapException) e).getResultCode()).isEqualTo(ResultCode.SERVER_DOWN);
+    }
+    assertThat(pages.get()).isEqualTo(1);
+
+    try {
+      client.executeWithPrefetch(request, 0, page -> {});
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  /**
+   * Connection factory that searches {@link #ENTRIES} in memory. Cookies encode the offset of the next page and the
+   * connection that issued them.
+   */
+  private static final class DirectoryConnectionFactory implements ConnectionFactory
+  {
+
+    /** Filter evaluator. */
+    private final FilterEvaluator evaluator = new FilterEvaluator();
+
+    /** Base DN of searches that fail with {@link ResultCode#SERVER_DOWN} after the first page. */
+    private final String failingBaseDn;
+
+    /** Connection identifiers. */
+    private final AtomicInteger connectionIds = new AtomicInteger();
+
+    /** Number of searches executed. */
+    private final AtomicInteger searches = new AtomicInteger();
+
+    /** Number of open connections. */
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /** Maximum number of concurrently open connections. */
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+
+    /** Number of cookies replayed on a connection that did not issue them. */
+    private final AtomicInteger cookieMismatches = new AtomicInteger();
+
+    /** Compiled filters. */
+    private final Map<Filter, Predicate<LdapEntry>> filters = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates a new directory connection factory.
+     *
+     * @param  failDn  base DN of searches that fail or null
+     */
+    DirectoryConnectionFactory(final String failDn)
+    {
+      failingBaseDn = failDn;
+    }
+
+
+    @Override
+    public Connection getConnection()
+    {
+      final int id = connectionIds.incrementAndGet();
+      final boolean[] open = new boolean[1];
+      return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class},
+        (p, method, args) -> {
+          switch (method.getName()) {
+          case "open":
+            open[0] = true;
+            maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+            return null;
+          case "close":
+            if (open[0]) {
+              open[0] = false;
+              openConnections.decrementAndGet();
+            }
+            return null;
+          case "isOpen":
+            return open[0];
+          case "operation":
+            return createHandle(id, (SearchRequest) args[0]);
+          default:
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+    }
+
+
+    /**
+     * Creates a handle which executes the supplied request.
+     *
+     * @param  connectionId  of the connection executing the request
+     * @param  request  to execute
+     *
+     * @return  search operation handle
+     */
+    private SearchOperationHandle createHandle(final int connectionId, final SearchRequest request)
+    {
+      return (SearchOperationHandle) Proxy.newProxyInstance(
+        SearchOperationHandle.class.getClassLoader(),
+        new Class<?>[] {SearchOperationHandle.class},
+        (p, method, args) -> {
+          if ("execute".equals(method.getName()) || "await".equals(method.getName())) {
+            return search(connectionId, request);
+          }
+          return p;
+        });
+    }
+
+
+    /**
+     * Searches the test directory.
+     *
+     * @param  connectionId  of the connection executing the request
+     * @param  request  to execute
+     *
+     * @return  search response
+     *
+     * @throws  LdapException  if the request base DN is the failing base DN and this is not the first page
+     */
+    private SearchResponse search(final int connectionId, final SearchRequest request)
+      throws LdapException
+    {
+      searches.incrementAndGet();
+      PagedResultsControl ctl = null;
+      for (RequestControl c : request.getControls()) {
+        if (c instanceof PagedResultsControl) {
+          ctl = (PagedResultsControl) c;
+        }
+      }
+      int offset = 0;
+      if (ctl != null && ctl.getCookie() != null && ctl.getCookie().length > 0) {
+        final String[] cookie = LdapUtils.utf8Encode(ctl.getCookie()).split(":");
+        if (Integer.parseInt(cookie[0]) != connectionId) {
+          cookieMismatches.incrementAndGet();
+        }
+        offset = Integer.parseInt(cookie[1]);
+        if (request.getBaseDn().equals(failingBaseDn)) {
+          throw new LdapException(ResultCode.SERVER_DOWN, "Connection lost");
+        }
+      }
+      final Predicate<LdapEntry> filter = filters.computeIfAbsent(
+        request.getFilter(), evaluator::compile);
+      final List<LdapEntry> matches = new ArrayList<>();
+      for (LdapEntry e : ENTRIES) {
+        if (inScope(request, e.getDn()) && filter.test(e)) {
+          matches.add(e);
+        }
+      }
+      final int end = ctl == null ? matches.size() : Math.min(offset + ctl.getSize(), matches.size());
+      final SearchResponse.Builder builder = SearchResponse.builder()
+        .resultCode(ResultCode.SUCCESS)
+        .entry(matches.subList(offset, end).toArray(LdapEntry[]::new));
+      if (ctl != null) {
+        builder.controls(
+          new PagedResultsControl(
+            matches.size(), end < matches.size() ? LdapUtils.utf8Encode(connectionId + ":" + end) : null, false));
+      }
+      return builder.build();
+    }
+
+
+    /**
+     * Returns whether the supplied DN is in the scope of the supplied request.
+     *
+     * @param  request  search request
+     * @param  dn  to check
+     *
+     * @return  whether the DN is in scope
+     */
+    private static boolean inScope(final SearchRequest request, final String dn)
+    {
+      final String base = request.getBaseDn();
+      switch (request.getSearchScope()) {
+      case OBJECT:
+        return dn.equals(base);
+      case ONELEVEL:
+        return dn.endsWith("," + base) && dn.indexOf(',') == dn.length() - base.length() - 1;
+      case SUBTREE:
+        return dn.equals(base) || dn.endsWith("," + base);
+      default:
+        throw new IllegalArgumentException("Unknown scope " + request.getSearchScope());
+      }
+    }
+
+
+    @Override
+    public ConnectionConfig getConnectionConfig()
+    {
+      return null;
+    }
+
+
+    @Override
+    public void close() {}
+  }
+}
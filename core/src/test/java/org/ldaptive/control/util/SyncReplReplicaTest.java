@@ -0,0 +1,246 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.control.util;
+
+import java.util.UUID;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
+import org.ldaptive.SearchScope;
+import org.ldaptive.control.SyncDoneControl;
+import org.ldaptive.control.SyncStateControl;
+import org.ldaptive.extended.SyncInfoMessage;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link SyncReplReplica}.
+ *
+ * @author  Middleware Services
+ */
+public class SyncReplReplicaTest
+{
+
+
+  /**
+   * Creates a sync repl entry.
+   *
+   * @param  state  sync state
+   * @param  uuid  entry UUID
+   * @param  dn  entry DN
+   * @param  attrs  entry attributes
+   *
+   * @return  entry
+   */
+  private static LdapEntry entry(
+    final SyncStateControl.State state,
+    final UUID uuid,
+    final String dn,
+    final LdapAttribute... attrs)
+  {
+    return LdapEntry.builder()
+      .dn(dn)
+      .attributes(attrs)
+      .controls(new SyncStateControl(state, uuid, false))
+      .build();
+  }
+
+
+  /**
+   * Creates a sync info message with refresh done set.
+   *
+   * @param  type  of message
+   * @param  deletes  refresh deletes
+   * @param  uuids  entry UUIDs
+   *
+   * @return  sync info message
+   */
+  private static SyncInfoMessage message(final SyncInfoMessage.Type type, final boolean deletes, final UUID... uuids)
+  {
+    return (SyncInfoMessage) SyncInfoMessage.builder()
+      .type(type)
+      .refreshDone(true)
+      .refreshDeletes(deletes)
+      .uuids(uuids)
+      .build();
+  }
+
+
+  /**
+   * Creates a search request.
+   *
+   * @param  baseDn  search base
+   * @param  scope  search scope
+   * @param  filter  search filter
+   * @param  attrs  return attributes
+   *
+   * @return  search request
+   */
+  private static SearchRequest request(
+    final String baseDn,
+    final SearchScope scope,
+    final String filter,
+    final String... attrs)
+  {
+    return SearchRequest.builder().dn(baseDn).scope(scope).filter(filter).returnAttributes(attrs).build();
+  }
+
+
+  @Test
+  public void search()
+  {
+    final SyncReplReplica replica = new SyncReplReplica("uid", "member", "objectClass");
+    replica.processEntry(
+      entry(SyncStateControl.State.ADD, UUID.randomUUID(), "dc=ldaptive,dc=org", new LdapAttribute("dc", "ldaptive")));
+    replica.processEntry(
+      entry(SyncStateControl.State.ADD, UUID.randomUUID(), "ou=People,dc=ldaptive,dc=org",
+        new LdapAttribute("ou", "People")));
+    replica.processEntry(
+      entry(SyncStateControl.State.ADD, UUID.randomUUID(), "ou=Groups,dc=ldaptive,dc=org",
+        new LdapAttribute("ou", "Groups")));
+    for (int i = 0; i < 100; i++) {
+      replica.processEntry(
+        entry(
+          SyncStateControl.State.ADD,
+          UUID.randomUUID(),
+          "uid=user" + i + ",ou=People,dc=ldaptive,dc=org",
+          new LdapAttribute("objectClass", "inetOrgPerson"),
+          new LdapAttribute("uid", "user" + i),
+          new LdapAttribute("cn", "User " + i)));
+    }
+    replica.processEntry(
+      entry(
+        SyncStateControl.State.ADD,
+        UUID.randomUUID(),
+        "cn=admins,ou=Groups,dc=ldaptive,dc=org",
+        new LdapAttribute("objectClass", "groupOfNames"),
+        new LdapAttribute(
+          "member",
+          "uid=user1,ou=People,dc=ldaptive,dc=org",
+          "UID=USER2, OU=People,dc=ldaptive,dc=org")));
+    assertThat(replica.size()).isEqualTo(104);
+
+    SearchResponse response = replica.search(
+      request("dc=ldaptive,dc=org", SearchScope.SUBTREE, "(uid=USER42)"));
+    assertThat(response.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(response.getMatchedDN()).isNull();
+    assertThat(response.getEntryDns()).containsExactly("uid=user42,ou=People,dc=ldaptive,dc=org");
+    assertThat(response.getEntry().getAttribute("cn").getStringValue()).isEqualTo("User 42");
+
+    response = replica.search(
+      request("dc=ldaptive,dc=org", SearchScope.SUBTREE, "(&(objectClass=groupOfNames)(member=uid=user2*))", "1.1"));
+    assertThat(response.getEntryDns()).containsExactly("cn=admins,ou=Groups,dc=ldaptive,dc=org");
+    assertThat(response.getEntry().size()).isZero();
+
+    response = replica.search(
+      request("ou=people,dc=ldaptive,dc=org", SearchScope.ONELEVEL, "(|(uid=user1)(uid=user2)(cn=user 3))", "uid"));
+    assertThat(response.getEntryDns()).containsExactlyInAnyOrder(
+      "uid=user1,ou=People,dc=ldaptive,dc=org",
+      "uid=user2,ou=People,dc=ldaptive,dc=org",
+      "uid=user3,ou=People,dc=ldaptive,dc=org");
+    assertThat(response.getEntry("uid=user3,ou=People,dc=ldaptive,dc=org").getAttributeNames()).containsExactly("uid");
+
+    assertThat(replica.search(request("ou=Groups,dc=ldaptive,dc=org", SearchScope.ONELEVEL, "(uid=*)")).entrySize())
+      .isZero();
+    assertThat(replica.search(request("dc=ldaptive,dc=org", SearchScope.ONELEVEL, "(ou=*)")).entrySize())
+      .isEqualTo(2);
+    assertThat(replica.search(request("dc=ldaptive,dc=org", SearchScope.SUBTREE, "(objectClass=*)")).entrySize())
+      .isEqualTo(101);
+    assertThat(replica.search(request("dc=ldaptive,dc=org", SearchScope.OBJECT, "(dc=ldaptive)")).entrySize())
+      .isEqualTo(1);
+    assertThat(replica.search(request("DC=Ldaptive, DC=org", SearchScope.OBJECT, "(dc=other)")).entrySize())
+      .isZero();
+
+    final SearchRequest limited = request("ou=People,dc=ldaptive,dc=org", SearchScope.SUBTREE, "(uid=*)");
+    limited.setSizeLimit(10);
+    response = replica.search(limited);
+    assertThat(response.getResultCode()).isEqualTo(ResultCode.SIZE_LIMIT_EXCEEDED);
+    assertThat(response.entrySize()).isEqualTo(10);
+
+    response = replica.search(request("ou=None,dc=ldaptive,dc=org", SearchScope.SUBTREE, "(uid=*)"));
+    assertThat(response.getResultCode()).isEqualTo(ResultCode.NO_SUCH_OBJECT);
+
+    final LdapEntry entry = replica.getEntry("UID=user5,ou=people,dc=ldaptive,dc=org");
+    assertThat(entry.isFrozen()).isTrue();
+    assertThat(entry.getControls()).isEmpty();
+  }
+
+
+  @Test
+  public void modifyAndDelete()
+  {
+    final SyncReplReplica replica = new SyncReplReplica("uid");
+    final UUID uuid = UUID.randomUUID();
+    replica.processEntry(
+      entry(SyncStateControl.State.ADD, uuid, "uid=bob,ou=People,dc=ldaptive,dc=org", new LdapAttribute("uid", "bob")));
+    // rename
+    replica.processEntry(
+      entry(
+        SyncStateControl.State.MODIFY, uuid, "uid=robert,ou=People,dc=ldaptive,dc=org",
+        new LdapAttribute("uid", "robert")));
+    assertThat(replica.size()).isEqualTo(1);
+    assertThat(replica.getEntry("uid=bob,ou=People,dc=ldaptive,dc=org")).isNull();
+    assertThat(replica.search(request("", SearchScope.SUBTREE, "(uid=bob)")).entrySize()).isZero();
+    assertThat(replica.search(request("", SearchScope.SUBTREE, "(uid=robert)")).entrySize()).isEqualTo(1);
+
+    replica.processEntry(entry(SyncStateControl.State.DELETE, uuid, "uid=robert,ou=People,dc=ldaptive,dc=org"));
+    assertThat(replica.size()).isZero();
+    assertThat(replica.search(request("", SearchScope.SUBTREE, "(uid=*)")).entrySize()).isZero();
+  }
+
+
+  @Test
+  public void presentPhase()
+  {
+    final SyncReplReplica replica = new SyncReplReplica("uid");
+    final UUID[] uuids = new UUID[5];
+    for (int i = 0; i < uuids.length; i++) {
+      uuids[i] = UUID.randomUUID();
+      replica.processEntry(
+        entry(SyncStateControl.State.ADD, uuids[i], "uid=user" + i + ",dc=ldaptive,dc=org",
+          new LdapAttribute("uid", "user" + i)));
+    }
+    replica.processMessage(message(SyncInfoMessage.Type.REFRESH_DELETE, true));
+    assertThat(replica.isRefreshComplete()).isTrue();
+    assertThat(replica.size()).isEqualTo(5);
+    replica.processResult(SearchResponse.builder().resultCode(ResultCode.CANCELED).build());
+
+    // reconnect, present phase reports user0 and user1, modifies user2, user3 and user4 were deleted
+    replica.processEntry(entry(SyncStateControl.State.PRESENT, uuids[0], "uid=user0,dc=ldaptive,dc=org"));
+    replica.processMessage(
+      message(SyncInfoMessage.Type.SYNC_ID_SET, false, uuids[1]));
+    replica.processEntry(
+      entry(SyncStateControl.State.MODIFY, uuids[2], "uid=user2,dc=ldaptive,dc=org",
+        new LdapAttribute("uid", "user2"), new LdapAttribute("cn", "User Two")));
+    replica.processMessage(
+      message(SyncInfoMessage.Type.REFRESH_PRESENT, false));
+    assertThat(replica.size()).isEqualTo(3);
+    assertThat(replica.getEntry("uid=user0,dc=ldaptive,dc=org").getAttribute("uid").getStringValue())
+      .isEqualTo("user0");
+    assertThat(replica.getEntry("uid=user3,dc=ldaptive,dc=org")).isNull();
+    assertThat(replica.search(request("", SearchScope.SUBTREE, "(uid=user4)")).entrySize()).isZero();
+
+    // persist stage changes are not swept
+    replica.processEntry(
+      entry(SyncStateControl.State.ADD, UUID.randomUUID(), "uid=user5,dc=ldaptive,dc=org",
+        new LdapAttribute("uid", "user5")));
+    replica.processMessage(
+      message(SyncInfoMessage.Type.SYNC_ID_SET, true, uuids[0]));
+    assertThat(replica.size()).isEqualTo(3);
+
+    // refresh only search that ends with a present phase
+    replica.processResult(SearchResponse.builder().resultCode(ResultCode.SUCCESS).build());
+    replica.processEntry(entry(SyncStateControl.State.PRESENT, uuids[1], "uid=user1,dc=ldaptive,dc=org"));
+    replica.processResult(
+      SearchResponse.builder()
+        .resultCode(ResultCode.SUCCESS)
+        .controls(new SyncDoneControl(null, false, false))
+        .build());
+    assertThat(replica.size()).isEqualTo(1);
+
+    replica.processResult(SearchResponse.builder().resultCode(ResultCode.E_SYNC_REFRESH_REQUIRED).build());
+    assertThat(replica.size()).isZero();
+    assertThat(replica.isRefreshComplete()).isFalse();
+  }
+}
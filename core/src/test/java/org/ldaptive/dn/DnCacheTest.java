@@ -0,0 +1,73 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.dn;
+
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link DnCache}.
+ *
+ * @author  Middleware Services
+ */
+public class DnCacheTest
+{
+
+
+  @Test
+  public void lookups()
+  {
+    final DnCache cache = new DnCache(100);
+    final Dn dn = cache.get("UID=1, OU=People,DC=ldaptive,DC=org");
+    assertThat(dn.isFrozen()).isTrue();
+    assertThat(dn).isEqualTo(new Dn("UID=1, OU=People,DC=ldaptive,DC=org"));
+    assertThat(cache.normalize("UID=1, OU=People,DC=ldaptive,DC=org"))
+      .isEqualTo("uid=1,ou=people,dc=ldaptive,dc=org");
+    assertThat(cache.get("UID=1, OU=People,DC=ldaptive,DC=org")).isSameAs(dn);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.normalize("uid=1,ou=people,dc=ldaptive,dc=org")).isEqualTo("uid=1,ou=people,dc=ldaptive,dc=org");
+    assertThat(cache.getMissCount()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+
+    try {
+      cache.get("uid=1,,dc=org");
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      cache.get(null);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    assertThat(cache.size()).isEqualTo(2);
+    cache.clear();
+    assertThat(cache.size()).isZero();
+    assertThat(DnCache.getDefault()).isNull();
+  }
+
+
+  @Test
+  public void bounded()
+  {
+    final DnCache cache = new DnCache(10);
+    for (int i = 0; i < 100; i++) {
+      cache.get("uid=" + i + ",dc=ldaptive,dc=org");
+      // keep one DN in use
+      cache.get("dc=ldaptive,dc=org");
+      assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+    assertThat(cache.getMissCount()).isEqualTo(101);
+    final long hits = cache.getHitCount();
+    cache.get("dc=ldaptive,dc=org");
+    assertThat(cache.getHitCount()).isEqualTo(hits + 1);
+
+    try {
+      new DnCache(1);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+}
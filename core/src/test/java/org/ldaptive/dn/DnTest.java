@@ -924,4 +924,20 @@ public class DnTest
     assertThat(dn2.isFrozen()).isTrue();
     assertThat(cp2.isFrozen()).isFalse();
   }
+
+
+  /** Test for hex encoded BER values. */
+  @Test
+  public void berValues()
+  {
+    assertThat(new Dn("cn=#04024869,dc=org").getValue("cn")).isEqualTo("Hi");
+    assertThat(new Dn("cn=#0481024869 , dc=org").getValue("cn")).isEqualTo("Hi");
+    assertThat(new Dn("cn=#0400+uid=1,dc=org").getRDn().getNameValue("cn").getStringValue()).isEmpty();
+    try {
+      new Dn("cn=#0");
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
 }
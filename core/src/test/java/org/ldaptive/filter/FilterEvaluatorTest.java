@@ -0,0 +1,241 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.filter;
+
+import java.util.List;
+import java.util.function.Predicate;
+import org.ldaptive.CompiledFilterTemplate;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.schema.AttributeType;
+import org.ldaptive.schema.Schema;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link FilterEvaluator}.
+ *
+ * @author  Middleware Services
+ */
+public class FilterEvaluatorTest
+{
+
+  /** Entry to evaluate filters against. */
+  private static final LdapEntry ENTRY = LdapEntry.builder()
+    .dn("uid=bwallace,ou=People,dc=ldaptive,dc=org")
+    .attributes(
+      new LdapAttribute("objectClass", "top", "person", "inetOrgPerson"),
+      new LdapAttribute("uid", "bwallace"),
+      new LdapAttribute("commonName", "Bill  Wallace", "Wallace, William"),
+      new LdapAttribute("sn", "Wallace"),
+      new LdapAttribute("mail", "Bill.Wallace@ldaptive.org"),
+      new LdapAttribute("uidNumber", "1200"),
+      new LdapAttribute("telephoneNumber", "+1 555-123-4567"),
+      new LdapAttribute("modifyTimestamp", "20240115103000Z"),
+      new LdapAttribute("manager", "UID=jsmith, OU=People, DC=ldaptive, DC=org"),
+      new LdapAttribute("description;lang-fr", "Directeur"),
+      new LdapAttribute("displayName", "Ærøskøbing Ñandú"))
+    .build();
+
+  /** Schema with a subset of the standard attribute types. */
+  private final Schema schema = new Schema();
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @BeforeClass
+  public void createSchema()
+    throws Exception
+  {
+    schema.setAttributeTypes(
+      List.of(
+        AttributeType.parse(
+          "( 2.5.4.41 NAME 'name' EQUALITY caseIgnoreMatch SUBSTR caseIgnoreSubstringsMatch " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.15{32768} )"),
+        AttributeType.parse("( 2.5.4.3 NAME ( 'cn' 'commonName' ) SUP name )"),
+        AttributeType.parse("( 2.5.4.4 NAME ( 'sn' 'surname' ) SUP name )"),
+        AttributeType.parse("( 2.5.4.13 NAME 'description' SUP name )"),
+        AttributeType.parse(
+          "( 0.9.2342.19200300.100.1.1 NAME ( 'uid' 'userid' ) EQUALITY caseIgnoreMatch " +
+            "SUBSTR caseIgnoreSubstringsMatch SYNTAX 1.3.6.1.4.1.1466.115.121.1.15{256} )"),
+        AttributeType.parse(
+          "( 1.3.6.1.1.1.1.0 NAME 'uidNumber' EQUALITY integerMatch ORDERING integerOrderingMatch " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.27 SINGLE-VALUE )"),
+        AttributeType.parse(
+          "( 2.5.4.20 NAME 'telephoneNumber' EQUALITY telephoneNumberMatch SUBSTR telephoneNumberSubstringsMatch " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.50{32} )"),
+        AttributeType.parse(
+          "( 2.5.18.2 NAME 'modifyTimestamp' EQUALITY generalizedTimeMatch ORDERING generalizedTimeOrderingMatch " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.24 SINGLE-VALUE NO-USER-MODIFICATION USAGE directoryOperation )"),
+        AttributeType.parse(
+          "( 0.9.2342.19200300.100.1.10 NAME 'manager' EQUALITY distinguishedNameMatch " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.12 )"),
+        AttributeType.parse(
+          "( 0.9.2342.19200300.100.1.3 NAME ( 'mail' 'rfc822Mailbox' ) EQUALITY caseExactIA5Match " +
+            "SYNTAX 1.3.6.1.4.1.1466.115.121.1.26{256} )")));
+  }
+
+
+  /**
+   * Filter test data.
+   *
+   * @return  filter, whether it matches without a schema and whether it matches with a schema
+   */
+  @DataProvider(name = "filters")
+  public Object[][] createFilters()
+  {
+    return
+      new Object[][] {
+        // equality
+        new Object[] {"(uid=bwallace)", true, true},
+        new Object[] {"(UID=BWallace)", true, true},
+        new Object[] {"(uid=jsmith)", false, false},
+        new Object[] {"(objectClass=INETORGPERSON)", true, true},
+        new Object[] {"(commonName=bill wallace)", true, true},
+        new Object[] {"(commonName=  BILL   WALLACE )", true, true},
+        new Object[] {"(cn=bill wallace)", false, true},
+        new Object[] {"(name=bill wallace)", false, false},
+        new Object[] {"(mail=bill.wallace@ldaptive.org)", true, false},
+        new Object[] {"(rfc822Mailbox=Bill.Wallace@ldaptive.org)", false, true},
+        new Object[] {"(uidNumber=01200)", false, true},
+        new Object[] {"(uidNumber=abc)", false, false},
+        new Object[] {"(telephoneNumber=15551234567)", false, false},
+        new Object[] {"(telephoneNumber=+15551234567)", false, true},
+        new Object[] {"(modifyTimestamp=20240115113000+0100)", false, true},
+        new Object[] {"(manager=uid=jsmith,ou=people,dc=ldaptive,dc=org)", false, true},
+        new Object[] {"(displayName=ærøskøbing ñandú)", true, true},
+        new Object[] {"(description;lang-fr=directeur)", true, true},
+        new Object[] {"(description=directeur)", false, false},
+        new Object[] {"(sn~=wallace)", true, true},
+        // ordering
+        new Object[] {"(uidNumber>=999)", false, true},
+        new Object[] {"(uidNumber<=999)", true, false},
+        new Object[] {"(uidNumber>=1200)", true, true},
+        new Object[] {"(modifyTimestamp>=20240101000000Z)", true, true},
+        new Object[] {"(modifyTimestamp<=20240115093000Z)", false, false},
+        // substring
+        new Object[] {"(uid=bw*)", true, true},
+        new Object[] {"(uid=*ace)", true, true},
+        new Object[] {"(commonName=*ill wal*)", true, true},
+        new Object[] {"(commonName=b*w*e)", true, true},
+        new Object[] {"(commonName=bill*ill*)", false, false},
+        new Object[] {"(sn=wall*lace)", false, false},
+        new Object[] {"(surname=wall*ace)", false, true},
+        new Object[] {"(telephoneNumber=*1234567)", false, true},
+        // presence
+        new Object[] {"(uid=*)", true, true},
+        new Object[] {"(userid=*)", false, true},
+        new Object[] {"(givenName=*)", false, false},
+        // sets
+        new Object[] {"(&(objectClass=person)(uid=bwallace))", true, true},
+        new Object[] {"(&(objectClass=person)(uid=jsmith))", false, false},
+        new Object[] {"(|(uid=jsmith)(sn=wallace))", true, true},
+        new Object[] {"(|(uid=jsmith)(sn=smith))", false, false},
+        new Object[] {"(!(uid=jsmith))", true, true},
+        new Object[] {"(&(objectClass=person)(!(|(uid=jsmith)(uidNumber<=1000))))", true, true},
+        // undefined
+        new Object[] {"(!(uidNumber=abc))", true, false},
+        new Object[] {"(!(uidNumber>=abc))", true, false},
+        new Object[] {"(!(uid:unknownMatch:=jsmith))", false, false},
+        new Object[] {"(|(uidNumber=abc)(uid=bwallace))", true, true},
+        new Object[] {"(!(|(uidNumber=abc)(uid=jsmith)))", true, false},
+        new Object[] {"(!(&(uidNumber=abc)(uid=jsmith)))", true, true},
+        new Object[] {"(!(&(uidNumber=abc)(uid=bwallace)))", true, false},
+        // extensible
+        new Object[] {"(uid:caseExactMatch:=bwallace)", true, true},
+        new Object[] {"(uid:caseExactMatch:=BWallace)", false, false},
+        new Object[] {"(uid:2.5.13.2:=BWallace)", true, true},
+        new Object[] {"(uidNumber:integerMatch:=01200)", true, true},
+        new Object[] {"(:caseIgnoreMatch:=wallace)", true, true},
+        new Object[] {"(uid:unknownMatch:=bwallace)", false, false},
+        new Object[] {"(ou:dn:caseIgnoreMatch:=people)", true, true},
+        new Object[] {"(ou:caseIgnoreMatch:=people)", false, false},
+        new Object[] {"(sn:=WALLACE)", true, true},
+      };
+  }
+
+
+  /**
+   * @param  filter  to evaluate
+   * @param  withoutSchema  expected result without a schema
+   * @param  withSchema  expected result with a schema
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(dataProvider = "filters")
+  public void evaluate(final String filter, final boolean withoutSchema, final boolean withSchema)
+    throws Exception
+  {
+    assertThat(new FilterEvaluator().compile(filter).test(ENTRY)).isEqualTo(withoutSchema);
+    assertThat(new FilterEvaluator(schema).compile(filter).test(ENTRY)).isEqualTo(withSchema);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test
+  public void reuse()
+    throws Exception
+  {
+    final Predicate<LdapEntry> predicate = new FilterEvaluator(schema).compile("(&(uid=b*)(uidNumber>=1000))");
+    assertThat(predicate.test(ENTRY)).isTrue();
+    assertThat(predicate.test(LdapEntry.builder().dn("uid=bob").attributes(new LdapAttribute("uid", "bob")).build()))
+      .isFalse();
+    assertThat(
+      predicate.test(
+        LdapEntry.builder()
+          .dn("uid=bob")
+          .attributes(new LdapAttribute("userid", "Bob"), new LdapAttribute("uidNumber", " 1000 "))
+          .build()))
+      .isTrue();
+    assertThat(predicate.test(new LdapEntry())).isFalse();
+  }
+
+
+  /** Filters of a type outside this package are parsed from their string representation. */
+  @Test
+  public void compileOtherFilterType()
+  {
+    final CompiledFilterTemplate template = CompiledFilterTemplate.compile("(&(uid={0})(uidNumber>={1}))");
+    final FilterEvaluator evaluator = new FilterEvaluator(schema);
+    assertThat(evaluator.compile(template.apply("bwallace", 1000)).test(ENTRY)).isTrue();
+    assertThat(evaluator.compile(template.apply("bwallace", 2000)).test(ENTRY)).isFalse();
+    assertThat(evaluator.compile(new NotFilter(template.apply("jsmith", 1000))).test(ENTRY)).isTrue();
+  }
+
+
+  @Test
+  public void compareAscii()
+  {
+    final byte[] assertion = LdapUtils.utf8Encode("bill wallace");
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("bill wallace"), assertion, true)).isEqualTo(1);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("  Bill   WALLACE  "), assertion, true)).isEqualTo(1);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("Bill Wallace"), assertion, false)).isEqualTo(0);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("bill wallac"), assertion, true)).isEqualTo(0);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("bill wallaces"), assertion, true)).isEqualTo(0);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("bill wallacK"), assertion, true))
+      .isEqualTo(-1);
+    assertThat(FilterEvaluator.compareAscii(LdapUtils.utf8Encode("   "), new byte[0], true)).isEqualTo(1);
+    final byte[] padded = LdapUtils.utf8Encode("xx Bill Wallace yy");
+    assertThat(FilterEvaluator.compareAscii(padded, 2, 14, assertion, true)).isEqualTo(1);
+    assertThat(FilterEvaluator.compareAscii(padded, 3, 12, assertion, true)).isEqualTo(1);
+    assertThat(FilterEvaluator.compareAscii(padded, 2, 16, assertion, true)).isEqualTo(0);
+  }
+
+
+  @Test
+  public void matchSubstrings()
+  {
+    final String[] none = new String[0];
+    assertThat(FilterEvaluator.matchSubstrings("abcabc", "abc", none, "abc")).isTrue();
+    assertThat(FilterEvaluator.matchSubstrings("abcab", "abc", none, "cab")).isFalse();
+    assertThat(FilterEvaluator.matchSubstrings("abcabc", null, new String[] {"b", "b"}, null)).isTrue();
+    assertThat(FilterEvaluator.matchSubstrings("abcabc", null, new String[] {"b", "b", "b"}, null)).isFalse();
+    assertThat(FilterEvaluator.matchSubstrings("abcabc", "a", new String[] {"ca"}, "bc")).isTrue();
+    assertThat(FilterEvaluator.matchSubstrings("abc", "a", new String[] {"b"}, "bc")).isFalse();
+  }
+}
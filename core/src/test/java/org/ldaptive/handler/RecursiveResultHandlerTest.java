@@ -1,13 +1,17 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.handler;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.ldaptive.ResultCode;
 import org.ldaptive.SearchResponse;
+import org.ldaptive.auth.ResolverCache;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
 
@@ -58,6 +62,104 @@ public class RecursiveResultHandlerTest
   }
 
 
+  @Test(groups = "handlers")
+  public void batchesAndCache()
+  {
+    final LdapEntry group1 = LdapEntry.builder().dn("cn=group1,ou=groups,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("cn").values("group1").build(),
+      LdapAttribute.builder().name("member").values(
+        "cn=group2,ou=groups,dc=ldaptive,dc=org",
+        "cn=group3,ou=groups,dc=ldaptive,dc=org",
+        "cn=group4,ou=groups,dc=ldaptive,dc=org").build()).build();
+    final LdapEntry group2 = LdapEntry.builder().dn("cn=group2,ou=groups,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("cn").values("group2").build(),
+      // cycle back to group1, differs only in case
+      LdapAttribute.builder().name("member").values("CN=Group1,ou=groups,dc=ldaptive,dc=org").build()).build();
+    final LdapEntry group3 = LdapEntry.builder().dn("cn=group3,ou=groups,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("cn").values("group3").build(),
+      LdapAttribute.builder().name("member").values(
+        "cn=group4,ou=groups,dc=ldaptive,dc=org", "cn=missing,ou=groups,dc=ldaptive,dc=org").build()).build();
+    final LdapEntry group4 = LdapEntry.builder().dn("cn=group4,ou=groups,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("cn").values("group4").build()).build();
+
+    final TestRecursiveResultHandler handler = new TestRecursiveResultHandler("member", "cn");
+    handler.setBatchSize(2);
+    handler.setCache(new ResolverCache<>("groups", 100, Duration.ofMinutes(1)));
+    handler.setEntries(
+      Map.of("cn=group1,ou=groups,dc=ldaptive,dc=org", group1,
+             "cn=group2,ou=groups,dc=ldaptive,dc=org", group2,
+             "cn=group3,ou=groups,dc=ldaptive,dc=org", group3,
+             "cn=group4,ou=groups,dc=ldaptive,dc=org", group4));
+
+    final SearchResponse response = SearchResponse.builder().entry(
+      LdapEntry.builder().dn("uid=user1,ou=people,dc=ldaptive,dc=org").attributes(
+        LdapAttribute.builder().name("member").values("cn=group1,ou=groups,dc=ldaptive,dc=org").build()).build(),
+      LdapEntry.builder().dn("uid=user2,ou=people,dc=ldaptive,dc=org").attributes(
+        LdapAttribute.builder().name("member").values("cn=group3,ou=groups,dc=ldaptive,dc=org").build()).build())
+      .build();
+    handler.apply(response);
+    assertThat(response.getEntry("uid=user1,ou=people,dc=ldaptive,dc=org").getAttribute("cn").getStringValues())
+      .containsExactlyInAnyOrder("group1", "group2", "group3", "group4");
+    assertThat(response.getEntry("uid=user2,ou=people,dc=ldaptive,dc=org").getAttribute("cn").getStringValues())
+      .containsExactlyInAnyOrder("group3", "group4");
+    // each DN is searched once, levels are batched
+    assertThat(handler.searches).containsExactlyInAnyOrder(
+      "cn=group1,ou=groups,dc=ldaptive,dc=org",
+      "cn=group2,ou=groups,dc=ldaptive,dc=org",
+      "cn=group3,ou=groups,dc=ldaptive,dc=org",
+      "cn=group4,ou=groups,dc=ldaptive,dc=org",
+      "cn=missing,ou=groups,dc=ldaptive,dc=org");
+    assertThat(handler.batches).containsExactly(1, 2, 1, 1);
+
+    // new instances share the cache
+    final TestRecursiveResultHandler copy = new TestRecursiveResultHandler("member", "cn");
+    copy.setCache(handler.newInstance().getCache());
+    final LdapEntry user3 = LdapEntry.builder().dn("uid=user3,ou=people,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("member").values("cn=group1,ou=groups,dc=ldaptive,dc=org").build()).build();
+    copy.handleEntry(user3);
+    assertThat(user3.getAttribute("cn").getStringValues())
+      .containsExactlyInAnyOrder("group1", "group2", "group3", "group4");
+    assertThat(copy.searches).isEmpty();
+
+    try {
+      handler.setBatchSize(0);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  @Test(groups = "handlers")
+  public void failuresNotCached()
+  {
+    final LdapEntry group1 = LdapEntry.builder().dn("cn=group1,ou=groups,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("cn").values("group1").build()).build();
+
+    final TestRecursiveResultHandler handler = new TestRecursiveResultHandler("member", "cn");
+    handler.setCache(new ResolverCache<>("groups", 100, Duration.ofMinutes(1)));
+    handler.setEntries(Map.of("cn=group1,ou=groups,dc=ldaptive,dc=org", group1));
+    handler.failures.put("cn=group1,ou=groups,dc=ldaptive,dc=org", ResultCode.BUSY);
+    handler.failures.put("cn=missing,ou=groups,dc=ldaptive,dc=org", ResultCode.NO_SUCH_OBJECT);
+
+    final LdapEntry user1 = LdapEntry.builder().dn("uid=user1,ou=people,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("member").values(
+        "cn=group1,ou=groups,dc=ldaptive,dc=org", "cn=missing,ou=groups,dc=ldaptive,dc=org").build()).build();
+    handler.handleEntry(user1);
+    assertThat(user1.getAttribute("cn")).isNull();
+
+    // the busy result is not cached, the missing DN is
+    handler.failures.remove("cn=group1,ou=groups,dc=ldaptive,dc=org");
+    handler.searches.clear();
+    final LdapEntry user2 = LdapEntry.builder().dn("uid=user2,ou=people,dc=ldaptive,dc=org").attributes(
+      LdapAttribute.builder().name("member").values(
+        "cn=group1,ou=groups,dc=ldaptive,dc=org", "cn=missing,ou=groups,dc=ldaptive,dc=org").build()).build();
+    handler.handleEntry(user2);
+    assertThat(user2.getAttribute("cn").getStringValues()).containsExactly("group1");
+    assertThat(handler.searches).containsExactly("cn=group1,ou=groups,dc=ldaptive,dc=org");
+  }
+
+
   /** Class for testing {@link RecursiveResultHandler}. */
   private static class TestRecursiveResultHandler extends RecursiveResultHandler
   {
@@ -65,6 +167,15 @@ public class RecursiveResultHandlerTest
     /** Entries to return. */
     private final Map<String, LdapEntry> entries = new HashMap<>();
 
+    /** DNs searched. */
+    private final List<String> searches = new ArrayList<>();
+
+    /** Size of each batch of searches. */
+    private final List<Integer> batches = new ArrayList<>();
+
+    /** Result codes to return instead of an entry. */
+    private final Map<String, ResultCode> failures = new HashMap<>();
+
 
     /**
      * Test instance of {@link RecursiveResultHandler}.
@@ -84,10 +195,23 @@ public class RecursiveResultHandlerTest
     }
 
 
+    @Override
+    protected Map<String, SearchResponse> performSearches(final List<String> baseDns, final String[] retAttrs)
+      throws LdapException
+    {
+      batches.add(baseDns.size());
+      return super.performSearches(baseDns, retAttrs);
+    }
+
+
     @Override
     protected SearchResponse performSearch(final String baseDn, final String[] retAttrs)
       throws LdapException
     {
+      searches.add(baseDn);
+      if (failures.containsKey(baseDn)) {
+        return SearchResponse.builder().resultCode(failures.get(baseDn)).build();
+      }
       if (!entries.containsKey(baseDn)) {
         return SearchResponse.builder().resultCode(ResultCode.SUCCESS).build();
       }
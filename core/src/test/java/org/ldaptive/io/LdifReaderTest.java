@@ -3,6 +3,8 @@ package org.ldaptive.io;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.SearchResponse;
@@ -411,4 +413,25 @@ public class LdifReaderTest
     final LdifReader reader = new LdifReader(actual);
     assertThat(reader.read()).isEqualTo(expected);
   }
+
+
+  /**
+   * @param  actual  reader containing LDIF
+   * @param  expected  search response containing the entries that should be read
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "io", dataProvider = "ldif")
+  public void readEntry(final Reader actual, final SearchResponse expected)
+    throws Exception
+  {
+    final LdifReader reader = new LdifReader(actual);
+    final List<LdapEntry> entries = new ArrayList<>();
+    LdapEntry entry;
+    while ((entry = reader.readEntry()) != null) {
+      entries.add(entry);
+    }
+    assertThat(entries).containsExactlyElementsOf(expected.getEntries());
+    assertThat(reader.readEntry()).isNull();
+  }
 }
@@ -0,0 +1,125 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ *
+ * @author  Middleware Services
+ */
+public class LatencyHistogramTest
+{
+
+
+  @Test(groups = "metrics")
+  public void empty()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getMean()).isEqualTo(Duration.ZERO);
+    assertThat(histogram.getMax()).isEqualTo(Duration.ZERO);
+    assertThat(histogram.getValueAtPercentile(99)).isEqualTo(Duration.ZERO);
+  }
+
+
+  @Test(groups = "metrics")
+  public void bucketBoundaries()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram(4);
+    int previous = -1;
+    for (long value = 0; value < 1_000_000; value++) {
+      final int index = histogram.indexOf(value);
+      assertThat(index).isGreaterThanOrEqualTo(previous);
+      assertThat(histogram.highestValueAt(index)).isGreaterThanOrEqualTo(value);
+      if (index > previous && previous >= 0) {
+        assertThat(histogram.highestValueAt(previous)).isEqualTo(value - 1);
+      }
+      previous = index;
+    }
+    assertThat(histogram.indexOf(LatencyHistogram.MAX_VALUE)).isGreaterThan(previous);
+  }
+
+
+  @Test(groups = "metrics")
+  public void percentiles()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10_000; i++) {
+      histogram.record(Duration.ofNanos(i * 1_000L));
+    }
+    assertThat(histogram.getCount()).isEqualTo(10_000);
+    assertThat(histogram.getMax()).isEqualTo(Duration.ofNanos(10_000 * 1_000L));
+    assertThat(histogram.getMean().toNanos()).isCloseTo(5_000_500L, within(1L));
+    assertThat(histogram.getValueAtPercentile(50).toNanos())
+      .isCloseTo(Duration.ofNanos(5_000 * 1_000L).toNanos(), withinPercentage(1));
+    assertThat(histogram.getValueAtPercentile(99).toNanos())
+      .isCloseTo(Duration.ofNanos(9_900 * 1_000L).toNanos(), withinPercentage(1));
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(Duration.ofNanos(10_000 * 1_000L));
+
+    histogram.reset();
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(Duration.ZERO);
+  }
+
+
+  @Test(groups = "metrics")
+  public void limits()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    histogram.record(Long.MAX_VALUE);
+    assertThat(histogram.getCount()).isEqualTo(2);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(Duration.ZERO);
+    assertThat(histogram.getMax()).isEqualTo(Duration.ofNanos(LatencyHistogram.MAX_VALUE));
+
+    try {
+      new LatencyHistogram(0);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    try {
+      histogram.getValueAtPercentile(101);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "metrics")
+  public void concurrentRecord()
+    throws Exception
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 25_000; j++) {
+            histogram.record(j);
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(histogram.getCount()).isEqualTo(100_000);
+    assertThat(histogram.getMax()).isEqualTo(Duration.ofNanos(24_999));
+  }
+}
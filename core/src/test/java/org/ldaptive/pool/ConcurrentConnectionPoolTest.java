@@ -0,0 +1,379 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.ConnectionValidator;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.metrics.HistogramMetricsListener;
+import org.ldaptive.metrics.MetricsListener;
+import org.ldaptive.transport.Transport;
+import org.ldaptive.transport.mock.MockConnection;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link ConcurrentConnectionPool}.
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentConnectionPoolTest
+{
+
+
+  /**
+   * Creates a new pool that uses mock connections.
+   *
+   * @param  min  pool size
+   * @param  max  pool size
+   *
+   * @return  connection pool
+   */
+  private static ConcurrentConnectionPool createPool(final int min, final int max)
+  {
+    return createPool(min, max, null);
+  }
+
+
+  /**
+   * Creates a new pool that uses mock connections.
+   *
+   * @param  min  pool size
+   * @param  max  pool size
+   * @param  listener  metrics listener
+   *
+   * @return  connection pool
+   */
+  private static ConcurrentConnectionPool createPool(final int min, final int max, final MetricsListener listener)
+  {
+    final ConcurrentConnectionPool pool = new ConcurrentConnectionPool(
+      new DefaultConnectionFactory(
+        ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").metricsListener(listener).build(),
+        new Transport() {
+          @Override
+          public Connection create(final ConnectionConfig cc)
+          {
+            return MockConnection.builder(cc).openPredicate(url -> true).build();
+          }
+
+          @Override
+          public void close() {}
+
+          @Override
+          public void shutdown() {}
+        }));
+    pool.setMinPoolSize(min);
+    pool.setMaxPoolSize(max);
+    return pool;
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void checkOutAndCheckIn()
+    throws Exception
+  {
+    final ConcurrentConnectionPool pool = createPool(2, 4);
+    pool.initialize();
+    try {
+      assertThat(pool.availableCount()).isEqualTo(2);
+      assertThat(pool.activeCount()).isEqualTo(0);
+
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      final Connection c3 = pool.getConnection();
+      assertThat(pool.availableCount()).isEqualTo(0);
+      assertThat(pool.activeCount()).isEqualTo(3);
+      assertThat(pool.getPooledConnectionStatistics()).hasSize(3);
+
+      c1.close();
+      c2.close();
+      assertThat(pool.availableCount()).isEqualTo(2);
+      assertThat(pool.activeCount()).isEqualTo(1);
+
+      // the last connection returned by this thread is reused
+      final Connection c4 = pool.getConnection();
+      assertThat(pool.retrieveConnectionProxy(c4)).isSameAs(pool.retrieveConnectionProxy(c2));
+      c3.close();
+      c4.close();
+      assertThat(pool.availableCount()).isEqualTo(3);
+      assertThat(pool.activeCount()).isEqualTo(0);
+    } finally {
+      pool.close();
+    }
+    assertThat(pool.availableCount()).isEqualTo(0);
+    assertThat(pool.activeCount()).isEqualTo(0);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void blockWaitTime()
+    throws Exception
+  {
+    final ConcurrentConnectionPool pool = createPool(1, 2);
+    pool.setBlockWaitTime(Duration.ofMillis(100));
+    pool.initialize();
+    try {
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      assertThatExceptionOfType(BlockingTimeoutException.class).isThrownBy(pool::getConnection);
+      c1.close();
+      final Connection c3 = pool.getConnection();
+      assertThat(pool.activeCount()).isEqualTo(2);
+      c2.close();
+      c3.close();
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void metrics()
+    throws Exception
+  {
+    final HistogramMetricsListener listener = new HistogramMetricsListener();
+    final ConcurrentConnectionPool pool = createPool(2, 2, listener);
+    pool.setBlockWaitTime(Duration.ofMillis(100));
+    pool.initialize();
+    try {
+      assertThat(listener.getCreateLatency(pool.getName()).getCount()).isEqualTo(2);
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      assertThatExceptionOfType(BlockingTimeoutException.class).isThrownBy(pool::getConnection);
+      assertThat(listener.getCheckOutLatency(pool.getName()).getCount()).isEqualTo(2);
+      assertThat(listener.getCounter("pool.checkout.failed", pool.getName())).isEqualTo(1);
+      c1.close();
+      c2.close();
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void metricsPrune()
+    throws Exception
+  {
+    final HistogramMetricsListener listener = new HistogramMetricsListener();
+    final ConcurrentConnectionPool pool = createPool(1, 3, listener);
+    pool.setPruneStrategy(new PruneStrategy() {
+      @Override
+      public int getStatisticsSize()
+      {
+        return 1;
+      }
+
+      @Override
+      public Duration getPrunePeriod()
+      {
+        return Duration.ofMinutes(30);
+      }
+
+      @Override
+      public void accept(final Supplier<Iterator<PooledConnectionProxy>> supplier)
+      {
+        // prune all but one connection
+        final Iterator<PooledConnectionProxy> iter = supplier.get();
+        iter.next();
+        while (iter.hasNext()) {
+          iter.next();
+          iter.remove();
+        }
+      }
+    });
+    pool.initialize();
+    try {
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      final Connection c3 = pool.getConnection();
+      c1.close();
+      c2.close();
+      c3.close();
+      assertThat(pool.availableCount()).isEqualTo(3);
+      pool.prune();
+      assertThat(pool.availableCount()).isEqualTo(1);
+      assertThat(listener.getCounter("pool.prune", pool.getName())).isEqualTo(2);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void metricsValidate()
+    throws Exception
+  {
+    final HistogramMetricsListener listener = new HistogramMetricsListener();
+    final AtomicInteger validations = new AtomicInteger();
+    final ConcurrentConnectionPool pool = createPool(2, 2, listener);
+    pool.setValidator(new ConnectionValidator() {
+      @Override
+      public Duration getValidatePeriod()
+      {
+        return Duration.ofMinutes(30);
+      }
+
+      @Override
+      public Duration getValidateTimeout()
+      {
+        return Duration.ofSeconds(5);
+      }
+
+      @Override
+      public void applyAsync(final Connection conn, final Consumer<Boolean> function)
+      {
+        function.accept(applyAsync(conn).get());
+      }
+
+      @Override
+      public Supplier<Boolean> applyAsync(final Connection conn)
+      {
+        // fail the first validation
+        final boolean valid = validations.incrementAndGet() > 1;
+        return () -> valid;
+      }
+
+      @Override
+      public Boolean apply(final Connection conn)
+      {
+        return applyAsync(conn).get();
+      }
+    });
+    pool.initialize();
+    try {
+      pool.validate();
+      assertThat(validations.get()).isEqualTo(2);
+      assertThat(listener.getCounter("pool.validate", pool.getName())).isEqualTo(1);
+      assertThat(listener.getCounter("pool.validate.failed", pool.getName())).isEqualTo(1);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void concurrentCheckOut()
+    throws Exception
+  {
+    final int threads = 16;
+    final int iterations = 1000;
+    final ConcurrentConnectionPool pool = createPool(1, 4);
+    pool.initialize();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final AtomicInteger inUse = new AtomicInteger();
+      final AtomicInteger maxInUse = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < iterations; j++) {
+            final Connection conn = pool.getConnection();
+            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            inUse.decrementAndGet();
+            conn.close();
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> f : futures) {
+        f.get(30, TimeUnit.SECONDS);
+      }
+      assertThat(maxInUse.get()).isLessThanOrEqualTo(4);
+      assertThat(pool.activeCount()).isEqualTo(0);
+      assertThat(pool.availableCount()).isBetween(1, 4);
+    } finally {
+      executor.shutdown();
+      pool.close();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "pool")
+  public void validateAndGrow()
+    throws Exception
+  {
+    final AtomicInteger validations = new AtomicInteger();
+    final ConcurrentConnectionPool pool = createPool(3, 5);
+    pool.setValidator(new ConnectionValidator() {
+      @Override
+      public Duration getValidatePeriod()
+      {
+        return Duration.ofMinutes(30);
+      }
+
+      @Override
+      public Duration getValidateTimeout()
+      {
+        return Duration.ofSeconds(5);
+      }
+
+      @Override
+      public void applyAsync(final Connection conn, final Consumer<Boolean> function)
+      {
+        function.accept(applyAsync(conn).get());
+      }
+
+      @Override
+      public Supplier<Boolean> applyAsync(final Connection conn)
+      {
+        // fail every other validation
+        final boolean valid = validations.incrementAndGet() % 2 == 0;
+        return () -> valid;
+      }
+
+      @Override
+      public Boolean apply(final Connection conn)
+      {
+        return applyAsync(conn).get();
+      }
+    });
+    pool.initialize();
+    try {
+      final Connection conn = pool.getConnection();
+      pool.validate();
+      assertThat(validations.get()).isEqualTo(2);
+      assertThat(pool.activeCount()).isEqualTo(1);
+      assertThat(pool.availableCount()).isEqualTo(2);
+      conn.close();
+      assertThat(pool.availableCount()).isEqualTo(3);
+    } finally {
+      pool.close();
+    }
+  }
+}
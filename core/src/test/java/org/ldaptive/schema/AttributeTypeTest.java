@@ -352,4 +352,50 @@ public class AttributeTypeTest
       assertThat(parsed.format()).isEqualTo(type.format());
     }
   }
+
+
+  /**
+   * Definitions without a space before the closing parenthesis.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void parseNoTrailingSpace()
+    throws Exception
+  {
+    final AttributeType.DefaultDefinitionFunction func = new AttributeType.DefaultDefinitionFunction();
+    assertThat(func.parse("( 2.5.4.0 NAME 'objectClass' SINGLE-VALUE)"))
+      .isEqualTo(func.parse("( 2.5.4.0 NAME 'objectClass' SINGLE-VALUE )"));
+    assertThat(func.parse("( 2.5.4.41 NAME 'name' SUP top)").getSuperiorType()).isEqualTo("top");
+    assertThat(func.parse("( 2.5.4.41 NAME 'name')").getName()).isEqualTo("name");
+  }
+
+
+  /**
+   * Definitions with a keyword that is missing its value.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void parseMissingValue()
+    throws Exception
+  {
+    final AttributeType.DefaultDefinitionFunction func = new AttributeType.DefaultDefinitionFunction();
+    for (String definition : new String[] {
+      "( 1.2.3 SUP)",
+      "( 1.2.3 EQUALITY)",
+      "( 1.2.3 SYNTAX)",
+      "( 1.2.3 NAME)",
+      "( 1.2.3 NAME )",
+      "( 1.2.3 DESC)",
+      "( 1.2.3 NAME 'name' SUP )",
+    }) {
+      try {
+        func.parse(definition);
+        fail("Should have thrown SchemaParseException for " + definition);
+      } catch (Exception e) {
+        assertThat(e).isExactlyInstanceOf(SchemaParseException.class);
+      }
+    }
+  }
 }
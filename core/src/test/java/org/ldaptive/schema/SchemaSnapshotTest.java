@@ -0,0 +1,143 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.schema;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link SchemaSnapshot}.
+ *
+ * @author  Middleware Services
+ */
+public class SchemaSnapshotTest
+{
+
+  /** Subschema entry to create snapshots from. */
+  private static final LdapEntry SCHEMA_ENTRY = LdapEntry.builder()
+    .dn("cn=subschema")
+    .attributes(
+      new LdapAttribute("modifyTimestamp", "20240101000000Z"),
+      new LdapAttribute(
+        "attributeTypes",
+        "( 2.5.4.41 NAME 'name' DESC 'RFC4519: common supertype of name attributes' EQUALITY caseIgnoreMatch " +
+          "SUBSTR caseIgnoreSubstringsMatch SYNTAX 1.3.6.1.4.1.1466.115.121.1.15{32768} )",
+        "( 2.5.4.4 NAME ( 'sn' 'surname' ) SYNTAX 1.3.6.1.4.1.1466.115.121.1.15{64} X-NDS_NAME 'Surname' )",
+        "( 1.10.101.555 NAME 'quixote' DESC 'D\\C3\\B2n \\27\\5C\\27 Qu\\C3\\ACxot\\C3\\A8 \\27\\5C\\27' " +
+          "USAGE userApplications )"),
+      new LdapAttribute(
+        "dITContentRules",
+        "( 2.16.840.1.113730.3.2.2 NAME 'inetOrgPerson-content-rule' AUX strongAuthenticationUser MUST uid )"),
+      new LdapAttribute(
+        "dITStructureRules",
+        "( 2 NAME 'uddiContactStructureRule' FORM uddiContactNameForm SUP ( 1 ) )"),
+      new LdapAttribute("ldapSyntaxes", "( 1.3.6.1.4.1.1466.115.121.1.5 DESC 'Binary' X-NOT-HUMAN-READABLE 'TRUE' )"),
+      new LdapAttribute("matchingRules", "( 2.5.13.2 NAME 'caseIgnoreMatch' SYNTAX 1.3.6.1.4.1.1466.115.121.1.15 )"),
+      new LdapAttribute(
+        "matchingRuleUse",
+        "( 2.5.13.27 NAME 'generalizedTimeMatch' APPLIES ( createTimestamp $ modifyTimestamp ) )"),
+      new LdapAttribute(
+        "nameForms",
+        "( 1.3.6.1.1.10.15.1 NAME 'uddiBusinessEntityNameForm' OC uddiBusinessEntity MUST ( uddiBusinessKey ) )"),
+      new LdapAttribute(
+        "objectClasses",
+        "( 2.5.6.0 NAME 'top' DESC 'top of the superclass chain' ABSTRACT MUST objectClass )",
+        "( 2.5.6.6 NAME 'person' DESC 'RFC2256: a person' SUP top STRUCTURAL MUST ( sn $ cn ) )"))
+    .build();
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void encodeDecode()
+    throws Exception
+  {
+    final SchemaSnapshot snapshot = SchemaSnapshot.create(SCHEMA_ENTRY);
+    assertThat(snapshot.getEntryDn()).isEqualTo("cn=subschema");
+    assertThat(snapshot.getModifyTimestamp()).isEqualTo("20240101000000Z");
+    assertThat(snapshot.getSchema()).isEqualTo(SchemaFactory.createSchema(SCHEMA_ENTRY));
+
+    final SchemaSnapshot decoded = SchemaSnapshot.decode(ByteBuffer.wrap(snapshot.encode()));
+    assertThat(decoded).isEqualTo(snapshot);
+    assertThat(decoded.getSchema().getAttributeType("surname").getExtensions().getValue("X-NDS_NAME"))
+      .isEqualTo("Surname");
+
+    final SchemaSnapshot noTimestamp = new SchemaSnapshot("cn=schema", null, new Schema());
+    assertThat(SchemaSnapshot.decode(ByteBuffer.wrap(noTimestamp.encode()))).isEqualTo(noTimestamp);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void decodeInvalid()
+    throws Exception
+  {
+    final byte[] encoded = SchemaSnapshot.create(SCHEMA_ENTRY).encode();
+    final byte[][] invalid = {
+      new byte[0],
+      Arrays.copyOf(encoded, encoded.length / 2),
+      Arrays.copyOf(encoded, encoded.length),
+      Arrays.copyOf(encoded, encoded.length),
+    };
+    invalid[2][0] = 0x00;
+    invalid[3][7] = 0x02;
+    for (byte[] bytes : invalid) {
+      try {
+        SchemaSnapshot.decode(ByteBuffer.wrap(bytes));
+        fail("Should have thrown IllegalArgumentException");
+      } catch (Exception e) {
+        assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+      }
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void saveLoad()
+    throws Exception
+  {
+    final Path dir = Files.createTempDirectory("schema-snapshot");
+    final Path path = dir.resolve("schema.snapshot");
+    try {
+      final SchemaSnapshot snapshot = SchemaSnapshot.create(SCHEMA_ENTRY);
+      snapshot.save(path);
+      assertThat(SchemaSnapshot.load(path)).isEqualTo(snapshot);
+      new SchemaSnapshot("cn=schema", "20250101000000Z", new Schema()).save(path);
+      assertThat(SchemaSnapshot.load(path).getModifyTimestamp()).isEqualTo("20250101000000Z");
+      try (Stream<Path> files = Files.list(dir)) {
+        assertThat(files).containsExactly(path);
+      }
+
+      // snapshot is used when it exists and the server cannot be reached
+      snapshot.save(path);
+      final ConnectionFactory factory = new DefaultConnectionFactory("ldap://localhost:1");
+      assertThat(SchemaFactory.createSchema(factory, path)).isEqualTo(snapshot.getSchema());
+
+      // refresh is only run by the supplied executor
+      final List<Runnable> tasks = new ArrayList<>();
+      assertThat(SchemaFactory.createSchema(factory, path, tasks::add)).isEqualTo(snapshot.getSchema());
+      assertThat(tasks).hasSize(1);
+      tasks.get(0).run();
+      assertThat(SchemaSnapshot.load(path)).isEqualTo(snapshot);
+    } finally {
+      Files.deleteIfExists(path);
+      Files.delete(dir);
+    }
+  }
+}
@@ -1,8 +1,11 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.schema;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
@@ -305,4 +308,34 @@ public class SchemaTest
     assertThat(schema).isNotNull();
     assertThat(schema.getObjectClasses()).hasSize(2);
   }
+
+
+  /**
+   * Creates a schema from an entry with enough values to be parsed in parallel.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "schema")
+  public void createSchema()
+    throws Exception
+  {
+    final List<AttributeType> types = new ArrayList<>();
+    final LdapAttribute attr = new LdapAttribute("attributeTypes");
+    for (int i = 0; i < 500; i++) {
+      final String definition = "( 1.3.6.1.4.1.1466." + i + " NAME 'attr" + i + "' SUP name SINGLE-VALUE )";
+      types.add(AttributeType.parse(definition));
+      attr.addStringValues(definition);
+    }
+    final Schema schema = SchemaFactory.createSchema(
+      LdapEntry.builder()
+        .dn("cn=subschema")
+        .attributes(
+          attr,
+          new LdapAttribute(
+            "objectClasses", "( 2.5.6.0 NAME 'top' DESC 'top of the superclass chain' ABSTRACT MUST objectClass )"))
+        .build());
+    assertThat(schema.getAttributeTypes()).containsExactlyElementsOf(types);
+    assertThat(schema.getAttributeType("attr250")).isEqualTo(types.get(250));
+    assertThat(schema.getObjectClass("top")).isNotNull();
+  }
 }
@@ -3,14 +3,22 @@ package org.ldaptive.transport;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import org.ldaptive.ConnectionConfig;
 import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
@@ -20,6 +28,8 @@ import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResponse;
 import org.ldaptive.SearchResultReference;
 import org.ldaptive.ad.handler.AbstractBinaryAttributeHandler;
+import org.ldaptive.asn1.DERBuffer;
+import org.ldaptive.asn1.DefaultDERBuffer;
 import org.ldaptive.extended.IntermediateResponse;
 import org.ldaptive.handler.AbandonOperationException;
 import org.ldaptive.handler.FreezeResultHandler;
@@ -560,6 +570,561 @@ public class DefaultSearchOperationHandleTest
   }
 
 
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void lazyEntries()
+    throws Exception
+  {
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(),
+      MockConnection.builder(
+        ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build(),
+      Duration.ofSeconds(1));
+    handle.messageID(1);
+    handle.sent();
+
+    // entries retained by the search response are copied out of the response buffer as they are received
+    final AtomicInteger released = new AtomicInteger();
+    handle.entry(lazyEntry(1, "uid=1,dc=ldaptive,dc=org", released));
+    assertThat(released.get()).isEqualTo(1);
+
+    // entries discarded by a handler are released
+    handle.onEntry(e -> null);
+    handle.entry(lazyEntry(1, "uid=2,dc=ldaptive,dc=org", released));
+    assertThat(released.get()).isEqualTo(2);
+
+    handle.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+    final SearchResponse result = handle.await();
+    assertThat(result.entrySize()).isEqualTo(1);
+    assertThat(result.getEntry().getAttribute("uid").getStringValue()).isEqualTo("uid=1,dc=ldaptive,dc=org");
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryIterator()
+    throws Exception
+  {
+    final int entryCount = 100;
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryIterator iterator = handle.entryIterator(4);
+    handle.messageID(1);
+    handle.sent();
+
+    final AtomicInteger maxUnconsumed = new AtomicInteger();
+    final AtomicInteger consumed = new AtomicInteger();
+    final Future<?> producer = executorService.submit(() -> {
+      for (int i = 0; i < entryCount; i++) {
+        // a suspended connection does not deliver entries
+        while (conn.isReadsSuspended()) {
+          Thread.sleep(1);
+        }
+        handle.entry(LdapEntry.builder().messageID(1).dn("uid=" + i + ",dc=ldaptive,dc=org").build());
+        maxUnconsumed.accumulateAndGet(i + 1 - consumed.get(), Math::max);
+      }
+      handle.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+      return null;
+    });
+    int i = 0;
+    while (iterator.hasNext()) {
+      assertThat(iterator.next().getDn()).isEqualTo("uid=" + i++ + ",dc=ldaptive,dc=org");
+      consumed.incrementAndGet();
+      if (i % 10 == 0) {
+        Thread.sleep(5);
+      }
+    }
+    producer.get(5, TimeUnit.SECONDS);
+    assertThat(i).isEqualTo(entryCount);
+    assertThat(maxUnconsumed.get()).isLessThanOrEqualTo(5);
+    assertThat(conn.isReadsSuspended()).isFalse();
+    final SearchResponse response = iterator.getResponse();
+    assertThat(response.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(response.entrySize()).isEqualTo(0);
+    assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(iterator::next);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryIteratorClose()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryIterator iterator = handle.entryIterator(2);
+    handle.messageID(1);
+    handle.sent();
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=1,dc=ldaptive,dc=org").build());
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=2,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+    assertThatIllegalStateException().isThrownBy(iterator::getResponse);
+    assertThatIllegalStateException().isThrownBy(() -> handle.entryIterator(2));
+
+    try (Stream<LdapEntry> stream = iterator.stream()) {
+      assertThat(stream.findFirst()).get().extracting(LdapEntry::getDn).isEqualTo("uid=1,dc=ldaptive,dc=org");
+    }
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThat(conn.isReadsSuspended()).isFalse();
+    assertThat(iterator.hasNext()).isFalse();
+    assertThatExceptionOfType(LdapException.class).isThrownBy(iterator::getResponse)
+      .extracting(LdapException::getResultCode).isEqualTo(ResultCode.USER_CANCELLED);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryIteratorCloseReleasesEntries()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryIterator iterator = handle.entryIterator(4);
+    handle.messageID(1);
+    handle.sent();
+    final AtomicInteger released = new AtomicInteger();
+    handle.entry(lazyEntry(1, "uid=1,dc=ldaptive,dc=org", released));
+    handle.entry(lazyEntry(1, "uid=2,dc=ldaptive,dc=org", released));
+    handle.entry(lazyEntry(1, "uid=3,dc=ldaptive,dc=org", released));
+    assertThat(iterator.next().getDn()).isEqualTo("uid=1,dc=ldaptive,dc=org");
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(released.get()).isZero();
+
+    // the entry returned by hasNext and the queued entry are released
+    iterator.close();
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThat(released.get()).isEqualTo(2);
+    assertThat(iterator.hasNext()).isFalse();
+
+    // entries that arrive after close are released
+    handle.entry(lazyEntry(1, "uid=4,dc=ldaptive,dc=org", released));
+    assertThat(released.get()).isEqualTo(3);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryIteratorInterrupted()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ZERO);
+    final SearchEntryIterator iterator = handle.entryIterator(2);
+    handle.messageID(1);
+    handle.sent();
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=1,dc=ldaptive,dc=org").build());
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=2,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+    assertThat(iterator.next().getDn()).isEqualTo("uid=1,dc=ldaptive,dc=org");
+    assertThat(iterator.next().getDn()).isEqualTo("uid=2,dc=ldaptive,dc=org");
+
+    final Future<Boolean> consumer = executorService.submit(() -> {
+      Thread.currentThread().interrupt();
+      try {
+        return iterator.hasNext() || !Thread.currentThread().isInterrupted();
+      } finally {
+        Thread.interrupted();
+      }
+    });
+    assertThat(consumer.get(5, TimeUnit.SECONDS)).isFalse();
+    assertThat(iterator.hasNext()).isFalse();
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThat(conn.isReadsSuspended()).isFalse();
+    assertThatExceptionOfType(LdapException.class).isThrownBy(iterator::getResponse)
+      .extracting(LdapException::getResultCode).isEqualTo(ResultCode.LOCAL_ERROR);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryIteratorsSharedConnection()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle1 = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final DefaultSearchOperationHandle handle2 = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryIterator iterator1 = handle1.entryIterator(1);
+    final SearchEntryIterator iterator2 = handle2.entryIterator(1);
+    handle1.messageID(1);
+    handle1.sent();
+    handle2.messageID(2);
+    handle2.sent();
+    handle1.entry(LdapEntry.builder().messageID(1).dn("uid=1,dc=ldaptive,dc=org").build());
+    handle2.entry(LdapEntry.builder().messageID(2).dn("uid=2,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+
+    // the first consumer catching up does not undo the backpressure of the second
+    assertThat(iterator1.next().getDn()).isEqualTo("uid=1,dc=ldaptive,dc=org");
+    assertThat(conn.isReadsSuspended()).isTrue();
+    assertThat(iterator2.next().getDn()).isEqualTo("uid=2,dc=ldaptive,dc=org");
+    assertThat(conn.isReadsSuspended()).isFalse();
+
+    // a handle that completes while suspended releases its suspension
+    handle1.entry(LdapEntry.builder().messageID(1).dn("uid=3,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+    handle1.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+    assertThat(conn.isReadsSuspended()).isFalse();
+    iterator2.close();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void completionStage()
+    throws Exception
+  {
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(),
+      MockConnection.builder(
+        ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build(),
+      Duration.ofSeconds(1));
+    handle.onSearchResult(new SortResultHandler());
+    final CompletableFuture<SearchResponse> future = handle.toCompletionStage().toCompletableFuture();
+    assertThat(handle.toCompletionStage()).isSameAs(future);
+    handle.messageID(1);
+    handle.sent();
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=xyz,ou=sort,dc=ldaptive,dc=org").build());
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=abc,ou=sort,dc=ldaptive,dc=org").build());
+    assertThat(future).isNotDone();
+    handle.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+    assertThat(future).isDone();
+    assertThat(future.get().getEntry().getDn()).isEqualTo("uid=abc,ou=sort,dc=ldaptive,dc=org");
+
+    // stage requested after completion
+    final DefaultSearchOperationHandle failed = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(),
+      MockConnection.builder(
+        ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build(),
+      Duration.ofSeconds(1));
+    failed.messageID(1);
+    failed.sent();
+    failed.exception(new LdapException(ResultCode.SERVER_DOWN, "Test exception"));
+    assertThat(failed.toCompletionStage().toCompletableFuture())
+      .failsWithin(Duration.ZERO)
+      .withThrowableOfType(ExecutionException.class)
+      .havingCause()
+      .isInstanceOf(LdapException.class);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void completionStageTimeout()
+    throws Exception
+  {
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(),
+      MockConnection.builder(
+        ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build(),
+      Duration.ofMillis(200));
+    final CompletableFuture<SearchResponse> future = handle.toCompletionStage().toCompletableFuture();
+    handle.messageID(1);
+    handle.sent();
+    // entries received within the timeout keep the operation alive
+    for (int i = 0; i < 3; i++) {
+      Thread.sleep(100);
+      handle.entry(LdapEntry.builder().messageID(1).dn("uid=" + i + ",dc=ldaptive,dc=org").build());
+    }
+    assertThat(future).isNotDone();
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Should have thrown exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(LdapException.class);
+      assertThat(((LdapException) e.getCause()).getResultCode()).isEqualTo(ResultCode.LDAP_TIMEOUT);
+    }
+    assertThat(handle.getAbandonedTime()).isNotNull();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryPublisher()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryPublisher publisher = handle.entryPublisher();
+    handle.messageID(1);
+    handle.sent();
+
+    final List<String> received = new ArrayList<>();
+    final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    final AtomicBoolean completed = new AtomicBoolean();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s)
+      {
+        subscription.set(s);
+      }
+
+      @Override
+      public void onNext(final LdapEntry item)
+      {
+        received.add(item.getDn());
+      }
+
+      @Override
+      public void onError(final Throwable t)
+      {
+        fail("Unexpected error", t);
+      }
+
+      @Override
+      public void onComplete()
+      {
+        completed.set(true);
+      }
+    });
+
+    // no demand, reads are suspended
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=1,dc=ldaptive,dc=org").build());
+    assertThat(received).isEmpty();
+    assertThat(conn.isReadsSuspended()).isTrue();
+
+    subscription.get().request(2);
+    assertThat(received).containsExactly("uid=1,dc=ldaptive,dc=org");
+    assertThat(conn.isReadsSuspended()).isFalse();
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=2,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isFalse();
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=3,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+    handle.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+    assertThat(conn.isReadsSuspended()).isFalse();
+    assertThat(completed.get()).isFalse();
+
+    subscription.get().request(Long.MAX_VALUE);
+    assertThat(received).containsExactly(
+      "uid=1,dc=ldaptive,dc=org", "uid=2,dc=ldaptive,dc=org", "uid=3,dc=ldaptive,dc=org");
+    assertThat(completed.get()).isTrue();
+    assertThat(publisher.getResponse().toCompletableFuture().get().entrySize()).isEqualTo(0);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryPublisherNoDemand()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofMillis(200));
+    final SearchEntryPublisher publisher = handle.entryPublisher();
+    handle.messageID(1);
+    handle.sent();
+
+    final List<String> received = new ArrayList<>();
+    final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final AtomicBoolean completed = new AtomicBoolean();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s)
+      {
+        subscription.set(s);
+      }
+
+      @Override
+      public void onNext(final LdapEntry item)
+      {
+        received.add(item.getDn());
+      }
+
+      @Override
+      public void onError(final Throwable t)
+      {
+        error.set(t);
+      }
+
+      @Override
+      public void onComplete()
+      {
+        completed.set(true);
+      }
+    });
+
+    // no demand for longer than the response timeout, reads are suspended so the operation does not time out
+    handle.entry(LdapEntry.builder().messageID(1).dn("uid=1,dc=ldaptive,dc=org").build());
+    assertThat(conn.isReadsSuspended()).isTrue();
+    Thread.sleep(1000);
+    assertThat(handle.getAbandonedTime()).isNull();
+    assertThat(publisher.getResponse().toCompletableFuture()).isNotDone();
+    assertThat(error.get()).isNull();
+
+    subscription.get().request(Long.MAX_VALUE);
+    assertThat(conn.isReadsSuspended()).isFalse();
+    handle.result(SearchResponse.builder().messageID(1).resultCode(ResultCode.SUCCESS).build());
+    assertThat(received).containsExactly("uid=1,dc=ldaptive,dc=org");
+    assertThat(completed.get()).isTrue();
+    assertThat(error.get()).isNull();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryPublisherCancel()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryPublisher publisher = handle.entryPublisher();
+    handle.messageID(1);
+    handle.sent();
+
+    final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s)
+      {
+        subscription.set(s);
+      }
+
+      @Override
+      public void onNext(final LdapEntry item) {}
+
+      @Override
+      public void onError(final Throwable t)
+      {
+        error.set(t);
+      }
+
+      @Override
+      public void onComplete() {}
+    });
+
+    // buffered entries are released when the subscription is cancelled
+    final AtomicInteger released = new AtomicInteger();
+    handle.entry(lazyEntry(1, "uid=1,dc=ldaptive,dc=org", released));
+    handle.entry(lazyEntry(1, "uid=2,dc=ldaptive,dc=org", released));
+    assertThat(released.get()).isZero();
+    subscription.get().cancel();
+    assertThat(released.get()).isEqualTo(2);
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThat(conn.isReadsSuspended()).isFalse();
+    handle.entry(lazyEntry(1, "uid=3,dc=ldaptive,dc=org", released));
+    assertThat(released.get()).isEqualTo(3);
+
+    // no signal follows cancellation, including the error for an invalid request
+    subscription.get().request(0);
+    assertThat(error.get()).isNull();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void entryPublisherInvalidRequest()
+    throws Exception
+  {
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofSeconds(5));
+    final SearchEntryPublisher publisher = handle.entryPublisher();
+    handle.messageID(1);
+    handle.sent();
+
+    final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    final List<Throwable> errors = new ArrayList<>();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s)
+      {
+        subscription.set(s);
+      }
+
+      @Override
+      public void onNext(final LdapEntry item) {}
+
+      @Override
+      public void onError(final Throwable t)
+      {
+        errors.add(t);
+      }
+
+      @Override
+      public void onComplete() {}
+    });
+
+    final AtomicInteger released = new AtomicInteger();
+    handle.entry(lazyEntry(1, "uid=1,dc=ldaptive,dc=org", released));
+    subscription.get().request(-1);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThat(released.get()).isEqualTo(1);
+  }
+
+
+  /**
+   * Returns an entry that is decoded lazily from a buffer whose releases are counted.
+   *
+   * @param  messageID  of the entry
+   * @param  dn  of the entry, also the value of its uid attribute
+   * @param  released  incremented when the attribute buffer of the entry is released
+   *
+   * @return  lazily decoded ldap entry
+   */
+  private static LdapEntry lazyEntry(final int messageID, final String dn, final AtomicInteger released)
+  {
+    final byte[] encoded = ResponseEncoder.encode(
+      LdapEntry.builder().messageID(messageID).dn(dn).attributes(new LdapAttribute("uid", dn)).build());
+    return LdapEntry.decodeLazily(new DefaultDERBuffer(encoded) {
+      @Override
+      public DERBuffer retainedSlice()
+      {
+        return new DefaultDERBuffer(getRemainingBytes()) {
+          @Override
+          public void release()
+          {
+            released.incrementAndGet();
+          }
+        };
+      }
+    });
+  }
+
+
   /** Test class. */
   protected static class TestBinaryAttributeHandler extends AbstractBinaryAttributeHandler<LdapEntry>
     implements LdapEntryHandler
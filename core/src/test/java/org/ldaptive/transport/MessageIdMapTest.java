@@ -0,0 +1,118 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link MessageIdMap}.
+ *
+ * @author  Middleware Services
+ */
+public class MessageIdMapTest
+{
+
+
+  @Test(groups = "transport")
+  public void putGetRemove()
+  {
+    final MessageIdMap<String> map = new MessageIdMap<>();
+    assertThat(map.size()).isEqualTo(0);
+    assertThat(map.get(1)).isNull();
+    assertThat(map.putIfAbsent(1, "one")).isNull();
+    assertThat(map.putIfAbsent(1, "uno")).isEqualTo("one");
+    assertThat(map.putIfAbsent(-1, "minus one")).isNull();
+    assertThat(map.putIfAbsent(0, "zero")).isNull();
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.get(1)).isEqualTo("one");
+    assertThat(map.get(-1)).isEqualTo("minus one");
+    assertThat(map.get(0)).isEqualTo("zero");
+    assertThat(map.values()).containsExactlyInAnyOrder("one", "minus one", "zero");
+
+    assertThat(map.remove(1, "uno")).isFalse();
+    assertThat(map.remove(1, "one")).isTrue();
+    assertThat(map.remove(1)).isNull();
+    assertThat(map.remove(0)).isEqualTo("zero");
+    assertThat(map.size()).isEqualTo(1);
+
+    map.clear();
+    assertThat(map.size()).isEqualTo(0);
+    assertThat(map.get(-1)).isNull();
+
+    try {
+      map.putIfAbsent(2, null);
+      fail("Should have thrown NullPointerException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(NullPointerException.class);
+    }
+  }
+
+
+  /** Compares the map to a hash map over random operations that force segments to grow and entries to shift. */
+  @Test(groups = "transport")
+  public void randomOperations()
+  {
+    final MessageIdMap<Integer> map = new MessageIdMap<>();
+    final Map<Integer, Integer> expected = new HashMap<>();
+    final Random random = new Random(4242);
+    for (int i = 0; i < 200_000; i++) {
+      final int key = random.nextInt(4096);
+      if (random.nextBoolean()) {
+        assertThat(map.putIfAbsent(key, i)).isEqualTo(expected.putIfAbsent(key, i));
+      } else {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      }
+      if (i % 1_000 == 0) {
+        for (int k = 0; k < 4096; k++) {
+          assertThat(map.get(k)).isEqualTo(expected.get(k));
+        }
+      }
+    }
+    assertThat(map.size()).isEqualTo(expected.size());
+    assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void concurrentOperations()
+    throws Exception
+  {
+    final MessageIdMap<Integer> map = new MessageIdMap<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        final int offset = i * 100_000;
+        futures.add(executor.submit(() -> {
+          for (int j = offset; j < offset + 100_000; j++) {
+            assertThat(map.putIfAbsent(j, j)).isNull();
+            assertThat(map.get(j)).isEqualTo(j);
+            if (j % 2 == 0) {
+              assertThat(map.remove(j)).isEqualTo(j);
+            }
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(map.size()).isEqualTo(200_000);
+    for (int i = 0; i < 400_000; i++) {
+      assertThat(map.get(i)).isEqualTo(i % 2 == 0 ? null : i);
+    }
+  }
+}
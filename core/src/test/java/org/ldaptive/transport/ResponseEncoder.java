@@ -8,6 +8,7 @@ import org.ldaptive.AddResponse;
 import org.ldaptive.BindResponse;
 import org.ldaptive.CompareResponse;
 import org.ldaptive.DeleteResponse;
+import org.ldaptive.LdapEntry;
 import org.ldaptive.ModifyDnResponse;
 import org.ldaptive.ModifyResponse;
 import org.ldaptive.Result;
@@ -66,6 +67,34 @@ public final class ResponseEncoder
   }
 
 
+  /**
+   * Encodes a search result entry message. Controls are not encoded.
+   *
+   * @param  entry  to encode
+   *
+   * @return  encoded search result entry
+   */
+  public static byte[] encode(final LdapEntry entry)
+  {
+    final ConstructedDEREncoder se = new ConstructedDEREncoder(
+      UniversalDERTag.SEQ,
+      new IntegerType(entry.getMessageID()),
+      new ConstructedDEREncoder(
+        new ApplicationDERTag(LdapEntry.PROTOCOL_OP, true),
+        new OctetStringType(entry.getDn()),
+        new ConstructedDEREncoder(
+          UniversalDERTag.SEQ,
+          entry.getAttributes().stream().map(a -> new ConstructedDEREncoder(
+            UniversalDERTag.SEQ,
+            new OctetStringType(a.getName()),
+            new ConstructedDEREncoder(
+              UniversalDERTag.SET,
+              a.getBinaryValues().stream().map(OctetStringType::new).toArray(DEREncoder[]::new))))
+            .toArray(DEREncoder[]::new))));
+    return se.encode();
+  }
+
+
   /**
    * Returns the response encoders for a bind response message.
    *
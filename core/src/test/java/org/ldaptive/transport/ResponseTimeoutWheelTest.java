@@ -0,0 +1,163 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
+import org.ldaptive.control.PersistentSearchChangeType;
+import org.ldaptive.control.PersistentSearchRequestControl;
+import org.ldaptive.control.SyncRequestControl;
+import org.ldaptive.transport.mock.MockConnection;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link ResponseTimeoutWheel}.
+ *
+ * @author  Middleware Services
+ */
+public class ResponseTimeoutWheelTest
+{
+
+  /** Executor that advances the wheel. */
+  private ScheduledExecutorService executorService;
+
+
+  /** Initialize the executor. */
+  @BeforeClass(groups = "transport")
+  public void setUp()
+  {
+    executorService = Executors.newSingleThreadScheduledExecutor();
+  }
+
+
+  /** Shutdown the executor. */
+  @AfterClass(groups = "transport")
+  public void tearDown()
+  {
+    executorService.shutdownNow();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void expire()
+    throws Exception
+  {
+    final List<Runnable> dispatched = new ArrayList<>();
+    final ResponseTimeoutWheel wheel = new ResponseTimeoutWheel(
+      executorService, Duration.ofMillis(10), 16, dispatched::add);
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofMillis(100));
+    handle.messageID(1);
+    handle.sent();
+    final long sent = System.nanoTime();
+    executorService.submit(() -> wheel.schedule(handle)).get();
+
+    // deadline has not passed
+    executorService.submit(() -> wheel.expire(sent + Duration.ofMillis(50).toNanos())).get();
+    assertThat(wheel.size()).isEqualTo(1);
+    assertThat(dispatched).isEmpty();
+
+    // no responses can arrive while reads are suspended, the deadline restarts
+    handle.suspendReads();
+    executorService.submit(() -> wheel.expire(sent + Duration.ofSeconds(1).toNanos())).get();
+    assertThat(wheel.size()).isEqualTo(1);
+    assertThat(dispatched).isEmpty();
+    handle.resumeReads();
+    executorService.submit(() -> wheel.expire(sent + Duration.ofMillis(1050).toNanos())).get();
+    assertThat(wheel.size()).isEqualTo(1);
+    assertThat(dispatched).isEmpty();
+
+    // expiration is dispatched rather than run on the thread that advances the wheel
+    executorService.submit(() -> wheel.expire(sent + Duration.ofSeconds(2).toNanos())).get();
+    assertThat(wheel.size()).isZero();
+    assertThat(dispatched).hasSize(1);
+    assertThat(handle.getAbandonedTime()).isNull();
+    dispatched.get(0).run();
+    assertThat(handle.getAbandonedTime()).isNotNull();
+    assertThatExceptionOfType(LdapException.class).isThrownBy(handle::await)
+      .extracting(LdapException::getResultCode).isEqualTo(ResultCode.LDAP_TIMEOUT);
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void completedHandle()
+    throws Exception
+  {
+    final List<Runnable> dispatched = new ArrayList<>();
+    final ResponseTimeoutWheel wheel = new ResponseTimeoutWheel(
+      executorService, Duration.ofMillis(10), 16, dispatched::add);
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+      SearchRequest.builder().build(), conn, Duration.ofMillis(100));
+    handle.messageID(1);
+    handle.sent();
+    final long sent = System.nanoTime();
+    executorService.submit(() -> wheel.schedule(handle)).get();
+    assertThat(wheel.size()).isEqualTo(1);
+    handle.abandon();
+    wheel.cancel(handle);
+    executorService.submit(() -> {}).get();
+    assertThat(wheel.size()).isZero();
+    executorService.submit(() -> wheel.expire(sent + Duration.ofSeconds(1).toNanos())).get();
+    assertThat(wheel.size()).isZero();
+    assertThat(dispatched).isEmpty();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "transport")
+  public void persistentSearch()
+    throws Exception
+  {
+    final List<Runnable> dispatched = new ArrayList<>();
+    final ResponseTimeoutWheel wheel = new ResponseTimeoutWheel(
+      executorService, Duration.ofMillis(10), 16, dispatched::add);
+    final MockConnection conn = MockConnection.builder(
+      ConnectionConfig.builder().url("ldap://ds1.ldaptive.org").build()).abandonConsumer(req -> {}).build();
+    final SearchRequest[] requests = new SearchRequest[] {
+      SearchRequest.builder()
+        .controls(new PersistentSearchRequestControl(EnumSet.allOf(PersistentSearchChangeType.class))).build(),
+      SearchRequest.builder().controls(new SyncRequestControl(SyncRequestControl.Mode.REFRESH_AND_PERSIST)).build()
+    };
+    for (SearchRequest request : requests) {
+      final DefaultSearchOperationHandle handle = new DefaultSearchOperationHandle(
+        request, conn, Duration.ofMillis(50));
+      handle.messageID(1);
+      final CompletionStage<SearchResponse> stage = handle.toCompletionStage();
+      handle.sent();
+      final long sent = System.nanoTime();
+      executorService.submit(() -> wheel.schedule(handle)).get();
+      assertThat(wheel.size()).isZero();
+      executorService.submit(() -> wheel.expire(sent + Duration.ofMinutes(5).toNanos())).get();
+      assertThat(dispatched).isEmpty();
+
+      // the search runs well past its response timeout without being abandoned
+      Thread.sleep(Duration.ofMillis(250).toMillis());
+      assertThat(handle.getAbandonedTime()).isNull();
+      assertThat(stage.toCompletableFuture()).isNotDone();
+    }
+  }
+}
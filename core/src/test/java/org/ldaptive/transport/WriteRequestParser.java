@@ -0,0 +1,63 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport;
+
+import java.util.Optional;
+import org.ldaptive.AddRequest;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.Request;
+import org.ldaptive.asn1.DERBuffer;
+import org.ldaptive.asn1.DERParser;
+import org.ldaptive.asn1.DERPath;
+
+/**
+ * Parses a buffer looking for an LDAP add or delete request message. Other requests are ignored.
+ *
+ * @author  Middleware Services
+ */
+public class WriteRequestParser
+{
+
+  /** Add request DER path. */
+  private static final DERPath ADD_PATH = new DERPath("/SEQ/APP(8)");
+
+  /** Delete request DER path. */
+  private static final DERPath DELETE_PATH = new DERPath("/SEQ/APP(10)");
+
+  /** Parser for decoding LDAP messages. */
+  private final DERParser parser = new DERParser();
+
+  /** Message produced from parsing a DER buffer. */
+  private Request message;
+
+
+  /**
+   * Creates a new write request parser.
+   */
+  public WriteRequestParser()
+  {
+    parser.registerHandler(ADD_PATH, (p, e) -> {
+      e.clear();
+      // note that no decoding is occurring here
+      message = AddRequest.builder().build();
+    });
+    parser.registerHandler(DELETE_PATH, (p, e) -> {
+      e.clear();
+      // note that no decoding is occurring here
+      message = DeleteRequest.builder().build();
+    });
+  }
+
+
+  /**
+   * Examines the supplied buffer and parses an LDAP add or delete request message if one is found.
+   *
+   * @param  buffer  to parse
+   *
+   * @return  optional LDAP message
+   */
+  public Optional<Request> parse(final DERBuffer buffer)
+  {
+    parser.parse(buffer);
+    return Optional.ofNullable(message);
+  }
+}
@@ -51,6 +51,12 @@ public final class MockConnection<Q extends Request, S extends Result> extends T
   /** Message ID. */
   private AtomicInteger messageID = new AtomicInteger(1);
 
+  /** Number of handles that have been written but not completed. */
+  private final AtomicInteger pendingResponses = new AtomicInteger();
+
+  /** Number of outstanding read suspensions. */
+  private final AtomicInteger readSuspensions = new AtomicInteger();
+
   /** Predicate to control the results of {@link #open(LdapURL)}. */
   private Predicate<LdapURL> openPredicate;
 
@@ -221,6 +227,7 @@ public final class MockConnection<Q extends Request, S extends Result> extends T
   protected void write(final DefaultOperationHandle handle)
   {
     if (writeConsumer != null) {
+      pendingResponses.incrementAndGet();
       writeConsumer.accept(handle);
     } else {
       throw new UnsupportedOperationException();
@@ -229,7 +236,38 @@ public final class MockConnection<Q extends Request, S extends Result> extends T
 
 
   @Override
-  protected void complete(final DefaultOperationHandle handle) {}
+  protected void complete(final DefaultOperationHandle handle)
+  {
+    pendingResponses.decrementAndGet();
+  }
+
+
+  @Override
+  public int getPendingResponseCount()
+  {
+    return pendingResponses.get();
+  }
+
+
+  @Override
+  protected void suspendReads()
+  {
+    readSuspensions.incrementAndGet();
+  }
+
+
+  @Override
+  protected void resumeReads()
+  {
+    readSuspensions.updateAndGet(i -> i > 0 ? i - 1 : 0);
+  }
+
+
+  @Override
+  public boolean isReadsSuspended()
+  {
+    return readSuspensions.get() > 0;
+  }
 
 
   @Override
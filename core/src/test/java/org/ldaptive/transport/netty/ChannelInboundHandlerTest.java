@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.transport.netty;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -197,6 +198,49 @@ public class ChannelInboundHandlerTest
   }
 
 
+  @Test
+  public void lazyLdapEntryResponse()
+  {
+    final TestMessageHandler messageHandler = new TestMessageHandler();
+    final EmbeddedChannel channel = new EmbeddedChannel(
+      new MessageFrameDecoder(), new NettyConnection.MessageDecoder(true), messageHandler);
+    final ByteBuf frame = Unpooled.wrappedBuffer(new byte[] {
+      0x30, 0x49, 0x02, 0x01, 0x02, 0x64, 0x44, 0x04, 0x11, 0x64, 0x63, 0x3d, 0x65, 0x78, 0x61, 0x6d, 0x70, 0x6c, 0x65,
+      0x2c, 0x64, 0x63, 0x3d, 0x63, 0x6f, 0x6d, 0x30, 0x2f, 0x30, 0x1c, 0x04, 0x0b, 0x6f, 0x62, 0x6a, 0x65, 0x63, 0x74,
+      0x43, 0x6c, 0x61, 0x73, 0x73, 0x31, 0x0d, 0x04, 0x03, 0x74, 0x6f, 0x70, 0x04, 0x06, 0x64, 0x6f, 0x6d, 0x61, 0x69,
+      0x6e, 0x30, 0x0f, 0x04, 0x02, 0x64, 0x63, 0x31, 0x09, 0x04, 0x07, 0x65, 0x78, 0x61, 0x6d, 0x70, 0x6c, 0x65,
+    });
+    channel.writeInbound(frame);
+    final LdapEntry entry = (LdapEntry) messageHandler.getMessage();
+    // entry retains the frame until its attributes are decoded
+    assertThat(frame.refCnt()).isEqualTo(1);
+    assertThat(entry.getDn()).isEqualTo("dc=example,dc=com");
+    assertThat(entry.size()).isEqualTo(2);
+    assertThat(entry.getAttribute("dc")).isEqualTo(new LdapAttribute("dc", "example"));
+    assertThat(frame.refCnt()).isEqualTo(1);
+    assertThat(entry).isEqualTo(
+      LdapEntry.builder()
+        .messageID(2)
+        .dn("dc=example,dc=com")
+        .attributes(new LdapAttribute("objectClass", "top", "domain"), new LdapAttribute("dc", "example"))
+        .build());
+    assertThat(frame.refCnt()).isEqualTo(0);
+
+    channel.writeInbound(Unpooled.wrappedBuffer(new byte[] {
+      0x30, 0x49, 0x02, 0x01, 0x03, 0x64, 0x44, 0x04, 0x11, 0x64, 0x63, 0x3d, 0x65, 0x78, 0x61, 0x6d, 0x70, 0x6c, 0x65,
+      0x2c, 0x64, 0x63, 0x3d, 0x63, 0x6f, 0x6d, 0x30, 0x2f, 0x30, 0x1c, 0x04, 0x0b, 0x6f, 0x62, 0x6a, 0x65, 0x63, 0x74,
+      0x43, 0x6c, 0x61, 0x73, 0x73, 0x31, 0x0d, 0x04, 0x03, 0x74, 0x6f, 0x70, 0x04, 0x06, 0x64, 0x6f, 0x6d, 0x61, 0x69,
+      0x6e, 0x30, 0x0f, 0x04, 0x02, 0x64, 0x63, 0x31, 0x09, 0x04, 0x07, 0x65, 0x78, 0x61, 0x6d, 0x70, 0x6c, 0x65,
+    }));
+    final LdapEntry released = (LdapEntry) messageHandler.getMessage();
+    assertThat(released.getAttributeStringValue("objectClass")).isEqualTo("top");
+    released.release();
+    assertThat(released.size()).isEqualTo(1);
+    assertThat(released.getAttribute("dc")).isNull();
+    assertThat(released.getAttributeStringValues("objectClass")).containsExactly("top", "domain");
+  }
+
+
   /** Test message handler. */
   private static final class TestMessageHandler extends SimpleChannelInboundHandler<Message>
   {
@@ -3,24 +3,48 @@ package org.ldaptive.transport.netty;
 
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import org.ldaptive.AddRequest;
+import org.ldaptive.BindRequest;
+import org.ldaptive.BindResponse;
 import org.ldaptive.ClosedRetryMetadata;
 import org.ldaptive.Connection;
 import org.ldaptive.ConnectionConfig;
 import org.ldaptive.ConnectionValidator;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapException;
 import org.ldaptive.LdapURL;
+import org.ldaptive.OperationHandle;
+import org.ldaptive.Request;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResponse;
 import org.ldaptive.SearchScope;
+import org.ldaptive.SimpleBindRequest;
 import org.ldaptive.UnbindRequest;
+import org.ldaptive.extended.StartTLSRequest;
+import org.ldaptive.extended.WhoAmIRequest;
+import org.ldaptive.metrics.HistogramMetricsListener;
+import org.ldaptive.metrics.LatencyHistogram;
+import org.ldaptive.transport.DefaultOperationHandle;
+import org.ldaptive.transport.EncodedRequest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
@@ -453,4 +477,300 @@ public class NettyConnectionTest
       server.stop();
     }
   }
+
+
+  @Test(groups = "netty")
+  public void requestEncoder()
+  {
+    final AddRequest request = AddRequest.builder()
+      .dn("uid=1,ou=test,dc=ldaptive,dc=org")
+      .attributes(
+        LdapAttribute.builder().name("objectClass").values("top", "person").build(),
+        LdapAttribute.builder().name("cn").values("Test User").build(),
+        LdapAttribute.builder().name("description").values("x".repeat(256)).build())
+      .build();
+    final EncodedRequest encodedRequest = new EncodedRequest(5, request);
+    assertThat(encodedRequest.getLength()).isEqualTo(request.encode(5).length);
+
+    final EmbeddedChannel channel = new EmbeddedChannel(new NettyConnection.RequestEncoder());
+    assertThat(channel.writeOutbound(encodedRequest)).isTrue();
+    final ByteBuf buf = channel.readOutbound();
+    try {
+      final byte[] bytes = new byte[buf.readableBytes()];
+      buf.readBytes(bytes);
+      assertThat(bytes).isEqualTo(request.encode(5));
+      assertThat(bytes).isEqualTo(encodedRequest.getEncoded());
+    } finally {
+      buf.release();
+    }
+    assertThat(channel.finish()).isFalse();
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void operations()
+    throws Exception
+  {
+    final CountDownLatch received = new CountDownLatch(5);
+    final SimpleNettyServer server = new SimpleNettyServer(
+      (ctx, msg) -> {
+        if (msg instanceof SearchRequest) {
+          received.countDown();
+        }
+      });
+    try {
+      final InetSocketAddress address = server.start();
+      final NettyConnection conn = new NettyConnection(
+        ConnectionConfig.builder()
+          .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+          .build(),
+        NioSocketChannel.class,
+        new NioEventLoopGroup(
+          1,
+          new ThreadPerTaskExecutor(new DefaultThreadFactory(NettyConnectionTest.class, true, Thread.NORM_PRIORITY))),
+        null,
+        true);
+      try {
+        conn.open();
+        final int id = conn.getMessageID();
+        try {
+          conn.operations(List.of(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org"), new UnbindRequest()));
+          fail("Should have thrown IllegalArgumentException");
+        } catch (Exception e) {
+          assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(conn.getMessageID()).isEqualTo(id);
+        final Request[] stateChanging = {
+          new SimpleBindRequest("uid=1,dc=ldaptive,dc=org", "password"),
+          new StartTLSRequest(),
+          new WhoAmIRequest(),
+        };
+        for (Request request : stateChanging) {
+          try {
+            conn.operations(List.of(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org"), request));
+            fail("Should have thrown IllegalArgumentException for " + request);
+          } catch (Exception e) {
+            assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+          }
+        }
+        assertThat(conn.getMessageID()).isEqualTo(id);
+
+        final List<SearchRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+          requests.add(SearchRequest.objectScopeSearchRequest("uid=" + i + ",dc=ldaptive,dc=org"));
+        }
+        final List<OperationHandle<?, ?>> handles = conn.operations(requests);
+        assertThat(handles).hasSize(5);
+        if (!received.await(Duration.ofMinutes(1).toMillis(), TimeUnit.MILLISECONDS)) {
+          fail("Server did not receive requests");
+        }
+        for (int i = 0; i < handles.size(); i++) {
+          assertThat(((DefaultOperationHandle<?, ?>) handles.get(i)).getMessageID()).isEqualTo(id + i);
+        }
+      } finally {
+        conn.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void writeBatch()
+    throws Exception
+  {
+    final CountDownLatch received = new CountDownLatch(7);
+    final SimpleNettyServer server = new SimpleNettyServer(
+      (ctx, msg) -> {
+        if (msg instanceof SearchRequest) {
+          received.countDown();
+        }
+      });
+    try {
+      final InetSocketAddress address = server.start();
+      final NettyConnection conn = new NettyConnection(
+        ConnectionConfig.builder()
+          .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+          .writeBatchSize(3)
+          .writeBatchDelay(Duration.ofMillis(50))
+          .build(),
+        NioSocketChannel.class,
+        new NioEventLoopGroup(
+          1,
+          new ThreadPerTaskExecutor(new DefaultThreadFactory(NettyConnectionTest.class, true, Thread.NORM_PRIORITY))),
+        null,
+        true);
+      try {
+        conn.open();
+        for (int i = 0; i < 7; i++) {
+          conn.operation(SearchRequest.objectScopeSearchRequest("uid=" + i + ",dc=ldaptive,dc=org")).send();
+        }
+        if (!received.await(Duration.ofMinutes(1).toMillis(), TimeUnit.MILLISECONDS)) {
+          fail("Server did not receive requests");
+        }
+      } finally {
+        conn.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void metrics()
+    throws Exception
+  {
+    final AtomicInteger msgId = new AtomicInteger();
+    final SimpleNettyServer server = new SimpleNettyServer(
+      (ctx, msg) -> {
+        if (msg instanceof SearchRequest) {
+          ctx.channel().writeAndFlush(SearchResponse.builder()
+            .messageID(msgId.incrementAndGet())
+            .resultCode(ResultCode.SUCCESS)
+            .build());
+        }
+      });
+    try {
+      final InetSocketAddress address = server.start();
+      final HistogramMetricsListener listener = new HistogramMetricsListener();
+      final NettyConnection conn = new NettyConnection(
+        ConnectionConfig.builder()
+          .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+          .metricsListener(listener)
+          .build(),
+        NioSocketChannel.class,
+        new NioEventLoopGroup(
+          1,
+          new ThreadPerTaskExecutor(new DefaultThreadFactory(NettyConnectionTest.class, true, Thread.NORM_PRIORITY))),
+        null,
+        true);
+      try {
+        conn.open();
+        for (int i = 0; i < 3; i++) {
+          // the completion stage completes after metrics are recorded, execute may return before
+          assertThat(conn.operation(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org")).send()
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+            .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        }
+        final LatencyHistogram latency = listener.getOperationLatency(SearchRequest.class, conn.getLdapURL());
+        assertThat(latency.getCount()).isEqualTo(3);
+        assertThat(latency.getValueAtPercentile(99)).isPositive();
+        assertThat(listener.getCounter("bytes.written", conn.getLdapURL())).isGreaterThan(0);
+        assertThat(listener.getCounter("bytes.read", conn.getLdapURL())).isGreaterThan(0);
+      } finally {
+        conn.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void responseTimeoutWithoutAwait()
+    throws Exception
+  {
+    final SimpleNettyServer server = new SimpleNettyServer((ctx, msg) -> {});
+    try {
+      final InetSocketAddress address = server.start();
+      final NettyConnection conn = new NettyConnection(
+        ConnectionConfig.builder()
+          .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+          .responseTimeout(Duration.ofMillis(300))
+          .build(),
+        NioSocketChannel.class,
+        new NioEventLoopGroup(
+          1,
+          new ThreadPerTaskExecutor(new DefaultThreadFactory(NettyConnectionTest.class, true, Thread.NORM_PRIORITY))),
+        null,
+        true);
+      try {
+        conn.open();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<ResultCode> exceptions = new ArrayList<>();
+        final long start = System.nanoTime();
+        conn.operation(SearchRequest.objectScopeSearchRequest("dc=ldaptive,dc=org"))
+          .onException(e -> {
+            exceptions.add(e.getResultCode());
+            latch.countDown();
+          })
+          .send();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(300));
+        assertThat(exceptions).containsExactly(ResultCode.LDAP_TIMEOUT);
+      } finally {
+        conn.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+
+  /**
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = "netty")
+  public void bindCompletionStage()
+    throws Exception
+  {
+    // the test server does not respond to bind requests
+    final SimpleNettyServer server = new SimpleNettyServer((ctx, msg) -> {});
+    try {
+      final InetSocketAddress address = server.start();
+      final NettyConnection conn = new NettyConnection(
+        ConnectionConfig.builder()
+          .url(new LdapURL(address.getHostName(), address.getPort()).getHostnameWithSchemeAndPort())
+          .responseTimeout(Duration.ofMillis(300))
+          .build(),
+        NioSocketChannel.class,
+        new NioEventLoopGroup(
+          1,
+          new ThreadPerTaskExecutor(new DefaultThreadFactory(NettyConnectionTest.class, true, Thread.NORM_PRIORITY))),
+        null,
+        true);
+      try {
+        conn.open();
+        final OperationHandle<BindRequest, BindResponse> handle =
+          conn.operation(new SimpleBindRequest("uid=1,dc=ldaptive,dc=org", "password"));
+        final CompletableFuture<BindResponse> future = handle.toCompletionStage().toCompletableFuture();
+        assertThat(handle.toCompletionStage()).isSameAs(future);
+
+        // other operations are rejected until the bind completes
+        assertThatExceptionOfType(LdapException.class)
+          .isThrownBy(() -> conn.operation(SearchRequest.objectScopeSearchRequest("")).execute())
+          .extracting(LdapException::getResultCode)
+          .isEqualTo(ResultCode.LOCAL_ERROR);
+        assertThat(future)
+          .failsWithin(Duration.ofSeconds(5))
+          .withThrowableOfType(ExecutionException.class)
+          .havingCause()
+          .isInstanceOf(LdapException.class)
+          .extracting(e -> ((LdapException) e).getResultCode())
+          .isEqualTo(ResultCode.LDAP_TIMEOUT);
+        assertThatExceptionOfType(LdapException.class)
+          .isThrownBy(() -> conn.operation(SearchRequest.objectScopeSearchRequest("")).execute())
+          .extracting(LdapException::getResultCode)
+          .isEqualTo(ResultCode.LDAP_TIMEOUT);
+      } finally {
+        conn.close();
+      }
+    } finally {
+      server.stop();
+    }
+  }
 }
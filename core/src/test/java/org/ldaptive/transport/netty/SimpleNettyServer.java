@@ -7,6 +7,7 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
@@ -24,6 +25,7 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.MessageToByteEncoder;
 import org.ldaptive.Request;
 import org.ldaptive.Result;
+import org.ldaptive.asn1.DERBuffer;
 import org.ldaptive.transport.RequestParser;
 import org.ldaptive.transport.ResponseEncoder;
 
@@ -53,6 +55,9 @@ public class SimpleNettyServer
   /** Close notifications. */
   private Consumer<ChannelHandlerContext> onClose;
 
+  /** Parses requests from each frame. */
+  private Function<DERBuffer, Optional<Request>> requestParser = buffer -> new RequestParser().parse(buffer);
+
   /** Channel future. */
   private ChannelFuture channelFuture;
 
@@ -93,6 +98,17 @@ public class SimpleNettyServer
   }
 
 
+  /**
+   * Sets the function used to parse requests from each frame. Defaults to {@link RequestParser}.
+   *
+   * @param  parser  to parse requests with
+   */
+  public void setRequestParser(final Function<DERBuffer, Optional<Request>> parser)
+  {
+    requestParser = parser;
+  }
+
+
   /**
    * Start the server.
    *
@@ -121,8 +137,7 @@ public class SimpleNettyServer
             @Override
             protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out)
             {
-              final RequestParser parser = new RequestParser();
-              final Optional<Request> message =  parser.parse(new NettyDERBuffer(in));
+              final Optional<Request> message = requestParser.apply(new NettyDERBuffer(in));
               message.ifPresent(out::add);
             }
           });
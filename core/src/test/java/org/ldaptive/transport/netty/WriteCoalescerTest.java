@@ -0,0 +1,160 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.transport.netty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit test for {@link WriteCoalescer}.
+ *
+ * @author  Middleware Services
+ */
+public class WriteCoalescerTest
+{
+
+
+  @Test
+  public void batchSize()
+  {
+    final AtomicInteger flushes = new AtomicInteger();
+    final AtomicInteger written = new AtomicInteger();
+    final EmbeddedChannel channel = new EmbeddedChannel(new FlushCounter(flushes));
+    final WriteCoalescer coalescer = new WriteCoalescer(channel, 3, Duration.ofMinutes(1));
+    final ChannelFutureListener listener = f -> {
+      if (f.isSuccess()) {
+        written.incrementAndGet();
+      }
+    };
+
+    coalescer.write("one", listener);
+    coalescer.write("two", listener);
+    channel.runPendingTasks();
+    assertThat(channel.outboundMessages()).isEmpty();
+    assertThat(coalescer.size()).isEqualTo(2);
+
+    coalescer.write("three", listener);
+    channel.runPendingTasks();
+    assertThat(flushes.get()).isEqualTo(1);
+    assertThat(written.get()).isEqualTo(3);
+    assertThat(coalescer.size()).isEqualTo(0);
+    assertThat(channel.outboundMessages()).containsExactly("one", "two", "three");
+    assertThat(channel.finishAndReleaseAll()).isTrue();
+  }
+
+
+  @Test
+  public void batchDelay()
+  {
+    final AtomicInteger flushes = new AtomicInteger();
+    final EmbeddedChannel channel = new EmbeddedChannel(new FlushCounter(flushes));
+    final WriteCoalescer coalescer = new WriteCoalescer(channel, 10, Duration.ofMillis(100));
+
+    coalescer.write("one", f -> {});
+    coalescer.write("two", f -> {});
+    channel.runPendingTasks();
+    assertThat(channel.outboundMessages()).isEmpty();
+
+    channel.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    channel.runPendingTasks();
+    assertThat(flushes.get()).isEqualTo(1);
+    assertThat(channel.outboundMessages()).containsExactly("one", "two");
+
+    coalescer.write("three", f -> {});
+    channel.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    channel.runPendingTasks();
+    assertThat(flushes.get()).isEqualTo(2);
+    assertThat(channel.outboundMessages()).containsExactly("one", "two", "three");
+    assertThat(channel.finishAndReleaseAll()).isTrue();
+  }
+
+
+  @Test
+  public void zeroDelay()
+  {
+    final AtomicInteger flushes = new AtomicInteger();
+    final EmbeddedChannel channel = new EmbeddedChannel(new FlushCounter(flushes));
+    final WriteCoalescer coalescer = new WriteCoalescer(channel, 10, Duration.ZERO);
+
+    coalescer.write("one", f -> {});
+    coalescer.write("two", f -> {});
+    coalescer.write("three", f -> {});
+    assertThat(channel.outboundMessages()).isEmpty();
+    channel.runPendingTasks();
+    assertThat(flushes.get()).isEqualTo(1);
+    assertThat(channel.outboundMessages()).containsExactly("one", "two", "three");
+    assertThat(channel.finishAndReleaseAll()).isTrue();
+  }
+
+
+  @Test
+  public void writeAll()
+  {
+    final AtomicInteger flushes = new AtomicInteger();
+    final AtomicInteger written = new AtomicInteger();
+    final EmbeddedChannel channel = new EmbeddedChannel(new FlushCounter(flushes));
+    final WriteCoalescer coalescer = new WriteCoalescer(channel, 1, Duration.ZERO);
+    final ChannelFutureListener listener = f -> written.incrementAndGet();
+
+    coalescer.writeAll(List.of("one", "two", "three", "four"), List.of(listener, listener, listener, listener));
+    channel.runPendingTasks();
+    assertThat(flushes.get()).isEqualTo(1);
+    assertThat(written.get()).isEqualTo(4);
+    assertThat(channel.outboundMessages()).containsExactly("one", "two", "three", "four");
+
+    try {
+      coalescer.writeAll(List.of("five"), List.of());
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+    assertThat(channel.finishAndReleaseAll()).isTrue();
+  }
+
+
+  @Test
+  public void invalidBatchSize()
+  {
+    try {
+      new WriteCoalescer(new EmbeddedChannel(), 0, Duration.ZERO);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (Exception e) {
+      assertThat(e).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+
+  /** Counts the number of flushes of the channel. */
+  private static final class FlushCounter extends ChannelOutboundHandlerAdapter
+  {
+
+    /** Number of flushes. */
+    private final AtomicInteger count;
+
+
+    /**
+     * Creates a new flush counter.
+     *
+     * @param  i  to increment on flush
+     */
+    FlushCounter(final AtomicInteger i)
+    {
+      count = i;
+    }
+
+
+    @Override
+    public void flush(final ChannelHandlerContext ctx)
+    {
+      count.incrementAndGet();
+      ctx.flush();
+    }
+  }
+}